@@ -0,0 +1,65 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.conf.RenderQuotedNames;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.scottfamily.scottfamily.synthetic.SyntheticDataGenerator;
+
+/**
+ * Embedded H2 database for the service benchmarks, filled once per size by
+ * {@link SyntheticDataGenerator} (fixed seed, so every run sees the same data). One
+ * database per size, shared by every benchmark in the same fork.
+ *
+ * jOOQ renders unqualified, unquoted names so the generated (SQL Server) table classes
+ * and the services' inline {@code DSL.name(..)} fields resolve against H2 as-is.
+ */
+final class BenchmarkDatabase {
+
+    static final long SEED = 42L;
+
+    private static final Map<Integer, BenchmarkDatabase> BY_SIZE = new ConcurrentHashMap<>();
+
+    final int people;
+    final int users;
+    final int posts;
+    final DSLContext dsl;
+    /** For benchmarks that need their own pool on the same data. */
+    final String jdbcUrl;
+
+    private BenchmarkDatabase(int people, int users, int posts, DSLContext dsl, String jdbcUrl) {
+        this.people = people;
+        this.users = users;
+        this.posts = posts;
+        this.dsl = dsl;
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    static BenchmarkDatabase ofSize(int people) {
+        return BY_SIZE.computeIfAbsent(people, BenchmarkDatabase::create);
+    }
+
+    private static BenchmarkDatabase create(int people) {
+        String url = "jdbc:h2:mem:bench" + people + ";DB_CLOSE_DELAY=-1";
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(url);
+        cfg.setUsername("sa");
+        cfg.setMaximumPoolSize(4);
+        DSLContext dsl = DSL.using(new HikariDataSource(cfg), SQLDialect.H2, new Settings()
+                .withRenderCatalog(false)
+                .withRenderSchema(false)
+                .withRenderQuotedNames(RenderQuotedNames.NEVER));
+
+        SyntheticDataGenerator.createH2Schema(dsl);
+        SyntheticDataGenerator.Summary s = new SyntheticDataGenerator(dsl,
+                SyntheticDataGenerator.Options.forPeople(people, SEED)).generate();
+        return new BenchmarkDatabase(people, s.rows().get("users"), s.rows().get("blog_posts"), dsl, url);
+    }
+}
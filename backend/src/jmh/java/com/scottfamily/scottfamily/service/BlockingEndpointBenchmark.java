@@ -0,0 +1,122 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jooq.ExecuteListener;
+import org.jooq.SQLDialect;
+import org.jooq.conf.RenderQuotedNames;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Request threads on a blocking endpoint: bursts of {@value #REQUESTS} concurrent blog
+ * listings, each holding a pooled connection for its queries plus {@code dbMillis} per
+ * statement (the Azure SQL round trip H2 doesn't have), then waiting {@code ioMillis} on
+ * another service (Blob Storage, SMTP) with the connection returned.
+ *
+ * {@code platform} runs them on 50 pooled threads, as Tomcat is configured; {@code virtual}
+ * gives each request a virtual thread, as with {@code spring.threads.virtual.enabled}. Both
+ * share a 20-connection Hikari pool, as in production, so with virtual threads the pool is
+ * the only limit. Results are requests per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlockingEndpointBenchmark {
+
+    static final int REQUESTS = 500;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"5"})
+    int dbMillis;
+
+    @Param({"50"})
+    int ioMillis;
+
+    private HikariDataSource pool;
+    private BlogPostService service;
+    private ExecutorService executor;
+    private long currentUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase db = BenchmarkDatabase.ofSize(10_000);
+        HikariConfig cfg = new HikariConfig();
+        cfg.setJdbcUrl(db.jdbcUrl);
+        cfg.setUsername("sa");
+        cfg.setMaximumPoolSize(20);
+        cfg.setConnectionTimeout(10_000);
+        pool = new HikariDataSource(cfg);
+
+        var dsl = DSL.using(new DefaultConfiguration()
+                .set(pool)
+                .set(SQLDialect.H2)
+                .set(new Settings()
+                        .withRenderCatalog(false)
+                        .withRenderSchema(false)
+                        .withRenderQuotedNames(RenderQuotedNames.NEVER))
+                .set(ExecuteListener.onExecuteEnd(ctx -> pause(dbMillis))));
+
+        FamilyGraph graph = new FamilyGraph(db.dsl);
+        graph.warmUp();
+        service = new BlogPostService(dsl, new DisplayNameService(dsl, graph));
+        currentUserId = 1 + db.users / 2;
+
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(50);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        pool.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public int burst() throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(executor.submit(() -> {
+                int posts = service.listAll(currentUserId, "newest", 0, 20).size();
+                pause(ioMillis);
+                return posts;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> r : responses) total += r.get();
+        return total;
+    }
+
+    private static void pause(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+
+/**
+ * The first page of {@link BlogPostService#listAll(Long, String, int, int)} as a signed-in
+ * user sees it, against an H2 database with one post per 20 people and skewed reactions.
+ * {@code popular} orders by the like-count subquery, so it has to count every post.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlogListingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int people;
+
+    @Param({"newest", "popular"})
+    String sort;
+
+    private BlogPostService service;
+    private long currentUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase db = BenchmarkDatabase.ofSize(people);
+        FamilyGraph graph = new FamilyGraph(db.dsl);
+        graph.warmUp();
+        service = new BlogPostService(db.dsl, new DisplayNameService(db.dsl, graph));
+        currentUserId = 1 + db.users / 2;
+    }
+
+    @Benchmark
+    public List<BlogPostService.BlogPostDto> listFirstPage() {
+        return service.listAll(currentUserId, sort, 0, 50);
+    }
+}
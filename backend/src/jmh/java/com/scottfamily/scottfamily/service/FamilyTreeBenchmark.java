@@ -0,0 +1,71 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+
+/**
+ * {@link FamilyTreeService#buildTree()} and the {@code /family/tree} payload against an H2
+ * database of synthetic families.
+ *
+ * The tree is cached per graph version, so the cached case is a field read. The
+ * {@code AfterEdit} cases refresh one person first (what every write path does), which
+ * bumps the version and forces the layout to be rebuilt: that's the cost a visitor pays
+ * after someone edits the tree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FamilyTreeBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int people;
+
+    private BenchmarkDatabase db;
+    private FamilyGraph graph;
+    private FamilyTreeService service;
+    private long nextEdited;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = BenchmarkDatabase.ofSize(people);
+        graph = new FamilyGraph(db.dsl);
+        graph.warmUp();
+        service = new FamilyTreeService(graph, new ObjectMapper());
+        service.buildTree();
+    }
+
+    @Benchmark
+    public DTOs.FamilyNodeDto buildTreeCached() {
+        return service.buildTree();
+    }
+
+    @Benchmark
+    public DTOs.FamilyNodeDto buildTreeAfterEdit() {
+        graph.refresh(nextPerson());
+        return service.buildTree();
+    }
+
+    @Benchmark
+    public FamilyTreeService.TreePayload treePayloadAfterEdit() {
+        graph.refresh(nextPerson());
+        return service.treePayload();
+    }
+
+    private long nextPerson() {
+        nextEdited = nextEdited % db.people + 1;
+        return nextEdited;
+    }
+}
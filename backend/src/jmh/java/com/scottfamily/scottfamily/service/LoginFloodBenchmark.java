@@ -0,0 +1,84 @@
+package com.scottfamily.scottfamily.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.security.BoundedPasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * A login flood next to ordinary traffic: eight threads check passwords back to back
+ * (a credential-stuffing burst) while one thread runs the person-picker search. Compare the
+ * {@code search} latency between {@code inline} (BCrypt on the caller's thread, as request
+ * threads used to) and {@code bounded} ({@link BoundedPasswordEncoder} with one hashing
+ * thread): with the pool, hashing can't take every core, so search latency should stay
+ * close to {@link PeopleSearchBenchmark}'s; logins the pool can't take are shed at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoginFloodBenchmark {
+
+    @Param({"inline", "bounded"})
+    String hashing;
+
+    private PasswordEncoder encoder;
+    private String hash;
+    private PeopleService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase db = BenchmarkDatabase.ofSize(10_000);
+        FamilyGraph graph = new FamilyGraph(db.dsl);
+        graph.warmUp();
+        service = new PeopleService(db.dsl, graph, new PersonMatcher(graph));
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        hash = bcrypt.encode("correct horse battery staple");
+        encoder = "bounded".equals(hashing)
+                ? new BoundedPasswordEncoder(bcrypt, 1, 16, Duration.ofSeconds(3), new SimpleMeterRegistry())
+                : bcrypt;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (encoder instanceof BoundedPasswordEncoder b) b.close();
+    }
+
+    @Benchmark
+    @Group("flood")
+    @GroupThreads(8)
+    public boolean login() {
+        try {
+            return encoder.matches("wrong password", hash);
+        } catch (BoundedPasswordEncoder.Saturated e) {
+            return false;   // shed: the API answers 503 straight away
+        }
+    }
+
+    @Benchmark
+    @Group("flood")
+    @GroupThreads(1)
+    public List<DTOs.PersonSummaryDto> search() {
+        return service.searchPeople("johnson", 20);
+    }
+}
@@ -0,0 +1,50 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+
+/**
+ * {@link PeopleService#searchPeople(String, int)} (the autocomplete behind every person
+ * picker) over synthetic families, answered from the resident graph's name index, which
+ * is loaded from H2 during setup. Queries cover a broad two-letter prefix, a common full
+ * surname and a miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PeopleSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int people;
+
+    @Param({"sc", "johnson", "qzx"})
+    String query;
+
+    private PeopleService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkDatabase db = BenchmarkDatabase.ofSize(people);
+        FamilyGraph graph = new FamilyGraph(db.dsl);
+        graph.warmUp();
+        service = new PeopleService(db.dsl, graph, new PersonMatcher(graph));
+    }
+
+    @Benchmark
+    public List<DTOs.PersonSummaryDto> searchPeople() {
+        return service.searchPeople(query, 20);
+    }
+}
@@ -2,21 +2,41 @@ package com.scottfamily.scottfamily.config;
 
 import java.util.concurrent.Executor;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
- * Configures a bounded thread pool for @Async methods (email, SMS, blob deletes).
+ * Configures a bounded executor for @Async methods (email, SMS, blob deletes).
  * Without this bean Spring uses a SimpleAsyncTaskExecutor that creates an unbounded
  * number of threads — dangerous on Azure B2 (2 vCPU, 3.5 GB RAM).
+ *
+ * With {@code spring.threads.virtual.enabled} each task gets its own virtual thread
+ * instead; the tasks spend their time waiting on SMTP, Twilio and Blob Storage, so the
+ * concurrency limit (which throttles submitters) is what protects those services.
  */
 @Configuration
 public class AsyncConfig implements AsyncConfigurer {
 
+    /** Virtual-thread mode: most tasks in flight at once. */
+    private static final int VIRTUAL_CONCURRENCY_LIMIT = 32;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean("asyncExecutor")
-    public ThreadPoolTaskExecutor asyncExecutor() {
+    public AsyncTaskExecutor asyncExecutor() {
+        if (virtualThreads) {
+            var executor = new SimpleAsyncTaskExecutor("async-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(VIRTUAL_CONCURRENCY_LIMIT);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
         var executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(4);
         executor.setMaxPoolSize(8);
@@ -12,8 +12,9 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 
 /**
  * Caffeine-based cache configuration.
- * - "familyTree" cache: 5-minute TTL, single entry (the full tree DTO).
- *   This eliminates repeated 5-query rebuilds on every page load.
+ * No caches are pre-registered; names are created on first use with the defaults below.
+ * The family tree is no longer cached here — it is served from the resident
+ * {@link com.scottfamily.scottfamily.graph.FamilyGraph}, which the write paths keep current.
  */
 @Configuration
 @EnableCaching
@@ -21,7 +22,7 @@ public class CacheConfig {
 
     @Bean
     public CacheManager cacheManager() {
-        CaffeineCacheManager manager = new CaffeineCacheManager("familyTree");
+        CaffeineCacheManager manager = new CaffeineCacheManager();
         manager.setCaffeine(Caffeine.newBuilder()
                 .expireAfterWrite(Duration.ofMinutes(5))
                 .maximumSize(10));
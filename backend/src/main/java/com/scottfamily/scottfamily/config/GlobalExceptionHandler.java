@@ -1,7 +1,9 @@
 package com.scottfamily.scottfamily.config;
 
+import com.scottfamily.scottfamily.security.BoundedPasswordEncoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -60,6 +62,14 @@ public class GlobalExceptionHandler {
                 HttpStatus.NOT_FOUND, ex.getMessage(), null));
     }
 
+    /** Password hashing pool saturated (login flood) — shed the request, ask the client to retry. */
+    @ExceptionHandler(BoundedPasswordEncoder.Saturated.class)
+    public ResponseEntity<Map<String, Object>> handleSaturated(BoundedPasswordEncoder.Saturated ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(errorBody(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage(), null));
+    }
+
     /** Spring Security access denied (already authenticated but lacks role). */
     @ExceptionHandler(AccessDeniedException.class)
     public ResponseEntity<Map<String, Object>> handleAccessDenied(AccessDeniedException ex) {
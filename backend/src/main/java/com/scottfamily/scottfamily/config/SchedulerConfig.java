@@ -1,19 +1,35 @@
 package com.scottfamily.scottfamily.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * Provides a multi-threaded scheduler so @Scheduled jobs (OrphanBlobCleanup, etc.)
  * don't block each other. Spring's default is a single-thread scheduler.
+ *
+ * With {@code spring.threads.virtual.enabled} every run gets its own virtual thread, so
+ * no job waits for a pool slot. The jobs use fixed rates and cron only; a fixed delay
+ * would run on the scheduler's single timer thread.
  */
 @Configuration
 public class SchedulerConfig {
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @Bean
     public TaskScheduler taskScheduler() {
+        if (virtualThreads) {
+            var scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix("sched-");
+            scheduler.setTaskTerminationTimeout(30_000);
+            return scheduler;
+        }
         var scheduler = new ThreadPoolTaskScheduler();
         scheduler.setPoolSize(4);
         scheduler.setThreadNamePrefix("sched-");
@@ -1,9 +1,12 @@
 package com.scottfamily.scottfamily.config;
 
-import com.yourproject.generated.scott_family_web.tables.records.UsersRecord;
+import com.scottfamily.scottfamily.properties.RequestLimitProperties;
+import com.scottfamily.scottfamily.security.BoundedPasswordEncoder;
+import com.scottfamily.scottfamily.security.RequestLimitFilter;
+import com.scottfamily.scottfamily.security.SessionUserFilter;
+import com.scottfamily.scottfamily.security.SessionUsers;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
 import lombok.RequiredArgsConstructor;
-import org.jooq.DSLContext;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,9 +24,9 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
 import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
@@ -31,24 +34,32 @@ import org.springframework.security.web.csrf.CsrfTokenRequestAttributeHandler;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.time.Duration;
 import java.util.List;
 
-import static com.yourproject.generated.scott_family_web.Tables.USERS;
-
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${server.tomcat.remoteip.trusted-proxies:}")
+    private String trustedProxies;
+
     // Comma-separated list of allowed origins; fall back to localhost:3000 in dev.
     @Value("${app.cors.origin:http://localhost:3000}")
     private String allowedOrigins;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, SessionUsers sessionUsers,
+                                                   RequestLimitProperties requestLimits,
+                                                   MeterRegistry meters) throws Exception {
         http
                 // CORS must be before CSRF/authZ so preflights succeed
                 .cors(Customizer.withDefaults())
@@ -92,6 +103,10 @@ public class SecurityConfig {
                 // Let Spring Security write/read the SecurityContext to the HTTP session
                 .securityContext(sc -> sc.securityContextRepository(securityContextRepository()))
 
+                // Reload the session's principal when its role, ban or person link changed
+                .addFilterAfter(new SessionUserFilter(sessionUsers, securityContextRepository()),
+                        SecurityContextHolderFilter.class)
+
                 // Explicit logout — invalidates session, clears cookies
                 .logout(logout -> logout
                         .logoutUrl("/api/auth/logout")
@@ -128,6 +143,11 @@ public class SecurityConfig {
                                 .maxAgeInSeconds(31536000))    // Strict-Transport-Security
                 );
 
+        // Per-caller token buckets and load shedding, once the principal is known
+        if (requestLimits.isEnabled()) {
+            http.addFilterAfter(new RequestLimitFilter(requestLimits, meters, virtualThreads, trustedProxies), SessionUserFilter.class);
+        }
+
         return http.build();
     }
 
@@ -160,7 +180,7 @@ public class SecurityConfig {
 
                 // Expose any headers the frontend needs to read (e.g., Set-Cookie is handled by the browser,
                 // but exposing it here is harmless; most useful are custom headers if you add them later)
-                cfg.setExposedHeaders(List.of("Location", "Content-Disposition"));
+                cfg.setExposedHeaders(List.of("Location", "Content-Disposition", "ETag", "X-Tree-Version", "X-Tree-Delta", "Retry-After"));
 
                 // Cache preflight for 30 minutes
                 cfg.setMaxAge(1800L);
@@ -170,10 +190,16 @@ public class SecurityConfig {
         };
     }
 
-    // Default DelegatingPasswordEncoder (no custom bean needed elsewhere)
+    // BCrypt on a small bounded pool: a login flood can't take every core from the other endpoints
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${auth.password-hashing.threads:1}") int threads,
+            @Value("${auth.password-hashing.queue-capacity:16}") int queueCapacity,
+            @Value("${auth.password-hashing.max-wait:3s}") Duration maxWait,
+            MeterRegistry meters) {
+        return new BoundedPasswordEncoder(
+                new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder(),
+                threads, queueCapacity, maxWait, meters);
     }
 
     // Backed by HttpSession — solves the “SecurityContextRepository bean” complaints
@@ -183,20 +209,18 @@ public class SecurityConfig {
     }
 
     @Bean
-    public UserDetailsService userDetailsService(@Autowired final DSLContext dsl) {
+    public UserDetailsService userDetailsService(final UserSecurityCache userSecurity) {
         return username -> {
-            UsersRecord user = dsl.selectFrom(USERS)
-                    .where(USERS.USERNAME.eq(username))
-                    .fetchOne();
+            UserSecurityCache.UserSecurity user = userSecurity.byUsername(username);
             if(user == null){
                 throw new UsernameNotFoundException("username not found");
             }
-            var authorities = List.of(new SimpleGrantedAuthority(user.getUserRole()));
+            var authorities = List.of(new SimpleGrantedAuthority(user.role()));
             return org.springframework.security.core.userdetails.User
-                    .withUsername(user.getUsername())
-                    .password(user.getPasswordHash())
+                    .withUsername(user.username())
+                    .password(user.passwordHash())
                     .authorities(authorities)
-                    .accountExpired(false).accountLocked(false).credentialsExpired(false).disabled(false)
+                    .accountExpired(false).accountLocked(user.banned()).credentialsExpired(false).disabled(!user.approved())
                     .build();
         };
     }
@@ -0,0 +1,49 @@
+package com.scottfamily.scottfamily.controller;
+
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import com.scottfamily.scottfamily.service.FamilyTreeService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Admin-only diagnostics for the resident family graph: memory footprint of the
+ * primitive store, people the tree can't place, and a manual full reload from the database.
+ */
+@RestController
+@RequestMapping("/api/admin/family-graph")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminFamilyGraphController {
+
+    private final FamilyGraph familyGraph;
+    private final FamilyTreeService familyTreeService;
+
+    public AdminFamilyGraphController(FamilyGraph familyGraph, FamilyTreeService familyTreeService) {
+        this.familyGraph = familyGraph;
+        this.familyTreeService = familyTreeService;
+    }
+
+    /** Estimated heap usage of the graph, broken down by column group. */
+    @GetMapping("/stats")
+    public ResponseEntity<FamilyGraphStore.MemoryReport> stats() {
+        return ResponseEntity.ok(familyGraph.memoryReport());
+    }
+
+    /** People the tree can't place (mother/father cycles, branches under an embedded spouse). */
+    @GetMapping("/unplaced")
+    public ResponseEntity<?> unplaced() {
+        return ResponseEntity.ok(Map.of(
+                "version", familyGraph.version(),
+                "personIds", familyTreeService.unplacedPersonIds()));
+    }
+
+    /** Rebuild the graph from the database (e.g. after a manual SQL fix). */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        familyGraph.reload();
+        return ResponseEntity.ok(Map.of("version", familyGraph.version()));
+    }
+}
@@ -0,0 +1,63 @@
+package com.scottfamily.scottfamily.controller;
+
+import com.scottfamily.scottfamily.service.GedcomExportService;
+import com.scottfamily.scottfamily.service.GedcomImportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Admin-only GEDCOM export of the whole family database (backups, genealogy tools) and
+ * bulk import of a GEDCOM file.
+ */
+@RestController
+@RequestMapping("/api/admin/gedcom")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminGedcomController {
+
+    private final GedcomExportService exportService;
+    private final GedcomImportService importService;
+
+    public AdminGedcomController(GedcomExportService exportService, GedcomImportService importService) {
+        this.exportService = exportService;
+        this.importService = importService;
+    }
+
+    /**
+     * Streams the file straight to the response ({@code version=5.5.1} or {@code 7.0}).
+     * A failure part-way leaves the download without its {@code 0 TRLR} line.
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(defaultValue = "5.5.1") String version,
+                       HttpServletResponse response) throws IOException {
+        GedcomExportService.Version v = GedcomExportService.Version.parse(version);
+        response.setContentType(v.mediaType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("scott-family-" + LocalDate.now() + ".ged")
+                .build()
+                .toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        exportService.export(v, response.getOutputStream());
+    }
+
+    /**
+     * Import a GEDCOM file. Defaults to a dry run that only returns the diff (new people,
+     * matches against existing people, link counts); pass {@code dryRun=false} to write.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<GedcomImportService.Result> importFile(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(defaultValue = "true") boolean dryRun,
+            @RequestParam(defaultValue = "true") boolean linkMatches) throws IOException {
+        if (file.isEmpty()) throw new IllegalArgumentException("file is required");
+        return ResponseEntity.ok(importService.importGedcom(file.getInputStream(),
+                new GedcomImportService.Options(dryRun, linkMatches)));
+    }
+}
@@ -2,6 +2,8 @@ package com.scottfamily.scottfamily.controller;
 
 import com.scottfamily.scottfamily.dto.DTOs;
 import com.scottfamily.scottfamily.dto.DTOs.PendingProfileChangeItem;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
 import com.scottfamily.scottfamily.service.MailService;
 import com.scottfamily.scottfamily.service.PeopleService;
 import com.yourproject.generated.scott_family_web.Tables;
@@ -31,6 +33,8 @@ public class AdminModerationController {
     private final DSLContext dsl;
     private final MailService mail;
     private final PeopleService peopleService;
+    private final FamilyGraph familyGraph;
+    private final UserSecurityCache userSecurity;
 
     // Inline field refs for columns not yet in generated jOOQ classes
     private static final org.jooq.Field<Long> U_ARCHIVED_CLAIM_PERSON_ID =
@@ -38,10 +42,13 @@ public class AdminModerationController {
     private static final org.jooq.Field<Boolean> IS_ARCHIVED =
             DSL.field(DSL.name("is_archived"), Boolean.class);
 
-    public AdminModerationController(DSLContext dsl, MailService mail, PeopleService peopleService) {
+    public AdminModerationController(DSLContext dsl, MailService mail, PeopleService peopleService,
+                                     FamilyGraph familyGraph, UserSecurityCache userSecurity) {
         this.dsl = dsl;
         this.mail = mail;
         this.peopleService = peopleService;
+        this.familyGraph = familyGraph;
+        this.userSecurity = userSecurity;
     }
 
     // =========================
@@ -102,6 +109,7 @@ public class AdminModerationController {
                     .set(Tables.USERS.APPROVED_AT, DSL.currentLocalDateTime())
                     .where(Tables.USERS.ID.eq(userId))
                     .execute();
+            userSecurity.invalidate(userId);
 
             // If this user claimed an archived profile, un-archive it upon approval
             Long archivedClaimId = dsl.select(U_ARCHIVED_CLAIM_PERSON_ID)
@@ -113,6 +121,7 @@ public class AdminModerationController {
                         .where(PEOPLE.ID.eq(archivedClaimId))
                         .execute();
             }
+            familyGraph.refresh(r.getPersonId(), archivedClaimId);
 
             if (r.getEmail() != null) mail.sendApprovalEmail(r.getEmail());
         }
@@ -130,10 +139,12 @@ public class AdminModerationController {
                     .from(Tables.USERS).where(Tables.USERS.ID.eq(userId))
                     .fetchOne(U_ARCHIVED_CLAIM_PERSON_ID);
             dsl.deleteFrom(Tables.USERS).where(Tables.USERS.ID.eq(userId)).execute();
+            userSecurity.invalidate(userId);
             // Clean up orphan PEOPLE row — but NOT if it was an archived profile (it existed before the signup)
             if (personId != null && archivedClaimId == null) {
                 dsl.deleteFrom(Tables.PEOPLE).where(Tables.PEOPLE.ID.eq(personId)).execute();
             }
+            familyGraph.refresh(personId);
             if (email != null) mail.sendRejectionEmail(email);
         }
         return ResponseEntity.ok().build();
@@ -149,6 +160,7 @@ public class AdminModerationController {
                     .set(Tables.USERS.APPROVED_AT, DSL.currentLocalDateTime())
                     .where(Tables.USERS.ID.in(body.ids()))
                     .execute();
+            body.ids().forEach(userSecurity::invalidate);
 
             // Un-archive any claimed archived profiles
             var archivedClaimIds = dsl.select(U_ARCHIVED_CLAIM_PERSON_ID)
@@ -163,10 +175,13 @@ public class AdminModerationController {
                         .execute();
             }
 
-            dsl.selectFrom(Tables.USERS)
+            var approved = dsl.selectFrom(Tables.USERS)
                     .where(Tables.USERS.ID.in(body.ids()))
-                    .fetch()
-                    .forEach(u -> { if (u.getEmail()!=null) mail.sendApprovalEmail(u.getEmail()); });
+                    .fetch();
+            var touched = new java.util.ArrayList<Long>(archivedClaimIds);
+            approved.forEach(u -> touched.add(u.getPersonId()));
+            familyGraph.refresh(touched);
+            approved.forEach(u -> { if (u.getEmail()!=null) mail.sendApprovalEmail(u.getEmail()); });
         }
         return ResponseEntity.ok().build();
     }
@@ -194,10 +209,12 @@ public class AdminModerationController {
                     .toList();
 
             dsl.deleteFrom(Tables.USERS).where(Tables.USERS.ID.in(body.ids())).execute();
+            body.ids().forEach(userSecurity::invalidate);
             // Clean up orphan PEOPLE rows (excluding archived profiles)
             if (!personIdsToDelete.isEmpty()) {
                 dsl.deleteFrom(Tables.PEOPLE).where(Tables.PEOPLE.ID.in(personIdsToDelete)).execute();
             }
+            familyGraph.refresh(usersToReject.map(r -> r.get(Tables.USERS.PERSON_ID)));
             emails.forEach(mail::sendRejectionEmail);
         }
         return ResponseEntity.ok().build();
@@ -338,6 +355,7 @@ public class AdminModerationController {
                 if (childPersonId != null && personId != null) {
                     upsertPersonParent(dsl, childPersonId, personId, relation);
                 }
+                familyGraph.refresh(childPersonId, personId);
             }
 
             case "father_id" -> {
@@ -364,6 +382,7 @@ public class AdminModerationController {
                 if (childPersonId != null && personId != null) {
                     upsertPersonParent(dsl, childPersonId, personId, relation);
                 }
+                familyGraph.refresh(childPersonId, personId);
             }
             case "add_child" -> {
                 // newValue format: childPersonId:relation
@@ -377,6 +396,7 @@ public class AdminModerationController {
                             .fetchOneInto(Long.class);
                     if (childPersonId != null && parentPersonId != null && relation != null && !relation.isBlank()) {
                         upsertPersonParent(dsl, childPersonId, parentPersonId, relation);
+                        familyGraph.refresh(childPersonId, parentPersonId);
                     }
                 }
             }
@@ -407,6 +427,7 @@ public class AdminModerationController {
                                     .set(org.jooq.impl.DSL.field(org.jooq.impl.DSL.name("RELATION"), String.class), relation)
                                     .execute();
                         }
+                        familyGraph.refresh(aId, bId);
                     }
                 }
             }
@@ -437,6 +458,7 @@ public class AdminModerationController {
                                     .set(org.jooq.impl.DSL.field(org.jooq.impl.DSL.name("RELATION"), String.class), relation)
                                     .execute();
                         }
+                        familyGraph.refresh(aId, bId);
                     }
                 }
             }
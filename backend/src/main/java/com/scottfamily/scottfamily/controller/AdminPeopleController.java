@@ -0,0 +1,88 @@
+package com.scottfamily.scottfamily.controller;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.service.DuplicatePeopleService;
+import com.scottfamily.scottfamily.service.PersonMatcher;
+
+/**
+ * Admin-only fuzzy lookups over PEOPLE: who a name (and optional date of birth) could
+ * refer to, and which existing profiles may duplicate a given person. Results carry a
+ * 0–1 {@code matchScore}; see {@link PersonMatcher} for how it is computed. Also the
+ * duplicate review queue and merging a duplicate into the profile that is kept.
+ */
+@RestController
+@RequestMapping("/api/admin/people")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminPeopleController {
+
+    private static final int MAX_LIMIT = 50;
+    private static final int MAX_TOLERANCE_DAYS = 3660;
+    private static final int MAX_QUEUE_PAGE = 500;
+
+    private final PersonMatcher personMatcher;
+    private final DuplicatePeopleService duplicates;
+
+    public AdminPeopleController(PersonMatcher personMatcher, DuplicatePeopleService duplicates) {
+        this.personMatcher = personMatcher;
+        this.duplicates = duplicates;
+    }
+
+    /** People whose names sound like the given ones, with a DOB (if given) within tolerance. */
+    @GetMapping("/matches")
+    public List<DTOs.PersonSummaryDto> matches(@RequestParam String firstName,
+                                              @RequestParam(required = false) String lastName,
+                                              @RequestParam(required = false) LocalDate dateOfBirth,
+                                              @RequestParam(defaultValue = "366") int toleranceDays,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        return personMatcher.find(new PersonMatcher.Query(firstName, lastName, dateOfBirth, tolerance(toleranceDays)),
+                PersonMatcher.Filter.ANY, clamp(limit));
+    }
+
+    /** Likely duplicates of one person. */
+    @GetMapping("/{personId}/similar")
+    public List<DTOs.PersonSummaryDto> similar(@PathVariable long personId,
+                                               @RequestParam(defaultValue = "366") int toleranceDays,
+                                               @RequestParam(defaultValue = "20") int limit) {
+        return personMatcher.similarTo(personId, tolerance(toleranceDays), clamp(limit));
+    }
+
+    /** The duplicate review queue from the last scan, best pairs first. */
+    @GetMapping("/duplicates")
+    public DuplicatePeopleService.Queue duplicates(@RequestParam(defaultValue = "100") int limit) {
+        return duplicates.queue(Math.max(1, Math.min(limit, MAX_QUEUE_PAGE)));
+    }
+
+    /** Rescan now instead of waiting for the nightly job; returns the new queue. */
+    @PostMapping("/duplicates/scan")
+    public DuplicatePeopleService.Queue scanDuplicates(@RequestParam(defaultValue = "100") int limit) {
+        return duplicates.scan(Math.max(1, Math.min(limit, MAX_QUEUE_PAGE)));
+    }
+
+    /** Fold {@code mergePersonId} into {@code keepPersonId}, repointing every reference, and delete it. */
+    @PostMapping("/merge")
+    public DuplicatePeopleService.MergeResult merge(@RequestParam long keepPersonId,
+                                                    @RequestParam long mergePersonId) {
+        return duplicates.merge(keepPersonId, mergePersonId);
+    }
+
+    private static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    private static int tolerance(int days) {
+        if (days < 0 || days > MAX_TOLERANCE_DAYS)
+            throw new IllegalArgumentException("toleranceDays must be between 0 and " + MAX_TOLERANCE_DAYS);
+        return days;
+    }
+}
@@ -1,6 +1,7 @@
 package com.scottfamily.scottfamily.controller;
 
 import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
 import com.scottfamily.scottfamily.service.PeopleService;
 import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
@@ -25,6 +26,7 @@ public class AdminPeopleRequestsController {
 
     private final DSLContext dsl;
     private final PeopleService peopleService;
+    private final FamilyGraph familyGraph;
 
     // Inline field refs for new columns
     private static final Field<Long>   F_PARENT_PERSON_ID = DSL.field(DSL.name("parent_person_id"), Long.class);
@@ -113,6 +115,7 @@ public class AdminPeopleRequestsController {
             if (requester != null && requester.getPersonId() == null && newId != null && parentPersonId == null) {
                 dsl.update(USERS).set(USERS.PERSON_ID, newId).where(USERS.ID.eq(requester.getId())).execute();
             }
+            familyGraph.refresh(newId);
         } else if ("LINK_CHILD".equals(action)) {
             // Link existing child (targetPersonId) to parent (parentPersonId)
             Long childId = req.getTargetPersonId();
@@ -130,6 +133,7 @@ public class AdminPeopleRequestsController {
                         .set(PEOPLE.FATHER_ID, req.getFatherId())
                         .where(PEOPLE.ID.eq(req.getTargetPersonId()))
                         .execute();
+                familyGraph.refresh(req.getTargetPersonId());
             }
         }
 
@@ -163,6 +167,7 @@ public class AdminPeopleRequestsController {
                     .values(childId, parentId, relation, LocalDate.now())
                     .execute();
         }
+        familyGraph.refresh(childId, parentId);
     }
 
     @PostMapping("/{id}/reject")
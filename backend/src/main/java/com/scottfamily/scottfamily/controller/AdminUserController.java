@@ -1,5 +1,9 @@
 package com.scottfamily.scottfamily.controller;
 
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.security.SessionUsers;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
+import com.scottfamily.scottfamily.service.DisplayNameService;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.impl.DSL;
@@ -38,6 +42,10 @@ import static com.yourproject.generated.scott_family_web.tables.Users.USERS;
 public class AdminUserController {
 
     private final DSLContext dsl;
+    private final FamilyGraph familyGraph;
+    private final DisplayNameService displayNames;
+    private final SessionUsers sessionUsers;
+    private final UserSecurityCache userSecurity;
 
     // Inline field refs for columns not yet in generated jOOQ code
     private static final Field<OffsetDateTime> U_BANNED_UNTIL = DSL.field(DSL.name("banned_until"), OffsetDateTime.class);
@@ -48,8 +56,13 @@ public class AdminUserController {
     private static final Field<String> P_MIDDLE_NAME = DSL.field(DSL.name("middle_name"), String.class);
     private static final Field<String> P_SUFFIX      = DSL.field(DSL.name("suffix"),      String.class);
 
-    public AdminUserController(DSLContext dsl) {
+    public AdminUserController(DSLContext dsl, FamilyGraph familyGraph, DisplayNameService displayNames,
+                               SessionUsers sessionUsers, UserSecurityCache userSecurity) {
         this.dsl = dsl;
+        this.familyGraph = familyGraph;
+        this.displayNames = displayNames;
+        this.sessionUsers = sessionUsers;
+        this.userSecurity = userSecurity;
     }
 
     // ─── DTOs ───────────────────────────────────────────────
@@ -208,6 +221,8 @@ public class AdminUserController {
 
         // 5. Delete the user row
         dsl.deleteFrom(USERS).where(USERS.ID.eq(userId)).execute();
+        displayNames.evictUser(userId);
+        sessionUsers.userChanged(userId);
 
         // 6. Clean up the person row if it exists and is now orphaned
         if (personId != null) {
@@ -259,6 +274,9 @@ public class AdminUserController {
 
         // Finally delete the person
         dsl.deleteFrom(PEOPLE).where(PEOPLE.ID.eq(personId)).execute();
+
+        // Graph drops the node, its edges and the mother/father refs (after commit)
+        familyGraph.refresh(personId);
     }
 
     // ─── Delete person (profile without user account) ───────
@@ -302,6 +320,7 @@ public class AdminUserController {
                 .set(U_BAN_REASON, req.reason())
                 .where(USERS.ID.eq(userId))
                 .execute();
+        sessionUsers.userChanged(userId);   // signs them out on their next request
 
         return ResponseEntity.ok(Map.of("status", "banned"));
     }
@@ -327,6 +346,7 @@ public class AdminUserController {
                 .set(USERS.USER_ROLE, newRole)
                 .where(USERS.ID.eq(userId))
                 .execute();
+        sessionUsers.userChanged(userId);
 
         return ResponseEntity.ok(Map.of("status", "role_updated", "role", newRole));
     }
@@ -343,6 +363,7 @@ public class AdminUserController {
                 .setNull(U_BAN_REASON)
                 .where(USERS.ID.eq(userId))
                 .execute();
+        userSecurity.invalidate(userId);
 
         return ResponseEntity.ok(Map.of("status", "unbanned"));
     }
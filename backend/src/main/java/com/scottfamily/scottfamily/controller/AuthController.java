@@ -1,6 +1,7 @@
 package com.scottfamily.scottfamily.controller;
 
 import com.scottfamily.scottfamily.config.AppConfig;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
 import com.scottfamily.scottfamily.service.MailService;
 import org.jooq.DSLContext;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -22,12 +23,15 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final MailService mailer;       // your existing mail abstraction
     private final String appBaseUrl;   // e.g., injected from config like "https://your.app"
+    private final UserSecurityCache userSecurity;
 
-    public AuthController(DSLContext dsl, PasswordEncoder passwordEncoder, MailService mailer, AppConfig appConfig) {
+    public AuthController(DSLContext dsl, PasswordEncoder passwordEncoder, MailService mailer, AppConfig appConfig,
+                          UserSecurityCache userSecurity) {
         this.dsl = dsl;
         this.passwordEncoder = passwordEncoder;
         this.mailer = mailer;
         this.appBaseUrl = appConfig.getBaseUrl();
+        this.userSecurity = userSecurity;
     }
 
     @PostMapping("/forgot-username")
@@ -83,6 +87,7 @@ public class AuthController {
                 .set(USERS.PASSWORD_HASH, passwordEncoder.encode(newPassword))
                 .where(USERS.ID.eq(rec.getUserId()))
                 .execute();
+        userSecurity.invalidate(rec.getUserId());
 
         dsl.deleteFrom(PASSWORD_RESET_TOKENS)
                 .where(PASSWORD_RESET_TOKENS.ID.eq(rec.getId()))
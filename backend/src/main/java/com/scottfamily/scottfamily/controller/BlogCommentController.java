@@ -38,7 +38,7 @@ public class BlogCommentController {
             @RequestParam(defaultValue = "oldest") String sort,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         return commentService.listComments(postId, userId, sort);
     }
 
@@ -51,7 +51,7 @@ public class BlogCommentController {
         if (request.content == null || request.content.isBlank()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Content is required"));
         }
-        Long authorId = userHelper.resolveUserId(auth.getName());
+        Long authorId = userHelper.resolveUserId(auth);
         if (authorId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -65,7 +65,7 @@ public class BlogCommentController {
             @PathVariable Long commentId,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -86,7 +86,7 @@ public class BlogCommentController {
             @PathVariable Long commentId,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -102,7 +102,7 @@ public class BlogCommentController {
             @PathVariable Long commentId,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -42,7 +42,7 @@ public class BlogPostController {
             @RequestParam(defaultValue = "50") int limit,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         return blogPostService.listAll(userId, sort, offset, Math.min(limit, 100));
     }
 
@@ -55,7 +55,7 @@ public class BlogPostController {
             return ResponseEntity.badRequest().body(Map.of("error", "Title is required"));
         }
 
-        Long authorId = userHelper.resolveUserId(auth.getName());
+        Long authorId = userHelper.resolveUserId(auth);
         if (authorId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -73,7 +73,7 @@ public class BlogPostController {
             @PathVariable Long id,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -94,7 +94,7 @@ public class BlogPostController {
             @PathVariable Long id,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -110,7 +110,7 @@ public class BlogPostController {
             @PathVariable Long id,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -5,12 +5,14 @@ import com.scottfamily.scottfamily.dto.DTOs;
 import com.scottfamily.scottfamily.service.AuthService;
 import com.scottfamily.scottfamily.service.FamilyTreeService;
 import com.scottfamily.scottfamily.service.TwoFactorAuthService;
+import com.scottfamily.scottfamily.security.BoundedPasswordEncoder;
 import com.scottfamily.scottfamily.security.LoginRateLimiter;
+import com.scottfamily.scottfamily.security.SessionUser;
+import com.scottfamily.scottfamily.security.SessionUsers;
 import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 
 // Security-context imports for /auth/login remain if you use them
@@ -19,10 +21,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.context.SecurityContextRepository;
@@ -37,6 +40,11 @@ public class Controller {
     private final TwoFactorAuthService twoFactorAuthService;
     private final DSLContext dsl;
     private final SecurityContextRepository securityContextRepository;
+    private final SessionUsers sessionUsers;
+    private final LoginRateLimiter loginRateLimiter;
+
+    private static final String TREE_VERSION = "X-Tree-Version";
+    private static final String TREE_DELTA = "X-Tree-Delta";
 
     @Value("${server.servlet.session.timeout:20m}")
     private String sessionTimeout;
@@ -50,8 +58,8 @@ public class Controller {
         // IP-based rate limiting to prevent brute-force attacks.
         // Throttles the attacker's IP, not the target account — so a
         // legitimate user on a different IP can still log in normally.
-        String clientIp = getClientIp(request);
-        LoginRateLimiter.RateLimitResult rateCheck = LoginRateLimiter.check(clientIp);
+        String clientIp = request.getRemoteAddr();
+        LoginRateLimiter.RateLimitResult rateCheck = loginRateLimiter.check(clientIp);
         if (!rateCheck.allowed()) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
                     "error", "TOO_MANY_ATTEMPTS",
@@ -65,7 +73,7 @@ public class Controller {
             profile = authService.authenticate(req);
         } catch (IllegalArgumentException ex) {
             // Bad credentials — record the failed attempt and return a clear message
-            LoginRateLimiter.recordFailure(clientIp);
+            loginRateLimiter.recordFailure(clientIp);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of(
                     "error", "INVALID_CREDENTIALS",
                     "message", "Invalid username or password."
@@ -103,13 +111,24 @@ public class Controller {
             // Clear any previous security context (credentials validated, but 2FA not yet)
             SecurityContextHolder.clearContext();
 
+            // Authenticator app: nothing to send; /auth/resend-2fa is the SMS fallback
+            if (twoFactorAuthService.usesAuthenticator(profile.id())) {
+                return ResponseEntity.ok(Map.of(
+                        "twoFactorRequired", true,
+                        "method", "TOTP"
+                ));
+            }
+
             // Send OTP code
             try {
                 String maskedPhone = twoFactorAuthService.sendCode(profile.id());
                 return ResponseEntity.ok(Map.of(
                         "twoFactorRequired", true,
+                        "method", "SMS",
                         "maskedPhone", maskedPhone
                 ));
+            } catch (BoundedPasswordEncoder.Saturated e) {
+                throw e;    // 503 + Retry-After rather than a failed send
             } catch (Exception e) {
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                         "error", "2FA_SEND_FAILED",
@@ -118,32 +137,19 @@ public class Controller {
             }
         }
 
-        var auth = new UsernamePasswordAuthenticationToken(
-                profile.username(),
-                null,
-                List.of(new SimpleGrantedAuthority(springRole))
-        );
+        SessionUser principal = sessionUsers.signedIn(profile.id(), profile.personId(), profile.username(), springRole);
 
         SecurityContext context = SecurityContextHolder.createEmptyContext();
-        context.setAuthentication(auth);
+        context.setAuthentication(principal.toAuthentication());
         SecurityContextHolder.setContext(context);
         securityContextRepository.saveContext(context, request, response);
 
         // Clear rate-limit counter on successful login
-        LoginRateLimiter.recordSuccess(clientIp);
+        loginRateLimiter.recordSuccess(clientIp);
 
         return ResponseEntity.ok(profile);
     }
 
-    /** Extracts the real client IP, respecting X-Forwarded-For from Azure load balancers. */
-    private String getClientIp(HttpServletRequest request) {
-        String xff = request.getHeader("X-Forwarded-For");
-        if (xff != null && !xff.isBlank()) {
-            return xff.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
-    }
-
     /**
      * Verify a 2FA code (OTP or backup code) to complete login.
      */
@@ -203,18 +209,15 @@ public class Controller {
         session.removeAttribute("2FA_PENDING_USERNAME");
         session.removeAttribute("2FA_PENDING_ROLE");
 
-        var auth = new UsernamePasswordAuthenticationToken(
-                username, null,
-                List.of(new SimpleGrantedAuthority(springRole != null ? springRole : "ROLE_USER"))
-        );
+        SessionUser principal = sessionUsers.signedIn(userId, profileOpt.get().personId(), username, springRole);
 
         SecurityContext context = SecurityContextHolder.createEmptyContext();
-        context.setAuthentication(auth);
+        context.setAuthentication(principal.toAuthentication());
         SecurityContextHolder.setContext(context);
         securityContextRepository.saveContext(context, request, response);
 
         // Rate limit success
-        LoginRateLimiter.recordSuccess(getClientIp(request));
+        loginRateLimiter.recordSuccess(request.getRemoteAddr());
 
         return ResponseEntity.ok((Object) profileOpt.get());
     }
@@ -248,6 +251,8 @@ public class Controller {
         try {
             String maskedPhone = twoFactorAuthService.sendCode(userId);
             return ResponseEntity.ok(Map.of("maskedPhone", maskedPhone, "sent", true));
+        } catch (BoundedPasswordEncoder.Saturated e) {
+            throw e;
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                     "error", "2FA_SEND_FAILED", "message", "Failed to resend code. Please try again."));
@@ -325,9 +330,99 @@ public class Controller {
     }
 
     // --- Family tree ---
+    /**
+     * Full tree from pre-serialized bytes. Served gzip-encoded when the client accepts it
+     * (Tomcat skips its own compression once Content-Encoding is set), and answered with
+     * 304 when If-None-Match carries the current ETag of either encoding.
+     */
     @GetMapping("/family/tree")
-    public DTOs.FamilyNodeDto getFamilyTree() {
-        return familyTreeService.buildTree();
+    public ResponseEntity<byte[]> getFamilyTree(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        FamilyTreeService.TreePayload tree = familyTreeService.treePayload();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? tree.gzipEtag() : tree.etag();
+
+        if (etagMatches(ifNoneMatch, tree.etag()) || etagMatches(ifNoneMatch, tree.gzipEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(TREE_VERSION, Long.toString(tree.version()))
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(TREE_VERSION, Long.toString(tree.version()))
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(tree.gzip());
+        }
+        return ok.body(tree.json());
+    }
+
+    /**
+     * Patch for a tree the client already holds: {@code since} is the X-Tree-Version it came
+     * with. When the change log doesn't reach back that far the full tree is returned instead,
+     * exactly as from {@code /family/tree}, marked with {@code X-Tree-Delta: full}.
+     */
+    @GetMapping("/family/tree/changes")
+    public ResponseEntity<?> getFamilyTreeChanges(
+            @RequestParam long since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        var changes = familyTreeService.changesSince(since);
+        if (changes.isPresent()) {
+            return ResponseEntity.ok()
+                    .header(TREE_VERSION, Long.toString(changes.get().toVersion()))
+                    .header(TREE_DELTA, "patch")
+                    .cacheControl(CacheControl.noStore())
+                    .body(changes.get());
+        }
+        ResponseEntity<byte[]> full = getFamilyTree(null, acceptEncoding);
+        return ResponseEntity.status(full.getStatusCode())
+                .headers(full.getHeaders())
+                .header(TREE_DELTA, "full")
+                .body(full.getBody());
+    }
+
+    /** True unless the client explicitly refuses gzip (q=0) or doesn't list gzip / *. */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equals("*")) continue;
+            boolean refused = false;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim().replace(" ", "");
+                if (param.matches("q=0(\\.0{0,3})?")) refused = true;
+            }
+            return !refused;
+        }
+        return false;
+    }
+
+    /** If-None-Match may list several tags (or *); weak comparison per RFC 9110 §13.1.2. */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*")) return true;
+            if (c.startsWith("W/")) c = c.substring(2);
+            if (c.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /** Window of the tree around one person; truncated nodes carry childCount for lazy expand. */
+    @GetMapping("/family/tree/{personId}")
+    public DTOs.FamilyNodeDto getFamilySubtree(@PathVariable Long personId,
+                                               @RequestParam(defaultValue = "2") int depth,
+                                               @RequestParam(defaultValue = "1") int ancestors) {
+        return familyTreeService.buildSubtree(personId, depth, ancestors);
     }
 
     // (Admin endpoints moved to AdminModerationController)
@@ -42,7 +42,7 @@ public class DonationController {
             @RequestBody CreateDonationRequestBody request,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
         try {
@@ -94,7 +94,7 @@ public class DonationController {
     /** List the current user's donations. */
     @GetMapping("/mine")
     public ResponseEntity<?> getMyDonations(Authentication auth) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         return ResponseEntity.ok(donationService.getByUser(userId));
     }
@@ -38,19 +38,22 @@ public class DuesController {
     private final DuePeriodService periodService;
     private final DuesPricingService pricingService;
     private final UserHelper userHelper;
+    private final LoginRateLimiter loginRateLimiter;
 
     public DuesController(DuesService duesService, DuePeriodService periodService,
-                          DuesPricingService pricingService, UserHelper userHelper) {
+                          DuesPricingService pricingService, UserHelper userHelper,
+                          LoginRateLimiter loginRateLimiter) {
         this.duesService = duesService;
         this.periodService = periodService;
         this.pricingService = pricingService;
         this.userHelper = userHelper;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     /** Get the current user's dues page: self status + guest payments. */
     @GetMapping
     public ResponseEntity<?> getMyDues(Authentication auth) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
         int year = periodService.resolveReunionYear();
@@ -68,16 +71,16 @@ public class DuesController {
             Authentication auth,
             HttpServletRequest httpRequest
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
-        String clientIp = getClientIp(httpRequest);
-        LoginRateLimiter.RateLimitResult rateCheck = LoginRateLimiter.check(clientIp);
+        String clientIp = httpRequest.getRemoteAddr();
+        LoginRateLimiter.RateLimitResult rateCheck = loginRateLimiter.check(clientIp);
         if (!rateCheck.allowed()) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
                     "error", "Too many requests. Please try again in " + rateCheck.retryAfterSeconds() + " seconds."));
         }
-        LoginRateLimiter.recordFailure(clientIp);
+        loginRateLimiter.recordFailure(clientIp);
 
         int year = periodService.resolveReunionYear();
 
@@ -100,16 +103,16 @@ public class DuesController {
             Authentication auth,
             HttpServletRequest httpRequest
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
-        String clientIp = getClientIp(httpRequest);
-        LoginRateLimiter.RateLimitResult rateCheck = LoginRateLimiter.check(clientIp);
+        String clientIp = httpRequest.getRemoteAddr();
+        LoginRateLimiter.RateLimitResult rateCheck = loginRateLimiter.check(clientIp);
         if (!rateCheck.allowed()) {
             return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
                     "error", "Too many requests. Please try again in " + rateCheck.retryAfterSeconds() + " seconds."));
         }
-        LoginRateLimiter.recordFailure(clientIp);
+        loginRateLimiter.recordFailure(clientIp);
 
         if (request.batchId == null || request.batchId.isBlank()) {
             return ResponseEntity.badRequest().body(Map.of("error", "batchId is required"));
@@ -267,12 +270,4 @@ public class DuesController {
         public Integer reunionYear;
         public List<PricingTierDto> tiers;
     }
-
-    private String getClientIp(HttpServletRequest request) {
-        String xff = request.getHeader("X-Forwarded-For");
-        if (xff != null && !xff.isBlank()) {
-            return xff.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
-    }
 }
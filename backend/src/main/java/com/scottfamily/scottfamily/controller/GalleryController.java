@@ -78,7 +78,7 @@ public class GalleryController {
             @RequestBody RegisterRequest request,
             Authentication auth
     ) {
-        Long uploaderId = userHelper.resolveUserId(auth.getName());
+        Long uploaderId = userHelper.resolveUserId(auth);
         if (uploaderId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve uploader"));
         }
@@ -122,7 +122,7 @@ public class GalleryController {
             @RequestBody YouTubeLinkRequest request,
             Authentication auth
     ) {
-        Long uploaderId = userHelper.resolveUserId(auth.getName());
+        Long uploaderId = userHelper.resolveUserId(auth);
         if (uploaderId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve uploader"));
         }
@@ -149,7 +149,7 @@ public class GalleryController {
             @RequestBody YouTubeBatchRequest request,
             Authentication auth
     ) {
-        Long uploaderId = userHelper.resolveUserId(auth.getName());
+        Long uploaderId = userHelper.resolveUserId(auth);
         if (uploaderId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve uploader"));
         }
@@ -0,0 +1,51 @@
+package com.scottfamily.scottfamily.controller;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.service.LineageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Ancestor/descendant queries for one branch of the family, answered from memory.
+ */
+@RestController
+@RequestMapping("/api/family/lineage")
+@RequiredArgsConstructor
+public class LineageController {
+
+    private final LineageService lineage;
+
+    @GetMapping("/{personId}/descendants")
+    public DTOs.LineagePageDto descendants(@PathVariable Long personId,
+                                           @RequestParam(defaultValue = "0") int offset,
+                                           @RequestParam(defaultValue = "50") int limit) {
+        return lineage.descendants(personId, offset, limit);
+    }
+
+    @GetMapping("/{personId}/ancestors")
+    public DTOs.LineagePageDto ancestors(@PathVariable Long personId,
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @RequestParam(defaultValue = "50") int limit) {
+        return lineage.ancestors(personId, offset, limit);
+    }
+
+    /** Counts per generation below the person ({@code direction=ancestors} for above). */
+    @GetMapping("/{personId}/generations")
+    public DTOs.BranchGenerationsDto generations(@PathVariable Long personId,
+                                                 @RequestParam(defaultValue = "descendants") String direction) {
+        boolean ancestors = switch (direction.toLowerCase()) {
+            case "ancestors" -> true;
+            case "descendants" -> false;
+            default -> throw new IllegalArgumentException("direction must be 'ancestors' or 'descendants'");
+        };
+        return lineage.generations(personId, ancestors);
+    }
+
+    @GetMapping("/is-ancestor")
+    public Map<String, Object> isAncestor(@RequestParam Long ancestorId, @RequestParam Long personId) {
+        return Map.of("ancestorId", ancestorId, "personId", personId,
+                "isAncestor", lineage.isAncestor(ancestorId, personId));
+    }
+}
@@ -64,7 +64,7 @@ public class PageContentController {
             @Valid @RequestBody SaveBlocksRequest request,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         pageContentService.saveBlocks(pageKey, request.blocks, userId);
         return ResponseEntity.ok(Map.of("pageKey", pageKey, "saved", true));
     }
@@ -9,8 +9,6 @@ import org.jooq.DSLContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,10 +20,11 @@ import org.springframework.web.bind.annotation.RestController;
 import jakarta.validation.Valid;
 
 import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.security.SessionUser;
 import com.scottfamily.scottfamily.service.PeopleService;
+import com.scottfamily.scottfamily.service.RelationshipService;
 import com.scottfamily.scottfamily.service.SiteSettingsService;
 import static com.yourproject.generated.scott_family_web.tables.ProfileChangeRequests.PROFILE_CHANGE_REQUESTS;
-import static com.yourproject.generated.scott_family_web.tables.Users.USERS;
 
 import lombok.RequiredArgsConstructor;
 
@@ -36,6 +35,13 @@ public class PeopleController {
     private final PeopleService people;
     private final DSLContext dsl;
     private final SiteSettingsService settings;
+    private final RelationshipService relationships;
+
+    /** How {@code b} is related to {@code a}: shortest path, lowest common ancestors and a kinship label. */
+    @GetMapping("/people/{a}/relationship/{b}")
+    public DTOs.RelationshipDto relationship(@PathVariable Long a, @PathVariable Long b) {
+        return relationships.relationship(a, b);
+    }
 
     @GetMapping("/people/search")
     public List<DTOs.PersonSummaryDto> search(@RequestParam("q") String q,
@@ -129,16 +135,11 @@ public class PeopleController {
     @PostMapping("/people/{personId}/change-requests")
     public ResponseEntity<Void> submitPeopleChangeRequest(
             @PathVariable Long personId,
-            @AuthenticationPrincipal User principal,
+            SessionUser me,
             @Valid @RequestBody DTOs.EditPersonRequest req
     ) {
-        if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-
-        // Find the user id for the requester
-        Long userId = dsl.select(USERS.ID).from(USERS)
-                .where(USERS.USERNAME.eq(principal.getUsername()))
-                .fetchOneInto(Long.class);
-        if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (me == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Long userId = me.userId();
 
         // Queue each non-null field as a separate change request
         // We store the target personId in the OLD_VALUE field prefixed with "person:" so admin can identify
@@ -190,15 +191,14 @@ public class PeopleController {
     @PutMapping("/people/{personId}/bio")
     public ResponseEntity<?> editBio(
             @PathVariable Long personId,
-            @AuthenticationPrincipal User principal,
+            SessionUser me,
             @RequestBody BioRequest req
     ) {
-        if (principal == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        if (me == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         if (people.hasAccount(personId))
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Use profile endpoint for accounts");
 
-        boolean admin = principal.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        boolean admin = me.isAdmin();
 
         boolean bypass = settings.isEnabled(SiteSettingsService.BYPASS_PEOPLE_REQUEST_APPROVAL);
 
@@ -210,11 +210,7 @@ public class PeopleController {
             return ResponseEntity.ok().body(java.util.Map.of("applied", true));
         } else {
             // Queue for approval
-            Long userId = dsl.select(USERS.ID).from(USERS)
-                    .where(USERS.USERNAME.eq(principal.getUsername()))
-                    .fetchOneInto(Long.class);
-            if (userId == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            queueIfPresent(userId, personId, "person_bio", req.bio);
+            queueIfPresent(me.userId(), personId, "person_bio", req.bio);
             return ResponseEntity.ok().body(java.util.Map.of("applied", false));
         }
     }
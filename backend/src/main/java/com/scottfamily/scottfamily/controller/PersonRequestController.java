@@ -5,14 +5,13 @@ import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
 
+import com.scottfamily.scottfamily.security.SessionUser;
 import com.scottfamily.scottfamily.service.SiteSettingsService;
 
-import static com.yourproject.generated.scott_family_web.tables.Users.USERS;
 import static com.yourproject.generated.scott_family_web.tables.PersonRequests.PERSON_REQUESTS;
 
 @RestController
@@ -25,35 +24,20 @@ public class PersonRequestController {
     private final SiteSettingsService siteSettings;
     private final AdminPeopleRequestsController adminPeopleRequestsController;
 
-    /** Resolve username from SecurityContext (works regardless of principal type). */
-    private String currentUsername() {
-        var auth = SecurityContextHolder.getContext().getAuthentication();
-        return auth != null ? auth.getName() : null;
-    }
-
     /** Returns count of pending requests for the current user. */
     @GetMapping("/pending-count")
-    public ResponseEntity<Map<String, Object>> pendingCount() {
-        String username = currentUsername();
-        if (username == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-        var me = dsl.selectFrom(USERS).where(USERS.USERNAME.eq(username)).fetchOne();
+    public ResponseEntity<Map<String, Object>> pendingCount(SessionUser me) {
         if (me == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         int count = dsl.selectCount().from(PERSON_REQUESTS)
-                .where(PERSON_REQUESTS.USER_ID.eq(me.getId()))
+                .where(PERSON_REQUESTS.USER_ID.eq(me.userId()))
                 .and(PERSON_REQUESTS.STATUS.eq("PENDING"))
                 .fetchOne(0, int.class);
         return ResponseEntity.ok(Map.of("count", count, "max", MAX_PENDING_PER_USER));
     }
 
     @PostMapping
-    public ResponseEntity<?> submit(@RequestBody PersonRequestSubmit body) {
-
-        String username = currentUsername();
-        if (username == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    public ResponseEntity<?> submit(@RequestBody PersonRequestSubmit body, SessionUser me) {
 
-        var me = dsl.selectFrom(USERS)
-                .where(USERS.USERNAME.eq(username))
-                .fetchOne();
         if (me == null || body == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
 
         String action = body.action != null ? body.action.toUpperCase() : "";
@@ -69,7 +53,7 @@ public class PersonRequestController {
 
         // Cap check
         int pending = dsl.selectCount().from(PERSON_REQUESTS)
-                .where(PERSON_REQUESTS.USER_ID.eq(me.getId()))
+                .where(PERSON_REQUESTS.USER_ID.eq(me.userId()))
                 .and(PERSON_REQUESTS.STATUS.eq("PENDING"))
                 .fetchOne(0, int.class);
         if (pending >= MAX_PENDING_PER_USER) {
@@ -84,7 +68,7 @@ public class PersonRequestController {
         var F_RELATION = org.jooq.impl.DSL.field(org.jooq.impl.DSL.name("relation"), String.class);
 
         Long requestId = dsl.insertInto(PERSON_REQUESTS)
-                .set(PERSON_REQUESTS.USER_ID, me.getId())
+                .set(PERSON_REQUESTS.USER_ID, me.userId())
                 .set(PERSON_REQUESTS.ACTION, action)
                 .set(PERSON_REQUESTS.TARGET_PERSON_ID, body.targetPersonId)
                 .set(PERSON_REQUESTS.FIRST_NAME, body.firstName)
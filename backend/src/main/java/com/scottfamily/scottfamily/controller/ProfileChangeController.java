@@ -7,12 +7,13 @@ import com.scottfamily.scottfamily.dto.DTOs.MyPendingChangesResponse;
 import com.scottfamily.scottfamily.dto.DTOs.MyPendingPerson;
 import com.scottfamily.scottfamily.dto.DTOs.PendingProfileChangeItem;
 import com.scottfamily.scottfamily.dto.DTOs.ProfileChangeSubmitRequest;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.security.SessionUser;
 import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 
@@ -35,16 +36,11 @@ public class ProfileChangeController {
 
     private final DSLContext dsl;
     private final SiteSettingsService siteSettings;
+    private final FamilyGraph familyGraph;
 
     private static final java.util.Set<String> ACCEPTED_FIELDS =
             java.util.Set.of("mother_id", "father_id", "add_child", "add_sibling", "add_spouse");
 
-    /** Resolve username from SecurityContext (works regardless of principal type). */
-    private String currentUsername() {
-        var auth = SecurityContextHolder.getContext().getAuthentication();
-        return auth != null ? auth.getName() : null;
-    }
-
     /**
      * Client POST for submitting profile change requests.
      * Accepted fields: mother_id, father_id, display_name, add_child.
@@ -52,15 +48,9 @@ public class ProfileChangeController {
      * (except add_child, which allows multiple).
      */
     @PostMapping
-    public void submit(@Valid @RequestBody ProfileChangeSubmitRequest body) {
+    public void submit(@Valid @RequestBody ProfileChangeSubmitRequest body, SessionUser me) {
 
-        String username = currentUsername();
-        if (username == null || body == null || body.changes == null || body.changes.isEmpty()) return;
-
-        var me = dsl.selectFrom(USERS)
-                .where(USERS.USERNAME.eq(username))
-                .fetchOne();
-        if (me == null) return;
+        if (me == null || body == null || body.changes == null || body.changes.isEmpty()) return;
 
         for (Change c : body.changes) {
             if (c == null || c.field == null || c.newValue == null) continue;
@@ -72,7 +62,7 @@ public class ProfileChangeController {
 
             if ("mother_id".equals(field) || "father_id".equals(field)) {
                 // Read current parent IDs from PEOPLE (via user's person_id)
-                Long myPersonId = me.getPersonId();
+                Long myPersonId = me.personId();
                 Long currentMotherId = null;
                 Long currentFatherId = null;
                 if (myPersonId != null) {
@@ -163,7 +153,7 @@ public class ProfileChangeController {
             // Replace existing PENDING request for (user, field) — but NOT for add_child/add_sibling/add_spouse (multiple allowed)
             if (!"add_child".equals(field) && !"add_sibling".equals(field) && !"add_spouse".equals(field)) {
                 dsl.deleteFrom(PROFILE_CHANGE_REQUESTS)
-                        .where(PROFILE_CHANGE_REQUESTS.USER_ID.eq(me.getId())
+                        .where(PROFILE_CHANGE_REQUESTS.USER_ID.eq(me.userId())
                                 .and(PROFILE_CHANGE_REQUESTS.FIELD.eq(field))
                                 .and(PROFILE_CHANGE_REQUESTS.STATUS.eq("PENDING")))
                         .execute();
@@ -171,7 +161,7 @@ public class ProfileChangeController {
 
             // Insert PENDING request
             Long requestId = dsl.insertInto(PROFILE_CHANGE_REQUESTS)
-                    .set(PROFILE_CHANGE_REQUESTS.USER_ID, me.getId())
+                    .set(PROFILE_CHANGE_REQUESTS.USER_ID, me.userId())
                     .set(PROFILE_CHANGE_REQUESTS.FIELD, field)
                     .set(PROFILE_CHANGE_REQUESTS.OLD_VALUE, oldValue)
                     .set(PROFILE_CHANGE_REQUESTS.NEW_VALUE, c.newValue)
@@ -194,22 +184,16 @@ public class ProfileChangeController {
      * Visible only to the requesting user.
      */
     @GetMapping("/mine")
-    public MyPendingChangesResponse mine() {
+    public MyPendingChangesResponse mine(SessionUser me) {
         MyPendingChangesResponse resp = new MyPendingChangesResponse();
         resp.profileChanges = new ArrayList<>();
         resp.pendingPeople = new ArrayList<>();
 
-        String username = currentUsername();
-        if (username == null) return resp;
-
-        var me = dsl.selectFrom(USERS)
-                .where(USERS.USERNAME.eq(username))
-                .fetchOne();
         if (me == null) return resp;
 
         // 1) PENDING profile change requests
         var pcRows = dsl.selectFrom(PROFILE_CHANGE_REQUESTS)
-                .where(PROFILE_CHANGE_REQUESTS.USER_ID.eq(me.getId())
+                .where(PROFILE_CHANGE_REQUESTS.USER_ID.eq(me.userId())
                         .and(PROFILE_CHANGE_REQUESTS.STATUS.eq("PENDING")))
                 .fetch();
 
@@ -256,7 +240,7 @@ public class ProfileChangeController {
 
         var personRows = dsl.select(prId, prFirstName, prLastName, prDob)
                 .from(pr)
-                .where(prUserId.eq(me.getId())
+                .where(prUserId.eq(me.userId())
                         .and(prAction.eq("ADD"))
                         .and(prStatus.eq("PENDING")))
                 .fetch();
@@ -321,21 +305,15 @@ public class ProfileChangeController {
     @PostMapping("/{id}/reject")
     @PreAuthorize("hasRole('ADMIN')")
     public void reject(@PathVariable("id") Long id,
-                       @RequestParam(name = "notes", required = false) String notes) {
+                       @RequestParam(name = "notes", required = false) String notes,
+                       SessionUser admin) {
 
         var rec = dsl.selectFrom(PROFILE_CHANGE_REQUESTS)
                 .where(PROFILE_CHANGE_REQUESTS.ID.eq(id))
                 .fetchOne();
         if (rec == null || !"PENDING".equals(rec.getStatus())) return;
 
-        String adminUsername = currentUsername();
-        Long adminUserId = null;
-        if (adminUsername != null) {
-            adminUserId = dsl.select(USERS.ID)
-                    .from(USERS)
-                    .where(USERS.USERNAME.eq(adminUsername))
-                    .fetchOne(USERS.ID);
-        }
+        Long adminUserId = admin != null ? admin.userId() : null;
 
         dsl.update(PROFILE_CHANGE_REQUESTS)
                 .set(PROFILE_CHANGE_REQUESTS.STATUS, "REJECTED")
@@ -462,6 +440,7 @@ public class ProfileChangeController {
                 }
                 default -> { /* no-op */ }
             }
+            familyGraph.refresh(myPersonId, targetPersonId);
         }
 
         // Mark as APPROVED
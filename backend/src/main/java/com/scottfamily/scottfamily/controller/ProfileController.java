@@ -2,6 +2,7 @@
 package com.scottfamily.scottfamily.controller;
 
 import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
 import com.scottfamily.scottfamily.service.UserHelper;
 import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
@@ -25,6 +26,7 @@ public class ProfileController {
 
     private final DSLContext dsl;
     private final UserHelper userHelper;
+    private final FamilyGraph familyGraph;
 
     // Inline field refs for PEOPLE columns not yet in generated jOOQ classes
     private static final org.jooq.Field<String> P_MIDDLE_NAME        = DSL.field(DSL.name("middle_name"),        String.class);
@@ -100,6 +102,7 @@ public class ProfileController {
             }
             upd.where(PEOPLE.ID.eq(personId)).execute();
         }
+        familyGraph.refresh(personId);
         return ResponseEntity.ok().build();
     }
 }
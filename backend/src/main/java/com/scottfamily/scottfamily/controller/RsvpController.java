@@ -37,7 +37,7 @@ public class RsvpController {
     /** Get the authenticated user's RSVP (or 204 if none yet). */
     @GetMapping
     public ResponseEntity<?> getMyRsvp(Authentication auth) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -55,7 +55,7 @@ public class RsvpController {
             @Valid @RequestBody RsvpRequest request,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) {
             return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         }
@@ -85,7 +85,7 @@ public class StoreController {
             @Valid @RequestBody CreateOrderRequest request,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
         try {
@@ -102,7 +102,7 @@ public class StoreController {
             @Valid @RequestBody ConfirmOrderRequest request,
             Authentication auth
     ) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
         OrderDto order = orderService.getOrder(id);
@@ -127,7 +127,7 @@ public class StoreController {
 
     @GetMapping("/orders/mine")
     public ResponseEntity<?> getMyOrders(Authentication auth) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
         return ResponseEntity.ok(orderService.getOrdersByUser(userId));
     }
@@ -138,7 +138,7 @@ public class StoreController {
      */
     @PostMapping("/orders/{id}/cancel")
     public ResponseEntity<?> cancelMyOrder(@PathVariable Long id, Authentication auth) {
-        Long userId = userHelper.resolveUserId(auth.getName());
+        Long userId = userHelper.resolveUserId(auth);
         if (userId == null) return ResponseEntity.status(403).body(Map.of("error", "Could not resolve user"));
 
         OrderDto order = orderService.getOrder(id);
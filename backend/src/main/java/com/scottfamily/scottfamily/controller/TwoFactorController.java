@@ -16,6 +16,8 @@ import java.util.Map;
  *
  * GET    /api/2fa/status                → current 2FA status
  * POST   /api/2fa/enable                → enable 2FA (requires phoneNumber + password)
+ * POST   /api/2fa/totp/setup            → start authenticator-app setup (requires password)
+ * POST   /api/2fa/totp/confirm          → finish it with a code from the app
  * POST   /api/2fa/disable               → disable 2FA (requires password)
  * POST   /api/2fa/regenerate-codes      → regenerate backup codes (requires password)
  * POST   /api/admin/2fa/reset/{userId}  → admin resets a user's 2FA
@@ -53,6 +55,33 @@ public class TwoFactorController {
         }
     }
 
+    @PostMapping("/api/2fa/totp/setup")
+    public ResponseEntity<?> beginTotp(Authentication auth, @RequestBody Map<String, String> body) {
+        Long userId = userHelper.resolveUserId(auth);
+        if (userId == null) return ResponseEntity.status(401).build();
+
+        try {
+            TotpEnrollment enrollment = twoFactorAuthService.beginTotp(userId, body.get("password"));
+            return ResponseEntity.ok(enrollment);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/api/2fa/totp/confirm")
+    public ResponseEntity<?> confirmTotp(Authentication auth, @RequestBody Map<String, String> body) {
+        Long userId = userHelper.resolveUserId(auth);
+        if (userId == null) return ResponseEntity.status(401).build();
+
+        String code = body.get("code");
+        try {
+            TwoFactorSetupResult result = twoFactorAuthService.confirmTotp(userId, code != null ? code.trim() : null);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/api/2fa/disable")
     public ResponseEntity<?> disable(Authentication auth, @RequestBody Map<String, String> body) {
         Long userId = userHelper.resolveUserId(auth);
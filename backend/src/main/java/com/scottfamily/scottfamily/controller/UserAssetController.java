@@ -1,6 +1,7 @@
 package com.scottfamily.scottfamily.controller;
 
 import com.azure.storage.blob.BlobContainerClient;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
 import com.scottfamily.scottfamily.properties.CdnProperties;
 import com.scottfamily.scottfamily.service.CdnUploadService;
 import com.scottfamily.scottfamily.service.CdnUploadService.AssetKind;
@@ -27,17 +28,20 @@ public class UserAssetController {
     private final DSLContext dsl;
     private final BlobContainerClient blobContainer;
     private final CdnProperties cdnProps;
+    private final FamilyGraph familyGraph;
 
     // Inline field refs for PEOPLE columns
     private static final org.jooq.Field<String> P_PROFILE_PICTURE_URL = DSL.field(DSL.name("profile_picture_url"), String.class);
     private static final org.jooq.Field<String> P_BANNER_IMAGE_URL   = DSL.field(DSL.name("banner_image_url"),   String.class);
 
     public UserAssetController(CdnUploadService cdnUploadService, DSLContext dsl,
-                               BlobContainerClient blobContainer, CdnProperties cdnProps) {
+                               BlobContainerClient blobContainer, CdnProperties cdnProps,
+                               FamilyGraph familyGraph) {
         this.cdnUploadService = cdnUploadService;
         this.dsl = dsl;
         this.blobContainer = blobContainer;
         this.cdnProps = cdnProps;
+        this.familyGraph = familyGraph;
     }
 
     // Anonymous upload for signup: returns CDN URL to include in SignupRequest
@@ -81,6 +85,7 @@ public class UserAssetController {
                         .set(P_PROFILE_PICTURE_URL, result.getCdnUrl())
                         .where(PEOPLE.ID.eq(personId))
                         .execute();
+                    familyGraph.refresh(personId);
                     deleteOldBlob(oldUrl, result.getCdnUrl());
                 }
                 case BANNER -> {
@@ -90,6 +95,7 @@ public class UserAssetController {
                         .set(P_BANNER_IMAGE_URL, result.getCdnUrl())
                         .where(PEOPLE.ID.eq(personId))
                         .execute();
+                    familyGraph.refresh(personId);
                     deleteOldBlob(oldUrl, result.getCdnUrl());
                 }
                 default -> { /* POST_IMAGE/STATIC not handled here */ }
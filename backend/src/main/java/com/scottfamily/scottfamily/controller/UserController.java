@@ -3,14 +3,15 @@ package com.scottfamily.scottfamily.controller;
 
 import com.azure.storage.blob.BlobContainerClient;
 import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
 import com.scottfamily.scottfamily.properties.CdnProperties;
+import com.scottfamily.scottfamily.security.SessionUser;
+import com.scottfamily.scottfamily.security.SessionUsers;
 import com.yourproject.generated.scott_family_web.tables.records.UsersRecord;
 import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -29,6 +30,8 @@ public class UserController {
     private final DSLContext dsl;
     private final BlobContainerClient blobContainer;
     private final CdnProperties cdnProps;
+    private final FamilyGraph familyGraph;
+    private final SessionUsers sessionUsers;
 
     // Inline field refs for PEOPLE columns not yet in generated jOOQ classes
     private static final org.jooq.Field<String> P_MIDDLE_NAME        = DSL.field(DSL.name("middle_name"),        String.class);
@@ -51,14 +54,14 @@ public class UserController {
      */
     @PutMapping("/api/users/me")
     public DTOs.ProfileDto updateMe(
-            @AuthenticationPrincipal User principal,
+            SessionUser principal,
             @RequestBody Map<String, Object> body
     ) {
-        return dsl.transactionResult(cfg -> {
+        DTOs.ProfileDto profile = dsl.transactionResult(cfg -> {
             var d = DSL.using(cfg);
 
             UsersRecord me = d.selectFrom(USERS)
-                    .where(USERS.USERNAME.eq(principal.getUsername()))
+                    .where(USERS.ID.eq(principal.userId()))
                     .fetchOne();
             if (me == null) {
                 throw new IllegalArgumentException("User not found");
@@ -79,9 +82,11 @@ public class UserController {
             LocalDate dateOfBirth    = date(body.get("dateOfBirth"));
 
             // ---- Update USERS (auth-only columns) ----
+            boolean renamed = notBlank(username) && !username.equals(me.getUsername());
             if (notBlank(username))          me.setUsername(username);
             if (notBlank(email))             me.setEmail(email);
             me.update();
+            if (renamed) sessionUsers.userChanged(me.getId());
 
             // ---- Ensure a linked PEOPLE row exists; create if missing ----
             Long personId = me.getPersonId();
@@ -179,6 +184,8 @@ public class UserController {
                     .spouses(List.of())
                     .build();
         });
+        familyGraph.refresh(profile.personId());
+        return profile;
     }
 
     /* ============================== Helpers ============================== */
@@ -73,6 +73,7 @@ public class DTOs {
         private Boolean archived;
         private String profilePictureUrl;
         private String username;
+        private Double matchScore;   // 0–1, set only by fuzzy matching (PersonMatcher)
     }
     public static final class PersonRequestSubmit {
         public String action;            // "ADD" | "UPDATE" | "LINK_CHILD"
@@ -169,9 +170,59 @@ public class DTOs {
             Long userId,
             List<SpouseInfoDto> spouses,  // ordered list of spouses (empty list = none)
             Boolean deceased,
-            String parentRelation   // e.g. BIOLOGICAL_FATHER, FOSTER_MOTHER, STEP_FATHER, …
+            String parentRelation,  // e.g. BIOLOGICAL_FATHER, FOSTER_MOTHER, STEP_FATHER, …
+            Integer childCount      // set only on truncated nodes of a partial tree (children omitted)
     ) {}
 
+    /**
+     * One node-level edit between two tree versions. Apply in order: REMOVED drops the node,
+     * ADDED creates it, UPDATED / SPOUSES replace its own fields and spouse groups, MOVED
+     * gives its new parent and CHILDREN sets a parent's ordered child ids (0 = the roots).
+     * {@code node} is the node without its children, which come from CHILDREN entries.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record TreeChangeDto(
+            String type,            // ADDED | REMOVED | MOVED | UPDATED | SPOUSES | CHILDREN
+            Long personId,
+            Long parentId,          // ADDED / MOVED: the tree parent, 0 for a root
+            List<Long> childIds,    // CHILDREN only
+            FamilyNodeDto node      // ADDED / UPDATED / SPOUSES
+    ) {}
+
+    /** The edits that turn the tree at {@code fromVersion} into the tree at {@code toVersion}. */
+    public record TreeChangesDto(long fromVersion, long toVersion, List<TreeChangeDto> changes) {}
+
+    /** One hop on a kinship path; {@code edge} is how this person relates to the previous one. */
+    public record KinshipStepDto(
+            Long personId,
+            String displayName,
+            String edge             // PARENT | CHILD | SPOUSE | SIBLING; null for the starting person
+    ) {}
+
+    /** A lowest common ancestor and how many generations up it sits from each person. */
+    public record CommonAncestorDto(Long personId, String displayName, int generationsFromA, int generationsFromB) {}
+
+    /** Answer to "how is B related to A": the label reads as "B is A's …". */
+    public record RelationshipDto(
+            Long personId,
+            Long otherPersonId,
+            String label,           // e.g. "second cousin once removed", "sister-in-law"
+            String kind,            // SELF | BLOOD | SPOUSE | IN_LAW | CONNECTED | NONE
+            List<KinshipStepDto> path,
+            List<CommonAncestorDto> commonAncestors
+    ) {}
+
+    /** One ancestor or descendant in a lineage listing. */
+    public record LineageMemberDto(Long personId, String displayName, String dateOfBirth, String dateOfDeath) {}
+
+    /** A page of ancestors or descendants; {@code total} is the size of the whole set. */
+    public record LineagePageDto(Long personId, int total, int offset, int limit, List<LineageMemberDto> items) {}
+
+    public record GenerationCountDto(int generation, int count) {}
+
+    /** Size of a branch per generation below (or above) one person; generation 1 = children (or parents). */
+    public record BranchGenerationsDto(Long personId, String direction, int total, List<GenerationCountDto> generations) {}
+
     public record LoginRequest(
             @NotBlank(message = "Username is required") String username,
             @NotBlank(message = "Password is required") String password
@@ -0,0 +1,458 @@
+package com.scottfamily.scottfamily.graph;
+
+import static com.yourproject.generated.scott_family_web.Tables.PEOPLE;
+import static com.yourproject.generated.scott_family_web.Tables.USERS;
+import static com.yourproject.generated.scott_family_web.tables.PersonParent.PERSON_PARENT;
+import static com.yourproject.generated.scott_family_web.tables.PersonSibling.PERSON_SIBLING;
+import static com.yourproject.generated.scott_family_web.tables.PersonSpouse.PERSON_SPOUSE;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Resident, in-memory copy of the family graph: every PEOPLE row the tree needs,
+ * the current PERSON_PARENT relations, PERSON_SPOUSE and PERSON_SIBLING pairs, and which people have a
+ * (pending or approved) user account. The data itself is packed into a primitive
+ * {@link FamilyGraphStore}; this class owns loading, refreshing and locking.
+ *
+ * Loaded once at startup, then kept current by the write paths calling
+ * {@link #refresh(Collection)} with the person ids they touched. A refresh re-reads
+ * only those people and every relationship row incident on them, so a single edit
+ * costs a handful of indexed lookups instead of a full reload.
+ *
+ * When called inside a Spring transaction the refresh is deferred until after commit,
+ * so a rolled-back write never leaks into the graph.
+ *
+ * Readers must go through {@link #read(Function)}, which holds the read lock for the
+ * duration of the callback and guarantees a consistent view.
+ */
+@Component
+public class FamilyGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(FamilyGraph.class);
+
+    // Inline field refs for columns not yet in generated jOOQ
+    private static final Field<String> P_PROFILE_PICTURE_URL = DSL.field(DSL.name("profile_picture_url"), String.class);
+    private static final Field<Boolean> IS_DECEASED = DSL.field(DSL.name("is_deceased"), Boolean.class);
+    private static final Field<String> P_MIDDLE_NAME = DSL.field(DSL.name("middle_name"), String.class);
+    private static final Field<String> P_PREFIX = DSL.field(DSL.name("prefix"), String.class);
+    private static final Field<String> P_SUFFIX = DSL.field(DSL.name("suffix"), String.class);
+    private static final Field<Boolean> IS_ARCHIVED = DSL.field(DSL.name("is_archived"), Boolean.class);
+    private static final Field<String> SIBLING_RELATION = DSL.field(DSL.name("RELATION"), String.class);
+
+    private final DSLContext dsl;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * Serialises loaders so two refreshes of the same person can't apply out of order. A lock
+     * rather than a monitor: loaders hold it across DB reads, which would pin a virtual thread.
+     */
+    private final ReentrantLock loadMutex = new ReentrantLock();
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean loaded;
+    /** The date parent relations were last filtered on VALID_TO; see {@link #expireRelations}. */
+    private volatile LocalDate validAsOf = LocalDate.MIN;
+    private final List<Consumer<Set<Long>>> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<Set<Long>>> reloadListeners = new CopyOnWriteArrayList<>();
+
+    /** Graph state (guarded by lock); replaced wholesale on full reload. */
+    private FamilyGraphStore store = new FamilyGraphStore(0);
+
+    public FamilyGraph(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    /* ============================================================
+     * Row types
+     * ============================================================ */
+
+    /** PEOPLE columns as loaded, before they are packed into the store. */
+    record Person(long id, String prefix, String firstName, String middleName, String lastName, String suffix,
+                  LocalDate dateOfBirth, LocalDate dateOfDeath,
+                  Long motherId, Long fatherId, String avatarUrl, boolean deceased, boolean archived) {
+        static Person from(Record r) {
+            boolean isDeceased = Boolean.TRUE.equals(r.get(IS_DECEASED))
+                    || r.get(PEOPLE.DATE_OF_DEATH) != null;
+            return new Person(r.get(PEOPLE.ID), r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
+                    r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX),
+                    r.get(PEOPLE.DATE_OF_BIRTH), r.get(PEOPLE.DATE_OF_DEATH),
+                    r.get(PEOPLE.MOTHER_ID), r.get(PEOPLE.FATHER_ID),
+                    r.get(P_PROFILE_PICTURE_URL), isDeceased, Boolean.TRUE.equals(r.get(IS_ARCHIVED)));
+        }
+    }
+
+    /** One PERSON_SPOUSE row. */
+    record SpousePair(long personId, long spousePersonId) {}
+
+    /** One PERSON_SIBLING row. */
+    record SiblingPair(long personAId, long personBId, String relation) {}
+
+    /* ============================================================
+     * Read side
+     * ============================================================ */
+
+    /**
+     * Monotonic counter bumped on every applied change. Callers that derive
+     * expensive views (e.g. the assembled tree) can memoise them per version.
+     */
+    public long version() {
+        ensureLoaded();
+        return version.get();
+    }
+
+    /** Run {@code fn} against a consistent view of the graph. */
+    public <T> T read(Function<FamilyGraph, T> fn) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return fn.apply(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** The primitive store backing the graph. Only valid inside {@link #read(Function)}. */
+    public FamilyGraphStore store() { return store; }
+
+    /** Size of the graph and approximate heap it retains. */
+    public FamilyGraphStore.MemoryReport memoryReport() {
+        return read(g -> g.store.memoryReport());
+    }
+
+    /* ============================================================
+     * Write side
+     * ============================================================ */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            ensureLoaded();
+        } catch (Exception e) {
+            // Not fatal: the first reader will retry the load
+            log.error("FamilyGraph: initial load failed", e);
+        }
+    }
+
+    /** Drop everything and reload from the database. */
+    public void reload() {
+        Set<Long> relinked;
+        loadMutex.lock();
+        try {
+            relinked = loadAll();
+        } finally {
+            loadMutex.unlock();
+        }
+        notifyChanged(null);
+        publish(reloadListeners, relinked);
+    }
+
+    /**
+     * Call {@code listener} after every applied change, outside the lock, with the person
+     * ids that were refreshed, or null after a full reload. For views derived from the graph
+     * plus other columns (e.g. cached profiles) that must drop what a change touched.
+     */
+    public void addChangeListener(Consumer<Set<Long>> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Call {@code listener} after a full reload, outside the lock, with the people whose
+     * linked user the reload changed: linked, unlinked or relinked, or deleted while linked.
+     * A refresh reports those among the ids it passes to the change listeners.
+     */
+    public void addReloadListener(Consumer<Set<Long>> listener) {
+        reloadListeners.add(listener);
+    }
+
+    public void refresh(Long... personIds) {
+        refresh(Arrays.asList(personIds));
+    }
+
+    /**
+     * Re-read the given people and every relationship row touching them. Ids that no
+     * longer exist in PEOPLE are removed together with their incident edges.
+     * Inside a transaction this runs after commit; ids from several calls in the same
+     * transaction are coalesced into one refresh.
+     */
+    public void refresh(Collection<Long> personIds) {
+        Set<Long> ids = new HashSet<>();
+        for (Long id : personIds) if (id != null) ids.add(id);
+        if (ids.isEmpty()) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            @SuppressWarnings("unchecked")
+            Set<Long> queued = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+            if (queued == null) {
+                Set<Long> batch = new HashSet<>();
+                TransactionSynchronizationManager.bindResource(this, batch);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        refreshNow(batch);
+                    }
+
+                    @Override
+                    public void afterCompletion(int status) {
+                        TransactionSynchronizationManager.unbindResourceIfPossible(FamilyGraph.this);
+                    }
+                });
+                queued = batch;
+            }
+            queued.addAll(ids);
+        } else {
+            refreshNow(ids);
+        }
+    }
+
+    private void refreshNow(Set<Long> ids) {
+        if (!loaded) return; // the initial load will see these rows anyway
+        try {
+            loadMutex.lock();
+            try {
+                applyRefresh(ids);
+            } finally {
+                loadMutex.unlock();
+            }
+            notifyChanged(ids);
+        } catch (Exception e) {
+            // A failed partial refresh could leave the graph inconsistent — fall back to a full reload
+            log.error("FamilyGraph: refresh of {} failed, reloading", ids, e);
+            reload();
+        }
+    }
+
+    /**
+     * Drop parent relations whose VALID_TO has passed since the graph last read them. A
+     * relation valid through yesterday is still in the graph until this runs, so
+     * {@code FamilyGraphExpiryJob} calls it just after midnight; it refreshes only the people
+     * those rows touch.
+     */
+    public void expireRelations() {
+        if (!loaded) return;
+        LocalDate today = LocalDate.now();
+        LocalDate since = validAsOf;
+        if (!today.isAfter(since)) return;
+
+        Set<Long> ids = new HashSet<>();
+        dsl.select(PERSON_PARENT.CHILD_PERSON_ID, PERSON_PARENT.PARENT_PERSON_ID)
+                .from(PERSON_PARENT)
+                .where(PERSON_PARENT.VALID_TO.ge(since))
+                .and(PERSON_PARENT.VALID_TO.lt(today))
+                .forEach(r -> {
+                    ids.add(r.get(PERSON_PARENT.CHILD_PERSON_ID));
+                    ids.add(r.get(PERSON_PARENT.PARENT_PERSON_ID));
+                });
+        validAsOf = today;
+        if (!ids.isEmpty()) refreshNow(ids);
+    }
+
+    private void notifyChanged(Set<Long> ids) {
+        publish(changeListeners, ids);
+    }
+
+    private static void publish(List<Consumer<Set<Long>>> listeners, Set<Long> ids) {
+        Set<Long> view = ids != null ? Set.copyOf(ids) : null;
+        for (Consumer<Set<Long>> l : listeners) {
+            try {
+                l.accept(view);
+            } catch (Exception e) {
+                log.error("FamilyGraph: change listener failed", e);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loadMutex.lock();
+        try {
+            if (!loaded) loadAll();
+        } finally {
+            loadMutex.unlock();
+        }
+    }
+
+    /* Returns the people whose linked user differs from the store replaced (none on the first load) */
+    private Set<Long> loadAll() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+
+        List<Person> rows = fetchPeople(DSL.noCondition());
+        var relRows = fetchParentRelations(DSL.noCondition(), today);
+        var spouseRows = fetchSpousePairs(DSL.noCondition());
+        var siblingRows = fetchSiblingPairs(DSL.noCondition());
+        var userRows = fetchUsers(DSL.noCondition());
+
+        FamilyGraphStore fresh = new FamilyGraphStore(rows.size() + rows.size() / 4);
+        rows.forEach(p -> upsert(fresh, p));
+        relRows.forEach(r -> fresh.putParentRelation(r.childId, r.parentId, r.relation));
+        spouseRows.forEach(sp -> fresh.addSpousePair(sp.personId(), sp.spousePersonId()));
+        siblingRows.forEach(sb -> fresh.addSiblingPair(sb.personAId(), sb.personBId(), sb.relation()));
+        userRows.forEach(u -> fresh.setUser(u.personId(), u.userId(), u.pending(), u.username()));
+        fresh.adjacency();
+        Set<Long> relinked = loaded ? relinked(store, fresh) : Set.of();
+
+        lock.writeLock().lock();
+        try {
+            store = fresh;
+            version.incrementAndGet();
+            loaded = true;
+            validAsOf = today;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("FamilyGraph: loaded {} people, {} parent relations, {} spouse pairs, {} sibling pairs in {} ms",
+                rows.size(), relRows.size(), spouseRows.size(), siblingRows.size(), System.currentTimeMillis() - start);
+        return relinked;
+    }
+
+    /* People linked to a different user (or none) in {@code after}, including linked people it dropped */
+    private static Set<Long> relinked(FamilyGraphStore before, FamilyGraphStore after) {
+        Set<Long> out = new HashSet<>();
+        for (int s = 0; s < after.slotLimit(); s++) {
+            if (!after.isLive(s)) continue;
+            int b = before.slotOf(after.id(s));
+            long was = b >= 0 ? before.userId(b) : FamilyGraphStore.NONE;
+            if (was != after.userId(s)) out.add(after.id(s));
+        }
+        for (int s = 0; s < before.slotLimit(); s++) {
+            if (before.isLive(s) && before.userId(s) != FamilyGraphStore.NONE && after.slotOf(before.id(s)) < 0) {
+                out.add(before.id(s));
+            }
+        }
+        return out;
+    }
+
+    private void applyRefresh(Set<Long> ids) {
+        LocalDate today = LocalDate.now();
+
+        // Read everything first so the write lock is never held across a DB round trip
+        List<Person> rows = fetchPeople(PEOPLE.ID.in(ids));
+        var relRows = fetchParentRelations(
+                PERSON_PARENT.CHILD_PERSON_ID.in(ids).or(PERSON_PARENT.PARENT_PERSON_ID.in(ids)), today);
+        var spouseRows = fetchSpousePairs(
+                PERSON_SPOUSE.PERSON_ID.in(ids).or(PERSON_SPOUSE.SPOUSE_PERSON_ID.in(ids)));
+        var siblingRows = fetchSiblingPairs(
+                PERSON_SIBLING.PERSON_A_ID.in(ids).or(PERSON_SIBLING.PERSON_B_ID.in(ids)));
+        var userRows = fetchUsers(USERS.PERSON_ID.in(ids));
+
+        Set<Long> present = new HashSet<>();
+        rows.forEach(p -> present.add(p.id()));
+
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                if (!present.contains(id)) store.removePerson(id);
+            }
+            rows.forEach(p -> upsert(store, p));
+            for (Long id : ids) {
+                store.clearParentRelations(id);
+                store.clearUser(id);
+            }
+            relRows.forEach(r -> store.putParentRelation(r.childId, r.parentId, r.relation));
+            for (Long id : ids) {
+                List<SpousePair> mine = spouseRows.stream()
+                        .filter(sp -> sp.personId() == id || sp.spousePersonId() == id)
+                        .toList();
+                store.replaceSpousePairs(id,
+                        mine.stream().mapToLong(SpousePair::personId).toArray(),
+                        mine.stream().mapToLong(SpousePair::spousePersonId).toArray());
+            }
+            for (Long id : ids) {
+                List<SiblingPair> mine = siblingRows.stream()
+                        .filter(sb -> sb.personAId() == id || sb.personBId() == id)
+                        .toList();
+                store.replaceSiblingPairs(id,
+                        mine.stream().mapToLong(SiblingPair::personAId).toArray(),
+                        mine.stream().mapToLong(SiblingPair::personBId).toArray(),
+                        mine.stream().map(SiblingPair::relation).toArray(String[]::new));
+            }
+            userRows.forEach(u -> store.setUser(u.personId(), u.userId(), u.pending(), u.username()));
+
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void upsert(FamilyGraphStore s, Person p) {
+        s.upsertPerson(p.id(), p.prefix(), p.firstName(), p.middleName(), p.lastName(), p.suffix(),
+                p.dateOfBirth(), p.dateOfDeath(), p.motherId(), p.fatherId(), p.avatarUrl(), p.deceased(), p.archived());
+    }
+
+    /* ============================================================
+     * Loading helpers
+     * ============================================================ */
+
+    private record RelationRow(long childId, long parentId, String relation) {}
+
+    private record UserRow(long personId, long userId, boolean pending, String username) {}
+
+    private List<Person> fetchPeople(Condition cond) {
+        return dsl.select(
+                        PEOPLE.ID, P_PREFIX, PEOPLE.FIRST_NAME, P_MIDDLE_NAME, PEOPLE.LAST_NAME, P_SUFFIX,
+                        PEOPLE.DATE_OF_BIRTH, PEOPLE.MOTHER_ID, PEOPLE.FATHER_ID,
+                        PEOPLE.DATE_OF_DEATH, P_PROFILE_PICTURE_URL, IS_DECEASED, IS_ARCHIVED)
+                .from(PEOPLE)
+                .where(cond)
+                .orderBy(PEOPLE.ID)
+                .fetch(Person::from);
+    }
+
+    private List<RelationRow> fetchParentRelations(Condition cond, LocalDate today) {
+        return dsl.select(PERSON_PARENT.CHILD_PERSON_ID, PERSON_PARENT.PARENT_PERSON_ID, PERSON_PARENT.RELATION)
+                .from(PERSON_PARENT)
+                .where(cond)
+                .and(PERSON_PARENT.VALID_TO.isNull().or(PERSON_PARENT.VALID_TO.ge(today)))
+                .fetch(r -> new RelationRow(
+                        r.get(PERSON_PARENT.CHILD_PERSON_ID),
+                        r.get(PERSON_PARENT.PARENT_PERSON_ID),
+                        r.get(PERSON_PARENT.RELATION)));
+    }
+
+    private List<SpousePair> fetchSpousePairs(Condition cond) {
+        return dsl.select(PERSON_SPOUSE.PERSON_ID, PERSON_SPOUSE.SPOUSE_PERSON_ID)
+                .from(PERSON_SPOUSE)
+                .where(cond)
+                .fetch(r -> new SpousePair(r.get(PERSON_SPOUSE.PERSON_ID), r.get(PERSON_SPOUSE.SPOUSE_PERSON_ID)));
+    }
+
+    private List<SiblingPair> fetchSiblingPairs(Condition cond) {
+        return dsl.select(PERSON_SIBLING.PERSON_A_ID, PERSON_SIBLING.PERSON_B_ID, SIBLING_RELATION)
+                .from(PERSON_SIBLING)
+                .where(cond)
+                .fetch(r -> new SiblingPair(r.get(PERSON_SIBLING.PERSON_A_ID), r.get(PERSON_SIBLING.PERSON_B_ID),
+                        r.get(SIBLING_RELATION)));
+    }
+
+    private List<UserRow> fetchUsers(Condition cond) {
+        return dsl.select(USERS.PERSON_ID, USERS.ID, USERS.APPROVED_AT, USERS.USERNAME)
+                .from(USERS)
+                .where(USERS.PERSON_ID.isNotNull())
+                .and(cond)
+                .fetch(r -> new UserRow(r.get(USERS.PERSON_ID), r.get(USERS.ID), r.get(USERS.APPROVED_AT) == null,
+                        r.get(USERS.USERNAME)));
+    }
+}
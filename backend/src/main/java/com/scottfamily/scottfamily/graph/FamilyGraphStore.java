@@ -0,0 +1,865 @@
+package com.scottfamily.scottfamily.graph;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact, primitive-backed storage for the family graph.
+ *
+ * People live in dense "slots": one entry per person across parallel column arrays
+ * (ids, parent ids, epoch-day dates, flag bits, pooled name strings). An open-addressing
+ * {@link LongIntHashMap} maps person id → slot; freed slots are reused. The name search
+ * indexes ({@link NameIndex}, {@link PhoneticIndex}) are kept in step with every upsert
+ * and removal.
+ *
+ * Relationships are kept two ways:
+ * <ul>
+ *   <li>Mutable incidence lists used by in-place refreshes: per-child parent slots with a
+ *       packed one-byte relation code, the reverse per-parent child slots, the
+ *       PERSON_SPOUSE rows in load order and the PERSON_SIBLING rows.</li>
+ *   <li>An immutable CSR {@link Adjacency} (offset + target arrays for parents, children,
+ *       spouses and siblings) built lazily from the above and reused until the next mutation.</li>
+ * </ul>
+ *
+ * Not thread-safe: {@link FamilyGraph} guards every access with its read/write lock.
+ */
+public final class FamilyGraphStore {
+
+    /** Marker for "no person" in id-valued columns (identity ids start at 1). */
+    public static final long NONE = 0L;
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte F_LIVE = 1, F_DECEASED = 2, F_PENDING = 4, F_ARCHIVED = 8;
+    private static final int[] NO_INTS = new int[0];
+
+    // ── Person columns, indexed by slot ──
+    private final LongIntHashMap slotById;
+    private long[] ids;
+    private long[] motherIds;
+    private long[] fatherIds;
+    private long[] userIds;
+    private int[] dob;
+    private int[] dod;
+    private byte[] flags;
+    private String[] firstNames;
+    private String[] middleNames;
+    private String[] lastNames;
+    private String[] prefixes;
+    private String[] suffixes;
+    private String[] avatarUrls;
+    private String[] usernames;
+    private int highWater;
+    private int liveCount;
+    private int[] freeSlots = NO_INTS;
+    private int freeCount;
+
+    /**
+     * MOTHER_ID / FATHER_ID in reverse: for each referenced parent id, an intrusive list of
+     * the slots that name it. A link is {@code slot * 2 + side} (0 mother, 1 father);
+     * {@code columnHead} holds the first link and {@code columnNext} the rest, -1 ending it.
+     * Keyed by id rather than slot, since a child may be stored before its parent.
+     */
+    private final LongIntHashMap columnHead;
+    private int[] columnNext;
+
+    /** Name strings repeat heavily (first/last names); keep one instance of each. */
+    private Map<String, String> namePool = new HashMap<>();
+    /** Pooled references dropped by renames and removals since the pool was last rebuilt. */
+    private int namesReleased;
+    private static final int NAME_POOL_MIN_COMPACT = 1024;
+
+    /** Trigram index over each person's name parts, for people search. */
+    private final NameIndex nameIndex;
+
+    /** Double Metaphone blocks over first/last names, for fuzzy matching. */
+    private final PhoneticIndex phoneticIndex;
+
+    // ── PERSON_PARENT incidence (slot-indexed, null when empty) ──
+    private int[][] relParents;
+    private byte[][] relParentCodes;
+    private int[][] relChildren;
+    private int relationCount;
+
+    /** Relation label dictionary; code 0 is "none". */
+    private final List<String> relationNames = new ArrayList<>(List.of(""));
+    private final Map<String, Byte> relationCodes = new HashMap<>();
+
+    // ── PERSON_SPOUSE rows, in load order ──
+    private long[] spouseA = new long[16];
+    private long[] spouseB = new long[16];
+    private int spouseCount;
+
+    // ── PERSON_SIBLING rows (explicit siblings, with relation code) ──
+    private long[] siblingA = new long[16];
+    private long[] siblingB = new long[16];
+    private byte[] siblingCodes = new byte[16];
+    private int siblingCount;
+
+    /** Lazily built CSR view; dropped on every mutation. */
+    private volatile Adjacency adjacency;
+
+    public FamilyGraphStore(int expectedPeople) {
+        int cap = Math.max(16, expectedPeople);
+        slotById = new LongIntHashMap(cap);
+        columnHead = new LongIntHashMap(cap);
+        columnNext = new int[cap * 2];
+        ids = new long[cap];
+        motherIds = new long[cap];
+        fatherIds = new long[cap];
+        userIds = new long[cap];
+        dob = new int[cap];
+        dod = new int[cap];
+        flags = new byte[cap];
+        firstNames = new String[cap];
+        middleNames = new String[cap];
+        lastNames = new String[cap];
+        prefixes = new String[cap];
+        suffixes = new String[cap];
+        avatarUrls = new String[cap];
+        usernames = new String[cap];
+        nameIndex = new NameIndex(cap);
+        phoneticIndex = new PhoneticIndex(cap);
+        relParents = new int[cap][];
+        relParentCodes = new byte[cap][];
+        relChildren = new int[cap][];
+        // Seed the dictionary with the labels the app writes, so codes are stable
+        for (String r : List.of("BIOLOGICAL_MOTHER", "BIOLOGICAL_FATHER",
+                "ADOPTIVE_MOTHER", "ADOPTIVE_FATHER", "ADOPTIVE_PARENT",
+                "STEP_MOTHER", "STEP_FATHER", "STEP_PARENT",
+                "FOSTER_MOTHER", "FOSTER_FATHER", "GUARDIAN", "OTHER",
+                "SIBLING", "HALF_SIBLING", "STEP_SIBLING", "FOSTER_SIBLING", "ADOPTIVE_SIBLING")) {
+            relationCode(r);
+        }
+    }
+
+    /* ============================================================
+     * Person reads
+     * ============================================================ */
+
+    /** Number of people currently stored. */
+    public int size() { return liveCount; }
+
+    /** Exclusive upper bound of slot numbers in use; iterate {@code 0..slotLimit()} and test {@link #isLive}. */
+    public int slotLimit() { return highWater; }
+
+    /** Slot for a person id, or -1. */
+    public int slotOf(long id) { return id == NONE ? -1 : slotById.get(id); }
+
+    public boolean isLive(int slot) { return (flags[slot] & F_LIVE) != 0; }
+
+    public long id(int slot) { return ids[slot]; }
+
+    public long motherId(int slot) { return motherIds[slot]; }
+
+    public long fatherId(int slot) { return fatherIds[slot]; }
+
+    /** Linked user id, or {@link #NONE}. */
+    public long userId(int slot) { return userIds[slot]; }
+
+    public boolean isPending(int slot) { return (flags[slot] & F_PENDING) != 0; }
+
+    public boolean isDeceased(int slot) { return (flags[slot] & F_DECEASED) != 0; }
+
+    /** Date of birth as epoch day, or {@link Integer#MIN_VALUE} when unknown. */
+    public int dobEpochDay(int slot) { return dob[slot]; }
+
+    public boolean hasDob(int slot) { return dob[slot] != NO_DATE; }
+
+    public LocalDate dateOfBirth(int slot) { return toDate(dob[slot]); }
+
+    public LocalDate dateOfDeath(int slot) { return toDate(dod[slot]); }
+
+    public String firstName(int slot) { return firstNames[slot]; }
+
+    public String middleName(int slot) { return middleNames[slot]; }
+
+    public String lastName(int slot) { return lastNames[slot]; }
+
+    public String prefix(int slot) { return prefixes[slot]; }
+
+    public String suffix(int slot) { return suffixes[slot]; }
+
+    public String avatarUrl(int slot) { return avatarUrls[slot]; }
+
+    /** Username of the linked account, or null. */
+    public String username(int slot) { return usernames[slot]; }
+
+    public boolean isArchived(int slot) { return (flags[slot] & F_ARCHIVED) != 0; }
+
+    /**
+     * Slots whose names match a type-ahead query, best first (see {@link NameIndex}); equally
+     * good matches are ordered by last name, first name, then date of birth.
+     */
+    public int[] searchNames(String query, int limit, boolean excludeArchived) {
+        Comparator<Integer> order = Comparator
+                .comparing((Integer s) -> lastNames[s], Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(s -> firstNames[s], Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                .thenComparingInt(s -> dob[s] == NO_DATE ? Integer.MAX_VALUE : dob[s])
+                .thenComparingLong(s -> ids[s]);
+        return nameIndex.search(query, limit, s -> !excludeArchived || !isArchived(s), order);
+    }
+
+    /** Name as the search indexes see it: accents stripped, lower case, single spaces between words. */
+    public static String normalizeName(String name) {
+        return NameIndex.normalize(name);
+    }
+
+    /** The Double Metaphone codes (primary, then alternate if different) the phonetic index files a name under. */
+    public static Set<String> phoneticCodes(String name) {
+        return PhoneticIndex.codes(name);
+    }
+
+    /**
+     * Slots whose first and last names sound like the given ones (see {@link PhoneticIndex}),
+     * in slot order and unscored. A blank last name matches on the first name alone.
+     */
+    public int[] phoneticCandidates(String firstName, String lastName) {
+        return phoneticIndex.candidates(firstName, lastName);
+    }
+
+    /* ============================================================
+     * Relationship reads
+     * ============================================================ */
+
+    /** Relation code of PERSON_PARENT child→parent, or 0. */
+    public byte relationCode(int childSlot, int parentSlot) {
+        int[] ps = relParents[childSlot];
+        if (ps == null) return 0;
+        for (int i = 0; i < ps.length; i++) {
+            if (ps[i] == parentSlot) return relParentCodes[childSlot][i];
+        }
+        return 0;
+    }
+
+    /** Relation label of PERSON_PARENT child→parent, or null. */
+    public String relation(int childSlot, int parentSlot) {
+        return relationName(relationCode(childSlot, parentSlot));
+    }
+
+    public String relationName(byte code) {
+        return code == 0 ? null : relationNames.get(code);
+    }
+
+    /**
+     * Whether a parent edge with this code carries lineage: biological and adoptive parents
+     * do (and unlabelled MOTHER_ID/FATHER_ID edges), step, foster and guardian links don't.
+     */
+    public boolean isLineage(byte code) {
+        String rel = relationName(code);
+        if (rel == null) return true;
+        return !(rel.startsWith("STEP_") || rel.startsWith("FOSTER_") || rel.equals("GUARDIAN"));
+    }
+
+    public int spousePairCount() { return spouseCount; }
+
+    public long spousePersonId(int pair) { return spouseA[pair]; }
+
+    public long spouseSpouseId(int pair) { return spouseB[pair]; }
+
+    public int siblingPairCount() { return siblingCount; }
+
+    /* ============================================================
+     * Mutations
+     * ============================================================ */
+
+    /** Insert or overwrite a person's columns. Returns the slot. */
+    public int upsertPerson(long id, String firstName, String middleName, String lastName,
+                            LocalDate dateOfBirth, LocalDate dateOfDeath,
+                            Long motherId, Long fatherId, String avatarUrl, boolean deceased) {
+        return upsertPerson(id, null, firstName, middleName, lastName, null,
+                dateOfBirth, dateOfDeath, motherId, fatherId, avatarUrl, deceased, false);
+    }
+
+    /** As above, with the name prefix/suffix and the archived flag. */
+    public int upsertPerson(long id, String prefix, String firstName, String middleName, String lastName, String suffix,
+                            LocalDate dateOfBirth, LocalDate dateOfDeath,
+                            Long motherId, Long fatherId, String avatarUrl, boolean deceased, boolean archived) {
+        int slot = slotById.get(id);
+        if (slot < 0) {
+            slot = freeCount > 0 ? freeSlots[--freeCount] : highWater++;
+            ensureCapacity(slot + 1);
+            slotById.put(id, slot);
+            liveCount++;
+            flags[slot] = F_LIVE;
+            userIds[slot] = NONE;
+        }
+        ids[slot] = id;
+        firstNames[slot] = repool(firstNames[slot], firstName);
+        middleNames[slot] = repool(middleNames[slot], middleName);
+        lastNames[slot] = repool(lastNames[slot], lastName);
+        prefixes[slot] = repool(prefixes[slot], prefix);
+        suffixes[slot] = repool(suffixes[slot], suffix);
+        dob[slot] = fromDate(dateOfBirth);
+        dod[slot] = fromDate(dateOfDeath);
+        setColumnParent(slot, 0, motherId != null ? motherId : NONE);
+        setColumnParent(slot, 1, fatherId != null ? fatherId : NONE);
+        avatarUrls[slot] = avatarUrl;
+        flags[slot] = (byte) (deceased ? flags[slot] | F_DECEASED : flags[slot] & ~F_DECEASED);
+        flags[slot] = (byte) (archived ? flags[slot] | F_ARCHIVED : flags[slot] & ~F_ARCHIVED);
+        nameIndex.put(slot, firstName, middleName, lastName, prefix, suffix);
+        phoneticIndex.put(slot, firstName, lastName);
+        adjacency = null;
+        maybeCompactNames();
+        return slot;
+    }
+
+    /**
+     * Remove a person, their relationship rows and any mother/father references to them
+     * (mirrors the delete cascade in AdminUserController). No-op for unknown ids.
+     */
+    public void removePerson(long id) {
+        int slot = slotById.remove(id);
+        if (slot < 0) return;
+        clearParentRelations(slot);
+        removeSpousePairsNotIn(id, NO_LONGS, NO_LONGS);
+        removeSiblingPairs(id);
+        setColumnParent(slot, 0, NONE);
+        setColumnParent(slot, 1, NONE);
+        // Only the slots that name this person, found through the reverse column lists
+        for (int link = columnHead.remove(id); link >= 0; link = columnNext[link]) {
+            if ((link & 1) == 0) motherIds[link >> 1] = NONE;
+            else fatherIds[link >> 1] = NONE;
+        }
+        ids[slot] = NONE;
+        userIds[slot] = NONE;
+        for (String name : new String[]{firstNames[slot], middleNames[slot], lastNames[slot], prefixes[slot], suffixes[slot]}) {
+            if (name != null) namesReleased++;
+        }
+        firstNames[slot] = middleNames[slot] = lastNames[slot] = avatarUrls[slot] = null;
+        prefixes[slot] = suffixes[slot] = usernames[slot] = null;
+        nameIndex.remove(slot);
+        phoneticIndex.remove(slot);
+        flags[slot] = 0;
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, Math.max(16, freeCount * 2));
+        freeSlots[freeCount++] = slot;
+        liveCount--;
+        adjacency = null;
+    }
+
+    public void setUser(long personId, long userId, boolean pending) {
+        setUser(personId, userId, pending, null);
+    }
+
+    public void setUser(long personId, long userId, boolean pending, String username) {
+        int slot = slotOf(personId);
+        if (slot < 0) return;
+        if (userIds[slot] == NONE) {
+            userIds[slot] = userId;
+            usernames[slot] = username;
+        }
+        if (pending) flags[slot] |= F_PENDING;
+        adjacency = null;
+    }
+
+    public void clearUser(long personId) {
+        int slot = slotOf(personId);
+        if (slot < 0) return;
+        userIds[slot] = NONE;
+        usernames[slot] = null;
+        flags[slot] &= ~F_PENDING;
+        adjacency = null;
+    }
+
+    /** Drop every PERSON_PARENT edge where the person is child or parent. */
+    public void clearParentRelations(long personId) {
+        int slot = slotOf(personId);
+        if (slot >= 0) clearParentRelations(slot);
+    }
+
+    /** Add a PERSON_PARENT edge. Ignored when either person is unknown. */
+    public void putParentRelation(long childId, long parentId, String relation) {
+        int c = slotOf(childId), p = slotOf(parentId);
+        if (c < 0 || p < 0) return;
+        byte code = relationCode(relation);
+        int[] ps = relParents[c];
+        if (ps != null) {
+            for (int i = 0; i < ps.length; i++) {
+                if (ps[i] == p) { relParentCodes[c][i] = code; adjacency = null; return; }
+            }
+        }
+        relParents[c] = append(ps, p);
+        relParentCodes[c] = append(relParentCodes[c], code);
+        relChildren[p] = append(relChildren[p], c);
+        relationCount++;
+        adjacency = null;
+    }
+
+    /**
+     * Replace the PERSON_SPOUSE rows touching {@code personId} with the given rows.
+     * Rows that still exist keep their position (placement in the tree depends on order);
+     * new rows are appended.
+     */
+    public void replaceSpousePairs(long personId, long[] personIds, long[] spouseIds) {
+        removeSpousePairsNotIn(personId, personIds, spouseIds);
+        outer:
+        for (int i = 0; i < personIds.length; i++) {
+            for (int j = 0; j < spouseCount; j++) {
+                if (spouseA[j] == personIds[i] && spouseB[j] == spouseIds[i]) continue outer;
+            }
+            addSpousePair(personIds[i], spouseIds[i]);
+        }
+    }
+
+    /** Append a PERSON_SPOUSE row (bulk load path; no duplicate check). */
+    public void addSpousePair(long personId, long spousePersonId) {
+        if (spouseCount == spouseA.length) {
+            spouseA = Arrays.copyOf(spouseA, spouseCount * 2);
+            spouseB = Arrays.copyOf(spouseB, spouseCount * 2);
+        }
+        spouseA[spouseCount] = personId;
+        spouseB[spouseCount] = spousePersonId;
+        spouseCount++;
+        adjacency = null;
+    }
+
+    /**
+     * Replace the PERSON_SIBLING rows touching {@code personId} with the given rows.
+     * Sibling order has no effect on placement, so rows are simply dropped and re-added.
+     */
+    public void replaceSiblingPairs(long personId, long[] personAIds, long[] personBIds, String[] relations) {
+        removeSiblingPairs(personId);
+        for (int i = 0; i < personAIds.length; i++) addSiblingPair(personAIds[i], personBIds[i], relations[i]);
+    }
+
+    /** Append a PERSON_SIBLING row (bulk load path; no duplicate check). */
+    public void addSiblingPair(long personAId, long personBId, String relation) {
+        if (siblingCount == siblingA.length) {
+            siblingA = Arrays.copyOf(siblingA, siblingCount * 2);
+            siblingB = Arrays.copyOf(siblingB, siblingCount * 2);
+            siblingCodes = Arrays.copyOf(siblingCodes, siblingCount * 2);
+        }
+        siblingA[siblingCount] = personAId;
+        siblingB[siblingCount] = personBId;
+        siblingCodes[siblingCount] = relationCode(relation);
+        siblingCount++;
+        adjacency = null;
+    }
+
+    /* ============================================================
+     * CSR adjacency
+     * ============================================================ */
+
+    /**
+     * Immutable compressed-sparse-row view of the graph. For slot {@code s} the
+     * neighbours are {@code targets[offsets[s] .. offsets[s+1])}.
+     * Parents combine the MOTHER_ID/FATHER_ID columns with PERSON_PARENT rows; each parent
+     * edge carries its relation code (biological for column-only edges). Siblings are the
+     * explicit PERSON_SIBLING rows only; siblings implied by shared parents are two hops away.
+     */
+    public static final class Adjacency {
+        /** Live slots in ascending person-id order. */
+        public final int[] order;
+        public final int[] parentOffsets, parentSlots;
+        public final byte[] parentCodes;
+        public final int[] childOffsets, childSlots;
+        public final byte[] childCodes;
+        public final int[] spouseOffsets, spouseSlots;
+        public final int[] siblingOffsets, siblingSlots;
+        public final byte[] siblingCodes;
+
+        private Adjacency(int[] order,
+                          int[] parentOffsets, int[] parentSlots, byte[] parentCodes,
+                          int[] childOffsets, int[] childSlots, byte[] childCodes,
+                          int[] spouseOffsets, int[] spouseSlots,
+                          int[] siblingOffsets, int[] siblingSlots, byte[] siblingCodes) {
+            this.order = order;
+            this.parentOffsets = parentOffsets;
+            this.parentSlots = parentSlots;
+            this.parentCodes = parentCodes;
+            this.childOffsets = childOffsets;
+            this.childSlots = childSlots;
+            this.childCodes = childCodes;
+            this.spouseOffsets = spouseOffsets;
+            this.spouseSlots = spouseSlots;
+            this.siblingOffsets = siblingOffsets;
+            this.siblingSlots = siblingSlots;
+            this.siblingCodes = siblingCodes;
+        }
+
+        long bytes() {
+            return arrayBytes(order.length, 4)
+                    + arrayBytes(parentOffsets.length, 4) + arrayBytes(parentSlots.length, 4) + arrayBytes(parentCodes.length, 1)
+                    + arrayBytes(childOffsets.length, 4) + arrayBytes(childSlots.length, 4) + arrayBytes(childCodes.length, 1)
+                    + arrayBytes(spouseOffsets.length, 4) + arrayBytes(spouseSlots.length, 4)
+                    + arrayBytes(siblingOffsets.length, 4) + arrayBytes(siblingSlots.length, 4) + arrayBytes(siblingCodes.length, 1);
+        }
+    }
+
+    /**
+     * Current CSR view, rebuilt on first use after a mutation. Synchronised because
+     * several readers may share the store under the graph's read lock.
+     */
+    public synchronized Adjacency adjacency() {
+        Adjacency a = adjacency;
+        if (a == null) {
+            a = buildAdjacency();
+            adjacency = a;
+        }
+        return a;
+    }
+
+    private Adjacency buildAdjacency() {
+        int n = highWater;
+
+        // Live slots sorted by id: sort packed ids, then map back through the index
+        long[] sortedIds = new long[liveCount];
+        int k = 0;
+        for (int s = 0; s < n; s++) if (isLive(s)) sortedIds[k++] = ids[s];
+        Arrays.sort(sortedIds);
+        int[] order = new int[liveCount];
+        for (int i = 0; i < liveCount; i++) order[i] = slotById.get(sortedIds[i]);
+
+        // Parents: PERSON_PARENT rows plus MOTHER_ID / FATHER_ID columns not already covered
+        byte bioMother = relationCode("BIOLOGICAL_MOTHER"), bioFather = relationCode("BIOLOGICAL_FATHER");
+        int[] pOff = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            if (!isLive(s)) continue;
+            int c = relParents[s] != null ? relParents[s].length : 0;
+            int m = slotOf(motherIds[s]), f = slotOf(fatherIds[s]);
+            if (m >= 0 && !hasRelParent(s, m)) c++;
+            if (f >= 0 && f != m && !hasRelParent(s, f)) c++;
+            pOff[s + 1] = c;
+        }
+        for (int s = 0; s < n; s++) pOff[s + 1] += pOff[s];
+        int[] pSlots = new int[pOff[n]];
+        byte[] pCodes = new byte[pOff[n]];
+        int[] childCount = new int[n + 1];
+        for (int s = 0; s < n; s++) {
+            if (!isLive(s)) continue;
+            int w = pOff[s];
+            int[] ps = relParents[s];
+            if (ps != null) {
+                for (int i = 0; i < ps.length; i++) {
+                    pSlots[w] = ps[i];
+                    pCodes[w++] = relParentCodes[s][i];
+                }
+            }
+            int m = slotOf(motherIds[s]), f = slotOf(fatherIds[s]);
+            if (m >= 0 && !hasRelParent(s, m)) { pSlots[w] = m; pCodes[w++] = bioMother; }
+            if (f >= 0 && f != m && !hasRelParent(s, f)) { pSlots[w] = f; pCodes[w++] = bioFather; }
+            for (int i = pOff[s]; i < w; i++) childCount[pSlots[i] + 1]++;
+        }
+
+        // Children: reverse of parents
+        int[] cOff = childCount;
+        for (int s = 0; s < n; s++) cOff[s + 1] += cOff[s];
+        int[] cSlots = new int[cOff[n]];
+        byte[] cCodes = new byte[cOff[n]];
+        int[] cursor = Arrays.copyOf(cOff, n);
+        for (int s = 0; s < n; s++) {
+            for (int i = pOff[s]; i < pOff[s + 1]; i++) {
+                int p = pSlots[i];
+                cSlots[cursor[p]] = s;
+                cCodes[cursor[p]++] = pCodes[i];
+            }
+        }
+
+        // Spouses: symmetric, from PERSON_SPOUSE rows between stored people
+        int[] sOff = new int[n + 1];
+        for (int i = 0; i < spouseCount; i++) {
+            int a = slotOf(spouseA[i]), b = slotOf(spouseB[i]);
+            if (a < 0 || b < 0 || a == b) continue;
+            sOff[a + 1]++;
+            sOff[b + 1]++;
+        }
+        for (int s = 0; s < n; s++) sOff[s + 1] += sOff[s];
+        int[] sSlots = new int[sOff[n]];
+        cursor = Arrays.copyOf(sOff, n);
+        for (int i = 0; i < spouseCount; i++) {
+            int a = slotOf(spouseA[i]), b = slotOf(spouseB[i]);
+            if (a < 0 || b < 0 || a == b) continue;
+            sSlots[cursor[a]++] = b;
+            sSlots[cursor[b]++] = a;
+        }
+
+        // Siblings: symmetric, from PERSON_SIBLING rows between stored people
+        int[] bOff = new int[n + 1];
+        for (int i = 0; i < siblingCount; i++) {
+            int a = slotOf(siblingA[i]), b = slotOf(siblingB[i]);
+            if (a < 0 || b < 0 || a == b) continue;
+            bOff[a + 1]++;
+            bOff[b + 1]++;
+        }
+        for (int s = 0; s < n; s++) bOff[s + 1] += bOff[s];
+        int[] bSlots = new int[bOff[n]];
+        byte[] bCodes = new byte[bOff[n]];
+        cursor = Arrays.copyOf(bOff, n);
+        for (int i = 0; i < siblingCount; i++) {
+            int a = slotOf(siblingA[i]), b = slotOf(siblingB[i]);
+            if (a < 0 || b < 0 || a == b) continue;
+            bCodes[cursor[a]] = siblingCodes[i];
+            bSlots[cursor[a]++] = b;
+            bCodes[cursor[b]] = siblingCodes[i];
+            bSlots[cursor[b]++] = a;
+        }
+
+        return new Adjacency(order, pOff, pSlots, pCodes, cOff, cSlots, cCodes, sOff, sSlots, bOff, bSlots, bCodes);
+    }
+
+    /* ============================================================
+     * Memory report
+     * ============================================================ */
+
+    /** Approximate retained heap of the store, broken down by component. */
+    public record MemoryReport(int people, int slotCapacity, int parentRelations, int spousePairs, int siblingPairs,
+                               int pooledNames, long columnBytes, long indexBytes, long relationBytes,
+                               long stringBytes, long adjacencyBytes, long searchIndexBytes, long totalBytes,
+                               double bytesPerPerson) {}
+
+    public MemoryReport memoryReport() {
+        int cap = ids.length;
+        long columns = 4 * arrayBytes(cap, 8)            // ids, mother, father, user
+                + 2 * arrayBytes(cap, 4)                 // dob, dod
+                + arrayBytes(cap, 1)                     // flags
+                + 7 * arrayBytes(cap, 4)                 // name/avatar/username references (compressed oops)
+                + arrayBytes(freeSlots.length, 4);
+        long index = arrayBytes(slotById.capacity(), 8) + arrayBytes(slotById.capacity(), 4)
+                + arrayBytes(columnHead.capacity(), 8) + arrayBytes(columnHead.capacity(), 4)
+                + arrayBytes(columnNext.length, 4);
+
+        long relations = 3 * arrayBytes(cap, 4)          // outer arrays of relParents/codes/children
+                + arrayBytes(spouseA.length, 8) * 2
+                + arrayBytes(siblingA.length, 8) * 2 + arrayBytes(siblingCodes.length, 1);
+        for (int s = 0; s < highWater; s++) {
+            if (relParents[s] != null) relations += arrayBytes(relParents[s].length, 4) + arrayBytes(relParentCodes[s].length, 1);
+            if (relChildren[s] != null) relations += arrayBytes(relChildren[s].length, 4);
+        }
+
+        long strings = 0;
+        for (String name : namePool.values()) strings += stringBytes(name);
+        // Pool map itself: one node + table slot per entry
+        strings += namePool.size() * 48L;
+        for (int s = 0; s < highWater; s++) {
+            if (avatarUrls[s] != null) strings += stringBytes(avatarUrls[s]);
+            if (usernames[s] != null) strings += stringBytes(usernames[s]);
+        }
+
+        long adj = adjacency != null ? adjacency.bytes() : 0;
+        long names = nameIndex.bytes() + phoneticIndex.bytes();
+        long total = columns + index + relations + strings + adj + names;
+        return new MemoryReport(liveCount, cap, relationCount, spouseCount, siblingCount, namePool.size(),
+                columns, index, relations, strings, adj, names, total,
+                liveCount == 0 ? 0 : (double) total / liveCount);
+    }
+
+    /* ============================================================
+     * Internals
+     * ============================================================ */
+
+    private static final long[] NO_LONGS = new long[0];
+
+    private void clearParentRelations(int slot) {
+        int[] ps = relParents[slot];
+        if (ps != null) {
+            for (int p : ps) relChildren[p] = without(relChildren[p], slot);
+            relationCount -= ps.length;
+            relParents[slot] = null;
+            relParentCodes[slot] = null;
+        }
+        int[] cs = relChildren[slot];
+        if (cs != null) {
+            for (int c : cs) {
+                int[] cp = relParents[c];
+                for (int i = 0; cp != null && i < cp.length; i++) {
+                    if (cp[i] == slot) {
+                        relParents[c] = cp.length == 1 ? null : removeAt(cp, i);
+                        relParentCodes[c] = cp.length == 1 ? null : removeAt(relParentCodes[c], i);
+                        relationCount--;
+                        break;
+                    }
+                }
+            }
+            relChildren[slot] = null;
+        }
+        adjacency = null;
+    }
+
+    private boolean hasRelParent(int childSlot, int parentSlot) {
+        int[] ps = relParents[childSlot];
+        if (ps == null) return false;
+        for (int p : ps) if (p == parentSlot) return true;
+        return false;
+    }
+
+    /** Compact out rows touching {@code personId} that are not in the keep-list. */
+    private void removeSpousePairsNotIn(long personId, long[] keepA, long[] keepB) {
+        int w = 0;
+        for (int i = 0; i < spouseCount; i++) {
+            long a = spouseA[i], b = spouseB[i];
+            boolean drop = false;
+            if (a == personId || b == personId) {
+                drop = true;
+                for (int j = 0; j < keepA.length; j++) {
+                    if (keepA[j] == a && keepB[j] == b) { drop = false; break; }
+                }
+            }
+            if (!drop) {
+                spouseA[w] = a;
+                spouseB[w] = b;
+                w++;
+            }
+        }
+        if (w != spouseCount) adjacency = null;
+        spouseCount = w;
+    }
+
+    private void removeSiblingPairs(long personId) {
+        int w = 0;
+        for (int i = 0; i < siblingCount; i++) {
+            if (siblingA[i] == personId || siblingB[i] == personId) continue;
+            siblingA[w] = siblingA[i];
+            siblingB[w] = siblingB[i];
+            siblingCodes[w] = siblingCodes[i];
+            w++;
+        }
+        if (w != siblingCount) adjacency = null;
+        siblingCount = w;
+    }
+
+    private byte relationCode(String relation) {
+        if (relation == null || relation.isBlank()) return 0;
+        Byte code = relationCodes.get(relation);
+        if (code != null) return code;
+        if (relationNames.size() > Byte.MAX_VALUE) return relationCodes.get("OTHER");
+        byte next = (byte) relationNames.size();
+        relationNames.add(relation);
+        relationCodes.put(relation, next);
+        return next;
+    }
+
+    private String pool(String s) {
+        if (s == null) return null;
+        String existing = namePool.putIfAbsent(s, s);
+        return existing != null ? existing : s;
+    }
+
+    /** Pool {@code s} in place of {@code old}, counting the release when the value changes. */
+    private String repool(String old, String s) {
+        String pooled = pool(s);
+        if (old != null && old != pooled) namesReleased++;
+        return pooled;
+    }
+
+    /*
+     * Rebuild the pool from the live slots once releases reach half its size, so names
+     * nobody uses any more don't accumulate. Amortised O(1) per release.
+     */
+    private void maybeCompactNames() {
+        if (namesReleased < NAME_POOL_MIN_COMPACT || namesReleased < namePool.size() / 2) return;
+        Map<String, String> live = new HashMap<>(liveCount * 2);
+        for (int s = 0; s < highWater; s++) {
+            if (!isLive(s)) continue;
+            for (String name : new String[]{firstNames[s], middleNames[s], lastNames[s], prefixes[s], suffixes[s]}) {
+                if (name != null) live.putIfAbsent(name, name);
+            }
+        }
+        namePool = live;
+        namesReleased = 0;
+    }
+
+    /** Point the slot's mother (side 0) or father (side 1) column at {@code parentId}, keeping the reverse lists in step. */
+    private void setColumnParent(int slot, int side, long parentId) {
+        long[] column = side == 0 ? motherIds : fatherIds;
+        long old = column[slot];
+        if (old == parentId) return;
+        int link = slot * 2 + side;
+        if (old != NONE) {
+            int head = columnHead.get(old);
+            if (head == link) {
+                if (columnNext[link] >= 0) columnHead.put(old, columnNext[link]);
+                else columnHead.remove(old);
+            } else {
+                int prev = head;
+                while (prev >= 0 && columnNext[prev] != link) prev = columnNext[prev];
+                if (prev >= 0) columnNext[prev] = columnNext[link];
+            }
+        }
+        column[slot] = parentId;
+        if (parentId != NONE) {
+            int head = columnHead.get(parentId);
+            columnNext[link] = head;        // -1 when none
+            columnHead.put(parentId, link);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= ids.length) return;
+        int cap = Math.max(needed, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, cap);
+        columnNext = Arrays.copyOf(columnNext, cap * 2);
+        motherIds = Arrays.copyOf(motherIds, cap);
+        fatherIds = Arrays.copyOf(fatherIds, cap);
+        userIds = Arrays.copyOf(userIds, cap);
+        dob = Arrays.copyOf(dob, cap);
+        dod = Arrays.copyOf(dod, cap);
+        flags = Arrays.copyOf(flags, cap);
+        firstNames = Arrays.copyOf(firstNames, cap);
+        middleNames = Arrays.copyOf(middleNames, cap);
+        lastNames = Arrays.copyOf(lastNames, cap);
+        prefixes = Arrays.copyOf(prefixes, cap);
+        suffixes = Arrays.copyOf(suffixes, cap);
+        avatarUrls = Arrays.copyOf(avatarUrls, cap);
+        usernames = Arrays.copyOf(usernames, cap);
+        relParents = Arrays.copyOf(relParents, cap);
+        relParentCodes = Arrays.copyOf(relParentCodes, cap);
+        relChildren = Arrays.copyOf(relChildren, cap);
+    }
+
+    private static int fromDate(LocalDate d) { return d == null ? NO_DATE : (int) d.toEpochDay(); }
+
+    private static LocalDate toDate(int epochDay) { return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay); }
+
+    private static int[] append(int[] a, int v) {
+        if (a == null) return new int[]{v};
+        int[] r = Arrays.copyOf(a, a.length + 1);
+        r[a.length] = v;
+        return r;
+    }
+
+    private static byte[] append(byte[] a, byte v) {
+        if (a == null) return new byte[]{v};
+        byte[] r = Arrays.copyOf(a, a.length + 1);
+        r[a.length] = v;
+        return r;
+    }
+
+    private static int[] without(int[] a, int v) {
+        if (a == null) return null;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == v) return a.length == 1 ? null : removeAt(a, i);
+        }
+        return a;
+    }
+
+    private static int[] removeAt(int[] a, int i) {
+        int[] r = new int[a.length - 1];
+        System.arraycopy(a, 0, r, 0, i);
+        System.arraycopy(a, i + 1, r, i, a.length - i - 1);
+        return r;
+    }
+
+    private static byte[] removeAt(byte[] a, int i) {
+        byte[] r = new byte[a.length - 1];
+        System.arraycopy(a, 0, r, 0, i);
+        System.arraycopy(a, i + 1, r, i, a.length - i - 1);
+        return r;
+    }
+
+    /** Array header (16 bytes) plus payload, rounded up to the 8-byte object alignment. */
+    private static long arrayBytes(int length, int elementBytes) {
+        return (16L + (long) length * elementBytes + 7) & ~7L;
+    }
+
+    /** Compact (Latin-1) String: 24-byte object plus its byte[]; UTF-16 doubles the payload. */
+    private static long stringBytes(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++) latin1 = s.charAt(i) < 256;
+        return 24 + arrayBytes(s.length(), latin1 ? 1 : 2);
+    }
+}
@@ -0,0 +1,208 @@
+package com.scottfamily.scottfamily.graph;
+
+import java.util.Arrays;
+
+/**
+ * Descendant closure of the family graph as interval labels.
+ *
+ * Every person gets a pre-order number from a DFS over a spanning forest of the lineage
+ * edges (each person hangs under one lineage parent). A person's tree subtree is then one
+ * contiguous range of pre-order numbers. Because people have two parents, the rest of
+ * their descendants (children through the other parent, marriages between branches) sit
+ * in other ranges; the closure of each person is stored as a short sorted list of disjoint
+ * {@code [start, end]} ranges, merged bottom-up in reverse topological order.
+ *
+ * That gives:
+ * <ul>
+ *   <li>{@link #isAncestor}: binary search of one range list — O(log r), r usually 1–3;</li>
+ *   <li>{@link #descendantCount}: precomputed, O(1);</li>
+ *   <li>{@link #descendants}: a page of k descendants in O(r + k), in family-branch order.</li>
+ * </ul>
+ *
+ * Lineage follows {@link FamilyGraphStore#isLineage(byte)}. Parent cycles (bad data) are
+ * tolerated: the edge that would close a cycle is ignored.
+ *
+ * Immutable once built, and tied to the store version it was built from.
+ */
+public final class LineageIndex {
+
+    private static final int[] NO_RANGES = new int[0];
+
+    private final int[] pre;            // slot → pre-order number (-1 for empty slots)
+    private final int[] preToSlot;      // pre-order number → slot
+    private final int[][] ranges;       // slot → flattened [start0, end0, start1, end1, …]
+    private final int[] counts;         // slot → number of descendants
+
+    private LineageIndex(int[] pre, int[] preToSlot, int[][] ranges, int[] counts) {
+        this.pre = pre;
+        this.preToSlot = preToSlot;
+        this.ranges = ranges;
+        this.counts = counts;
+    }
+
+    /** True when {@code ancestorSlot} is a (strict) lineage ancestor of {@code slot}. */
+    public boolean isAncestor(int ancestorSlot, int slot) {
+        int[] r = ranges[ancestorSlot];
+        int p = pre[slot];
+        // Binary search over range starts for the last start <= p
+        int lo = 0, hi = r.length / 2 - 1, hit = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (r[2 * mid] <= p) { hit = mid; lo = mid + 1; } else hi = mid - 1;
+        }
+        return hit >= 0 && p <= r[2 * hit + 1];
+    }
+
+    public int descendantCount(int slot) { return counts[slot]; }
+
+    /**
+     * Slots of descendants {@code [offset, offset + limit)} in pre-order (each branch
+     * contiguous, siblings in id order).
+     */
+    public int[] descendants(int slot, int offset, int limit) {
+        int total = counts[slot];
+        if (offset >= total || limit <= 0) return NO_RANGES;
+        int[] out = new int[Math.min(limit, total - offset)];
+        int[] r = ranges[slot];
+        int skip = offset, w = 0;
+        for (int i = 0; i < r.length && w < out.length; i += 2) {
+            int len = r[i + 1] - r[i] + 1;
+            if (skip >= len) { skip -= len; continue; }
+            for (int p = r[i] + skip; p <= r[i + 1] && w < out.length; p++) out[w++] = preToSlot[p];
+            skip = 0;
+        }
+        return out;
+    }
+
+    /* ============================================================
+     * Build
+     * ============================================================ */
+
+    public static LineageIndex build(FamilyGraphStore st) {
+        FamilyGraphStore.Adjacency adj = st.adjacency();
+        int n = st.slotLimit();
+        int live = adj.order.length;
+
+        // 1) Topological order over lineage edges (Kahn), roots in id order
+        int[] indeg = new int[n];
+        for (int s : adj.order) {
+            for (int i = adj.parentOffsets[s]; i < adj.parentOffsets[s + 1]; i++) {
+                if (st.isLineage(adj.parentCodes[i])) indeg[s]++;
+            }
+        }
+        int[] topo = new int[live];
+        int[] topoIndex = new int[n];
+        Arrays.fill(topoIndex, -1);
+        int head = 0, tail = 0;
+        for (int s : adj.order) if (indeg[s] == 0) topo[tail++] = s;
+        while (true) {
+            while (head < tail) {
+                int u = topo[head];
+                topoIndex[u] = head++;
+                for (int i = adj.childOffsets[u]; i < adj.childOffsets[u + 1]; i++) {
+                    if (!st.isLineage(adj.childCodes[i])) continue;
+                    int c = adj.childSlots[i];
+                    if (topoIndex[c] < 0 && --indeg[c] == 0) topo[tail++] = c;
+                }
+            }
+            if (tail == live) break;
+            // Cycle: release the lowest-id person still waiting and carry on
+            for (int s : adj.order) {
+                if (topoIndex[s] < 0 && indeg[s] > 0) { indeg[s] = 0; topo[tail++] = s; break; }
+            }
+        }
+
+        // 2) Spanning forest: each person under their first lineage parent that precedes them
+        int[] treeParent = new int[n];
+        Arrays.fill(treeParent, -1);
+        int[] kidCount = new int[n + 1];
+        for (int s : adj.order) {
+            for (int i = adj.parentOffsets[s]; i < adj.parentOffsets[s + 1]; i++) {
+                int p = adj.parentSlots[i];
+                if (st.isLineage(adj.parentCodes[i]) && topoIndex[p] < topoIndex[s]) {
+                    treeParent[s] = p;
+                    kidCount[p + 1]++;
+                    break;
+                }
+            }
+        }
+        int[] kidOff = kidCount;
+        for (int s = 0; s < n; s++) kidOff[s + 1] += kidOff[s];
+        int[] kids = new int[kidOff[n]];
+        int[] cursor = Arrays.copyOf(kidOff, n);
+        for (int s : adj.order) if (treeParent[s] >= 0) kids[cursor[treeParent[s]]++] = s;
+
+        // 3) Iterative pre-order DFS; end[s] = last pre-order number inside s's subtree
+        int[] pre = new int[n];
+        int[] end = new int[n];
+        Arrays.fill(pre, -1);
+        int[] preToSlot = new int[live];
+        int[] stack = new int[live];
+        int[] next = new int[n];            // next kid index to visit per slot
+        int counter = 0;
+        for (int root : adj.order) {
+            if (treeParent[root] >= 0) continue;
+            int sp = 0;
+            stack[sp++] = root;
+            pre[root] = counter;
+            preToSlot[counter++] = root;
+            next[root] = kidOff[root];
+            while (sp > 0) {
+                int u = stack[sp - 1];
+                if (next[u] < kidOff[u + 1]) {
+                    int c = kids[next[u]++];
+                    pre[c] = counter;
+                    preToSlot[counter++] = c;
+                    next[c] = kidOff[c];
+                    stack[sp++] = c;
+                } else {
+                    end[u] = counter - 1;
+                    sp--;
+                }
+            }
+        }
+
+        // 4) Closure ranges, children before parents
+        int[][] ranges = new int[n][];
+        int[] counts = new int[n];
+        long[] scratch = new long[16];
+        for (int t = live - 1; t >= 0; t--) {
+            int u = topo[t];
+            int k = 0;
+            for (int i = adj.childOffsets[u]; i < adj.childOffsets[u + 1]; i++) {
+                int c = adj.childSlots[i];
+                if (!st.isLineage(adj.childCodes[i]) || topoIndex[c] <= t) continue;
+                int[] rc = ranges[c];
+                if (scratch.length < k + 1 + rc.length / 2) scratch = Arrays.copyOf(scratch, (k + 1 + rc.length / 2) * 2);
+                scratch[k++] = ((long) pre[c] << 32) | end[c];
+                for (int j = 0; j < rc.length; j += 2) scratch[k++] = ((long) rc[j] << 32) | rc[j + 1];
+            }
+            if (k == 0) { ranges[u] = NO_RANGES; continue; }
+            Arrays.sort(scratch, 0, k);
+            // Merge overlapping and adjacent ranges
+            int[] merged = new int[2 * k];
+            int m = 0, total = 0;
+            int curStart = (int) (scratch[0] >>> 32), curEnd = (int) scratch[0];
+            for (int j = 1; j < k; j++) {
+                int s = (int) (scratch[j] >>> 32), e = (int) scratch[j];
+                if (s <= curEnd + 1) {
+                    if (e > curEnd) curEnd = e;
+                } else {
+                    merged[m++] = curStart;
+                    merged[m++] = curEnd;
+                    total += curEnd - curStart + 1;
+                    curStart = s;
+                    curEnd = e;
+                }
+            }
+            merged[m++] = curStart;
+            merged[m++] = curEnd;
+            total += curEnd - curStart + 1;
+            ranges[u] = Arrays.copyOf(merged, m);
+            counts[u] = total;
+        }
+        for (int s = 0; s < n; s++) if (ranges[s] == null) ranges[s] = NO_RANGES;
+
+        return new LineageIndex(pre, preToSlot, ranges, counts);
+    }
+}
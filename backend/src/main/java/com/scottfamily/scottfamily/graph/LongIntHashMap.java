@@ -0,0 +1,116 @@
+package com.scottfamily.scottfamily.graph;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing {@code long → int} map with linear probing and backward-shift
+ * deletion (no tombstones). Keys and values live in two flat arrays, so a lookup
+ * touches no objects and an entry costs 12 bytes at full occupancy.
+ *
+ * {@link Long#MIN_VALUE} is reserved as the empty-slot marker; missing keys
+ * return {@code -1}. Not thread-safe — callers synchronise externally.
+ */
+final class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongIntHashMap(int expected) {
+        int cap = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(cap);
+    }
+
+    int size() { return size; }
+
+    int capacity() { return keys.length; }
+
+    int get(long key) {
+        int i = index(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY) return -1;
+            if (k == key) return values[i];
+            i = (i + 1) & mask;
+        }
+    }
+
+    void put(long key, int value) {
+        if (key == EMPTY) throw new IllegalArgumentException("reserved key");
+        int i = index(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size >= resizeAt) rehash(keys.length << 1);
+                return;
+            }
+            if (k == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    int remove(long key) {
+        int i = index(key);
+        while (true) {
+            long k = keys[i];
+            if (k == EMPTY) return -1;
+            if (k == key) break;
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        size--;
+        // Backward-shift: pull later entries of the probe run into the hole
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != EMPTY) {
+            int home = index(keys[j]);
+            // Move j into hole if its home is not in the cyclic range (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int index(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int cap) {
+        keys = new long[cap];
+        values = new int[cap];
+        Arrays.fill(keys, EMPTY);
+        mask = cap - 1;
+        resizeAt = (int) (cap * LOAD_FACTOR);
+    }
+
+    private void rehash(int newCap) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCap);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
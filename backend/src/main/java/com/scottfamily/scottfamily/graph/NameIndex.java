@@ -0,0 +1,219 @@
+package com.scottfamily.scottfamily.graph;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Trigram index over normalized person names, by store slot, for type-ahead search.
+ *
+ * Each person's name parts are normalized (accents stripped, lower case, apostrophes
+ * dropped, anything else that isn't a letter or digit splits words) into one text,
+ * first/middle/last then prefix/suffix. Every word contributes its trigrams plus two
+ * word-start grams padded with spaces ({@code "  j"}, {@code " jo"}), so one- and
+ * two-letter queries are answered from the index too.
+ *
+ * A query matches when each of its words occurs in the text: as a substring for words of
+ * three or more characters, at a word start for shorter ones (topped up with substring
+ * matches by a scan only when that leaves fewer hits than asked for). Candidates come from
+ * the smallest posting list among the query's grams and are checked against the text, so
+ * a lookup touches one posting list and a handful of strings.
+ *
+ * Results are ranked prefix of the whole name, then every word at a word start, then
+ * substring, and within a rank by the caller's order. Postings are unordered and updated
+ * in place. Not thread-safe: owned by {@link FamilyGraphStore}.
+ */
+final class NameIndex {
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final LongIntHashMap gramIds = new LongIntHashMap(1024);
+    private int[][] postings = new int[1024][];
+    private int[] postingSizes = new int[1024];
+    private int gramCount;
+    private String[] texts;         // slot → normalized name, null when not indexed
+
+    NameIndex(int expectedPeople) {
+        texts = new String[Math.max(16, expectedPeople)];
+    }
+
+    /** Index (or re-index) a slot under the given name parts. */
+    void put(int slot, String... parts) {
+        StringBuilder joined = new StringBuilder();
+        for (String part : parts) if (part != null) joined.append(part).append(' ');
+        String text = normalize(joined.toString());
+        if (slot < texts.length && text.equals(texts[slot])) return;
+        remove(slot);
+        if (slot >= texts.length) texts = Arrays.copyOf(texts, Math.max(slot + 1, texts.length + (texts.length >> 1)));
+        texts[slot] = text;
+        for (long g : grams(text)) {
+            int gid = gramIds.get(g);
+            if (gid < 0) {
+                gid = gramCount++;
+                if (gid == postings.length) {
+                    postings = Arrays.copyOf(postings, gid * 2);
+                    postingSizes = Arrays.copyOf(postingSizes, gid * 2);
+                }
+                gramIds.put(g, gid);
+            }
+            int[] p = postings[gid];
+            int n = postingSizes[gid];
+            if (p == null) p = postings[gid] = new int[4];
+            else if (n == p.length) p = postings[gid] = Arrays.copyOf(p, n * 2);
+            p[n] = slot;
+            postingSizes[gid] = n + 1;
+        }
+    }
+
+    void remove(int slot) {
+        if (slot >= texts.length || texts[slot] == null) return;
+        for (long g : grams(texts[slot])) {
+            int gid = gramIds.get(g);
+            int[] p = postings[gid];
+            int n = postingSizes[gid];
+            for (int i = 0; i < n; i++) {
+                if (p[i] == slot) { p[i] = p[--n]; break; }
+            }
+            postingSizes[gid] = n;
+        }
+        texts[slot] = null;
+    }
+
+    /**
+     * Up to {@code limit} slots matching {@code query}, best first. {@code accept} filters
+     * candidates (e.g. archived people); {@code order} breaks ties within a rank.
+     */
+    int[] search(String query, int limit, IntPredicate accept, Comparator<Integer> order) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) return NO_SLOTS;
+        String[] words = q.split(" ");
+
+        // Drive from the smallest posting list any query word needs. A missing trigram rules
+        // everything out; a missing word-start gram only leaves the mid-word scan below.
+        int driver = -1;
+        boolean anyShort = false;
+        for (String w : words) {
+            if (w.length() < 3) {
+                anyShort = true;
+                int gid = gramIds.get(gram(w.length() == 1 ? "  " + w : " " + w, 0));
+                if (gid >= 0 && (driver < 0 || postingSizes[gid] < postingSizes[driver])) driver = gid;
+            } else {
+                for (int i = 0; i + 3 <= w.length(); i++) {
+                    int gid = gramIds.get(gram(w, i));
+                    if (gid < 0 || postingSizes[gid] == 0) return NO_SLOTS;
+                    if (driver < 0 || postingSizes[gid] < postingSizes[driver]) driver = gid;
+                }
+            }
+        }
+
+        Comparator<Integer> ranked = Comparator.<Integer>comparingInt(s -> tier(texts[s], q, words)).thenComparing(order);
+        // Max-heap of the best `limit` so far: the worst kept hit is at the head
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, ranked.reversed());
+        boolean[] seen = null;
+        if (driver >= 0) {
+            int[] p = postings[driver];
+            for (int i = 0, n = postingSizes[driver]; i < n; i++) {
+                int s = p[i];
+                if (matches(texts[s], words, false) && accept.test(s)) offer(best, s, limit);
+            }
+        }
+        if (anyShort && best.size() < limit) {
+            // Short words also match mid-word (as LIKE '%q%' did); rare enough to scan for
+            if (driver >= 0) {
+                seen = new boolean[texts.length];
+                for (Integer s : best) seen[s] = true;
+            }
+            for (int s = 0; s < texts.length; s++) {
+                if (texts[s] == null || (seen != null && seen[s])) continue;
+                if (matches(texts[s], words, true) && accept.test(s)) offer(best, s, limit);
+            }
+        }
+
+        int[] out = new int[best.size()];
+        for (int i = out.length - 1; i >= 0; i--) out[i] = best.poll();
+        return out;
+    }
+
+    /** Approximate retained heap: texts, postings and the gram map. */
+    long bytes() {
+        long b = 16L + texts.length * 4L + 16L + postings.length * 8L + gramIds.capacity() * 12L;
+        for (String t : texts) if (t != null) b += 40 + t.length();
+        for (int i = 0; i < gramCount; i++) if (postings[i] != null) b += 16 + postings[i].length * 4L;
+        return b;
+    }
+
+    /* helpers */
+
+    private static void offer(PriorityQueue<Integer> best, int s, int limit) {
+        best.add(s);
+        if (best.size() > limit) best.poll();
+    }
+
+    /* 0: the whole query starts the name; 1: every word starts a name word; 2: otherwise */
+    private static int tier(String text, String q, String[] words) {
+        if (text.startsWith(q)) return 0;
+        for (String w : words) if (!startsWord(text, w)) return 2;
+        return 1;
+    }
+
+    private static boolean matches(String text, String[] words, boolean shortAnywhere) {
+        for (String w : words) {
+            boolean hit = w.length() >= 3 || shortAnywhere ? text.contains(w) : startsWord(text, w);
+            if (!hit) return false;
+        }
+        return true;
+    }
+
+    private static boolean startsWord(String text, String w) {
+        if (text.startsWith(w)) return true;
+        for (int i = text.indexOf(' '); i >= 0; i = text.indexOf(' ', i + 1)) {
+            if (text.startsWith(w, i + 1)) return true;
+        }
+        return false;
+    }
+
+    /* Distinct grams of a normalized text: each word's trigrams plus its two padded word-start grams */
+    private static long[] grams(String text) {
+        if (text.isEmpty()) return new long[0];
+        long[] out = new long[text.length() * 2 + 4];
+        int n = 0;
+        for (String w : text.split(" ")) {
+            String padded = "  " + w;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                out[n++] = gram(padded, i);
+            }
+        }
+        Arrays.sort(out, 0, n);
+        int u = 0;
+        for (int i = 0; i < n; i++) if (u == 0 || out[i] != out[u - 1]) out[u++] = out[i];
+        return Arrays.copyOf(out, u);
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    static String normalize(String s) {
+        if (s == null || s.isBlank()) return "";
+        String d = Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(d.length());
+        boolean space = true;
+        for (int i = 0; i < d.length(); i++) {
+            char c = d.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || c == '\'' || c == '’') continue;
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int len = sb.length();
+        if (len > 0 && sb.charAt(len - 1) == ' ') sb.setLength(len - 1);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,118 @@
+package com.scottfamily.scottfamily.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+/**
+ * Blocking index for fuzzy person matching: slots grouped by the Double Metaphone codes
+ * (primary and alternate) of their last and first names, so "Scot"/"Scott" and
+ * "Katherine"/"Catherine" land in the same block. Each person sits in one block per
+ * (last code, first code) pair and one per first code alone, for queries without a
+ * last name. People without a first name aren't indexed.
+ *
+ * Candidates for a query are the union of its blocks; scoring them is the caller's job.
+ * Updated in place. Not thread-safe: owned by {@link FamilyGraphStore}.
+ */
+final class PhoneticIndex {
+
+    private static final DoubleMetaphone METAPHONE = new DoubleMetaphone();
+    private static final String[] NO_KEYS = new String[0];
+    private static final int[] NO_SLOTS = new int[0];
+
+    private static final class Block {
+        int[] slots = new int[2];
+        int size;
+    }
+
+    private final Map<String, Block> blocks = new HashMap<>();
+    private String[][] keysBySlot;
+
+    PhoneticIndex(int expectedPeople) {
+        keysBySlot = new String[Math.max(16, expectedPeople)][];
+    }
+
+    void put(int slot, String firstName, String lastName) {
+        String[] keys = keys(firstName, lastName);
+        if (slot < keysBySlot.length && keysBySlot[slot] != null && Arrays.equals(keysBySlot[slot], keys)) return;
+        remove(slot);
+        if (slot >= keysBySlot.length) {
+            keysBySlot = Arrays.copyOf(keysBySlot, Math.max(slot + 1, keysBySlot.length + (keysBySlot.length >> 1)));
+        }
+        keysBySlot[slot] = keys;
+        for (String k : keys) {
+            Block b = blocks.computeIfAbsent(k, x -> new Block());
+            if (b.size == b.slots.length) b.slots = Arrays.copyOf(b.slots, b.size * 2);
+            b.slots[b.size++] = slot;
+        }
+    }
+
+    void remove(int slot) {
+        if (slot >= keysBySlot.length || keysBySlot[slot] == null) return;
+        for (String k : keysBySlot[slot]) {
+            Block b = blocks.get(k);
+            for (int i = 0; i < b.size; i++) {
+                if (b.slots[i] == slot) { b.slots[i] = b.slots[--b.size]; break; }
+            }
+            if (b.size == 0) blocks.remove(k);
+        }
+        keysBySlot[slot] = null;
+    }
+
+    /** Distinct slots sharing a block with the given names; a blank last name matches on first name only. */
+    int[] candidates(String firstName, String lastName) {
+        Set<String> firsts = codes(firstName);
+        if (firsts.isEmpty()) return NO_SLOTS;
+        Set<String> lasts = codes(lastName);
+        int[] out = NO_SLOTS;
+        int n = 0;
+        for (String l : lasts.isEmpty() ? Set.of("") : lasts) {
+            for (String f : firsts) {
+                Block b = blocks.get(l + "|" + f);
+                if (b == null) continue;
+                if (n + b.size > out.length) out = Arrays.copyOf(out, Math.max(16, (n + b.size) * 2));
+                System.arraycopy(b.slots, 0, out, n, b.size);
+                n += b.size;
+            }
+        }
+        Arrays.sort(out, 0, n);
+        int u = 0;
+        for (int i = 0; i < n; i++) if (u == 0 || out[i] != out[u - 1]) out[u++] = out[i];
+        return Arrays.copyOf(out, u);
+    }
+
+    long bytes() {
+        long b = 16L + keysBySlot.length * 4L + blocks.size() * 48L;
+        for (Map.Entry<String, Block> e : blocks.entrySet()) b += 40 + e.getKey().length() + 32 + e.getValue().slots.length * 4L;
+        for (String[] ks : keysBySlot) if (ks != null) b += 16 + ks.length * 4L;
+        return b;
+    }
+
+    /** Both Double Metaphone codes of a name (spaces and punctuation removed first). */
+    static Set<String> codes(String name) {
+        String s = NameIndex.normalize(name).replace(" ", "");
+        if (s.isEmpty()) return Set.of();
+        Set<String> out = new LinkedHashSet<>(2);
+        String primary = METAPHONE.doubleMetaphone(s);
+        String alternate = METAPHONE.doubleMetaphone(s, true);
+        if (primary != null && !primary.isEmpty()) out.add(primary);
+        if (alternate != null && !alternate.isEmpty()) out.add(alternate);
+        if (out.isEmpty()) out.add(s);     // no consonant sounds (e.g. "Ai"): fall back to the name itself
+        return out;
+    }
+
+    private static String[] keys(String firstName, String lastName) {
+        Set<String> firsts = codes(firstName);
+        if (firsts.isEmpty()) return NO_KEYS;
+        Set<String> keys = new LinkedHashSet<>();
+        for (String f : firsts) {
+            keys.add("|" + f);
+            for (String l : codes(lastName)) keys.add(l + "|" + f);
+        }
+        return keys.toArray(NO_KEYS);
+    }
+}
@@ -0,0 +1,36 @@
+package com.scottfamily.scottfamily.job;
+
+import com.scottfamily.scottfamily.service.ChangeFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job to delete change-feed rows every instance has long since applied.
+ *
+ * Runs every 15 minutes.
+ */
+@Component
+public class ChangeFeedCleanupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeedCleanupJob.class);
+
+    private final ChangeFeed changeFeed;
+
+    public ChangeFeedCleanupJob(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Scheduled(fixedRate = 15 * 60 * 1000) // every 15 minutes
+    public void purgeExpiredChanges() {
+        try {
+            int deleted = changeFeed.purgeExpired();
+            if (deleted > 0) {
+                log.info("ChangeFeedCleanupJob: deleted {} expired change-feed row(s)", deleted);
+            }
+        } catch (Exception e) {
+            log.error("ChangeFeedCleanupJob: error deleting expired change-feed rows", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.scottfamily.scottfamily.job;
+
+import com.scottfamily.scottfamily.service.DuplicatePeopleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job to rebuild the duplicate-person review queue.
+ *
+ * Scans every person in the family graph for likely duplicates (see
+ * DuplicatePeopleService); admins review and merge from the queue it leaves.
+ *
+ * Runs nightly at 2:30 AM.
+ */
+@Component
+public class DuplicatePeopleScanJob {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicatePeopleScanJob.class);
+
+    private final DuplicatePeopleService duplicatePeopleService;
+
+    public DuplicatePeopleScanJob(DuplicatePeopleService duplicatePeopleService) {
+        this.duplicatePeopleService = duplicatePeopleService;
+    }
+
+    @Scheduled(cron = "0 30 2 * * *") // 2:30 AM daily
+    public void scanForDuplicates() {
+        try {
+            duplicatePeopleService.scan(1);
+        } catch (Exception e) {
+            log.error("DuplicatePeopleScanJob: error scanning for duplicate people", e);
+        }
+    }
+}
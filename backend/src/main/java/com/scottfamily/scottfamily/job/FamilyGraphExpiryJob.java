@@ -0,0 +1,35 @@
+package com.scottfamily.scottfamily.job;
+
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job to drop parent relations from the resident family graph once their
+ * VALID_TO date has passed. The graph filters on VALID_TO when it reads rows; without this
+ * an expired relation would stay in the tree, profiles and lineage until the next reload.
+ *
+ * Runs once a day just after midnight.
+ */
+@Component
+public class FamilyGraphExpiryJob {
+
+    private static final Logger log = LoggerFactory.getLogger(FamilyGraphExpiryJob.class);
+
+    private final FamilyGraph familyGraph;
+
+    public FamilyGraphExpiryJob(FamilyGraph familyGraph) {
+        this.familyGraph = familyGraph;
+    }
+
+    @Scheduled(cron = "0 1 0 * * *") // 12:01 AM daily
+    public void expireRelations() {
+        try {
+            familyGraph.expireRelations();
+        } catch (Exception e) {
+            log.error("FamilyGraphExpiryJob: error expiring parent relations", e);
+        }
+    }
+}
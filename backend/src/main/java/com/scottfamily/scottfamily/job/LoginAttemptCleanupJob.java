@@ -0,0 +1,37 @@
+package com.scottfamily.scottfamily.job;
+
+import com.scottfamily.scottfamily.security.LoginRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled job to delete login-failure counters whose windows are too old to count.
+ * Only the database store keeps such rows; the in-memory store expires its own.
+ *
+ * Runs every 15 minutes.
+ */
+@Component
+public class LoginAttemptCleanupJob {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginAttemptCleanupJob.class);
+
+    private final LoginRateLimiter loginRateLimiter;
+
+    public LoginAttemptCleanupJob(LoginRateLimiter loginRateLimiter) {
+        this.loginRateLimiter = loginRateLimiter;
+    }
+
+    @Scheduled(fixedRate = 15 * 60 * 1000) // every 15 minutes
+    public void purgeExpiredAttempts() {
+        try {
+            int deleted = loginRateLimiter.purgeExpired();
+            if (deleted > 0) {
+                log.info("LoginAttemptCleanupJob: deleted {} expired login-attempt window(s)", deleted);
+            }
+        } catch (Exception e) {
+            log.error("LoginAttemptCleanupJob: error deleting expired login attempts", e);
+        }
+    }
+}
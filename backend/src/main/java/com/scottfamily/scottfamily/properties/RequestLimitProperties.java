@@ -0,0 +1,54 @@
+package com.scottfamily.scottfamily.properties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Limits for {@code RequestLimitFilter}: token buckets per endpoint group and caller, and
+ * the thresholds past which requests are shed outright.
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.request-limits")
+public class RequestLimitProperties {
+
+    private boolean enabled = true;
+
+    /** Paths never limited or shed (webhooks, health checks). */
+    private List<String> exempt = new ArrayList<>(List.of("/api/webhooks/**", "/actuator/**"));
+
+    /**
+     * Shed when this many limited requests are already in progress. Unset, it is 40 of
+     * Tomcat's 50 threads, or no cap with virtual threads, where {@code maxDbWait} sheds.
+     */
+    private Integer maxInFlight;
+
+    /** Shed while the mean wait for a pooled DB connection over the last second exceeds this. */
+    private Duration maxDbWait = Duration.ofMillis(500);
+
+    /** Cap on buckets held; one per caller per group. */
+    private long maxBuckets = 100_000;
+
+    /** First matching group wins; requests matching none are only subject to shedding. */
+    private List<Group> groups = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Group {
+        private String name;
+        private List<String> patterns = new ArrayList<>();
+        /** HTTP methods the group covers; empty means all. */
+        private List<String> methods = new ArrayList<>();
+        /** Burst size: requests a caller may make at once after being idle. */
+        private int capacity = 20;
+        /** Sustained rate, in requests per second per caller. */
+        private double refillPerSecond = 5;
+    }
+}
@@ -0,0 +1,161 @@
+package com.scottfamily.scottfamily.security;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs a {@link PasswordEncoder} (BCrypt) on a small dedicated pool instead of the calling
+ * request thread, so a burst of logins can only ever keep {@code threads} cores busy and
+ * every other endpoint keeps the rest.
+ *
+ * The pool's queue is bounded. A hash that can't be queued, or that hasn't started after
+ * {@code maxWait} in the queue, fails with {@link Saturated}, which the API answers with
+ * 503 and a Retry-After; the caller's thread is never parked behind an unbounded backlog.
+ * Once a task has started the caller waits for it to finish, however long the work takes
+ * (a batch from {@link #encodeAll} is several hashes): bcrypt can't be interrupted, so
+ * giving up then would only throw away the work. A task given up on in the queue is
+ * removed from it, or skipped if a thread takes it first.
+ *
+ * Meters: {@code auth.password.queue} (time waiting for a thread), {@code auth.password.hash}
+ * (time hashing), both tagged {@code op=encode|matches}; {@code auth.password.rejected}
+ * tagged {@code reason=queue_full|timeout}; and the gauge {@code auth.password.queued}.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    /** Thrown when the hashing pool is saturated; mapped to 503 by the exception handler. */
+    public static class Saturated extends RuntimeException {
+        public Saturated(String message) {
+            super(message);
+        }
+    }
+
+    private static final String BUSY = "The server is busy. Please try again in a moment.";
+    private static final int QUEUED = 0, STARTED = 1, ABANDONED = 2;
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor pool;
+    private final long maxWaitNanos;
+
+    private final Timer encodeQueue, matchesQueue, encodeHash, matchesHash;
+    private final Counter queueFull, timedOut;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, Duration maxWait,
+                                  MeterRegistry meters) {
+        this.delegate = delegate;
+        this.maxWaitNanos = maxWait.toNanos();
+        AtomicInteger n = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "bcrypt-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeQueue  = Timer.builder("auth.password.queue").tag("op", "encode").register(meters);
+        this.matchesQueue = Timer.builder("auth.password.queue").tag("op", "matches").register(meters);
+        this.encodeHash   = Timer.builder("auth.password.hash").tag("op", "encode").register(meters);
+        this.matchesHash  = Timer.builder("auth.password.hash").tag("op", "matches").register(meters);
+        this.queueFull = Counter.builder("auth.password.rejected").tag("reason", "queue_full").register(meters);
+        this.timedOut  = Counter.builder("auth.password.rejected").tag("reason", "timeout").register(meters);
+        Gauge.builder("auth.password.queued", pool, p -> p.getQueue().size()).register(meters);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeQueue, encodeHash);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesQueue, matchesHash);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Encode several secrets (a batch of backup codes) as one task, so the batch takes one
+     * queue slot and either runs whole or is rejected before anything is written.
+     */
+    public List<String> encodeAll(List<String> rawSecrets) {
+        return run(() -> {
+            List<String> out = new ArrayList<>(rawSecrets.size());
+            for (String raw : rawSecrets) out.add(delegate.encode(raw));
+            return out;
+        }, encodeQueue, encodeHash);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /* helpers */
+
+    private <T> T run(Callable<T> work, Timer queued, Timer hashed) {
+        long submitted = System.nanoTime();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        FutureTask<T> task = new FutureTask<>(() -> {
+            if (!state.compareAndSet(QUEUED, STARTED)) return null;     // the caller gave up
+            long started = System.nanoTime();
+            queued.record(started - submitted, TimeUnit.NANOSECONDS);
+            try {
+                return work.call();
+            } finally {
+                hashed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        });
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            queueFull.increment();
+            throw new Saturated(BUSY);
+        }
+        try {
+            try {
+                return task.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (abandon(state, task)) {
+                    timedOut.increment();
+                    throw new Saturated(BUSY);
+                }
+                return task.get();      // started in time; maxWait doesn't cover the hashing
+            }
+        } catch (InterruptedException e) {
+            abandon(state, task);
+            Thread.currentThread().interrupt();
+            throw new Saturated(BUSY);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /* Give up on a task still queued: true if it will never run */
+    private boolean abandon(AtomicInteger state, FutureTask<?> task) {
+        if (!state.compareAndSet(QUEUED, ABANDONED)) return false;
+        pool.remove(task);
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package com.scottfamily.scottfamily.security;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link LoginAttemptStore} in the database, so every instance behind the load balancer
+ * counts the same failures. Selected with {@code auth.login-rate-limit.store=database}.
+ * One row per key per window; a read touches at most two rows by primary key, and
+ * {@code LoginAttemptCleanupJob} deletes windows too old to count.
+ *
+ * Table (SQL Server; the H2 version is in db/synthetic/schema-h2.sql):
+ * <pre>
+ * CREATE TABLE LOGIN_ATTEMPTS (
+ *     IP_KEY          VARCHAR(64) NOT NULL,
+ *     WINDOW_START    BIGINT      NOT NULL,   -- epoch seconds, a multiple of the window
+ *     FAILURES        INT         NOT NULL,
+ *     LAST_FAILURE_AT BIGINT      NOT NULL,   -- epoch seconds
+ *     CONSTRAINT PK_LOGIN_ATTEMPTS PRIMARY KEY (IP_KEY, WINDOW_START)
+ * );
+ * CREATE INDEX IX_LOGIN_ATTEMPTS_WINDOW ON LOGIN_ATTEMPTS (WINDOW_START);
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "auth.login-rate-limit.store", havingValue = "database")
+public class JdbcLoginAttemptStore implements LoginAttemptStore {
+
+    // ── Table references (inline, not in jOOQ codegen) ─────────────────
+    private static final Table<?> LA = DSL.table(DSL.name("LOGIN_ATTEMPTS"));
+
+    private static final Field<String> LA_KEY          = DSL.field(DSL.name("IP_KEY"), String.class);
+    private static final Field<Long>   LA_WINDOW_START = DSL.field(DSL.name("WINDOW_START"), Long.class);
+    private static final Field<Integer> LA_FAILURES    = DSL.field(DSL.name("FAILURES"), Integer.class);
+    private static final Field<Long>   LA_LAST_FAILURE = DSL.field(DSL.name("LAST_FAILURE_AT"), Long.class);
+
+    private final DSLContext dsl;
+
+    public JdbcLoginAttemptStore(DSLContext dsl) {
+        this.dsl = dsl;
+    }
+
+    @Override
+    public Counts read(String key, long windowStart, long windowSeconds) {
+        int previous = 0, current = 0;
+        long last = 0;
+        for (var r : dsl.select(LA_WINDOW_START, LA_FAILURES, LA_LAST_FAILURE)
+                .from(LA)
+                .where(LA_KEY.eq(key))
+                .and(LA_WINDOW_START.in(windowStart - windowSeconds, windowStart))
+                .fetch()) {
+            if (r.get(LA_WINDOW_START) == windowStart) current = r.get(LA_FAILURES);
+            else previous = r.get(LA_FAILURES);
+            last = Math.max(last, r.get(LA_LAST_FAILURE));
+        }
+        return new Counts(previous, current, last);
+    }
+
+    @Override
+    public void recordFailure(String key, long windowStart, long windowSeconds, long nowEpoch) {
+        try {
+            dsl.mergeInto(LA)
+                    .using(DSL.selectOne())
+                    .on(LA_KEY.eq(key).and(LA_WINDOW_START.eq(windowStart)))
+                    .whenMatchedThenUpdate()
+                            .set(LA_FAILURES, LA_FAILURES.plus(1))
+                            .set(LA_LAST_FAILURE, nowEpoch)
+                    .whenNotMatchedThenInsert(LA_KEY, LA_WINDOW_START, LA_FAILURES, LA_LAST_FAILURE)
+                            .values(key, windowStart, 1, nowEpoch)
+                    .execute();
+        } catch (DataIntegrityViolationException raced) {
+            // Another instance inserted the row between our MERGE's match and insert
+            dsl.update(LA)
+                    .set(LA_FAILURES, LA_FAILURES.plus(1))
+                    .set(LA_LAST_FAILURE, nowEpoch)
+                    .where(LA_KEY.eq(key))
+                    .and(LA_WINDOW_START.eq(windowStart))
+                    .execute();
+        }
+    }
+
+    @Override
+    public void clear(String key) {
+        dsl.deleteFrom(LA).where(LA_KEY.eq(key)).execute();
+    }
+
+    @Override
+    public int purgeBefore(long cutoffEpoch) {
+        return dsl.deleteFrom(LA).where(LA_WINDOW_START.lt(cutoffEpoch)).execute();
+    }
+}
@@ -0,0 +1,64 @@
+package com.scottfamily.scottfamily.security;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * In-memory {@link LoginAttemptStore}, the default. Entries expire a fixed time after the
+ * last failure (expire-after-write, not after access, so an attacker's own checks can't keep
+ * a key alive), and Caffeine evicts them in amortised O(1) on its timer wheel; the size
+ * bound caps memory under a spread of spoofed addresses.
+ */
+@Component
+@ConditionalOnProperty(name = "auth.login-rate-limit.store", havingValue = "local", matchIfMissing = true)
+public class LocalLoginAttemptStore implements LoginAttemptStore {
+
+    private record Window(long start, int previous, int current, long lastFailureEpoch) {}
+
+    private final Cache<String, Window> windows;
+
+    public LocalLoginAttemptStore(@Value("${auth.login-rate-limit.window:15m}") Duration window,
+                                  @Value("${auth.login-rate-limit.max-keys:100000}") long maxKeys) {
+        this.windows = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(window.multipliedBy(2))    // past that the entry can't count
+                .build();
+    }
+
+    @Override
+    public Counts read(String key, long windowStart, long windowSeconds) {
+        Window w = windows.getIfPresent(key);
+        return w != null ? rolled(w, windowStart, windowSeconds) : Counts.NONE;
+    }
+
+    @Override
+    public void recordFailure(String key, long windowStart, long windowSeconds, long nowEpoch) {
+        windows.asMap().compute(key, (k, w) -> {
+            Counts c = w != null ? rolled(w, windowStart, windowSeconds) : Counts.NONE;
+            return new Window(windowStart, c.previous(), c.current() + 1, nowEpoch);
+        });
+    }
+
+    @Override
+    public void clear(String key) {
+        windows.invalidate(key);
+    }
+
+    @Override
+    public int purgeBefore(long cutoffEpoch) {
+        return 0;       // expiry does this
+    }
+
+    /* The entry as seen from the window starting at windowStart: shift it along if it has moved on */
+    private static Counts rolled(Window w, long windowStart, long windowSeconds) {
+        if (w.start() == windowStart) return new Counts(w.previous(), w.current(), w.lastFailureEpoch());
+        if (w.start() == windowStart - windowSeconds) return new Counts(w.current(), 0, w.lastFailureEpoch());
+        return new Counts(0, 0, w.lastFailureEpoch());
+    }
+}
@@ -0,0 +1,26 @@
+package com.scottfamily.scottfamily.security;
+
+/**
+ * Where {@link LoginRateLimiter} keeps its failure counts: one counter per key (client IP)
+ * per fixed window, of which only the current and the previous window are ever read.
+ *
+ * {@link LocalLoginAttemptStore} keeps them in this instance's memory; with several
+ * instances behind the load balancer, {@link JdbcLoginAttemptStore} shares them through the
+ * database so an attacker can't multiply the allowance by the number of instances.
+ */
+public interface LoginAttemptStore {
+
+    /** Failures counted in the window starting at {@code windowStart} and the one before it. */
+    record Counts(int previous, int current, long lastFailureEpoch) {
+        public static final Counts NONE = new Counts(0, 0, 0);
+    }
+
+    Counts read(String key, long windowStart, long windowSeconds);
+
+    void recordFailure(String key, long windowStart, long windowSeconds, long nowEpoch);
+
+    void clear(String key);
+
+    /** Drop windows that started before {@code cutoffEpoch}; returns how many were removed. */
+    int purgeBefore(long cutoffEpoch);
+}
@@ -1,10 +1,14 @@
 package com.scottfamily.scottfamily.security;
 
-import java.time.Instant;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Clock;
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
 /**
- * In-memory, IP-based login rate limiter.
+ * IP-based login rate limiter.
  *
  * <p>Strategy: progressive back-off per IP address.
  * <ul>
@@ -19,17 +23,17 @@ import java.util.concurrent.ConcurrentHashMap;
  * any user by spamming their username. IP-based limiting throttles the attacker's
  * machine while leaving the legitimate user (on a different IP) unaffected.
  *
- * <p>Counters reset on successful login and auto-expire after 15 minutes of
- * inactivity to avoid unbounded memory growth.
+ * <p>Failures are counted with a sliding-window counter: fixed windows (15 minutes by
+ * default) aligned to the epoch, where the estimate is the current window's count plus the
+ * previous window's, weighted by how much of it still overlaps the last 15 minutes. Each
+ * check reads two counters, whatever the number of IPs; old counters expire in the
+ * {@link LoginAttemptStore} rather than being swept here. Counters reset on successful login.
  */
-public final class LoginRateLimiter {
-
-    private LoginRateLimiter() {}
+@Component
+public class LoginRateLimiter {
 
     public record RateLimitResult(boolean allowed, long retryAfterSeconds) {}
 
-    private static final ConcurrentHashMap<String, AttemptRecord> ATTEMPTS = new ConcurrentHashMap<>();
-
     // Thresholds
     private static final int TIER_1_THRESHOLD = 5;
     private static final int TIER_2_THRESHOLD = 10;
@@ -40,27 +44,42 @@ public final class LoginRateLimiter {
     private static final long TIER_2_COOLDOWN = 120;
     private static final long TIER_3_COOLDOWN = 300;
 
-    // Auto-expire entries after this many seconds of inactivity
-    private static final long EXPIRY_SECONDS = 900; // 15 minutes
+    private static final int MAX_KEY_LENGTH = 64;    // longest IPv6 literal is 45
+
+    private final LoginAttemptStore store;
+    private final long windowSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public LoginRateLimiter(LoginAttemptStore store,
+                            @Value("${auth.login-rate-limit.window:15m}") Duration window) {
+        this(store, window, Clock.systemUTC());
+    }
+
+    /** For tests: windows and cooldowns measured on {@code clock}. */
+    LoginRateLimiter(LoginAttemptStore store, Duration window, Clock clock) {
+        this.store = store;
+        this.windowSeconds = window.toSeconds();
+        this.clock = clock;
+    }
 
     /**
      * Check whether the given IP is allowed to attempt login.
      *
      * @return result indicating if the attempt is allowed, and if not, how many seconds to wait
      */
-    public static RateLimitResult check(String ip) {
-        cleanup();
-        AttemptRecord record = ATTEMPTS.get(ip);
-        if (record == null) {
-            return new RateLimitResult(true, 0);
-        }
+    public RateLimitResult check(String ip) {
+        long now = clock.instant().getEpochSecond();
+        long windowStart = now - now % windowSeconds;
+        LoginAttemptStore.Counts counts = store.read(key(ip), windowStart, windowSeconds);
 
-        long cooldown = cooldownForFailures(record.failures);
+        double overlap = 1.0 - (double) (now - windowStart) / windowSeconds;
+        long cooldown = cooldownForFailures(counts.current() + counts.previous() * overlap);
         if (cooldown == 0) {
             return new RateLimitResult(true, 0);
         }
 
-        long elapsed = Instant.now().getEpochSecond() - record.lastFailureEpoch;
+        long elapsed = now - counts.lastFailureEpoch();
         if (elapsed >= cooldown) {
             return new RateLimitResult(true, 0);
         }
@@ -69,41 +88,31 @@ public final class LoginRateLimiter {
     }
 
     /** Record a failed login attempt for the given IP. */
-    public static void recordFailure(String ip) {
-        long now = Instant.now().getEpochSecond();
-        ATTEMPTS.compute(ip, (key, existing) -> {
-            if (existing == null) {
-                return new AttemptRecord(1, now);
-            }
-            return new AttemptRecord(existing.failures + 1, now);
-        });
+    public void recordFailure(String ip) {
+        long now = clock.instant().getEpochSecond();
+        store.recordFailure(key(ip), now - now % windowSeconds, windowSeconds, now);
     }
 
     /** Clear the failure counter on successful login. */
-    public static void recordSuccess(String ip) {
-        ATTEMPTS.remove(ip);
+    public void recordSuccess(String ip) {
+        store.clear(key(ip));
+    }
+
+    /** Delete counters too old to count (for stores that don't expire them themselves). */
+    public int purgeExpired() {
+        long now = clock.instant().getEpochSecond();
+        return store.purgeBefore(now - now % windowSeconds - windowSeconds);
     }
 
-    private static long cooldownForFailures(int failures) {
+    private static long cooldownForFailures(double failures) {
         if (failures <= TIER_1_THRESHOLD) return 0;
         if (failures <= TIER_2_THRESHOLD) return TIER_1_COOLDOWN;
         if (failures <= TIER_3_THRESHOLD) return TIER_2_COOLDOWN;
         return TIER_3_COOLDOWN;
     }
 
-    /** Remove stale entries to prevent unbounded memory growth. */
-    private static void cleanup() {
-        long cutoff = Instant.now().getEpochSecond() - EXPIRY_SECONDS;
-        ATTEMPTS.entrySet().removeIf(e -> e.getValue().lastFailureEpoch < cutoff);
-    }
-
-    private static final class AttemptRecord {
-        final int failures;
-        final long lastFailureEpoch;
-
-        AttemptRecord(int failures, long lastFailureEpoch) {
-            this.failures = failures;
-            this.lastFailureEpoch = lastFailureEpoch;
-        }
+    private static String key(String ip) {
+        if (ip == null) return "unknown";
+        return ip.length() > MAX_KEY_LENGTH ? ip.substring(0, MAX_KEY_LENGTH) : ip;
     }
 }
@@ -0,0 +1,269 @@
+package com.scottfamily.scottfamily.security;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scottfamily.scottfamily.properties.RequestLimitProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Admission control for the API, so one noisy client can't take the request threads and
+ * DB connections everyone else needs.
+ *
+ * Two checks, cheapest first, both answered with 429 and a Retry-After:
+ * <ul>
+ *   <li>Shedding: when {@code maxInFlight} limited requests are already running (by default
+ *       no cap with virtual threads), or the mean wait for a Hikari connection over the last
+ *       second is above {@code maxDbWait}, new requests are turned away before they queue
+ *       behind the backlog.
+ *   <li>Rate: each endpoint group has a token bucket per caller (the signed-in user, else
+ *       the client IP as Tomcat's RemoteIpValve resolves it). A bucket is one {@link AtomicLong} holding the time it will next be
+ *       full (GCRA), updated with a CAS, so admission never locks; the buckets live in a
+ *       Caffeine map, which is striped, and idle ones expire once they would have refilled.
+ * </ul>
+ *
+ * Behind Front Door the valve only gets past the edge's (public) address when it matches
+ * {@code server.tomcat.remoteip.trusted-proxies}; otherwise every client behind an edge
+ * shares that edge's buckets. An X-Forwarded-For still on the request while no trusted
+ * proxies are set means exactly that, and is logged as an error.
+ *
+ * Meters: {@code http.admission.admitted} tagged {@code group}, {@code http.admission.rejected}
+ * tagged {@code group} and {@code reason=rate|busy|db_wait}, and the gauge
+ * {@code http.admission.in_flight}.
+ *
+ * Not a {@code @Component}: {@code SecurityConfig} adds it to the security chain after
+ * {@link SessionUserFilter}, so the caller's principal is known.
+ */
+public class RequestLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestLimitFilter.class);
+
+    private static final String UNGROUPED = "none";
+    private static final String ACQUIRE_TIMER = "hikaricp.connections.acquire";
+    private static final long SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int PLATFORM_MAX_IN_FLIGHT = 40;    // of Tomcat's 50 threads
+
+    private record Group(String name, List<PathPattern> patterns, List<String> methods,
+                         long intervalNanos, long burstNanos, Counter admitted, Counter limited) {
+
+        boolean matches(PathContainer path, String method) {
+            if (!methods.isEmpty() && !methods.contains(method)) return false;
+            for (PathPattern p : patterns) if (p.matches(path)) return true;
+            return false;
+        }
+    }
+
+    private final List<PathPattern> exempt;
+    private final List<Group> groups;
+    private final int maxInFlight;
+    private final long maxDbWaitNanos;
+    private final Cache<String, AtomicLong> buckets;
+    private final MeterRegistry meters;
+    private final boolean proxiesTrusted;
+    private final AtomicBoolean untrustedProxyLogged = new AtomicBoolean();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Counter> busy = new HashMap<>(), dbWait = new HashMap<>();
+    private final Counter ungroupedAdmitted;
+
+    // DB pool pressure, resampled at most once a second by whichever request gets there first
+    private final AtomicLong sampledAt = new AtomicLong(System.nanoTime());
+    private volatile long lastAcquireCount;
+    private volatile double lastAcquireTotalNanos;
+    private volatile long recentAcquireNanos;
+
+    public RequestLimitFilter(RequestLimitProperties props, MeterRegistry meters, boolean virtualThreads,
+                              String trustedProxies) {
+        this.meters = meters;
+        this.proxiesTrusted = trustedProxies != null && !trustedProxies.isBlank();
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        this.exempt = props.getExempt().stream().map(parser::parse).toList();
+        this.maxInFlight = maxInFlight(props.getMaxInFlight(), virtualThreads);
+        this.maxDbWaitNanos = props.getMaxDbWait().toNanos();
+
+        long longestRefill = Duration.ofMinutes(1).toNanos();
+        this.groups = new ArrayList<>();
+        for (RequestLimitProperties.Group g : props.getGroups()) {
+            long interval = (long) (1e9 / g.getRefillPerSecond());
+            long burst = interval * g.getCapacity();
+            longestRefill = Math.max(longestRefill, burst);
+            groups.add(new Group(g.getName(),
+                    g.getPatterns().stream().map(parser::parse).toList(),
+                    g.getMethods().stream().map(String::toUpperCase).toList(),
+                    interval, burst,
+                    Counter.builder("http.admission.admitted").tag("group", g.getName()).register(meters),
+                    rejected(g.getName(), "rate")));
+            busy.put(g.getName(), rejected(g.getName(), "busy"));
+            dbWait.put(g.getName(), rejected(g.getName(), "db_wait"));
+        }
+        this.ungroupedAdmitted = Counter.builder("http.admission.admitted").tag("group", UNGROUPED).register(meters);
+        busy.put(UNGROUPED, rejected(UNGROUPED, "busy"));
+        dbWait.put(UNGROUPED, rejected(UNGROUPED, "db_wait"));
+
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(props.getMaxBuckets())
+                .expireAfterAccess(Duration.ofNanos(longestRefill))  // by then it's full again
+                .build();
+        Gauge.builder("http.admission.in_flight", inFlight, AtomicInteger::get).register(meters);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) return true;
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (PathPattern p : exempt) if (p.matches(path)) return true;
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        Group group = groupFor(path, request.getMethod());
+        String groupName = group != null ? group.name() : UNGROUPED;
+
+        if (inFlight.get() >= maxInFlight) {
+            busy.get(groupName).increment();
+            reject(response, 1, "The server is busy. Please try again in a moment.");
+            return;
+        }
+        if (recentDbWaitNanos() > maxDbWaitNanos) {
+            dbWait.get(groupName).increment();
+            reject(response, 2, "The server is busy. Please try again in a moment.");
+            return;
+        }
+        if (group != null) {
+            long waitNanos = tryAcquire(group, callerKey(request));
+            if (waitNanos > 0) {
+                group.limited().increment();
+                reject(response, retryAfterSeconds(waitNanos), "Too many requests. Please slow down.");
+                return;
+            }
+            group.admitted().increment();
+        } else {
+            ungroupedAdmitted.increment();
+        }
+
+        inFlight.incrementAndGet();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /* helpers */
+
+    /* Platform threads: stay under Tomcat's pool. Virtual threads: no thread pool to protect,
+       so no cap unless one is configured; the DB-wait check sheds once the Hikari pool backs up */
+    static int maxInFlight(Integer configured, boolean virtualThreads) {
+        if (configured != null) return configured;
+        return virtualThreads ? Integer.MAX_VALUE : PLATFORM_MAX_IN_FLIGHT;
+    }
+
+    private Group groupFor(PathContainer path, String method) {
+        for (Group g : groups) if (g.matches(path, method)) return g;
+        return null;
+    }
+
+    private long tryAcquire(Group g, String caller) {
+        AtomicLong fullAt = buckets.get(g.name() + '|' + caller, k -> new AtomicLong(Long.MIN_VALUE));
+        return tryAcquire(fullAt, System.nanoTime(), g.intervalNanos(), g.burstNanos());
+    }
+
+    /**
+     * GCRA on one bucket: {@code fullAt} is when the bucket will be full again (initially
+     * {@link Long#MIN_VALUE}), each token moves it {@code intervalNanos} on, and a token is
+     * free while it stays within {@code burstNanos} of {@code now}.
+     *
+     * @return 0 when admitted, else how long until a token is free
+     */
+    static long tryAcquire(AtomicLong fullAt, long now, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long over = next - now - burstNanos;
+            if (over > 0) return over;
+            if (fullAt.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    /** Whole seconds for Retry-After, rounded up so a retry at that time is admitted. */
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+    }
+
+    private String callerKey(HttpServletRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getPrincipal() instanceof SessionUser u) return "u" + u.userId();
+        if (!proxiesTrusted && request.getHeader("X-Forwarded-For") != null
+                && untrustedProxyLogged.compareAndSet(false, true)) {
+            log.error("RequestLimitFilter: X-Forwarded-For from {} was not resolved because TRUSTED_PROXIES "
+                    + "(server.tomcat.remoteip.trusted-proxies) is unset; every client behind that proxy "
+                    + "shares its rate limits", request.getRemoteAddr());
+        }
+        return request.getRemoteAddr();     // the client, as resolved by RemoteIpValve
+    }
+
+    /* Mean Hikari acquire time since the last sample; the timer is registered once the pool starts */
+    private long recentDbWaitNanos() {
+        long now = System.nanoTime();
+        long last = sampledAt.get();
+        if (now - last >= SAMPLE_NANOS && sampledAt.compareAndSet(last, now)) {
+            Timer acquire = meters.find(ACQUIRE_TIMER).timer();
+            if (acquire != null) {
+                long count = acquire.count();
+                double total = acquire.totalTime(TimeUnit.NANOSECONDS);
+                long n = count - lastAcquireCount;
+                recentAcquireNanos = n > 0 ? (long) ((total - lastAcquireTotalNanos) / n) : 0;
+                lastAcquireCount = count;
+                lastAcquireTotalNanos = total;
+            }
+        }
+        return recentAcquireNanos;
+    }
+
+    private Counter rejected(String group, String reason) {
+        return Counter.builder("http.admission.rejected").tag("group", group).tag("reason", reason).register(meters);
+    }
+
+    private static void reject(HttpServletResponse response, long retryAfterSeconds, String message) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"TOO_MANY_REQUESTS\",\"message\":\"" + message
+                + "\",\"retryAfterSeconds\":" + retryAfterSeconds + "}");
+    }
+}
@@ -0,0 +1,85 @@
+package com.scottfamily.scottfamily.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-GCM encryption for small secrets stored in the database (TOTP seeds), under a key
+ * held outside it. A sealed value is {@code "v1:"} + Base64(IV ‖ ciphertext ‖ tag), and is
+ * bound to a context string (e.g. the owning user id) so it can't be copied to another
+ * row. Pure computation, thread-safe.
+ */
+public final class SecretCipher {
+
+    private static final String PREFIX = "v1:";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    /** {@code base64Key} decodes to 16, 24 or 32 bytes (AES-128/192/256). */
+    public SecretCipher(String base64Key) {
+        byte[] k;
+        try {
+            k = Base64.getDecoder().decode(base64Key.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Secret key is not valid Base64", e);
+        }
+        if (k.length != 16 && k.length != 24 && k.length != 32) {
+            throw new IllegalArgumentException("Secret key must be 16, 24 or 32 bytes, not " + k.length);
+        }
+        this.key = new SecretKeySpec(k, "AES");
+    }
+
+    public String seal(String plain, String context) {
+        byte[] iv = new byte[IV_BYTES];
+        RANDOM.nextBytes(iv);
+        try {
+            Cipher c = cipher(Cipher.ENCRYPT_MODE, iv, context);
+            byte[] sealed = c.doFinal(plain.getBytes(StandardCharsets.UTF_8));
+            return PREFIX + Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(IV_BYTES + sealed.length).put(iv).put(sealed).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM unavailable", e);
+        }
+    }
+
+    /**
+     * The plaintext of a sealed value.
+     *
+     * @throws IllegalStateException if the value wasn't sealed, was sealed under another key or
+     *         context, or was altered
+     */
+    public String open(String stored, String context) {
+        if (stored == null || !stored.startsWith(PREFIX)) throw new IllegalStateException("Secret is not sealed");
+        byte[] raw;
+        try {
+            raw = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Sealed secret is not valid Base64", e);
+        }
+        if (raw.length <= IV_BYTES) throw new IllegalStateException("Sealed secret is truncated");
+        try {
+            Cipher c = cipher(Cipher.DECRYPT_MODE, Arrays.copyOf(raw, IV_BYTES), context);
+            return new String(c.doFinal(raw, IV_BYTES, raw.length - IV_BYTES), StandardCharsets.UTF_8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Sealed secret can't be opened with the configured key", e);
+        }
+    }
+
+    private Cipher cipher(int mode, byte[] iv, String context) throws GeneralSecurityException {
+        Cipher c = Cipher.getInstance("AES/GCM/NoPadding");
+        c.init(mode, key, new GCMParameterSpec(TAG_BITS, iv));
+        c.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+        return c;
+    }
+}
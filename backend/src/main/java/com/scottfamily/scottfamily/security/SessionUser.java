@@ -0,0 +1,43 @@
+package com.scottfamily.scottfamily.security;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * The signed-in user as kept in the session's SecurityContext, so handlers know who is
+ * calling without looking the username up. {@link #getName()} is the username, so
+ * {@code Authentication.getName()} keeps working wherever it is still used.
+ *
+ * {@code personId} is null for an account not yet linked to a PEOPLE row; {@code role} is
+ * the Spring authority ({@code ROLE_USER} / {@code ROLE_ADMIN}). {@code revision} is the
+ * {@link SessionUsers} stamp the principal was built at; later role, ban or link changes
+ * make it stale and {@link SessionUserFilter} reloads it.
+ */
+public record SessionUser(long userId, Long personId, String username, String role, long revision)
+        implements AuthenticatedPrincipal, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final String ROLE_ADMIN = "ROLE_ADMIN";
+
+    public boolean isAdmin() {
+        return ROLE_ADMIN.equals(role);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    /** An authenticated token for this user, with the role as its only authority. */
+    public Authentication toAuthentication() {
+        return UsernamePasswordAuthenticationToken.authenticated(this, null, List.of(new SimpleGrantedAuthority(role)));
+    }
+}
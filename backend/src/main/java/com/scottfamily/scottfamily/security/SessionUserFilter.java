@@ -0,0 +1,63 @@
+package com.scottfamily.scottfamily.security;
+
+import java.io.IOException;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Keeps the session's {@link SessionUser} current. Runs right after the SecurityContext is
+ * loaded, before authorization, so a demoted admin loses admin routes on their next request.
+ *
+ * A stale principal (see {@link SessionUsers#isStale}) is reloaded and saved back to the
+ * session; one whose account is gone or banned ends the session. Sessions signed in before
+ * principals carried ids (a bare username) are upgraded the same way, once.
+ *
+ * Not a {@code @Component}: {@code SecurityConfig} adds it to the security chain only.
+ */
+public class SessionUserFilter extends OncePerRequestFilter {
+
+    private final SessionUsers sessionUsers;
+    private final SecurityContextRepository securityContextRepository;
+
+    public SessionUserFilter(SessionUsers sessionUsers, SecurityContextRepository securityContextRepository) {
+        this.sessionUsers = sessionUsers;
+        this.securityContextRepository = securityContextRepository;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            SessionUser current = auth.getPrincipal() instanceof SessionUser u ? u : null;
+            if (current == null || sessionUsers.isStale(current)) {
+                SessionUser fresh = current != null
+                        ? sessionUsers.load(current.userId())
+                        : sessionUsers.loadByUsername(auth.getName());
+                if (fresh == null) {
+                    SecurityContextHolder.clearContext();
+                    HttpSession session = request.getSession(false);
+                    if (session != null) session.invalidate();
+                } else {
+                    SecurityContext context = SecurityContextHolder.createEmptyContext();
+                    context.setAuthentication(fresh.toAuthentication());
+                    SecurityContextHolder.setContext(context);
+                    securityContextRepository.saveContext(context, request, response);
+                }
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
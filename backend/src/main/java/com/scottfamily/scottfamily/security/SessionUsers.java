@@ -0,0 +1,140 @@
+package com.scottfamily.scottfamily.security;
+
+import static com.yourproject.generated.scott_family_web.Tables.USERS;
+
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Builds {@link SessionUser} principals and tracks which of them have gone stale.
+ *
+ * Every change that affects a principal takes the next value of a logical clock and
+ * records it against the user (role, ban, delete: {@link #userChanged}) or, through the
+ * family graph's change listener, against the people refreshed and the users the graph
+ * now links to them (link, unlink, merge). A full reload of the graph stamps only the
+ * people whose link it changed. A principal built at an earlier stamp than a change to
+ * its user or person is stale. The maps hold one long per changed user or
+ * person, so they stay bounded by the size of USERS and PEOPLE. Changes made on another
+ * instance arrive through {@code ChangeFeed}, which calls {@link #userChanged} here.
+ */
+@Component
+public class SessionUsers {
+
+    private static final Field<OffsetDateTime> U_BANNED_UNTIL = DSL.field(DSL.name("banned_until"), OffsetDateTime.class);
+
+    private final DSLContext dsl;
+    private final FamilyGraph familyGraph;
+    private final UserSecurityCache userSecurity;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> userChanges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> personChanges = new ConcurrentHashMap<>();
+
+    public SessionUsers(DSLContext dsl, FamilyGraph familyGraph, UserSecurityCache userSecurity) {
+        this.dsl = dsl;
+        this.familyGraph = familyGraph;
+        this.userSecurity = userSecurity;
+    }
+
+    @PostConstruct
+    void registerInvalidation() {
+        familyGraph.addChangeListener(this::onGraphChange);
+        familyGraph.addReloadListener(this::onGraphChange);
+    }
+
+    /** Principal for a user who has just signed in (credentials and 2FA already checked). */
+    public SessionUser signedIn(long userId, Long personId, String username, String role) {
+        return new SessionUser(userId, personId, username, springRole(role), clock.get());
+    }
+
+    /**
+     * Mark a user's principal stale after a change to their role, ban or account, and drop
+     * their cached {@link UserSecurityCache} entry. Inside a transaction this takes effect on
+     * commit, so the reload sees the change.
+     */
+    public void userChanged(Long userId) {
+        if (userId == null) return;
+        userSecurity.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userChanges.put(userId, clock.incrementAndGet());
+                }
+            });
+        } else {
+            userChanges.put(userId, clock.incrementAndGet());
+        }
+    }
+
+    /** True when the user or their person changed after {@code u} was built. */
+    public boolean isStale(SessionUser u) {
+        long rev = u.revision();
+        Long changed = userChanges.get(u.userId());
+        if (changed != null && changed > rev) return true;
+        changed = u.personId() != null ? personChanges.get(u.personId()) : null;
+        return changed != null && changed > rev;
+    }
+
+    /** The user's current principal, or null when the account is gone, unapproved or banned. */
+    public SessionUser load(long userId) {
+        return load(USERS.ID.eq(userId));
+    }
+
+    /** As {@link #load(long)}, by username (sessions from before principals carried ids). */
+    public SessionUser loadByUsername(String username) {
+        return username != null ? load(USERS.USERNAME.eq(username)) : null;
+    }
+
+    /* helpers */
+
+    private SessionUser load(Condition which) {
+        long rev = clock.get();     // taken first: a change racing the read leaves it stale
+        var r = dsl.select(USERS.ID, USERS.PERSON_ID, USERS.USERNAME, USERS.USER_ROLE, USERS.APPROVED_AT, U_BANNED_UNTIL)
+                .from(USERS)
+                .where(which)
+                .fetchOne();
+        if (r == null || r.get(USERS.APPROVED_AT) == null) return null;
+        OffsetDateTime bannedUntil = r.get(U_BANNED_UNTIL);
+        if (bannedUntil != null && bannedUntil.isAfter(OffsetDateTime.now())) return null;
+        return new SessionUser(r.get(USERS.ID), r.get(USERS.PERSON_ID), r.get(USERS.USERNAME),
+                springRole(r.get(USERS.USER_ROLE)), rev);
+    }
+
+    private static String springRole(String role) {
+        if (role == null || role.isBlank()) return "ROLE_USER";
+        return role.startsWith("ROLE_") ? role : "ROLE_" + role;
+    }
+
+    /*
+     * A refresh of person P may link or unlink a user: stale whoever pointed at P and whoever
+     * points now. A reload comes through as null, then again as the people it relinked.
+     */
+    private void onGraphChange(Set<Long> personIds) {
+        if (personIds == null || personIds.isEmpty()) return;
+        long stamp = clock.incrementAndGet();
+        for (Long id : personIds) personChanges.put(id, stamp);
+        familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            for (Long id : personIds) {
+                int s = st.slotOf(id);
+                if (s >= 0 && st.userId(s) != FamilyGraphStore.NONE) userChanges.put(st.userId(s), stamp);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.scottfamily.scottfamily.security;
+
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base32;
+
+/**
+ * RFC 6238 time-based one-time passwords as authenticator apps implement them: HMAC-SHA1,
+ * 30-second steps, 6 digits, secrets exchanged in unpadded Base32. Pure computation, no
+ * state; replay protection is the caller's.
+ */
+public final class Totp {
+
+    private Totp() {}
+
+    public static final int DIGITS = 6;
+    public static final long STEP_SECONDS = 30;
+
+    private static final int SECRET_BYTES = 20;     // 160 bits, the RFC 4226 recommendation
+    private static final int[] POW10 = { 1, 10, 100, 1_000, 10_000, 100_000, 1_000_000 };
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** A fresh random secret, Base32 (what the user types or scans). */
+    public static String newSecret() {
+        byte[] key = new byte[SECRET_BYTES];
+        RANDOM.nextBytes(key);
+        return new Base32().encodeToString(key).replace("=", "");
+    }
+
+    /**
+     * The step within {@code window} steps of {@code nowMillis} whose code equals
+     * {@code code}, or -1 when none does (or the code isn't {@link #DIGITS} digits).
+     */
+    public static long matchingStep(String secret, String code, long nowMillis, int window) {
+        if (secret == null || code == null || code.length() != DIGITS || !code.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        byte[] key = new Base32().decode(secret);
+        byte[] given = code.getBytes(StandardCharsets.US_ASCII);
+        long now = nowMillis / 1000 / STEP_SECONDS;
+        for (long step = now - window; step <= now + window; step++) {
+            // Constant-time compare of each candidate
+            if (MessageDigest.isEqual(given, format(code(key, step)))) return step;
+        }
+        return -1;
+    }
+
+    /** {@code otpauth://} URI for a QR code, per the Key Uri Format most authenticator apps read. */
+    public static String provisioningUri(String issuer, String account, String secret) {
+        return "otpauth://totp/" + encode(issuer) + ":" + encode(account)
+                + "?secret=" + secret
+                + "&issuer=" + encode(issuer)
+                + "&algorithm=SHA1&digits=" + DIGITS + "&period=" + STEP_SECONDS;
+    }
+
+    /* helpers */
+
+    static int code(byte[] key, long step) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(new SecretKeySpec(key, "HmacSHA1"));
+            byte[] h = mac.doFinal(ByteBuffer.allocate(8).putLong(step).array());
+            int offset = h[h.length - 1] & 0x0f;
+            int binary = ((h[offset] & 0x7f) << 24) | ((h[offset + 1] & 0xff) << 16)
+                    | ((h[offset + 2] & 0xff) << 8) | (h[offset + 3] & 0xff);
+            return binary % POW10[DIGITS];
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA1 unavailable", e);
+        }
+    }
+
+    private static byte[] format(int code) {
+        return String.format("%0" + DIGITS + "d", code).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
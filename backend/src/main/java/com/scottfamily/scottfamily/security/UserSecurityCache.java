@@ -0,0 +1,172 @@
+package com.scottfamily.scottfamily.security;
+
+import static com.yourproject.generated.scott_family_web.Tables.USERS;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+/**
+ * What login needs to know about a user (password hash, role, approval, ban and whether 2FA
+ * is on), read in one query and kept in a bounded Caffeine cache, so a repeat sign-in goes
+ * straight to the bcrypt check without touching the database.
+ *
+ * Entries are dropped by {@link #invalidate} from every write to those columns: ban, unban,
+ * role change and delete (through {@link SessionUsers#userChanged}), password reset, 2FA
+ * enable/disable/reset, approval and rename. Other instances drop theirs when
+ * {@code ChangeFeed} passes the invalidation on, within a couple of seconds. The expiry only
+ * bounds how long a write made outside the application (a manual UPDATE) can go unnoticed.
+ */
+@Component
+public class UserSecurityCache {
+
+    public record UserSecurity(
+            long userId,
+            String username,
+            String passwordHash,
+            String role,
+            boolean approved,
+            OffsetDateTime bannedUntil,
+            String banReason,
+            boolean twoFactorEnabled,
+            String twoFactorMethod
+    ) {
+        public boolean banned() {
+            return bannedUntil != null && bannedUntil.isAfter(OffsetDateTime.now());
+        }
+
+        /** 2FA is on and answered from an authenticator app (TOTP) rather than by SMS. */
+        public boolean usesAuthenticator() {
+            return twoFactorEnabled && "TOTP".equals(twoFactorMethod);
+        }
+    }
+
+    private static final Field<OffsetDateTime> U_BANNED_UNTIL = DSL.field(DSL.name("banned_until"), OffsetDateTime.class);
+    private static final Field<String>         U_BAN_REASON   = DSL.field(DSL.name("ban_reason"),   String.class);
+
+    // TWO_FACTOR_AUTH (not in jOOQ codegen)
+    private static final Table<?>       TFA         = DSL.table(DSL.name("TWO_FACTOR_AUTH"));
+    private static final Field<Long>    TFA_USER_ID = DSL.field(DSL.name("TWO_FACTOR_AUTH", "USER_ID"), Long.class);
+    private static final Field<Boolean> TFA_ENABLED = DSL.field(DSL.name("TWO_FACTOR_AUTH", "ENABLED"), Boolean.class);
+    private static final Field<String>  TFA_METHOD  = DSL.field(DSL.name("TWO_FACTOR_AUTH", "METHOD"),  String.class);
+
+    private final DSLContext dsl;
+
+    private final Cache<Long, UserSecurity> byId;
+    // Lower-cased username -> id; an entry is dropped with the cached user it names
+    private final ConcurrentHashMap<String, Long> idsByUsername = new ConcurrentHashMap<>();
+    private final List<Consumer<Long>> invalidationListeners = new CopyOnWriteArrayList<>();
+    // Bumped by every invalidation; a load that raced one is returned but not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UserSecurityCache(DSLContext dsl) {
+        this.dsl = dsl;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .removalListener((Long userId, UserSecurity u, RemovalCause cause) -> {
+                    if (u != null && cause.wasEvicted()) forgetUsername(u);
+                })
+                .build();
+    }
+
+    /** The user signing in as {@code username}, or null when there is no such account. */
+    public UserSecurity byUsername(String username) {
+        if (username == null) return null;
+        Long id = idsByUsername.get(key(username));
+        UserSecurity u = id != null ? byId.getIfPresent(id) : null;
+        if (u != null && u.username().equalsIgnoreCase(username)) return u;
+        u = load(USERS.USERNAME.eq(username));
+        if (u != null) idsByUsername.put(key(u.username()), u.userId());
+        return u;
+    }
+
+    /** As {@link #byUsername}, by user id. */
+    public UserSecurity byId(Long userId) {
+        if (userId == null) return null;
+        UserSecurity u = byId.getIfPresent(userId);
+        return u != null ? u : load(USERS.ID.eq(userId));
+    }
+
+    /**
+     * Drop a user's entry after a change to their password, role, ban, approval, username or
+     * 2FA. Inside a transaction this takes effect on commit, so the next read sees the change.
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) return;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        } else {
+            evict(userId);
+        }
+    }
+
+    /**
+     * Call {@code listener} with the user id after each entry {@link #invalidate} drops (on
+     * commit, inside a transaction), so the invalidation can be passed to other instances.
+     */
+    public void addInvalidationListener(Consumer<Long> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /* helpers */
+
+    private void evict(Long userId) {
+        invalidations.incrementAndGet();
+        UserSecurity old = byId.asMap().remove(userId);
+        if (old != null) forgetUsername(old);
+        for (Consumer<Long> l : invalidationListeners) l.accept(userId);
+    }
+
+    private void forgetUsername(UserSecurity u) {
+        idsByUsername.remove(key(u.username()), u.userId());
+    }
+
+    private static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private UserSecurity load(Condition which) {
+        long seen = invalidations.get();
+        var r = dsl.select(USERS.ID, USERS.USERNAME, USERS.PASSWORD_HASH, USERS.USER_ROLE, USERS.APPROVED_AT,
+                        U_BANNED_UNTIL, U_BAN_REASON, TFA_ENABLED, TFA_METHOD)
+                .from(USERS)
+                .leftJoin(TFA).on(TFA_USER_ID.eq(USERS.ID))
+                .where(which)
+                .fetchOne();
+        if (r == null) return null;
+        LocalDateTime approvedAt = r.get(USERS.APPROVED_AT);
+        UserSecurity u = new UserSecurity(r.get(USERS.ID), r.get(USERS.USERNAME), r.get(USERS.PASSWORD_HASH),
+                r.get(USERS.USER_ROLE), approvedAt != null, r.get(U_BANNED_UNTIL), r.get(U_BAN_REASON),
+                Boolean.TRUE.equals(r.get(TFA_ENABLED)), r.get(TFA_METHOD));
+        if (invalidations.get() == seen) {
+            byId.put(u.userId(), u);
+            if (invalidations.get() != seen) byId.invalidate(u.userId());
+        }
+        return u;
+    }
+}
@@ -1,14 +1,14 @@
 package com.scottfamily.scottfamily.service;
 
 import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
+import com.scottfamily.scottfamily.security.UserSecurityCache.UserSecurity;
 import com.yourproject.generated.scott_family_web.tables.records.UsersRecord;
 import lombok.RequiredArgsConstructor;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -20,9 +20,6 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.jooq.Field;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import static com.yourproject.generated.scott_family_web.Tables.USERS;
 import static com.yourproject.generated.scott_family_web.tables.People.PEOPLE;
 import static com.yourproject.generated.scott_family_web.tables.PersonParent.PERSON_PARENT;
@@ -33,8 +30,13 @@ import static org.jooq.impl.DSL.selectOne;
 public class AuthService {
     private final DSLContext dsl;
     private final PasswordEncoder passwordEncoder;
-    private final UserDetailsService userDetailsService;
+    private final UserSecurityCache userSecurity;
     private final SiteSettingsService siteSettings;
+    private final FamilyGraph familyGraph;
+    private final PersonMatcher personMatcher;
+
+    /** Fuzzy name score at which a signup's parent (same DOB, same or sound-alike first name) is taken to be an existing person. */
+    private static final double PARENT_REUSE_SCORE = 0.9;
 
     // Inline field refs for PEOPLE columns (pending jOOQ regen after V12)
     private static final Field<String> P_MIDDLE_NAME        = DSL.field(DSL.name("middle_name"),        String.class);
@@ -46,43 +48,42 @@ public class AuthService {
     private static final Field<String> P_LOCATION           = DSL.field(DSL.name("location"),           String.class);
     private static final Field<LocalDate> P_DATE_OF_DEATH   = DSL.field(DSL.name("date_of_death"),      LocalDate.class);
 
-    // Ban support columns (inline until jOOQ regen)
-    private static final Field<java.time.OffsetDateTime> U_BANNED_UNTIL = DSL.field(DSL.name("banned_until"), java.time.OffsetDateTime.class);
-    private static final Field<String>                   U_BAN_REASON   = DSL.field(DSL.name("ban_reason"),   String.class);
+    // USERS / PEOPLE support columns (inline until jOOQ regen)
     private static final Field<Long>                     U_ARCHIVED_CLAIM_PERSON_ID = DSL.field(DSL.name("archived_claim_person_id"), Long.class);
     private static final Field<Boolean>                  IS_ARCHIVED    = DSL.field(DSL.name("is_archived"), Boolean.class);
     private static final Field<String>                   U_PHONE_NUMBER = DSL.field(DSL.name("phone_number"), String.class);
 
+    /**
+     * Check a sign-in. The hash, approval and ban come from {@link UserSecurityCache}, so
+     * the bcrypt check runs after one query at most; the full USERS row is only read once
+     * the password has matched. The caller builds the session.
+     */
     public DTOs.ProfileDto authenticate(DTOs.LoginRequest req) {
-        UsersRecord user = dsl.selectFrom(USERS)
-                .where(USERS.USERNAME.eq(req.username()))
-                .fetchOne();
+        UserSecurity sec = userSecurity.byUsername(req.username());
 
-        if (user == null || !passwordEncoder.matches(req.password(), user.getPasswordHash())) {
+        if (sec == null || sec.passwordHash() == null || !passwordEncoder.matches(req.password(), sec.passwordHash())) {
             throw new IllegalArgumentException("Bad credentials");
         }
-        if (user.getApprovedAt() == null) {
+        if (!sec.approved()) {
             throw new IllegalStateException("Account pending approval.");
         }
 
         // Check if user is banned
-        java.time.OffsetDateTime bannedUntil = dsl.select(U_BANNED_UNTIL)
-                .from(USERS).where(USERS.ID.eq(user.getId()))
-                .fetchOne(U_BANNED_UNTIL);
-        if (bannedUntil != null && bannedUntil.isAfter(java.time.OffsetDateTime.now())) {
-            String reason = dsl.select(U_BAN_REASON)
-                    .from(USERS).where(USERS.ID.eq(user.getId()))
-                    .fetchOne(U_BAN_REASON);
-            boolean permanent = bannedUntil.getYear() >= 9999;
+        if (sec.banned()) {
+            String reason = sec.banReason();
+            boolean permanent = sec.bannedUntil().getYear() >= 9999;
             String msg = permanent
                     ? "BANNED|permanent|" + (reason != null ? reason : "")
-                    : "BANNED|" + bannedUntil.toString() + "|" + (reason != null ? reason : "");
+                    : "BANNED|" + sec.bannedUntil().toString() + "|" + (reason != null ? reason : "");
             throw new IllegalStateException(msg);
         }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getUsername());
-        Authentication auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-        SecurityContextHolder.getContext().setAuthentication(auth);
+        UsersRecord user = dsl.selectFrom(USERS)
+                .where(USERS.ID.eq(sec.userId()))
+                .fetchOne();
+        if (user == null) {
+            throw new IllegalArgumentException("Bad credentials");
+        }
 
         // Ensure PEOPLE row exists for legacy users with null person_id
         if (user.getPersonId() == null) {
@@ -93,13 +94,16 @@ public class AuthService {
                     .fetchOne(PEOPLE.ID);
             user.setPersonId(personId);
             user.update();
+            familyGraph.refresh(personId);
         }
 
         return toProfile(user);
     }
 
     public DTOs.SignupResponse signup(DTOs.SignupRequest req) {
-        return dsl.transactionResult(tx -> {
+        // People created or linked by this signup; refreshed in the family graph once committed
+        List<Long> touchedPersonIds = new java.util.ArrayList<>();
+        DTOs.SignupResponse response = dsl.transactionResult(tx -> {
             final var d = DSL.using(tx);
 
             // 1) Prevent duplicates
@@ -231,6 +235,8 @@ public class AuthService {
                         .execute();
             }
 
+            touchedPersonIds.addAll(java.util.Arrays.asList(personId, motherId, fatherId));
+
             // 5) Return signup result with approval status
             boolean approved = u.getApprovedAt() != null;
             String message = approved
@@ -238,6 +244,8 @@ public class AuthService {
                     : "Your signup request has been submitted. You'll receive an email once your account is approved.";
             return new DTOs.SignupResponse(approved, message);
         });
+        familyGraph.refresh(touchedPersonIds);
+        return response;
     }
 
     /* ------------ Helpers ------------ */
@@ -249,24 +257,37 @@ public class AuthService {
         return id;
     }
 
-    /** Create or reuse a person by (first,last,dob). */
+    /**
+     * Create or reuse a person by (first,last,dob). An existing person is reused when the
+     * names match exactly, read inside the signup transaction so a parent inserted earlier in
+     * it counts. With a DOB, a person born that day is also reused when the first names are
+     * equal or sound alike and the names score at least {@link #PARENT_REUSE_SCORE} (see
+     * {@link PersonMatcher}), so "Jon" finds "John" but "Mark" doesn't take "Mary", who may
+     * be a twin. Anything fuzzier gets a new person, which the duplicate scan puts in front
+     * of an admin if it is a copy.
+     */
     private Long upsertPersonByNameDob(DSLContext d, String fullName, java.time.LocalDate dob) {
         String first = extractFirstName(fullName);
         String last  = extractLastName(fullName);
 
-        // Try to find an existing person with same name + (optional) DOB
         var cond = PEOPLE.FIRST_NAME.eq(first == null ? "" : first)
                 .and(PEOPLE.LAST_NAME.eq(last == null ? "" : last));
         if (dob != null) cond = cond.and(PEOPLE.DATE_OF_BIRTH.eq(dob));
-
         Long existing = d.select(PEOPLE.ID)
                 .from(PEOPLE)
                 .where(cond)
                 .limit(1)
                 .fetchOne(PEOPLE.ID);
-
         if (existing != null) return existing;
 
+        if (dob != null) {
+            PersonMatcher.Filter sameDayAndFirstName = (st, s) ->
+                    dob.equals(st.dateOfBirth(s)) && PersonMatcher.sameName(first, st.firstName(s));
+            for (var m : personMatcher.find(new PersonMatcher.Query(first, last, dob, 0), sameDayAndFirstName, 1)) {
+                if (m.getMatchScore() >= PARENT_REUSE_SCORE) return m.getPersonId();
+            }
+        }
+
         // Otherwise create
         return d.insertInto(PEOPLE)
                 .set(PEOPLE.FIRST_NAME, first)
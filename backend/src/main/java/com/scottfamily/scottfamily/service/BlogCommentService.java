@@ -9,6 +9,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for blog comments — CRUD, likes, and sorting.
@@ -18,8 +21,6 @@ public class BlogCommentService {
 
     // ── Tables ──
     private static final Table<?> COMMENTS         = DSL.table("comments");
-    private static final Table<?> USERS            = DSL.table("users");
-    private static final Table<?> PEOPLE           = DSL.table("people");
     private static final Table<?> COMMENT_LIKES    = DSL.table("COMMENT_LIKES");
     private static final Table<?> COMMENT_DISLIKES = DSL.table("COMMENT_DISLIKES");
 
@@ -30,18 +31,13 @@ public class BlogCommentService {
     private static final Field<String>        F_CONTENT    = DSL.field("content",    SQLDataType.NVARCHAR);
     private static final Field<LocalDateTime> F_CREATED_AT = DSL.field("created_at", SQLDataType.LOCALDATETIME);
 
-    // ── Qualified fields (for JOINs) ──
+    // ── Qualified fields (for correlated subqueries) ──
+    // Author names come from DisplayNameService (users.person_id → PEOPLE), not a join
     private static final Field<Long>          F_C_ID         = DSL.field(DSL.name("comments", "id"),         SQLDataType.BIGINT);
     private static final Field<Long>          F_C_POST_ID    = DSL.field(DSL.name("comments", "post_id"),    SQLDataType.BIGINT);
     private static final Field<Long>          F_C_AUTHOR_ID  = DSL.field(DSL.name("comments", "author_id"),  SQLDataType.BIGINT);
     private static final Field<String>        F_C_CONTENT    = DSL.field(DSL.name("comments", "content"),    SQLDataType.NVARCHAR);
     private static final Field<LocalDateTime> F_C_CREATED_AT = DSL.field(DSL.name("comments", "created_at"), SQLDataType.LOCALDATETIME);
-    // After V12: author name from PEOPLE (via users.person_id)
-    private static final Field<String>        F_PERSON_FIRST = DSL.field(DSL.name("people", "first_name"),   SQLDataType.NVARCHAR(100));
-    private static final Field<String>        F_PERSON_LAST  = DSL.field(DSL.name("people", "last_name"),    SQLDataType.NVARCHAR(100));
-    private static final Field<Long>          F_USER_ID      = DSL.field(DSL.name("users", "id"),            SQLDataType.BIGINT);
-    private static final Field<Long>          F_USER_PERSON_ID = DSL.field(DSL.name("users", "person_id"),   SQLDataType.BIGINT);
-    private static final Field<Long>          F_PEOPLE_ID    = DSL.field(DSL.name("people", "id"),           SQLDataType.BIGINT);
 
     // ── Comment likes fields ──
     private static final Field<Long> F_CL_COMMENT_ID = DSL.field(DSL.name("COMMENT_LIKES", "comment_id"), SQLDataType.BIGINT);
@@ -52,9 +48,11 @@ public class BlogCommentService {
     private static final Field<Long> F_CDL_USER_ID    = DSL.field(DSL.name("COMMENT_DISLIKES", "user_id"),    SQLDataType.BIGINT);
 
     private final DSLContext dsl;
+    private final DisplayNameService displayNames;
 
-    public BlogCommentService(DSLContext dsl) {
+    public BlogCommentService(DSLContext dsl, DisplayNameService displayNames) {
         this.dsl = dsl;
+        this.displayNames = displayNames;
     }
 
     // ── DTO ──
@@ -115,29 +113,37 @@ public class BlogCommentService {
             default:        orderBy = F_C_CREATED_AT.asc();  break; // "oldest"
         }
 
-        return dsl.select(F_C_ID, F_C_POST_ID, F_C_AUTHOR_ID, F_C_CONTENT,
-                        F_C_CREATED_AT, F_PERSON_FIRST, F_PERSON_LAST, F_USER_PERSON_ID,
+        var rows = dsl.select(F_C_ID, F_C_POST_ID, F_C_AUTHOR_ID, F_C_CONTENT, F_C_CREATED_AT,
                         likeCountField, likedByMeField,
                         dislikeCountField, dislikedByMeField)
                 .from(COMMENTS)
-                .leftJoin(USERS).on(F_C_AUTHOR_ID.eq(F_USER_ID))
-                .leftJoin(PEOPLE).on(F_USER_PERSON_ID.eq(F_PEOPLE_ID))
                 .where(F_C_POST_ID.eq(postId))
                 .orderBy(orderBy)
-                .fetch(r -> CommentDto.builder()
-                        .id(r.get(F_C_ID))
-                        .postId(r.get(F_C_POST_ID))
-                        .authorId(r.get(F_C_AUTHOR_ID) != null ? r.get(F_C_AUTHOR_ID) : 0)
-                        .authorPersonId(r.get(F_USER_PERSON_ID))
-                        .authorName(buildDisplayName(r.get(F_PERSON_FIRST), r.get(F_PERSON_LAST), null))
-                        .content(r.get(F_C_CONTENT))
-                        .createdAt(r.get(F_C_CREATED_AT) != null
-                                ? r.get(F_C_CREATED_AT).toString() : null)
-                        .likeCount(r.get("like_count", Integer.class))
-                        .likedByMe(r.get("liked_by_me", Integer.class) > 0)
-                        .dislikeCount(r.get("dislike_count", Integer.class))
-                        .dislikedByMe(r.get("disliked_by_me", Integer.class) > 0)
-                        .build());
+                .fetch();
+
+        Set<Long> authorIds = rows.stream().map(r -> r.get(F_C_AUTHOR_ID)).collect(Collectors.toSet());
+        Map<Long, DisplayNameService.UserRef> authors = displayNames.users(authorIds);
+        Map<Long, String> authorNames = displayNames.personNames(authors.values().stream()
+                .map(DisplayNameService.UserRef::personId).collect(Collectors.toSet()));
+
+        return rows.map(r -> {
+            DisplayNameService.UserRef author = authors.get(r.get(F_C_AUTHOR_ID));
+            Long authorPersonId = author != null ? author.personId() : null;
+            return CommentDto.builder()
+                    .id(r.get(F_C_ID))
+                    .postId(r.get(F_C_POST_ID))
+                    .authorId(r.get(F_C_AUTHOR_ID) != null ? r.get(F_C_AUTHOR_ID) : 0)
+                    .authorPersonId(authorPersonId)
+                    .authorName(authorPersonId != null ? authorNames.get(authorPersonId) : null)
+                    .content(r.get(F_C_CONTENT))
+                    .createdAt(r.get(F_C_CREATED_AT) != null
+                            ? r.get(F_C_CREATED_AT).toString() : null)
+                    .likeCount(r.get("like_count", Integer.class))
+                    .likedByMe(r.get("liked_by_me", Integer.class) > 0)
+                    .dislikeCount(r.get("dislike_count", Integer.class))
+                    .dislikedByMe(r.get("disliked_by_me", Integer.class) > 0)
+                    .build();
+        });
     }
 
     // ── Create a comment ──
@@ -153,15 +159,9 @@ public class BlogCommentService {
 
         if (record == null) throw new RuntimeException("Failed to insert comment");
 
-        var authorRow = dsl.select(F_PERSON_FIRST, F_PERSON_LAST, F_USER_PERSON_ID)
-                .from(USERS)
-                .leftJoin(PEOPLE).on(F_USER_PERSON_ID.eq(F_PEOPLE_ID))
-                .where(F_USER_ID.eq(authorId))
-                .fetchOne();
-        String authorName = authorRow != null
-                ? buildDisplayName(authorRow.get(F_PERSON_FIRST), authorRow.get(F_PERSON_LAST), null)
-                : null;
-        Long authorPersonId = authorRow != null ? authorRow.get(F_USER_PERSON_ID) : null;
+        DisplayNameService.UserRef author = displayNames.user(authorId);
+        Long authorPersonId = author != null ? author.personId() : null;
+        String authorName = displayNames.personName(authorPersonId);
 
         return CommentDto.builder()
                 .id(record.get(F_ID))
@@ -251,10 +251,4 @@ public class BlogCommentService {
 
     public record LikeResult(boolean liked, int likeCount) {}
     public record ReactionResult(boolean liked, boolean disliked, int likeCount, int dislikeCount) {}
-
-    /** Prefer first+last; fall back to legacy display_name. */
-    private static String buildDisplayName(String first, String last, String legacyDisplayName) {
-        String computed = ((first != null ? first : "") + " " + (last != null ? last : "")).trim();
-        return computed.isEmpty() ? legacyDisplayName : computed;
-    }
 }
@@ -9,6 +9,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for managing blog posts, including likes.
@@ -18,8 +21,6 @@ public class BlogPostService {
 
     // ── Tables ──
     private static final Table<?> BLOG_POSTS = DSL.table("blog_posts");
-    private static final Table<?> USERS      = DSL.table("users");
-    private static final Table<?> PEOPLE     = DSL.table("people");
     private static final Table<?> LIKES      = DSL.table("likes");
     private static final Table<?> DISLIKES   = DSL.table("dislikes");
 
@@ -30,16 +31,11 @@ public class BlogPostService {
     private static final Field<String>        F_CONTENT    = DSL.field("content",    SQLDataType.NVARCHAR);
     private static final Field<LocalDateTime> F_CREATED_AT = DSL.field("created_at", SQLDataType.LOCALDATETIME);
 
-    // ── Qualified fields (for JOINs — disambiguate shared column names) ──
+    // ── Qualified fields (for correlated subqueries — disambiguate shared column names) ──
+    // Author names come from DisplayNameService (users.person_id → PEOPLE), not a join
     private static final Field<Long>          F_BP_ID         = DSL.field(DSL.name("blog_posts", "id"),         SQLDataType.BIGINT);
     private static final Field<Long>          F_BP_AUTHOR_ID  = DSL.field(DSL.name("blog_posts", "author_id"),  SQLDataType.BIGINT);
     private static final Field<LocalDateTime> F_BP_CREATED_AT = DSL.field(DSL.name("blog_posts", "created_at"), SQLDataType.LOCALDATETIME);
-    // After V12: author name comes from PEOPLE (via users.person_id)
-    private static final Field<String>        F_PERSON_FIRST  = DSL.field(DSL.name("people", "first_name"),     SQLDataType.NVARCHAR(100));
-    private static final Field<String>        F_PERSON_LAST   = DSL.field(DSL.name("people", "last_name"),      SQLDataType.NVARCHAR(100));
-    private static final Field<Long>          F_USER_ID       = DSL.field(DSL.name("users", "id"),              SQLDataType.BIGINT);
-    private static final Field<Long>          F_USER_PERSON_ID = DSL.field(DSL.name("users", "person_id"),       SQLDataType.BIGINT);
-    private static final Field<Long>          F_PEOPLE_ID     = DSL.field(DSL.name("people", "id"),             SQLDataType.BIGINT);
 
     // ── Likes table fields ──
     private static final Field<Long> F_LIKE_POST_ID = DSL.field(DSL.name("likes", "post_id"), SQLDataType.BIGINT);
@@ -50,9 +46,11 @@ public class BlogPostService {
     private static final Field<Long> F_DISLIKE_USER_ID = DSL.field(DSL.name("dislikes", "user_id"), SQLDataType.BIGINT);
 
     private final DSLContext dsl;
+    private final DisplayNameService displayNames;
 
-    public BlogPostService(DSLContext dsl) {
+    public BlogPostService(DSLContext dsl, DisplayNameService displayNames) {
         this.dsl = dsl;
+        this.displayNames = displayNames;
     }
 
     // ── DTO ──
@@ -125,31 +123,39 @@ public class BlogPostService {
             default:         orderBy = F_BP_CREATED_AT.desc(); break; // "newest"
         }
 
-        return dsl.select(F_BP_ID, F_BP_AUTHOR_ID, F_TITLE, F_CONTENT, F_BP_CREATED_AT,
-                        F_PERSON_FIRST, F_PERSON_LAST, F_USER_PERSON_ID,
+        var rows = dsl.select(F_BP_ID, F_BP_AUTHOR_ID, F_TITLE, F_CONTENT, F_BP_CREATED_AT,
                         likeCountField, likedByMeField,
                         dislikeCountField, dislikedByMeField, commentCountField)
                 .from(BLOG_POSTS)
-                .leftJoin(USERS).on(F_BP_AUTHOR_ID.eq(F_USER_ID))
-                .leftJoin(PEOPLE).on(F_USER_PERSON_ID.eq(F_PEOPLE_ID))
                 .orderBy(orderBy)
                 .offset(offset)
                 .limit(limit)
-                .fetch(r -> BlogPostDto.builder()
-                        .id(r.get(F_BP_ID))
-                        .authorId(r.get(F_BP_AUTHOR_ID))
-                        .authorPersonId(r.get(F_USER_PERSON_ID))
-                        .title(r.get(F_TITLE))
-                        .content(r.get(F_CONTENT))
-                        .createdAt(r.get(F_BP_CREATED_AT) != null
-                                ? r.get(F_BP_CREATED_AT).toString() : null)
-                        .authorName(buildDisplayName(r.get(F_PERSON_FIRST), r.get(F_PERSON_LAST), null))
-                        .likeCount(r.get("like_count", Integer.class))
-                        .likedByMe(r.get("liked_by_me", Integer.class) > 0)
-                        .dislikeCount(r.get("dislike_count", Integer.class))
-                        .dislikedByMe(r.get("disliked_by_me", Integer.class) > 0)
-                        .commentCount(r.get("comment_count", Integer.class))
-                        .build());
+                .fetch();
+
+        Set<Long> authorIds = rows.stream().map(r -> r.get(F_BP_AUTHOR_ID)).collect(Collectors.toSet());
+        Map<Long, DisplayNameService.UserRef> authors = displayNames.users(authorIds);
+        Map<Long, String> authorNames = displayNames.personNames(authors.values().stream()
+                .map(DisplayNameService.UserRef::personId).collect(Collectors.toSet()));
+
+        return rows.map(r -> {
+            DisplayNameService.UserRef author = authors.get(r.get(F_BP_AUTHOR_ID));
+            Long authorPersonId = author != null ? author.personId() : null;
+            return BlogPostDto.builder()
+                    .id(r.get(F_BP_ID))
+                    .authorId(r.get(F_BP_AUTHOR_ID))
+                    .authorPersonId(authorPersonId)
+                    .title(r.get(F_TITLE))
+                    .content(r.get(F_CONTENT))
+                    .createdAt(r.get(F_BP_CREATED_AT) != null
+                            ? r.get(F_BP_CREATED_AT).toString() : null)
+                    .authorName(authorPersonId != null ? authorNames.get(authorPersonId) : null)
+                    .likeCount(r.get("like_count", Integer.class))
+                    .likedByMe(r.get("liked_by_me", Integer.class) > 0)
+                    .dislikeCount(r.get("dislike_count", Integer.class))
+                    .dislikedByMe(r.get("disliked_by_me", Integer.class) > 0)
+                    .commentCount(r.get("comment_count", Integer.class))
+                    .build();
+        });
     }
 
     // ── Create a post ──
@@ -165,15 +171,9 @@ public class BlogPostService {
 
         if (record == null) throw new RuntimeException("Failed to insert blog post");
 
-        var authorRow = dsl.select(F_PERSON_FIRST, F_PERSON_LAST, F_USER_PERSON_ID)
-                .from(USERS)
-                .leftJoin(PEOPLE).on(F_USER_PERSON_ID.eq(F_PEOPLE_ID))
-                .where(F_USER_ID.eq(authorId))
-                .fetchOne();
-        String authorName = authorRow != null
-                ? buildDisplayName(authorRow.get(F_PERSON_FIRST), authorRow.get(F_PERSON_LAST), null)
-                : null;
-        Long authorPersonId = authorRow != null ? authorRow.get(F_USER_PERSON_ID) : null;
+        DisplayNameService.UserRef author = displayNames.user(authorId);
+        Long authorPersonId = author != null ? author.personId() : null;
+        String authorName = displayNames.personName(authorPersonId);
 
         return BlogPostDto.builder()
                 .id(record.get(F_ID))
@@ -254,10 +254,4 @@ public class BlogPostService {
 
     public record LikeResult(boolean liked, int likeCount) {}
     public record ReactionResult(boolean liked, boolean disliked, int likeCount, int dislikeCount) {}
-
-    /** Prefer first+last; fall back to legacy display_name. */
-    private static String buildDisplayName(String first, String last, String legacyDisplayName) {
-        String computed = ((first != null ? first : "") + " " + (last != null ? last : "")).trim();
-        return computed.isEmpty() ? legacyDisplayName : computed;
-    }
 }
@@ -0,0 +1,197 @@
+package com.scottfamily.scottfamily.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.InsertValuesStep3;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.security.SessionUsers;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Carries cache invalidations between instances. Each instance keeps the family graph, and
+ * what is derived from it (cached profiles, display names, session staleness stamps), plus
+ * users' security state ({@link UserSecurityCache}) in memory and refreshes or drops what a
+ * write touched; the write is also appended here, and every other instance polls the table
+ * every couple of seconds and does the same. An edited bio, photo or relationship, a ban,
+ * password reset, role change or 2FA change made on one instance so reaches the others
+ * within a poll.
+ *
+ * Rows are appended after the write commits, on a connection of their own, and carry the
+ * instance that wrote them, which skips them. A poll reads everything after the last row
+ * older than {@link #SETTLE}, so a row whose id was allocated before a later one's but
+ * committed after it is still seen; rows already applied are remembered until they settle.
+ * {@code ChangeFeedCleanupJob} deletes rows once they are {@link #RETAIN} old.
+ *
+ * Table (SQL Server; the H2 version is in db/synthetic/schema-h2.sql):
+ * <pre>
+ * CREATE TABLE CHANGE_FEED (
+ *     ID         BIGINT IDENTITY NOT NULL PRIMARY KEY,
+ *     KIND       VARCHAR(10)    NOT NULL,   -- USER | PERSON | RELOAD (no ENTITY_ID)
+ *     ENTITY_ID  BIGINT         NULL,
+ *     ORIGIN     VARCHAR(36)    NOT NULL,   -- the writing instance
+ *     CREATED_AT DATETIMEOFFSET NOT NULL DEFAULT SYSDATETIMEOFFSET()
+ * );
+ * CREATE INDEX IX_CHANGE_FEED_CREATED ON CHANGE_FEED (CREATED_AT);
+ * </pre>
+ */
+@Component
+@Slf4j
+public class ChangeFeed {
+
+    static final String USER = "USER";
+    static final String PERSON = "PERSON";
+    static final String RELOAD = "RELOAD";
+
+    private static final Duration SETTLE = Duration.ofSeconds(10);
+    private static final Duration RETAIN = Duration.ofHours(1);
+
+    // ── Table references (inline, not in jOOQ codegen) ─────────────────
+    private static final Table<?> CF = DSL.table(DSL.name("CHANGE_FEED"));
+
+    private static final Field<Long>   CF_ID        = DSL.field(DSL.name("ID"), Long.class);
+    private static final Field<String> CF_KIND      = DSL.field(DSL.name("KIND"), String.class);
+    private static final Field<Long>   CF_ENTITY_ID = DSL.field(DSL.name("ENTITY_ID"), Long.class);
+    private static final Field<String> CF_ORIGIN    = DSL.field(DSL.name("ORIGIN"), String.class);
+    private static final Field<OffsetDateTime> CF_CREATED_AT = DSL.field(DSL.name("CREATED_AT"), OffsetDateTime.class);
+    private static final Field<OffsetDateTime> DB_NOW = DSL.currentOffsetDateTime().as("DB_NOW");
+
+    private final DSLContext dsl;
+    private final DataSource dataSource;
+    private final FamilyGraph familyGraph;
+    private final UserSecurityCache userSecurity;
+    private final SessionUsers sessionUsers;
+
+    @Value("${app.change-feed.enabled:true}")
+    private boolean enabled;
+
+    private final String origin = UUID.randomUUID().toString();
+    // Set while this instance applies rows from others, so it doesn't append them again
+    private final ThreadLocal<Boolean> applying = new ThreadLocal<>();
+
+    // Poller state (guarded by polling): rows up to settled are done; seen are applied ones after it
+    private final ReentrantLock polling = new ReentrantLock();
+    private long settled = -1;
+    private final Set<Long> seen = new HashSet<>();
+
+    public ChangeFeed(DSLContext dsl, DataSource dataSource, FamilyGraph familyGraph,
+                      UserSecurityCache userSecurity, SessionUsers sessionUsers) {
+        this.dsl = dsl;
+        this.dataSource = dataSource;
+        this.familyGraph = familyGraph;
+        this.userSecurity = userSecurity;
+        this.sessionUsers = sessionUsers;
+    }
+
+    @PostConstruct
+    void registerPublishers() {
+        userSecurity.addInvalidationListener(userId -> publish(USER, Set.of(userId)));
+        familyGraph.addChangeListener(personIds -> {
+            if (personIds == null) publish(RELOAD, Collections.singleton(null));
+            else publish(PERSON, personIds);
+        });
+    }
+
+    /** Apply other instances' rows since the last poll. */
+    @Scheduled(fixedRateString = "${app.change-feed.poll-millis:2000}")
+    public void poll() {
+        if (!enabled || !polling.tryLock()) return;
+        try {
+            pollOnce();
+        } catch (Exception e) {
+            log.error("ChangeFeed: poll failed", e);
+        } finally {
+            polling.unlock();
+        }
+    }
+
+    /** Delete rows every instance has long since read; returns how many were removed. */
+    public int purgeExpired() {
+        if (!enabled) return 0;
+        return dsl.deleteFrom(CF)
+                .where(CF_CREATED_AT.lt(OffsetDateTime.now().minus(RETAIN)))
+                .execute();
+    }
+
+    /* helpers */
+
+    /*
+     * Called after commit, when the transaction's connection may still be bound to the
+     * thread but no longer commits; the row goes in on an auto-commit connection of its own.
+     */
+    private void publish(String kind, Collection<Long> ids) {
+        if (!enabled || Boolean.TRUE.equals(applying.get()) || ids.isEmpty()) return;
+        try (Connection c = dataSource.getConnection()) {
+            InsertValuesStep3<?, String, Long, String> insert =
+                    DSL.using(c, dsl.dialect(), dsl.settings()).insertInto(CF, CF_KIND, CF_ENTITY_ID, CF_ORIGIN);
+            for (Long id : ids) insert = insert.values(kind, id, origin);
+            insert.execute();
+        } catch (SQLException | RuntimeException e) {
+            // Other instances catch up when their entries expire
+            log.error("ChangeFeed: could not publish {} {}", kind, ids, e);
+        }
+    }
+
+    private void pollOnce() {
+        if (settled < 0) {
+            // Start at the end: this instance loaded its state after those rows were written
+            Long last = dsl.select(DSL.max(CF_ID)).from(CF).fetchOne(0, Long.class);
+            settled = last != null ? last : 0;
+            return;
+        }
+
+        Map<String, Set<Long>> changes = new HashMap<>();
+        long newSettled = settled;
+        boolean settling = true;
+        for (var r : dsl.select(CF_ID, CF_KIND, CF_ENTITY_ID, CF_ORIGIN, CF_CREATED_AT, DB_NOW)
+                .from(CF)
+                .where(CF_ID.gt(settled))
+                .orderBy(CF_ID)
+                .fetch()) {
+            long id = r.get(CF_ID);
+            if (settling && r.get(CF_CREATED_AT).isBefore(r.get(DB_NOW).minus(SETTLE))) newSettled = id;
+            else settling = false;
+            if (seen.add(id) && !origin.equals(r.get(CF_ORIGIN))) {
+                changes.computeIfAbsent(r.get(CF_KIND), k -> new HashSet<>()).add(r.get(CF_ENTITY_ID));
+            }
+        }
+        long done = newSettled;
+        settled = done;
+        seen.removeIf(id -> id <= done);
+        if (!changes.isEmpty()) apply(changes);
+    }
+
+    private void apply(Map<String, Set<Long>> changes) {
+        applying.set(Boolean.TRUE);
+        try {
+            // The graph's change listeners drop the profiles and stamps a refresh touches
+            if (changes.containsKey(RELOAD)) familyGraph.reload();
+            else if (changes.containsKey(PERSON)) familyGraph.refresh(changes.get(PERSON));
+            for (Long userId : changes.getOrDefault(USER, Set.of())) sessionUsers.userChanged(userId);
+        } finally {
+            applying.remove();
+        }
+    }
+}
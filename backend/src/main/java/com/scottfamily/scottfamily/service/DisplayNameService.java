@@ -0,0 +1,208 @@
+package com.scottfamily.scottfamily.service;
+
+import static com.yourproject.generated.scott_family_web.Tables.USERS;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jooq.DSLContext;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * One place to turn person and user ids into display names, without a query per lookup.
+ *
+ * People's names come straight from the resident {@link FamilyGraph}, which every PEOPLE
+ * write already refreshes. Users are resolved through a bounded Caffeine cache of
+ * user id → (person id, username), bulk-loaded with one {@code USERS} query for whatever
+ * a batch is missing; the name itself is then read from the graph, so renaming a person
+ * needs no invalidation here. Entries are dropped when a graph refresh touches the linked
+ * person (link, unlink, merge, delete) and by {@link #evictUser} when a user row goes away.
+ */
+@Service
+public class DisplayNameService {
+
+    /** A USERS row as far as names are concerned; {@code personId} is null when unlinked. */
+    public record UserRef(Long personId, String username) {}
+
+    private static final Comparator<String> NAME_ORDER = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
+    private final DSLContext dsl;
+    private final FamilyGraph familyGraph;
+
+    private final LoadingCache<Long, UserRef> users;
+
+    public DisplayNameService(DSLContext dsl, FamilyGraph familyGraph) {
+        this.dsl = dsl;
+        this.familyGraph = familyGraph;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(20_000)
+                .expireAfterWrite(Duration.ofHours(1))
+                .build(new CacheLoader<>() {
+                    @Override
+                    public UserRef load(Long userId) {
+                        return loadUsers(Set.of(userId)).get(userId);
+                    }
+
+                    @Override
+                    public Map<Long, UserRef> loadAll(Set<? extends Long> userIds) {
+                        return loadUsers(userIds);
+                    }
+                });
+    }
+
+    @PostConstruct
+    void registerInvalidation() {
+        familyGraph.addChangeListener(this::onGraphChange);
+    }
+
+    /* ============================================================
+     * People
+     * ============================================================ */
+
+    /** "First Last" of a person, or null when there is no such person or it has no name yet. */
+    public String personName(Long personId) {
+        if (personId == null) return null;
+        return familyGraph.read(g -> shortName(g.store(), personId));
+    }
+
+    /** {@link #personName} for many ids; unknown and unnamed people are left out. */
+    public Map<Long, String> personNames(Collection<Long> personIds) {
+        if (personIds == null || personIds.isEmpty()) return Map.of();
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            Map<Long, String> out = new HashMap<>();
+            for (Long id : personIds) {
+                String name = id != null ? shortName(st, id) : null;
+                if (name != null) out.put(id, name);
+            }
+            return out;
+        });
+    }
+
+    /**
+     * Full names with every part and the life years (see {@link PeopleService#fullDisplayName}),
+     * in first-name then last-name order; unknown ids are left out.
+     */
+    public Map<Long, String> personFullNames(Collection<Long> personIds) {
+        if (personIds == null || personIds.isEmpty()) return Map.of();
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            List<Integer> slots = new ArrayList<>();
+            for (Long id : new HashSet<>(personIds)) {
+                int s = id != null ? st.slotOf(id) : -1;
+                if (s >= 0) slots.add(s);
+            }
+            slots.sort(Comparator.<Integer, String>comparing(st::firstName, NAME_ORDER)
+                    .thenComparing(st::lastName, NAME_ORDER)
+                    .thenComparingLong(st::id));
+            Map<Long, String> out = new LinkedHashMap<>();
+            for (int s : slots) {
+                out.put(st.id(s), PeopleService.fullDisplayName(st.prefix(s), st.firstName(s), st.middleName(s),
+                        st.lastName(s), st.suffix(s), st.dateOfBirth(s), st.dateOfDeath(s)));
+            }
+            return out;
+        });
+    }
+
+    /* ============================================================
+     * Users
+     * ============================================================ */
+
+    /** The user's person link and username, or null when there is no such user. */
+    public UserRef user(Long userId) {
+        return userId != null ? users.get(userId) : null;
+    }
+
+    /** {@link #user} for many ids, loading any not yet cached in one query; unknown ids are left out. */
+    public Map<Long, UserRef> users(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) return Map.of();
+        Set<Long> ids = new HashSet<>(userIds);
+        ids.remove(null);
+        return users.getAll(ids);
+    }
+
+    /** The linked person's "First Last", else the username, else "Unknown". */
+    public String userDisplayName(Long userId) {
+        UserRef ref = user(userId);
+        if (ref == null) return "Unknown";
+        String name = personName(ref.personId());
+        return name != null ? name : ref.username() != null ? ref.username() : "Unknown";
+    }
+
+    /** {@link #userDisplayName} for many ids; ids that aren't users map to "Unknown". */
+    public Map<Long, String> userDisplayNames(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) return Map.of();
+        Map<Long, UserRef> refs = users(userIds);
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            Map<Long, String> out = new HashMap<>();
+            for (Long id : userIds) {
+                if (id == null) continue;
+                UserRef ref = refs.get(id);
+                String name = ref != null && ref.personId() != null ? shortName(st, ref.personId()) : null;
+                if (name == null) name = ref != null && ref.username() != null ? ref.username() : "Unknown";
+                out.put(id, name);
+            }
+            return out;
+        });
+    }
+
+    /** Forget a user (deleted, or renamed). */
+    public void evictUser(Long userId) {
+        if (userId != null) users.invalidate(userId);
+    }
+
+    /* helpers */
+
+    private Map<Long, UserRef> loadUsers(Collection<? extends Long> userIds) {
+        Map<Long, UserRef> out = new HashMap<>();
+        dsl.select(USERS.ID, USERS.PERSON_ID, USERS.USERNAME)
+                .from(USERS)
+                .where(USERS.ID.in(userIds))
+                .forEach(r -> out.put(r.get(USERS.ID), new UserRef(r.get(USERS.PERSON_ID), r.get(USERS.USERNAME))));
+        return out;
+    }
+
+    private static String shortName(FamilyGraphStore st, long personId) {
+        int s = st.slotOf(personId);
+        if (s < 0) return null;
+        String first = st.firstName(s), last = st.lastName(s);
+        String name = ((first != null ? first : "") + " " + (last != null ? last : "")).trim();
+        return name.isEmpty() ? null : name;
+    }
+
+    /*
+     * A refresh of person P can change which user links to P: drop cached users pointing at P
+     * and whichever user the graph now links to P. A full reload drops everything.
+     */
+    private void onGraphChange(Set<Long> personIds) {
+        if (personIds == null) {
+            users.invalidateAll();
+            return;
+        }
+        users.asMap().entrySet().removeIf(e -> e.getValue().personId() != null && personIds.contains(e.getValue().personId()));
+        familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            for (Long id : personIds) {
+                int s = st.slotOf(id);
+                if (s >= 0 && st.userId(s) != FamilyGraphStore.NONE) users.invalidate(st.userId(s));
+            }
+            return null;
+        });
+    }
+}
@@ -55,11 +55,14 @@ public class DuesService {
     private final DSLContext dsl;
     private final UserHelper userHelper;
     private final DuesPricingService pricingService;
+    private final DisplayNameService displayNames;
 
-    public DuesService(DSLContext dsl, UserHelper userHelper, DuesPricingService pricingService) {
+    public DuesService(DSLContext dsl, UserHelper userHelper, DuesPricingService pricingService,
+                       DisplayNameService displayNames) {
         this.dsl = dsl;
         this.userHelper = userHelper;
         this.pricingService = pricingService;
+        this.displayNames = displayNames;
     }
 
     // ── DTOs ──
@@ -798,36 +801,19 @@ public class DuesService {
         return mapRecord(rec);
     }
 
-    /** Resolve a person's display name from the people table. */
+    /** A person's "First Last", or "Unknown". */
     private String resolvePersonName(Long personId) {
-        if (personId == null) return "Unknown";
-        var rec = dsl.select(PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME)
-                .from(PEOPLE)
-                .where(PEOPLE.ID.eq(personId))
-                .fetchOne();
-        if (rec != null && rec.get(PEOPLE.FIRST_NAME) != null) {
-            String first = rec.get(PEOPLE.FIRST_NAME);
-            String last = rec.get(PEOPLE.LAST_NAME);
-            return (first + " " + (last != null ? last : "")).trim();
-        }
-        return "Unknown";
+        String name = displayNames.personName(personId);
+        return name != null ? name : "Unknown";
     }
 
-    /** Batch-resolve person names in a single query. */
+    /** Person names for many ids from the resident graph; ids without a name map to "Unknown". */
     private Map<Long, String> batchResolvePersonNames(Collection<Long> personIds) {
         if (personIds == null || personIds.isEmpty()) return Map.of();
-        Map<Long, String> result = new HashMap<>();
-        dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME)
-                .from(PEOPLE)
-                .where(PEOPLE.ID.in(personIds))
-                .forEach(rec -> {
-                    String first = rec.get(PEOPLE.FIRST_NAME);
-                    String last = rec.get(PEOPLE.LAST_NAME);
-                    String name = first != null
-                            ? (first + " " + (last != null ? last : "")).trim()
-                            : "Unknown";
-                    result.put(rec.get(PEOPLE.ID), name);
-                });
+        Map<Long, String> result = new HashMap<>(displayNames.personNames(personIds));
+        for (Long id : personIds) {
+            if (id != null) result.putIfAbsent(id, "Unknown");
+        }
         return result;
     }
 
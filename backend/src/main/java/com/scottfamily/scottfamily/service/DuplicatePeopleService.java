@@ -0,0 +1,501 @@
+package com.scottfamily.scottfamily.service;
+
+import static com.yourproject.generated.scott_family_web.tables.People.PEOPLE;
+import static com.yourproject.generated.scott_family_web.tables.PersonParent.PERSON_PARENT;
+import static com.yourproject.generated.scott_family_web.tables.PersonRequests.PERSON_REQUESTS;
+import static com.yourproject.generated.scott_family_web.tables.PersonSibling.PERSON_SIBLING;
+import static com.yourproject.generated.scott_family_web.tables.PersonSpouse.PERSON_SPOUSE;
+import static com.yourproject.generated.scott_family_web.tables.Users.USERS;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Batch duplicate detection over PEOPLE, and merging a confirmed duplicate into the
+ * profile that is kept.
+ *
+ * A scan copies every person out of the resident {@link FamilyGraph} (no queries), groups
+ * them into blocks by the Double Metaphone code of their last name plus their birth year,
+ * and scores the pairs inside a block with {@link PersonMatcher}'s scoring on a dedicated
+ * fork-join pool. Two more kinds of block catch what that misses: one per last-name code
+ * and pair of neighbouring years, scoring only pairs born a year apart, and one per last-
+ * and first-name code for people without a date of birth, scoring them by name against
+ * everyone in it. Pairs at or above {@link PersonMatcher#MIN_SCORE} make up the review
+ * queue, best first; pairs that both have a user account can't be merged and are left
+ * out. A block larger than {@link #MAX_BLOCK} is split further by first-name code.
+ *
+ * The queue is the result of the last scan (nightly, or on demand). Reading it drops pairs
+ * whose people have since been merged or deleted.
+ *
+ * A merge is one transaction of set-based statements: every reference to the merged person
+ * (USERS, PERSON_PARENT, PERSON_SPOUSE, PERSON_SIBLING, GALLERY_IMAGE_TAGS, OBITUARY_PERSON,
+ * DUES_PAYMENTS, MOTHER_ID/FATHER_ID, person requests) is repointed at the kept one, rows that would
+ * then duplicate one the kept person already has are deleted first, and the merged PEOPLE
+ * row goes last. Blank fields of the kept person are filled from the merged one.
+ */
+@Service
+@RequiredArgsConstructor
+public class DuplicatePeopleService {
+    private static final Logger log = LoggerFactory.getLogger(DuplicatePeopleService.class);
+
+    /** Blocks larger than this are split by first-name code before scoring. */
+    static final int MAX_BLOCK = 2_000;
+
+    /** Candidates kept from a scan. */
+    static final int MAX_QUEUE = 5_000;
+
+    /** Blocks per fork-join leaf task. */
+    private static final int LEAF_BLOCKS = 32;
+
+    /** Blocks pair birth years at most one apart; of those, dates more than a year apart don't match. */
+    private static final int DOB_TOLERANCE_DAYS = 366;
+
+    // Tables and columns not yet in generated jOOQ classes
+    private static final Table<?> GALLERY_IMAGE_TAGS = DSL.table(DSL.name("GALLERY_IMAGE_TAGS"));
+    private static final Field<Long> TAG_IMAGE_ID = DSL.field(DSL.name("IMAGE_ID"), Long.class);
+    private static final Field<Long> TAG_PERSON_ID = DSL.field(DSL.name("PERSON_ID"), Long.class);
+    private static final Table<?> OBITUARY_PERSON = DSL.table(DSL.name("OBITUARY_PERSON"));
+    private static final Field<Long> OP_OBITUARY_ID = DSL.field(DSL.name("obituary_id"), Long.class);
+    private static final Field<Long> OP_PERSON_ID = DSL.field(DSL.name("person_id"), Long.class);
+    private static final Table<?> DUES_PAYMENTS = DSL.table(DSL.name("dues_payments"));
+    private static final Field<Long> DUES_PERSON_ID = DSL.field(DSL.name("person_id"), Long.class);
+    private static final Field<Long> U_ARCHIVED_CLAIM_PERSON_ID = DSL.field(DSL.name("archived_claim_person_id"), Long.class);
+    private static final Field<String> P_MIDDLE_NAME = DSL.field(DSL.name("middle_name"), String.class);
+    private static final Field<String> P_PROFILE_PICTURE_URL = DSL.field(DSL.name("profile_picture_url"), String.class);
+
+    private final DSLContext dsl;
+    private final FamilyGraph familyGraph;
+
+    private final ReentrantLock scanLock = new ReentrantLock();
+    private volatile Scan lastScan;
+
+    /** Two people that may be the same, as summaries; {@code score} is 0–1. */
+    public record Candidate(DTOs.PersonSummaryDto a, DTOs.PersonSummaryDto b, double score) {}
+
+    /**
+     * A page of the review queue. {@code scannedAt} is null before the first scan;
+     * {@code total} counts the candidates still valid, not just the ones returned.
+     */
+    public record Queue(Instant scannedAt, long graphVersion, int people, int blocks, long pairsScored,
+                        long millis, int total, List<Candidate> candidates) {}
+
+    /** What a merge changed: references repointed, and rows dropped because the kept person already had them. */
+    public record MergeResult(long keptPersonId, long mergedPersonId, int rowsRepointed, int duplicateRowsDropped) {}
+
+    /* Scan output; pairs hold person ids, best first */
+    private record Scan(Instant at, long graphVersion, int people, int blocks, long pairsScored, long millis,
+                        long[] idsA, long[] idsB, double[] scores) {}
+
+    /* One person as the scan sees it: names normalized, dob null when unknown */
+    private record Entry(long id, String first, String last, LocalDate dob, boolean hasUser) {}
+
+    /* Which pairs of a block are scored; the others meet in a block of another kind */
+    private enum Kind {
+        SAME_YEAR, NEXT_YEAR, UNDATED;
+
+        boolean scores(Entry p, Entry q) {
+            return switch (this) {
+                case SAME_YEAR -> true;
+                case NEXT_YEAR -> p.dob().getYear() != q.dob().getYear();
+                case UNDATED -> p.dob() == null || q.dob() == null;
+            };
+        }
+    }
+
+    private record Block(Kind kind, int[] members) {
+
+        /* Pairs this block scores, without visiting them */
+        long pairs(Entry[] people) {
+            long n = members.length;
+            switch (kind) {
+                case SAME_YEAR:
+                    return n * (n - 1) / 2;
+                case NEXT_YEAR: {
+                    int first = Integer.MAX_VALUE;
+                    for (int i : members) first = Math.min(first, people[i].dob().getYear());
+                    long a = 0;
+                    for (int i : members) if (people[i].dob().getYear() == first) a++;
+                    return a * (n - a);
+                }
+                default: {
+                    long u = 0;
+                    for (int i : members) if (people[i].dob() == null) u++;
+                    return u * (u - 1) / 2 + u * (n - u);
+                }
+            }
+        }
+    }
+
+    private record Pair(int a, int b, double score) {}
+
+    /* ============================================================
+     * Scan
+     * ============================================================ */
+
+    /** Rebuild the review queue from the current graph. One scan at a time. */
+    public Queue scan(int limit) {
+        if (!scanLock.tryLock()) throw new IllegalStateException("A duplicate scan is already running");
+        try {
+            long t0 = System.nanoTime();
+            long version = familyGraph.version();
+            Entry[] people = snapshot();
+            List<Block> blocks = block(people);
+
+            List<Pair> pairs;
+            ForkJoinPool pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+            try {
+                pairs = pool.invoke(new ScoreBlocks(people, blocks, 0, blocks.size()));
+            } finally {
+                pool.shutdown();
+            }
+            long scored = 0;
+            for (Block b : blocks) scored += b.pairs(people);
+
+            // A pair shares a block once per code its names have in common: keep the first
+            pairs.sort(Comparator.comparingDouble(Pair::score).reversed()
+                    .thenComparingLong(p -> people[p.a()].id()).thenComparingLong(p -> people[p.b()].id()));
+            Set<Long> seen = new HashSet<>();
+            List<Pair> kept = new ArrayList<>();
+            for (Pair p : pairs) {
+                if (kept.size() == MAX_QUEUE) break;
+                if (seen.add(((long) p.a() << 32) | p.b())) kept.add(p);
+            }
+            long[] idsA = new long[kept.size()], idsB = new long[kept.size()];
+            double[] scores = new double[kept.size()];
+            for (int i = 0; i < kept.size(); i++) {
+                idsA[i] = people[kept.get(i).a()].id();
+                idsB[i] = people[kept.get(i).b()].id();
+                scores[i] = kept.get(i).score();
+            }
+
+            long millis = (System.nanoTime() - t0) / 1_000_000;
+            lastScan = new Scan(Instant.now(), version, people.length, blocks.size(), scored, millis, idsA, idsB, scores);
+            log.info("Duplicate scan: {} people, {} blocks, {} pairs scored -> {} candidates in {} ms",
+                    people.length, blocks.size(), scored, kept.size(), millis);
+            return queue(limit);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /** The best {@code limit} candidates of the last scan that are still valid. */
+    public Queue queue(int limit) {
+        Scan scan = lastScan;
+        if (scan == null) return new Queue(null, 0, 0, 0, 0, 0, 0, List.of());
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            List<Candidate> out = new ArrayList<>(Math.min(limit, scan.scores().length));
+            int total = 0;
+            for (int i = 0; i < scan.scores().length; i++) {
+                int a = st.slotOf(scan.idsA()[i]), b = st.slotOf(scan.idsB()[i]);
+                if (a < 0 || b < 0) continue;
+                total++;
+                if (out.size() < limit) {
+                    double score = scan.scores()[i];
+                    out.add(new Candidate(PersonMatcher.summary(st, a, score), PersonMatcher.summary(st, b, score),
+                            Math.round(score * 1000) / 1000.0));
+                }
+            }
+            return new Queue(scan.at(), scan.graphVersion(), scan.people(), scan.blocks(), scan.pairsScored(),
+                    scan.millis(), total, out);
+        });
+    }
+
+    private Entry[] snapshot() {
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            List<Entry> out = new ArrayList<>(st.size());
+            for (int s = 0; s < st.slotLimit(); s++) {
+                if (!st.isLive(s)) continue;
+                String first = FamilyGraphStore.normalizeName(st.firstName(s));
+                if (first.isEmpty()) continue;
+                out.add(new Entry(st.id(s), first, FamilyGraphStore.normalizeName(st.lastName(s)),
+                        st.dateOfBirth(s), st.userId(s) != FamilyGraphStore.NONE));
+            }
+            return out.toArray(new Entry[0]);
+        });
+    }
+
+    /*
+     * Blocks that score at least one pair, each keyed by last-name code and then
+     *   SAME_YEAR: birth year;
+     *   NEXT_YEAR: a birth year and the one after;
+     *   UNDATED:   first-name code, holding the people without a date of birth and the dated
+     *              people sharing both codes with one of them.
+     * Oversized blocks are split by first-name code.
+     */
+    private static List<Block> block(Entry[] people) {
+        Map<String, IntList> sameYear = new HashMap<>(), nextYear = new HashMap<>(), undated = new HashMap<>();
+        for (int i = 0; i < people.length; i++) {
+            if (people[i].dob() != null) continue;
+            for (String l : lastCodes(people[i])) {
+                for (String f : FamilyGraphStore.phoneticCodes(people[i].first())) add(undated, l + "|" + f, i);
+            }
+        }
+        for (int i = 0; i < people.length; i++) {
+            if (people[i].dob() == null) continue;
+            int year = people[i].dob().getYear();
+            Set<String> firsts = undated.isEmpty() ? Set.of() : FamilyGraphStore.phoneticCodes(people[i].first());
+            for (String l : lastCodes(people[i])) {
+                add(sameYear, l + "|" + year, i);
+                add(nextYear, l + "|" + year, i);
+                add(nextYear, l + "|" + (year - 1), i);
+                for (String f : firsts) {
+                    IntList b = undated.get(l + "|" + f);
+                    if (b != null) b.add(i);
+                }
+            }
+        }
+        List<Block> out = new ArrayList<>(sameYear.size());
+        for (IntList b : sameYear.values()) addBlock(out, people, Kind.SAME_YEAR, b);
+        for (IntList b : nextYear.values()) addBlock(out, people, Kind.NEXT_YEAR, b);
+        for (IntList b : undated.values()) addBlock(out, people, Kind.UNDATED, b);
+        return out;
+    }
+
+    private static void addBlock(List<Block> out, Entry[] people, Kind kind, IntList b) {
+        if (b.size < 2) return;
+        if (b.size <= MAX_BLOCK) {
+            Block block = new Block(kind, b.toArray());
+            if (block.pairs(people) > 0) out.add(block);
+            return;
+        }
+        Map<String, IntList> byFirst = new HashMap<>();
+        for (int k = 0; k < b.size; k++) {
+            int i = b.items[k];
+            for (String f : FamilyGraphStore.phoneticCodes(people[i].first())) add(byFirst, f, i);
+        }
+        for (IntList sub : byFirst.values()) {
+            if (sub.size < 2) continue;
+            if (sub.size > MAX_BLOCK) {
+                log.warn("Duplicate scan: skipping a block of {} people sharing name codes and birth years", sub.size);
+                continue;
+            }
+            Block block = new Block(kind, sub.toArray());
+            if (block.pairs(people) > 0) out.add(block);
+        }
+    }
+
+    private static Set<String> lastCodes(Entry p) {
+        Set<String> codes = FamilyGraphStore.phoneticCodes(p.last());
+        return codes.isEmpty() ? Set.of("") : codes;
+    }
+
+    private static void add(Map<String, IntList> blocks, String key, int i) {
+        blocks.computeIfAbsent(key, k -> new IntList()).add(i);
+    }
+
+    /* Scores the pairs within blocks [from, to), splitting the range across the pool */
+    private static final class ScoreBlocks extends RecursiveTask<List<Pair>> {
+        private final Entry[] people;
+        private final List<Block> blocks;
+        private final int from, to;
+
+        ScoreBlocks(Entry[] people, List<Block> blocks, int from, int to) {
+            this.people = people;
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Pair> compute() {
+            if (to - from > LEAF_BLOCKS) {
+                int mid = (from + to) >>> 1;
+                ScoreBlocks left = new ScoreBlocks(people, blocks, from, mid);
+                left.fork();
+                List<Pair> right = new ScoreBlocks(people, blocks, mid, to).compute();
+                List<Pair> out = left.join();
+                out.addAll(right);
+                return out;
+            }
+            List<Pair> out = new ArrayList<>();
+            for (int k = from; k < to; k++) {
+                Kind kind = blocks.get(k).kind();
+                int[] b = blocks.get(k).members();
+                for (int x = 0; x < b.length; x++) {
+                    Entry p = people[b[x]];
+                    for (int y = x + 1; y < b.length; y++) {
+                        Entry q = people[b[y]];
+                        if (!kind.scores(p, q) || (p.hasUser() && q.hasUser())) continue;
+                        double score = PersonMatcher.score(p.first(), p.last(), p.dob(), DOB_TOLERANCE_DAYS,
+                                q.first(), q.last(), q.dob());
+                        if (score >= PersonMatcher.MIN_SCORE) {
+                            out.add(b[x] < b[y] ? new Pair(b[x], b[y], score) : new Pair(b[y], b[x], score));
+                        }
+                    }
+                }
+            }
+            return out;
+        }
+    }
+
+    private static final class IntList {
+        int[] items = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        int[] toArray() { return Arrays.copyOf(items, size); }
+    }
+
+    /* ============================================================
+     * Merge
+     * ============================================================ */
+
+    /**
+     * Fold {@code mergePersonId} into {@code keepPersonId} and delete it. Refused when both
+     * have a user account; the account of the merged person otherwise moves to the kept one.
+     */
+    public MergeResult merge(long keepPersonId, long mergePersonId) {
+        if (keepPersonId == mergePersonId) throw new IllegalArgumentException("Cannot merge a person into itself");
+
+        // Everyone whose edges change, for the graph refresh afterwards
+        Set<Long> touched = new LinkedHashSet<>(List.of(keepPersonId, mergePersonId));
+        int[] counts = new int[2];  // repointed, dropped
+        dsl.transaction(cfg -> {
+            DSLContext tx = DSL.using(cfg);
+            Record drop = tx.select(PEOPLE.MOTHER_ID, PEOPLE.FATHER_ID, PEOPLE.DATE_OF_BIRTH, PEOPLE.DATE_OF_DEATH,
+                            P_MIDDLE_NAME, P_PROFILE_PICTURE_URL)
+                    .from(PEOPLE).where(PEOPLE.ID.eq(mergePersonId)).fetchOne();
+            if (drop == null) throw new NoSuchElementException("Person not found: " + mergePersonId);
+            if (!tx.fetchExists(PEOPLE, PEOPLE.ID.eq(keepPersonId)))
+                throw new NoSuchElementException("Person not found: " + keepPersonId);
+            if (tx.fetchExists(USERS, USERS.PERSON_ID.eq(keepPersonId))
+                    && tx.fetchExists(USERS, USERS.PERSON_ID.eq(mergePersonId)))
+                throw new IllegalStateException("Both people are linked to a user account; unlink one first");
+
+            // The merged person's relatives as stored now, not as the graph last loaded them
+            Field<Long> child = PERSON_PARENT.CHILD_PERSON_ID, parent = PERSON_PARENT.PARENT_PERSON_ID;
+            touched.addAll(tx.select(parent).from(PERSON_PARENT).where(child.eq(mergePersonId))
+                    .union(DSL.select(child).from(PERSON_PARENT).where(parent.eq(mergePersonId)))
+                    .union(DSL.select(PEOPLE.ID).from(PEOPLE)
+                            .where(PEOPLE.MOTHER_ID.eq(mergePersonId).or(PEOPLE.FATHER_ID.eq(mergePersonId))))
+                    .union(DSL.select(PERSON_SPOUSE.SPOUSE_PERSON_ID).from(PERSON_SPOUSE)
+                            .where(PERSON_SPOUSE.PERSON_ID.eq(mergePersonId)))
+                    .union(DSL.select(PERSON_SPOUSE.PERSON_ID).from(PERSON_SPOUSE)
+                            .where(PERSON_SPOUSE.SPOUSE_PERSON_ID.eq(mergePersonId)))
+                    .union(DSL.select(PERSON_SIBLING.PERSON_B_ID).from(PERSON_SIBLING)
+                            .where(PERSON_SIBLING.PERSON_A_ID.eq(mergePersonId)))
+                    .union(DSL.select(PERSON_SIBLING.PERSON_A_ID).from(PERSON_SIBLING)
+                            .where(PERSON_SIBLING.PERSON_B_ID.eq(mergePersonId)))
+                    .fetch(0, Long.class));
+
+            // Kept person's blanks from the merged one (never its own id as a parent)
+            Long mother = drop.get(PEOPLE.MOTHER_ID), father = drop.get(PEOPLE.FATHER_ID);
+            if (mother != null) touched.add(mother);
+            if (father != null) touched.add(father);
+            tx.update(PEOPLE)
+                    .set(PEOPLE.MOTHER_ID, DSL.coalesce(PEOPLE.MOTHER_ID, DSL.val(keepPersonId == nz(mother) ? null : mother, PEOPLE.MOTHER_ID)))
+                    .set(PEOPLE.FATHER_ID, DSL.coalesce(PEOPLE.FATHER_ID, DSL.val(keepPersonId == nz(father) ? null : father, PEOPLE.FATHER_ID)))
+                    .set(PEOPLE.DATE_OF_BIRTH, DSL.coalesce(PEOPLE.DATE_OF_BIRTH, DSL.val(drop.get(PEOPLE.DATE_OF_BIRTH), PEOPLE.DATE_OF_BIRTH)))
+                    .set(PEOPLE.DATE_OF_DEATH, DSL.coalesce(PEOPLE.DATE_OF_DEATH, DSL.val(drop.get(PEOPLE.DATE_OF_DEATH), PEOPLE.DATE_OF_DEATH)))
+                    .set(P_MIDDLE_NAME, DSL.coalesce(P_MIDDLE_NAME, DSL.val(drop.get(P_MIDDLE_NAME), P_MIDDLE_NAME)))
+                    .set(P_PROFILE_PICTURE_URL, DSL.coalesce(P_PROFILE_PICTURE_URL, DSL.val(drop.get(P_PROFILE_PICTURE_URL), P_PROFILE_PICTURE_URL)))
+                    .where(PEOPLE.ID.eq(keepPersonId))
+                    .execute();
+
+            // MOTHER_ID / FATHER_ID of other people; the kept person can't become its own parent
+            counts[1] += tx.update(PEOPLE).setNull(PEOPLE.MOTHER_ID)
+                    .where(PEOPLE.ID.eq(keepPersonId).and(PEOPLE.MOTHER_ID.eq(mergePersonId))).execute();
+            counts[1] += tx.update(PEOPLE).setNull(PEOPLE.FATHER_ID)
+                    .where(PEOPLE.ID.eq(keepPersonId).and(PEOPLE.FATHER_ID.eq(mergePersonId))).execute();
+            counts[0] += tx.update(PEOPLE).set(PEOPLE.MOTHER_ID, keepPersonId).where(PEOPLE.MOTHER_ID.eq(mergePersonId)).execute();
+            counts[0] += tx.update(PEOPLE).set(PEOPLE.FATHER_ID, keepPersonId).where(PEOPLE.FATHER_ID.eq(mergePersonId)).execute();
+
+            counts[0] += tx.update(USERS).set(USERS.PERSON_ID, keepPersonId).where(USERS.PERSON_ID.eq(mergePersonId)).execute();
+            counts[0] += tx.update(USERS).set(U_ARCHIVED_CLAIM_PERSON_ID, keepPersonId)
+                    .where(U_ARCHIVED_CLAIM_PERSON_ID.eq(mergePersonId)).execute();
+            counts[0] += tx.update(PERSON_REQUESTS).set(PERSON_REQUESTS.TARGET_PERSON_ID, keepPersonId)
+                    .where(PERSON_REQUESTS.TARGET_PERSON_ID.eq(mergePersonId)).execute();
+            counts[0] += tx.update(PERSON_REQUESTS).set(PERSON_REQUESTS.MOTHER_ID, keepPersonId)
+                    .where(PERSON_REQUESTS.MOTHER_ID.eq(mergePersonId)).execute();
+            counts[0] += tx.update(PERSON_REQUESTS).set(PERSON_REQUESTS.FATHER_ID, keepPersonId)
+                    .where(PERSON_REQUESTS.FATHER_ID.eq(mergePersonId)).execute();
+            // Payments are history: both people's stay, now under the kept one
+            counts[0] += tx.update(DUES_PAYMENTS).set(DUES_PERSON_ID, keepPersonId)
+                    .where(DUES_PERSON_ID.eq(mergePersonId)).execute();
+
+            // PERSON_PARENT: directed, keyed (child, parent)
+            counts[1] += tx.deleteFrom(PERSON_PARENT)
+                    .where(child.eq(mergePersonId).and(parent.eq(keepPersonId)
+                            .or(parent.in(DSL.select(parent).from(PERSON_PARENT).where(child.eq(keepPersonId))))))
+                    .or(parent.eq(mergePersonId).and(child.eq(keepPersonId)
+                            .or(child.in(DSL.select(child).from(PERSON_PARENT).where(parent.eq(keepPersonId))))))
+                    .execute();
+            counts[0] += tx.update(PERSON_PARENT).set(child, keepPersonId).where(child.eq(mergePersonId)).execute();
+            counts[0] += tx.update(PERSON_PARENT).set(parent, keepPersonId).where(parent.eq(mergePersonId)).execute();
+
+            // PERSON_SPOUSE / PERSON_SIBLING: a pair may be stored either way round
+            repointPairs(tx, PERSON_SPOUSE, PERSON_SPOUSE.PERSON_ID, PERSON_SPOUSE.SPOUSE_PERSON_ID,
+                    keepPersonId, mergePersonId, counts);
+            repointPairs(tx, PERSON_SIBLING, PERSON_SIBLING.PERSON_A_ID, PERSON_SIBLING.PERSON_B_ID,
+                    keepPersonId, mergePersonId, counts);
+
+            // Tag tables: keyed (item, person)
+            repointTags(tx, GALLERY_IMAGE_TAGS, TAG_IMAGE_ID, TAG_PERSON_ID, keepPersonId, mergePersonId, counts);
+            repointTags(tx, OBITUARY_PERSON, OP_OBITUARY_ID, OP_PERSON_ID, keepPersonId, mergePersonId, counts);
+
+            tx.deleteFrom(PEOPLE).where(PEOPLE.ID.eq(mergePersonId)).execute();
+        });
+
+        familyGraph.refresh(touched);
+        log.info("Merged person {} into {}: {} references repointed, {} duplicate rows dropped",
+                mergePersonId, keepPersonId, counts[0], counts[1]);
+        return new MergeResult(keepPersonId, mergePersonId, counts[0], counts[1]);
+    }
+
+    private static void repointPairs(DSLContext tx, Table<?> t, Field<Long> a, Field<Long> b,
+                                     long keep, long drop, int[] counts) {
+        // The kept person's partners, whichever column they're in
+        var partners = DSL.select(b).from(t).where(a.eq(keep)).union(DSL.select(a).from(t).where(b.eq(keep)));
+        counts[1] += tx.deleteFrom(t)
+                .where(a.eq(drop).and(b.eq(keep).or(b.in(partners))))
+                .or(b.eq(drop).and(a.eq(keep).or(a.in(partners))))
+                .execute();
+        counts[0] += tx.update(t).set(a, keep).where(a.eq(drop)).execute();
+        counts[0] += tx.update(t).set(b, keep).where(b.eq(drop)).execute();
+    }
+
+    private static void repointTags(DSLContext tx, Table<?> t, Field<Long> item, Field<Long> person,
+                                    long keep, long drop, int[] counts) {
+        counts[1] += tx.deleteFrom(t)
+                .where(person.eq(drop).and(item.in(DSL.select(item).from(t).where(person.eq(keep)))))
+                .execute();
+        counts[0] += tx.update(t).set(person, keep).where(person.eq(drop)).execute();
+    }
+
+    private static long nz(Long id) {
+        return id == null ? FamilyGraphStore.NONE : id;
+    }
+}
@@ -0,0 +1,148 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+
+/**
+ * Node-level edits between consecutive tree layouts, kept for the last few versions so
+ * clients can patch the tree they hold instead of downloading it again.
+ *
+ * Bounded two ways: at most {@link #MAX_VERSIONS} steps and {@link #MAX_RETAINED} changes
+ * are kept (oldest dropped first), and a step larger than {@link #MAX_DELTA} (a reload or
+ * bulk import) is recorded without its changes, since the gzipped full tree is cheaper
+ * than that patch. Callers synchronize on the instance.
+ */
+final class FamilyTreeChangeLog {
+
+    static final int MAX_VERSIONS = 64;
+    static final int MAX_DELTA = 2_000;
+    static final int MAX_RETAINED = 20_000;
+
+    /* changes == null: too large to keep */
+    private record Step(long from, long to, List<DTOs.TreeChangeDto> changes) {}
+
+    private final ArrayDeque<Step> steps = new ArrayDeque<>();
+    private long head = -1;
+    private int retained;
+
+    /** Record the step from {@code prev} (null for the first layout) to {@code next}. */
+    void append(FamilyTreeLayout prev, FamilyTreeLayout next, FamilyGraphStore st) {
+        if (prev != null && prev.version == head) {
+            List<DTOs.TreeChangeDto> changes = diff(prev, next, st);
+            steps.addLast(new Step(prev.version, next.version, changes));
+            if (changes != null) retained += changes.size();
+            while (steps.size() > MAX_VERSIONS || retained > MAX_RETAINED) {
+                Step dropped = steps.removeFirst();
+                if (dropped.changes != null) retained -= dropped.changes.size();
+            }
+        } else {
+            steps.clear();
+            retained = 0;
+        }
+        head = next.version;
+    }
+
+    /**
+     * The changes from {@code since} to the latest version, or null when they aren't all
+     * here: {@code since} is older than the log (or unknown), a step was too large to keep,
+     * or together they exceed {@link #MAX_DELTA}.
+     */
+    DTOs.TreeChangesDto since(long since) {
+        if (head < 0) return null;
+        if (since == head) return new DTOs.TreeChangesDto(since, head, List.of());
+
+        Iterator<Step> it = steps.iterator();
+        Step s = null;
+        while (it.hasNext()) {
+            Step candidate = it.next();
+            if (candidate.from == since) { s = candidate; break; }
+        }
+        if (s == null) return null;
+
+        List<DTOs.TreeChangeDto> out = new ArrayList<>();
+        while (true) {
+            if (s.changes == null || out.size() + s.changes.size() > MAX_DELTA) return null;
+            out.addAll(s.changes);
+            if (!it.hasNext()) break;
+            s = it.next();
+        }
+        return new DTOs.TreeChangesDto(since, head, out);
+    }
+
+    /*
+     * Merge the two snapshots by person id. Output is grouped so each step can be applied
+     * in order: removals, additions, moves, field and spouse updates, then the child lists
+     * that place everything. Returns null once the step passes MAX_DELTA.
+     */
+    private static List<DTOs.TreeChangeDto> diff(FamilyTreeLayout prev, FamilyTreeLayout next, FamilyGraphStore st) {
+        FamilyTreeLayout.Snapshot a = prev.snapshot, b = next.snapshot;
+        List<DTOs.TreeChangeDto> removed = new ArrayList<>(), added = new ArrayList<>(), moved = new ArrayList<>(),
+                updated = new ArrayList<>(), placed = new ArrayList<>();
+        int i = 0, j = 0, count = 0;
+        while (i < a.ids.length || j < b.ids.length) {
+            if (count > MAX_DELTA) return null;
+            if (j == b.ids.length || (i < a.ids.length && a.ids[i] < b.ids[j])) {
+                removed.add(new DTOs.TreeChangeDto("REMOVED", a.ids[i], null, null, null));
+                count++;
+                i++;
+                continue;
+            }
+            long id = b.ids[j];
+            int s = st.slotOf(id);
+            if (i == a.ids.length || id < a.ids[i]) {
+                added.add(new DTOs.TreeChangeDto("ADDED", id, b.parentIds[j], null, shallow(next, st, s)));
+                count++;
+                if (next.childOff[s + 1] > next.childOff[s]) {
+                    placed.add(children(id, next.children, next.childOff[s], next.childOff[s + 1], st));
+                    count++;
+                }
+            } else {
+                if (a.parentIds[i] != b.parentIds[j]) {
+                    moved.add(new DTOs.TreeChangeDto("MOVED", id, b.parentIds[j], null, null));
+                    count++;
+                }
+                if (a.content[i] != b.content[j]) {
+                    updated.add(new DTOs.TreeChangeDto("UPDATED", id, null, null, shallow(next, st, s)));
+                    count++;
+                } else if (a.spouses[i] != b.spouses[j]) {
+                    updated.add(new DTOs.TreeChangeDto("SPOUSES", id, null, null, shallow(next, st, s)));
+                    count++;
+                }
+                if (a.childList[i] != b.childList[j]) {
+                    placed.add(children(id, next.children, next.childOff[s], next.childOff[s + 1], st));
+                    count++;
+                }
+                i++;
+            }
+            j++;
+        }
+        if (a.rootList != b.rootList) {
+            placed.add(children(0L, next.roots, 0, next.roots.length, st));
+            count++;
+        }
+        if (count > MAX_DELTA) return null;
+
+        List<DTOs.TreeChangeDto> out = new ArrayList<>(count);
+        out.addAll(removed);
+        out.addAll(added);
+        out.addAll(moved);
+        out.addAll(updated);
+        out.addAll(placed);
+        return out;
+    }
+
+    private static DTOs.FamilyNodeDto shallow(FamilyTreeLayout l, FamilyGraphStore st, int s) {
+        return l.node(st, s, List.of(), null);
+    }
+
+    private static DTOs.TreeChangeDto children(long parentId, int[] slots, int from, int to, FamilyGraphStore st) {
+        List<Long> ids = new ArrayList<>(to - from);
+        for (int k = from; k < to; k++) ids.add(st.id(slots[k]));
+        return new DTOs.TreeChangeDto("CHILDREN", parentId, null, ids, null);
+    }
+}
@@ -0,0 +1,142 @@
+package com.scottfamily.scottfamily.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+
+/**
+ * Streams the full family tree straight from a {@link FamilyTreeLayout} into a Jackson
+ * {@link JsonGenerator}, producing byte-for-byte the JSON that serializing the equivalent
+ * {@link com.scottfamily.scottfamily.dto.DTOs.FamilyNodeDto} tree would (same field order,
+ * nulls omitted) without ever building that DTO tree.
+ *
+ * The walk is iterative: an explicit stack of slots replaces recursion, so a long lineage
+ * can't overflow the thread stack. The stack holds only ints; the only allocation per
+ * person is whatever the generator buffers.
+ *
+ * A node is opened (id, name, dates, "children": [) on the way down and closed (avatar,
+ * user, spouses, flags) on the way back up, which is exactly where those fields fall in
+ * the DTO's component order.
+ */
+final class FamilyTreeJsonWriter {
+
+    static final String ROOT_NAME = "All Families";
+
+    private FamilyTreeJsonWriter() {}
+
+    /**
+     * Write the whole forest under the virtual "All Families" root.
+     *
+     * @throws IllegalStateException if a person is reached twice, i.e. the layout contains
+     *         a cycle (the layout already excludes parent cycles, so this is a safety net)
+     */
+    static void write(FamilyGraphStore st, FamilyTreeLayout l, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("id", 0L);
+        gen.writeStringField("name", ROOT_NAME);
+        gen.writeArrayFieldStart("children");
+
+        BitSet visited = new BitSet(st.slotLimit());
+        int[] stack = new int[16];
+        int[] next = new int[16];
+        for (int root : l.roots) {
+            int sp = 0;
+            open(st, l, gen, root, visited);
+            stack[sp] = root;
+            next[sp] = l.childOff[root];
+            sp++;
+            while (sp > 0) {
+                int top = sp - 1;
+                int s = stack[top];
+                if (next[top] < l.childOff[s + 1]) {
+                    int c = l.children[next[top]++];
+                    open(st, l, gen, c, visited);
+                    if (sp == stack.length) {
+                        stack = Arrays.copyOf(stack, sp * 2);
+                        next = Arrays.copyOf(next, sp * 2);
+                    }
+                    stack[sp] = c;
+                    next[sp] = l.childOff[c];
+                    sp++;
+                } else {
+                    close(st, l, gen, s);
+                    sp--;
+                }
+            }
+        }
+
+        gen.writeEndArray();
+        gen.writeArrayFieldStart("spouses");
+        gen.writeEndArray();
+        gen.writeBooleanField("deceased", false);
+        gen.writeEndObject();
+    }
+
+    /* id, name, dates, then opens the children array */
+    private static void open(FamilyGraphStore st, FamilyTreeLayout l, JsonGenerator gen, int s, BitSet visited)
+            throws IOException {
+        if (visited.get(s)) {
+            throw new IllegalStateException("Family tree cycle: person " + st.id(s) + " reached twice");
+        }
+        visited.set(s);
+        writeHead(st, l, gen, s);
+        gen.writeArrayFieldStart("children");
+    }
+
+    /* closes the children array, then avatar, user, spouse groups, flags */
+    private static void close(FamilyGraphStore st, FamilyTreeLayout l, JsonGenerator gen, int s) throws IOException {
+        gen.writeEndArray();
+        writeTail(st, gen, s);
+
+        gen.writeArrayFieldStart("spouses");
+        if (l.groups[s] != null) {
+            for (FamilyTreeLayout.SpouseGroup sg : l.groups[s]) {
+                gen.writeStartObject();
+                if (sg.embedded) {
+                    // Embedded spouse: a leaf node with empty children/spouses
+                    int sp = sg.secondary;
+                    gen.writeFieldName("spouse");
+                    writeHead(st, l, gen, sp);
+                    gen.writeArrayFieldStart("children");
+                    gen.writeEndArray();
+                    writeTail(st, gen, sp);
+                    gen.writeArrayFieldStart("spouses");
+                    gen.writeEndArray();
+                    gen.writeBooleanField("deceased", st.isDeceased(sp));
+                    gen.writeEndObject();
+                }
+                gen.writeArrayFieldStart("childIds");
+                for (int i = 0; i < sg.childCount; i++) gen.writeNumber(st.id(sg.childSlots[i]));
+                gen.writeEndArray();
+                if (!sg.embedded) gen.writeNumberField("spouseRefId", st.id(sg.secondary));
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+
+        gen.writeBooleanField("deceased", st.isDeceased(s));
+        String parentRelation = l.treeParent[s] >= 0 ? st.relation(s, l.treeParent[s]) : null;
+        if (parentRelation != null) gen.writeStringField("parentRelation", parentRelation);
+        gen.writeEndObject();
+    }
+
+    private static void writeHead(FamilyGraphStore st, FamilyTreeLayout l, JsonGenerator gen, int s) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("id", st.id(s));
+        gen.writeStringField("name", l.names[s]);
+        LocalDate dob = st.dateOfBirth(s), dod = st.dateOfDeath(s);
+        if (dob != null) gen.writeStringField("dateOfBirth", dob.toString());
+        if (dod != null) gen.writeStringField("dateOfDeath", dod.toString());
+    }
+
+    private static void writeTail(FamilyGraphStore st, JsonGenerator gen, int s) throws IOException {
+        String avatar = FamilyTreeLayout.emptyToNull(st.avatarUrl(s));
+        if (avatar != null) gen.writeStringField("avatarUrl", avatar);
+        Long userId = FamilyTreeLayout.userIdOrNull(st, s);
+        if (userId != null) gen.writeNumberField("userId", userId);
+    }
+}
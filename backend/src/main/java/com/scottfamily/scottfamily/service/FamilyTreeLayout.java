@@ -0,0 +1,466 @@
+package com.scottfamily.scottfamily.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+
+/**
+ * Where everyone sits in the family tree for one graph version, by slot: the single tree
+ * parent each person nests under, their spouse groups, display order of children and roots.
+ *
+ * Both renderers work from this: {@link #toDto} for DTO trees and windows, and
+ * {@link FamilyTreeJsonWriter} for the streamed full tree. Immutable once built.
+ */
+final class FamilyTreeLayout {
+    final long version;
+    final boolean[] inTree;
+    final int[] treeParent;         // the one parent each person is nested under, or -1
+    final int[] spouseHost;         // embedded spouses: the partner they are drawn beside, or -1
+    final int[] childOff;           // CSR of children under treeParent, in display order
+    final int[] children;
+    final List<SpouseGroup>[] groups;
+    final String[] names;
+    final int[] roots;              // top-level people, in display order
+    final long[] unplacedIds;       // in the tree but not reachable from any root (see step 8)
+    final Snapshot snapshot;        // per-node fingerprints, diffed by FamilyTreeChangeLog
+    volatile DTOs.FamilyNodeDto tree;   // full DTO tree, rendered on first request
+
+    private FamilyTreeLayout(long version, boolean[] inTree, int[] treeParent, int[] spouseHost, int[] childOff,
+                             int[] children, List<SpouseGroup>[] groups, String[] names, int[] roots, long[] unplacedIds,
+                             Snapshot snapshot) {
+        this.version = version;
+        this.inTree = inTree;
+        this.treeParent = treeParent;
+        this.spouseHost = spouseHost;
+        this.childOff = childOff;
+        this.children = children;
+        this.groups = groups;
+        this.names = names;
+        this.roots = roots;
+        this.unplacedIds = unplacedIds;
+        this.snapshot = snapshot;
+    }
+
+    /*
+     * Layout runs entirely on slot-indexed primitive arrays from the graph store:
+     * no boxed id maps and no per-person tree-node objects. The only per-person
+     * allocations are the output DTOs themselves.
+     */
+    static FamilyTreeLayout build(FamilyGraphStore st, long version) {
+        FamilyGraphStore.Adjacency adj = st.adjacency();
+        int n = st.slotLimit();
+
+        // 1) People in the tree: everyone except those whose account is still pending approval
+        boolean[] inTree = new boolean[n];
+        int count = 0;
+        for (int s : adj.order) {
+            if (!st.isPending(s)) { inTree[s] = true; count++; }
+        }
+
+        // 2) Resolve MOTHER_ID / FATHER_ID to slots, keeping only parents that are in the tree
+        int[] mom = new int[n];
+        int[] dad = new int[n];
+        Arrays.fill(mom, -1);
+        Arrays.fill(dad, -1);
+        for (int s : adj.order) {
+            if (!inTree[s]) continue;
+            int m = st.slotOf(st.motherId(s));
+            int f = st.slotOf(st.fatherId(s));
+            if (m >= 0 && inTree[m]) mom[s] = m;
+            if (f >= 0 && inTree[f]) dad[s] = f;
+        }
+
+        // 3) Attach children under ONE parent; the other parent becomes a spouse badge.
+        //    When both parents are known, prefer the parent who has ancestors already
+        //    in the tree (i.e., the one who "belongs" to this family tree).
+        //    Each primary parent collects one spouse group per secondary parent, in the
+        //    order the children are first seen (e.g. Betty with Washington + Ellington).
+        int[] treeParent = new int[n];
+        Arrays.fill(treeParent, -1);
+        @SuppressWarnings("unchecked")
+        List<SpouseGroup>[] groups = new List[n];
+        int[] primariesInOrder = new int[count];
+        int primaryCount = 0;
+
+        for (int s : adj.order) {
+            if (!inTree[s]) continue;
+            int m = mom[s], f = dad[s];
+            if (m >= 0 && f >= 0) {
+                boolean motherInFamily = mom[m] >= 0 || dad[m] >= 0;
+                boolean fatherInFamily = mom[f] >= 0 || dad[f] >= 0;
+                int primary = (motherInFamily && !fatherInFamily) ? m : f;
+                int secondary = primary == f ? m : f;
+                treeParent[s] = primary;
+
+                if (groups[primary] == null) {
+                    groups[primary] = new ArrayList<>(2);
+                    primariesInOrder[primaryCount++] = primary;
+                }
+                SpouseGroup sg = null;
+                for (SpouseGroup g : groups[primary]) if (g.secondary == secondary) { sg = g; break; }
+                if (sg == null) {
+                    sg = new SpouseGroup(secondary);
+                    groups[primary].add(sg);
+                }
+                sg.addChild(s);
+            } else if (f >= 0) {
+                treeParent[s] = f;
+            } else if (m >= 0) {
+                treeParent[s] = m;
+            }
+        }
+
+        // 4) Decide where each secondary parent is drawn: embedded beside the primary when
+        //    they have no parents of their own in the tree (and aren't placed elsewhere yet),
+        //    otherwise as a cross-link (spouseRefId) to where they already appear.
+        int[] spouseHost = new int[n];   // slot of the partner an embedded spouse is drawn beside
+        Arrays.fill(spouseHost, -1);
+        boolean[] groupSorted = new boolean[n];
+        for (int i = 0; i < primaryCount; i++) {
+            int primary = primariesInOrder[i];
+            for (SpouseGroup sg : groups[primary]) {
+                int sec = sg.secondary;
+                boolean secondaryHasParentInTree = mom[sec] >= 0 || dad[sec] >= 0;
+                if (!secondaryHasParentInTree && spouseHost[sec] < 0) {
+                    sg.embedded = true;
+                    spouseHost[sec] = primary;
+                }
+            }
+            // Children of multi-spouse parents are clustered by group (see step 6)
+            groupSorted[primary] = groups[primary].size() >= 2;
+        }
+
+        // 4b) Attach spouses from PERSON_SPOUSE that weren't linked via child-parent logic.
+        //     This handles couples with no shared children in the tree (e.g. Dora + Lavar Bullard).
+        for (int i = 0; i < st.spousePairCount(); i++) {
+            int a = st.slotOf(st.spousePersonId(i));
+            int b = st.slotOf(st.spouseSpouseId(i));
+            if (a < 0 || b < 0 || !inTree[a] || !inTree[b]) continue;
+
+            // Try to attach spouse to person (or person to spouse if person is already placed)
+            for (int dir = 0; dir < 2; dir++) {
+                int primary = dir == 0 ? a : b;
+                int secondary = dir == 0 ? b : a;
+                if (spouseHost[secondary] >= 0) continue;
+                // An embedded spouse is drawn as a leaf: it can't host anyone, and letting it
+                // would embed the couple in each other and drop both branches from the tree
+                if (spouseHost[primary] >= 0) continue;
+                boolean alreadyGrouped = false;
+                if (groups[primary] != null) {
+                    for (SpouseGroup g : groups[primary]) if (g.secondary == secondary) { alreadyGrouped = true; break; }
+                }
+                if (alreadyGrouped) continue;
+
+                boolean secondaryHasParentInTree = mom[secondary] >= 0 || dad[secondary] >= 0;
+                boolean primaryHasParentInTree = mom[primary] >= 0 || dad[primary] >= 0;
+                // Prefer attaching to the person who has parents in the tree
+                if (secondaryHasParentInTree && !primaryHasParentInTree) continue; // try the other direction
+
+                SpouseGroup sg = new SpouseGroup(secondary);
+                if (!secondaryHasParentInTree) {
+                    sg.embedded = true;
+                    spouseHost[secondary] = primary;
+                }
+                if (groups[primary] == null) groups[primary] = new ArrayList<>(1);
+                groups[primary].add(sg);
+                break; // placed, don't try the other direction
+            }
+        }
+
+        // 5) Children lists as CSR over treeParent (id order within each parent)
+        int[] childOff = new int[n + 1];
+        for (int s : adj.order) if (inTree[s] && treeParent[s] >= 0) childOff[treeParent[s] + 1]++;
+        for (int s = 0; s < n; s++) childOff[s + 1] += childOff[s];
+        int[] children = new int[childOff[n]];
+        int[] cursor = Arrays.copyOf(childOff, n);
+        for (int s : adj.order) if (inTree[s] && treeParent[s] >= 0) children[cursor[treeParent[s]]++] = s;
+
+        // 6) Sort by dateOfBirth (if present), then by name — as one global rank, so each
+        //    child list sorts as plain ints. Ties keep id order (stable sort).
+        String[] names = new String[n];
+        Integer[] ranked = new Integer[count];
+        int r = 0;
+        for (int s : adj.order) {
+            if (!inTree[s]) continue;
+            names[s] = fullName(st.firstName(s), st.middleName(s), st.lastName(s));
+            ranked[r++] = s;
+        }
+        Arrays.sort(ranked, Comparator
+                .comparingInt((Integer s) -> st.hasDob(s) ? st.dobEpochDay(s) : Integer.MAX_VALUE)
+                .thenComparing(s -> names[s], Comparator.nullsLast(String::compareToIgnoreCase)));
+        int[] rank = new int[n];
+        int[] rankToSlot = new int[count];
+        for (int i = 0; i < count; i++) {
+            rank[ranked[i]] = i;
+            rankToSlot[i] = ranked[i];
+        }
+
+        long[] keys = new long[Math.max(1, childOff[n])];
+        for (int p = 0; p < n; p++) {
+            int from = childOff[p], to = childOff[p + 1];
+            if (to - from < 2) continue;
+            int groupCount = groups[p] != null ? groups[p].size() : 0;
+            if (groupCount >= 2 && !groupSorted[p]) continue; // multi-spouse: keep insertion order
+            for (int i = from; i < to; i++) {
+                int c = children[i];
+                long groupIdx = 0;
+                if (groupSorted[p]) {
+                    // group0's children, group1's children, …, unattributed children
+                    groupIdx = groupOf(groups[p], c);
+                }
+                keys[i - from] = (groupIdx << 32) | rank[c];
+            }
+            Arrays.sort(keys, 0, to - from);
+            for (int i = from; i < to; i++) children[i] = rankToSlot[(int) keys[i - from]];
+        }
+
+        // 7) Roots = people with no parents in tree & not placed as spouse, in rank order
+        int[] rootRanks = new int[count];
+        int rootCount = 0;
+        for (int s : adj.order) {
+            if (inTree[s] && mom[s] < 0 && dad[s] < 0 && spouseHost[s] < 0) rootRanks[rootCount++] = rank[s];
+        }
+        Arrays.sort(rootRanks, 0, rootCount);
+
+        int[] roots = new int[rootCount];
+        for (int i = 0; i < rootCount; i++) roots[i] = rankToSlot[rootRanks[i]];
+
+        // 8) Anyone in the tree the roots don't lead down to would silently vanish from it:
+        //    people in (or under) a MOTHER_ID/FATHER_ID cycle, and children nested under a
+        //    parent who is only drawn as someone's embedded spouse. Collect them.
+        boolean[] reached = new boolean[n];
+        int[] stack = new int[Math.max(1, count)];
+        for (int root : roots) {
+            int sp = 0;
+            stack[sp++] = root;
+            reached[root] = true;
+            while (sp > 0) {
+                int u = stack[--sp];
+                for (int i = childOff[u]; i < childOff[u + 1]; i++) {
+                    int c = children[i];
+                    if (!reached[c]) { reached[c] = true; stack[sp++] = c; }
+                }
+            }
+        }
+        long[] unplacedIds = new long[0];
+        int unplaced = 0;
+        for (int s : adj.order) {
+            if (!inTree[s] || reached[s] || (spouseHost[s] >= 0 && reached[spouseHost[s]])) continue;
+            if (unplaced == unplacedIds.length) unplacedIds = Arrays.copyOf(unplacedIds, Math.max(8, unplaced * 2));
+            unplacedIds[unplaced++] = st.id(s);
+        }
+
+        // 9) Fingerprint every drawn node, in id order, so the next version can be diffed against this one.
+        //    Taken now because the store is updated in place and slots are reused.
+        int drawn = 0;
+        for (int s : adj.order) if (reached[s]) drawn++;
+        Snapshot snap = new Snapshot(drawn);
+        int k = 0;
+        for (int s : adj.order) {
+            if (!reached[s]) continue;
+            int p = treeParent[s];
+            snap.ids[k] = st.id(s);
+            snap.parentIds[k] = p >= 0 ? st.id(p) : 0L;
+            snap.content[k] = mix(personPrint(st, s, names), p >= 0 ? st.relation(s, p) : null);
+            snap.spouses[k] = spousePrint(st, groups[s], names);
+            snap.childList[k] = listPrint(st, children, childOff[s], childOff[s + 1]);
+            k++;
+        }
+        snap.rootList = listPrint(st, roots, 0, roots.length);
+
+        return new FamilyTreeLayout(version, inTree, treeParent, spouseHost, childOff, children, groups, names, roots,
+                Arrays.copyOf(unplacedIds, unplaced), snap);
+    }
+
+    /* ============================================================
+     * DTO rendering
+     * ============================================================ */
+
+    /** The whole forest under the virtual "All Families" root. */
+    DTOs.FamilyNodeDto fullTree(FamilyGraphStore st) {
+        List<DTOs.FamilyNodeDto> rootDtos = new ArrayList<>(roots.length);
+        for (int r : roots) rootDtos.add(toDto(st, r, -1));
+        return new DTOs.FamilyNodeDto(0L, FamilyTreeJsonWriter.ROOT_NAME, null, null, rootDtos, null, null, List.of(), false, null, null);
+    }
+
+    /**
+     * Build the DTO for one slot and its subtree, iteratively (post-order over an explicit
+     * stack, so depth is bounded by heap rather than the thread stack). depthLimit < 0 means
+     * unlimited; nodes at the limit leave their children out and report only the count.
+     */
+    DTOs.FamilyNodeDto toDto(FamilyGraphStore st, int root, int depthLimit) {
+        int cap = 16;
+        int[] slots = new int[cap];
+        int[] next = new int[cap];
+        @SuppressWarnings("unchecked")
+        List<DTOs.FamilyNodeDto>[] kids = new List[cap];
+        int sp = 0;
+        DTOs.FamilyNodeDto result = null;
+
+        slots[0] = root;
+        next[0] = childOff[root];
+        kids[0] = new ArrayList<>(childOff[root + 1] - childOff[root]);
+        sp = 1;
+        while (sp > 0) {
+            int top = sp - 1;
+            int s = slots[top];
+            DTOs.FamilyNodeDto done = null;
+            if (depthLimit >= 0 && top == depthLimit && childOff[s + 1] > childOff[s]) {
+                done = node(st, s, List.of(), childOff[s + 1] - childOff[s]);
+            } else if (next[top] < childOff[s + 1]) {
+                int c = children[next[top]++];
+                if (sp == cap) {
+                    cap *= 2;
+                    slots = Arrays.copyOf(slots, cap);
+                    next = Arrays.copyOf(next, cap);
+                    kids = Arrays.copyOf(kids, cap);
+                }
+                slots[sp] = c;
+                next[sp] = childOff[c];
+                kids[sp] = new ArrayList<>(childOff[c + 1] - childOff[c]);
+                sp++;
+                continue;
+            } else {
+                done = node(st, s, kids[top], null);
+            }
+            kids[top] = null;
+            sp--;
+            if (sp > 0) kids[sp - 1].add(done); else result = done;
+        }
+        return result;
+    }
+
+    DTOs.FamilyNodeDto node(FamilyGraphStore st, int s, List<DTOs.FamilyNodeDto> childDtos, Integer childCount) {
+        List<DTOs.SpouseInfoDto> spouseDtos = new ArrayList<>();
+        if (groups[s] != null) {
+            for (SpouseGroup sg : groups[s]) {
+                DTOs.FamilyNodeDto spDto = null;
+                Long spouseRefId = null;
+                if (sg.embedded) {
+                    int sp = sg.secondary;
+                    spDto = new DTOs.FamilyNodeDto(
+                            st.id(sp), names[sp],
+                            dateString(st.dateOfBirth(sp)), dateString(st.dateOfDeath(sp)),
+                            List.of(),
+                            emptyToNull(st.avatarUrl(sp)), userIdOrNull(st, sp),
+                            List.of(), st.isDeceased(sp), null, null);
+                } else {
+                    spouseRefId = st.id(sg.secondary);
+                }
+                List<Long> childIds = new ArrayList<>(sg.childCount);
+                for (int i = 0; i < sg.childCount; i++) childIds.add(st.id(sg.childSlots[i]));
+                spouseDtos.add(new DTOs.SpouseInfoDto(spDto, childIds, spouseRefId));
+            }
+        }
+
+        String parentRelation = treeParent[s] >= 0 ? st.relation(s, treeParent[s]) : null;
+        return new DTOs.FamilyNodeDto(st.id(s), names[s],
+                dateString(st.dateOfBirth(s)), dateString(st.dateOfDeath(s)),
+                childDtos, emptyToNull(st.avatarUrl(s)), userIdOrNull(st, s),
+                spouseDtos, st.isDeceased(s), parentRelation, childCount);
+    }
+
+    /* One spouse relationship with its associated children */
+    static final class SpouseGroup {
+        final int secondary;        // slot of the spouse
+        boolean embedded;           // drawn here (true) or cross-linked via spouseRefId (false)
+        int[] childSlots = new int[2];  // which children belong to this couple
+        int childCount;
+
+        SpouseGroup(int secondary) { this.secondary = secondary; }
+
+        void addChild(int slot) {
+            if (childCount == childSlots.length) childSlots = Arrays.copyOf(childSlots, childCount * 2);
+            childSlots[childCount++] = slot;
+        }
+    }
+
+    /**
+     * What one version drew, keyed by person id rather than slot: for each node reachable
+     * from the roots (ascending id), its tree parent (0 for a root) and 64-bit fingerprints
+     * of its own fields, its spouse groups and its ordered child ids.
+     */
+    static final class Snapshot {
+        final long[] ids, parentIds, content, spouses, childList;
+        long rootList;
+
+        Snapshot(int n) {
+            ids = new long[n];
+            parentIds = new long[n];
+            content = new long[n];
+            spouses = new long[n];
+            childList = new long[n];
+        }
+
+        /** Index of a person id, or a negative number. */
+        int indexOf(long id) { return Arrays.binarySearch(ids, id); }
+    }
+
+    /* helpers */
+
+    /* The fields a node or an embedded spouse shows, apart from placement */
+    private static long personPrint(FamilyGraphStore st, int s, String[] names) {
+        long h = mix(0x5F3759DFL, names[s]);
+        h = mix(h, st.hasDob(s) ? st.dobEpochDay(s) : Integer.MIN_VALUE);
+        h = mix(h, st.dateOfDeath(s) != null ? st.dateOfDeath(s).toEpochDay() : Long.MIN_VALUE);
+        h = mix(h, emptyToNull(st.avatarUrl(s)));
+        h = mix(h, st.userId(s));
+        return mix(h, st.isDeceased(s) ? 1 : 0);
+    }
+
+    private static long spousePrint(FamilyGraphStore st, List<SpouseGroup> groups, String[] names) {
+        if (groups == null) return 0L;
+        long h = groups.size();
+        for (SpouseGroup sg : groups) {
+            h = mix(h, st.id(sg.secondary));
+            h = mix(h, sg.embedded ? personPrint(st, sg.secondary, names) : 0L);
+            h = listPrint(st, sg.childSlots, 0, sg.childCount) ^ (h * 31);
+        }
+        return h;
+    }
+
+    private static long listPrint(FamilyGraphStore st, int[] slots, int from, int to) {
+        long h = to - from;
+        for (int i = from; i < to; i++) h = mix(h, st.id(slots[i]));
+        return h;
+    }
+
+    private static long mix(long h, String s) {
+        return mix(h, s == null ? -1L : ((long) s.hashCode() << 32) | s.length());
+    }
+
+    private static long mix(long h, long v) {
+        h = (h ^ v) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    private static int groupOf(List<SpouseGroup> groups, int child) {
+        for (int g = 0; g < groups.size(); g++) {
+            SpouseGroup sg = groups.get(g);
+            for (int i = 0; i < sg.childCount; i++) if (sg.childSlots[i] == child) return g;
+        }
+        return groups.size(); // unattributed: last
+    }
+
+    static Long userIdOrNull(FamilyGraphStore st, int s) {
+        long u = st.userId(s);
+        return u == FamilyGraphStore.NONE ? null : u;
+    }
+
+    static String dateString(LocalDate d) { return d != null ? d.toString() : null; }
+
+    static String emptyToNull(String s) { return (s == null || s.isBlank()) ? null : s; }
+
+    private static String fullName(String first, String middle, String last) {
+        StringBuilder sb = new StringBuilder();
+        if (first != null && !first.isBlank()) sb.append(first.trim());
+        if (middle != null && !middle.isBlank()) { if (!sb.isEmpty()) sb.append(' '); sb.append(middle.trim()); }
+        if (last  != null && !last.isBlank())   { if (!sb.isEmpty()) sb.append(' '); sb.append(last.trim()); }
+        return sb.isEmpty() ? "(Unnamed)" : sb.toString();
+    }
+}
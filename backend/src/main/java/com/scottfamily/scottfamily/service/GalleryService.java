@@ -5,6 +5,7 @@ import lombok.*;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
+import org.jooq.Record2;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
@@ -41,10 +42,12 @@ public class GalleryService {
 
     private final DSLContext dsl;
     private final BlobContainerClient container;
+    private final DisplayNameService displayNames;
 
-    public GalleryService(DSLContext dsl, BlobContainerClient container) {
+    public GalleryService(DSLContext dsl, BlobContainerClient container, DisplayNameService displayNames) {
         this.dsl = dsl;
         this.container = container;
+        this.displayNames = displayNames;
     }
 
     // ── Public API ──────────────────────────────────────────────────────────────
@@ -324,61 +327,24 @@ public class GalleryService {
     private static final Field<Long> TAG_IMAGE_ID  = DSL.field("IMAGE_ID",  SQLDataType.BIGINT);
     private static final Field<Long> TAG_PERSON_ID = DSL.field("PERSON_ID", SQLDataType.BIGINT);
 
-    private static final Table<?> PEOPLE_TABLE      = DSL.table("PEOPLE");
-    private static final Field<Long>   P_ID         = DSL.field("ID",         SQLDataType.BIGINT);
-    private static final Field<String> P_FIRST_NAME = DSL.field("FIRST_NAME", SQLDataType.NVARCHAR(100));
-    private static final Field<String> P_LAST_NAME  = DSL.field("LAST_NAME",  SQLDataType.NVARCHAR(100));
-    private static final Field<String> P_PREFIX     = DSL.field("PREFIX",     SQLDataType.NVARCHAR(20));
-    private static final Field<String> P_MIDDLE     = DSL.field("MIDDLE_NAME",SQLDataType.NVARCHAR(100));
-    private static final Field<String> P_SUFFIX_F   = DSL.field("SUFFIX",     SQLDataType.NVARCHAR(20));
-    private static final Field<LocalDate> P_DOB     = DSL.field("DATE_OF_BIRTH", SQLDataType.LOCALDATE);
-    private static final Field<LocalDate> P_DOD     = DSL.field("DATE_OF_DEATH", SQLDataType.LOCALDATE);
-
     /**
      * Return tags for a single image.
      */
     public List<ImageTagDto> getTagsForImage(Long imageId) {
-        return dsl.select(TAG_PERSON_ID, P_FIRST_NAME, P_LAST_NAME,
-                        P_PREFIX, P_MIDDLE, P_SUFFIX_F, P_DOB, P_DOD)
+        var rows = dsl.select(TAG_IMAGE_ID, TAG_PERSON_ID)
                 .from(GALLERY_IMAGE_TAGS)
-                .join(PEOPLE_TABLE).on(P_ID.eq(TAG_PERSON_ID))
                 .where(TAG_IMAGE_ID.eq(imageId))
-                .orderBy(P_FIRST_NAME.asc(), P_LAST_NAME.asc())
-                .fetch(r -> ImageTagDto.builder()
-                        .personId(r.get(TAG_PERSON_ID))
-                        .displayName(PeopleService.fullDisplayName(
-                            r.get(P_PREFIX), r.get(P_FIRST_NAME), r.get(P_MIDDLE),
-                            r.get(P_LAST_NAME), r.get(P_SUFFIX_F),
-                            r.get(P_DOB), r.get(P_DOD)))
-                        .build()
-                );
+                .fetch();
+        return tagsByImage(rows).getOrDefault(imageId, new ArrayList<>());
     }
 
     /**
      * Return tags for all images, keyed by imageId.
      */
     public Map<Long, List<ImageTagDto>> getAllTags() {
-        var rows = dsl.select(TAG_IMAGE_ID, TAG_PERSON_ID, P_FIRST_NAME, P_LAST_NAME,
-                        P_PREFIX, P_MIDDLE, P_SUFFIX_F, P_DOB, P_DOD)
+        return tagsByImage(dsl.select(TAG_IMAGE_ID, TAG_PERSON_ID)
                 .from(GALLERY_IMAGE_TAGS)
-                .join(PEOPLE_TABLE).on(P_ID.eq(TAG_PERSON_ID))
-                .orderBy(P_FIRST_NAME.asc(), P_LAST_NAME.asc())
-                .fetch();
-
-        Map<Long, List<ImageTagDto>> map = new HashMap<>();
-        for (var r : rows) {
-            Long imgId = r.get(TAG_IMAGE_ID);
-            map.computeIfAbsent(imgId, k -> new ArrayList<>())
-                .add(ImageTagDto.builder()
-                    .personId(r.get(TAG_PERSON_ID))
-                    .displayName(PeopleService.fullDisplayName(
-                        r.get(P_PREFIX), r.get(P_FIRST_NAME), r.get(P_MIDDLE),
-                        r.get(P_LAST_NAME), r.get(P_SUFFIX_F),
-                        r.get(P_DOB), r.get(P_DOD)))
-                    .build()
-                );
-        }
-        return map;
+                .fetch());
     }
 
     /**
@@ -387,27 +353,34 @@ public class GalleryService {
     public Map<Long, List<ImageTagDto>> getTagsForImages(List<Long> imageIds) {
         if (imageIds == null || imageIds.isEmpty()) return Map.of();
 
-        var rows = dsl.select(TAG_IMAGE_ID, TAG_PERSON_ID, P_FIRST_NAME, P_LAST_NAME,
-                        P_PREFIX, P_MIDDLE, P_SUFFIX_F, P_DOB, P_DOD)
+        return tagsByImage(dsl.select(TAG_IMAGE_ID, TAG_PERSON_ID)
                 .from(GALLERY_IMAGE_TAGS)
-                .join(PEOPLE_TABLE).on(P_ID.eq(TAG_PERSON_ID))
                 .where(TAG_IMAGE_ID.in(imageIds))
-                .orderBy(P_FIRST_NAME.asc(), P_LAST_NAME.asc())
-                .fetch();
+                .fetch());
+    }
 
-        Map<Long, List<ImageTagDto>> map = new HashMap<>();
+    /**
+     * Group (image, person) tag rows by image, named from the family graph and ordered by
+     * first then last name. Tags of people no longer in PEOPLE are left out.
+     */
+    private Map<Long, List<ImageTagDto>> tagsByImage(List<? extends Record2<Long, Long>> rows) {
+        Map<Long, List<Long>> imagesByPerson = new HashMap<>();
         for (var r : rows) {
-            Long imgId = r.get(TAG_IMAGE_ID);
-            map.computeIfAbsent(imgId, k -> new ArrayList<>())
-                .add(ImageTagDto.builder()
-                    .personId(r.get(TAG_PERSON_ID))
-                    .displayName(PeopleService.fullDisplayName(
-                        r.get(P_PREFIX), r.get(P_FIRST_NAME), r.get(P_MIDDLE),
-                        r.get(P_LAST_NAME), r.get(P_SUFFIX_F),
-                        r.get(P_DOB), r.get(P_DOD)))
-                    .build()
-                );
+            imagesByPerson.computeIfAbsent(r.value2(), k -> new ArrayList<>()).add(r.value1());
         }
+
+        Map<Long, List<ImageTagDto>> map = new HashMap<>();
+        // Names come back in name order, so appending in that order keeps each list sorted
+        displayNames.personFullNames(imagesByPerson.keySet()).forEach((personId, name) -> {
+            for (Long imgId : imagesByPerson.get(personId)) {
+                map.computeIfAbsent(imgId, k -> new ArrayList<>())
+                    .add(ImageTagDto.builder()
+                        .personId(personId)
+                        .displayName(name)
+                        .build()
+                    );
+            }
+        });
         return map;
     }
 
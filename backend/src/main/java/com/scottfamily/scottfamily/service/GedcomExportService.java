@@ -0,0 +1,415 @@
+package com.scottfamily.scottfamily.service;
+
+import static com.yourproject.generated.scott_family_web.tables.People.PEOPLE;
+import static com.yourproject.generated.scott_family_web.tables.PersonParent.PERSON_PARENT;
+import static com.yourproject.generated.scott_family_web.tables.PersonSpouse.PERSON_SPOUSE;
+import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.greatest;
+import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.least;
+import static org.jooq.impl.DSL.max;
+import static org.jooq.impl.DSL.min;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.select;
+import static org.jooq.impl.DSL.selectOne;
+import static org.jooq.impl.DSL.table;
+import static org.jooq.impl.DSL.when;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import org.jooq.CommonTableExpression;
+import org.jooq.Condition;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Record4;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import com.scottfamily.scottfamily.dto.DTOs;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Streams the whole family database as a GEDCOM file (5.5.1 or 7.0).
+ *
+ * Nothing is collected in memory: INDI and FAM records are written row by row from jOOQ
+ * cursors, and the grouping that turns parent links into families runs in the database.
+ * A family is the set of a child's parents of one kind (birth, adoptive, foster, ...) —
+ * at most two, the lowest and highest id — plus every PERSON_SPOUSE pair. Its xref is
+ * derived from those ids ({@code @F12_40@}, or {@code @F12@} for a single parent), so the
+ * INDI pass can point at families without having seen them.
+ *
+ * The export reads with several statements outside a transaction; a write that lands
+ * mid-export can leave a pointer to a record the file doesn't contain. Fine for a backup,
+ * re-run it if the file must be exact.
+ */
+@Service
+@RequiredArgsConstructor
+public class GedcomExportService {
+    private static final Logger log = LoggerFactory.getLogger(GedcomExportService.class);
+
+    /** Rows per round trip for the export cursors. */
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SOURCE = "SCOTTFAMILY";
+    private static final String SOURCE_NAME = "Scott Family Web";
+    private static final String SUBMITTER = "@U1@";
+
+    // Link kinds, as grouped in SQL; SPOUSE marks a FAMS row in the INDI link stream
+    private static final String BIRTH = "BIRTH", ADOPTED = "ADOPTED", FOSTER = "FOSTER",
+            STEP = "STEP", GUARDIAN = "GUARDIAN", OTHER = "OTHER", SPOUSE = "~SPOUSE";
+
+    // Inline field references for PEOPLE columns not yet in generated jOOQ classes
+    private static final Field<String> P_MIDDLE_NAME = field(name("middle_name"), String.class);
+    private static final Field<String> P_PREFIX = field(name("prefix"), String.class);
+    private static final Field<String> P_SUFFIX = field(name("suffix"), String.class);
+    private static final Field<String> P_BIO = field(name("bio"), String.class);
+    private static final Field<String> P_LOCATION = field(name("location"), String.class);
+    private static final Field<Boolean> IS_DECEASED = field(name("is_deceased"), Boolean.class);
+
+    // gx_link(child_id, parent_id, kind, sex): one row per current parent edge
+    private static final Field<Long> L_CHILD = field(name("gx_link", "child_id"), Long.class);
+    private static final Field<Long> L_PARENT = field(name("gx_link", "parent_id"), Long.class);
+    private static final Field<String> L_KIND = field(name("gx_link", "kind"), String.class);
+    private static final Field<String> L_SEX = field(name("gx_link", "sex"), String.class);
+
+    // gx_sex(person_id, sex): 'F'/'M' where every mother/father label on a person agrees
+    private static final Field<Long> S_PERSON = field(name("gx_sex", "person_id"), Long.class);
+    private static final Field<String> S_SEX = field(name("gx_sex", "sex"), String.class);
+
+    // gx_child_fam(child_id, kind, lo, hi): the family a child belongs to per kind; hi = 0 for one parent
+    private static final Field<Long> CF_CHILD = field(name("gx_child_fam", "child_id"), Long.class);
+    private static final Field<String> CF_KIND = field(name("gx_child_fam", "kind"), String.class);
+    private static final Field<Long> CF_LO = field(name("gx_child_fam", "lo"), Long.class);
+    private static final Field<Long> CF_HI = field(name("gx_child_fam", "hi"), Long.class);
+
+    // gx_family_row / gx_family(lo, hi, married): every family once
+    private static final Field<Long> FR_LO = field(name("gx_family_row", "lo"), Long.class);
+    private static final Field<Long> FR_HI = field(name("gx_family_row", "hi"), Long.class);
+    private static final Field<Integer> FR_MARRIED = field(name("gx_family_row", "married"), Integer.class);
+    private static final Field<Long> F_LO = field(name("gx_family", "lo"), Long.class);
+    private static final Field<Long> F_HI = field(name("gx_family", "hi"), Long.class);
+    private static final Field<Integer> F_MARRIED = field(name("gx_family", "married"), Integer.class);
+
+    // Columns of the INDI link stream (FAMC and FAMS rows, by person)
+    private static final Field<Long> K_PERSON = field(name("person_id"), Long.class);
+    private static final Field<Long> K_LO = field(name("lo"), Long.class);
+    private static final Field<Long> K_HI = field(name("hi"), Long.class);
+    private static final Field<String> K_KIND = field(name("kind"), String.class);
+
+    private final DSLContext dsl;
+
+    public enum Version {
+        V551("5.5.1", "text/plain;charset=UTF-8"),
+        V70("7.0", "text/vnd.familysearch.gedcom;charset=UTF-8");
+
+        public final String label;
+        public final String mediaType;
+
+        Version(String label, String mediaType) {
+            this.label = label;
+            this.mediaType = mediaType;
+        }
+
+        /** "5.5.1" or "7" / "7.0". */
+        public static Version parse(String s) {
+            return switch (s == null ? "" : s.trim()) {
+                case "5.5.1", "551" -> V551;
+                case "7", "7.0" -> V70;
+                default -> throw new IllegalArgumentException("version must be '5.5.1' or '7.0'");
+            };
+        }
+    }
+
+    /** Write the whole database to {@code out} as GEDCOM. The stream is flushed, not closed. */
+    public void export(Version version, OutputStream out) throws IOException {
+        long t0 = System.nanoTime();
+        BufferedWriter w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        GedcomWriter g = new GedcomWriter(w, version == Version.V70);
+        LocalDate today = LocalDate.now();
+
+        writeHeader(g, version, today);
+        int people = writeIndividuals(g, version, today);
+        int families = writeFamilies(g, today);
+        g.line(0, "TRLR");
+        w.flush();
+
+        log.info("GEDCOM {} export: {} people, {} families in {} ms",
+                version.label, people, families, (System.nanoTime() - t0) / 1_000_000);
+    }
+
+    /* ============================================================
+     * Records
+     * ============================================================ */
+
+    private void writeHeader(GedcomWriter g, Version version, LocalDate today) throws IOException {
+        g.line(0, "HEAD");
+        g.line(1, "GEDC");
+        g.line(2, "VERS", version.label);
+        if (version == Version.V551) g.line(2, "FORM", "LINEAGE-LINKED");
+        g.line(1, "SOUR", SOURCE);
+        g.line(2, "NAME", SOURCE_NAME);
+        g.line(1, "DATE", GedcomWriter.date(today));
+        if (version == Version.V551) {
+            g.pointer(1, "SUBM", SUBMITTER);
+            g.line(1, "CHAR", "UTF-8");
+            g.record(SUBMITTER, "SUBM");
+            g.line(1, "NAME", SOURCE_NAME);
+        }
+    }
+
+    /**
+     * INDI records, merged in id order with their FAMC/FAMS links. Two cursors are open at
+     * once, each on its own pooled connection; link rows for people the first cursor didn't
+     * see (inserted mid-export) are skipped.
+     */
+    private int writeIndividuals(GedcomWriter g, Version version, LocalDate today) throws IOException {
+        CommonTableExpression<?> link = linkCte(today);
+        CommonTableExpression<?> sex = sexCte();
+        CommonTableExpression<?> childFam = childFamilyCte();
+        CommonTableExpression<?> familyRow = familyRowCte();
+        CommonTableExpression<?> family = familyCte();
+
+        int count = 0;
+        try (Cursor<? extends Record> persons = dsl.with(link, sex)
+                     .select(PEOPLE.ID, P_PREFIX, PEOPLE.FIRST_NAME, P_MIDDLE_NAME, PEOPLE.LAST_NAME, P_SUFFIX,
+                             PEOPLE.DATE_OF_BIRTH, PEOPLE.DATE_OF_DEATH, IS_DECEASED, P_LOCATION, P_BIO, S_SEX)
+                     .from(PEOPLE)
+                     .leftJoin(sex).on(S_PERSON.eq(PEOPLE.ID))
+                     .orderBy(PEOPLE.ID)
+                     .fetchSize(FETCH_SIZE)
+                     .fetchLazy();
+             Cursor<? extends Record> links = dsl.with(link, childFam, familyRow, family)
+                     .select(CF_CHILD.as(K_PERSON), CF_LO.as(K_LO), CF_HI.as(K_HI), CF_KIND.as(K_KIND))
+                     .from(childFam)
+                     .unionAll(select(F_LO, F_LO, F_HI, inline(SPOUSE)).from(family))
+                     .unionAll(select(F_HI, F_LO, F_HI, inline(SPOUSE)).from(family).where(F_HI.ne(0L)))
+                     .orderBy(K_PERSON, K_KIND, K_LO, K_HI)
+                     .fetchSize(FETCH_SIZE)
+                     .fetchLazy()) {
+
+            Record l = links.fetchNext();
+            for (Record p : persons) {
+                long id = p.get(PEOPLE.ID);
+                writePerson(g, version, p);
+                while (l != null && l.get(K_PERSON) < id) l = links.fetchNext();
+                while (l != null && l.get(K_PERSON) == id) {
+                    writeLink(g, version, l.get(K_KIND), l.get(K_LO), l.get(K_HI));
+                    l = links.fetchNext();
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writePerson(GedcomWriter g, Version version, Record p) throws IOException {
+        String prefix = p.get(P_PREFIX), first = p.get(PEOPLE.FIRST_NAME), middle = p.get(P_MIDDLE_NAME);
+        String last = p.get(PEOPLE.LAST_NAME), suffix = p.get(P_SUFFIX);
+        LocalDate dob = p.get(PEOPLE.DATE_OF_BIRTH), dod = p.get(PEOPLE.DATE_OF_DEATH);
+
+        g.record(personXref(p.get(PEOPLE.ID)), "INDI");
+        // Same name as the site displays, with the surname slashed for GEDCOM readers
+        g.line(1, "NAME", DTOs.buildDisplayName(prefix, first, middle,
+                last == null || last.isBlank() ? null : "/" + last.strip() + "/", suffix));
+        g.line(2, "NPFX", prefix);
+        g.line(2, "GIVN", DTOs.buildDisplayName(null, first, middle, null, null));
+        g.line(2, "SURN", last);
+        g.line(2, "NSFX", suffix);
+        g.line(1, "SEX", p.get(S_SEX));
+        if (dob != null) {
+            g.line(1, "BIRT");
+            g.line(2, "DATE", GedcomWriter.date(dob));
+        }
+        if (dod != null) {
+            g.line(1, "DEAT");
+            g.line(2, "DATE", GedcomWriter.date(dod));
+        } else if (Boolean.TRUE.equals(p.get(IS_DECEASED))) {
+            g.line(1, "DEAT", "Y");
+        }
+        String location = p.get(P_LOCATION);
+        if (location != null && !location.isBlank()) {
+            // 7.0 requires a payload on RESI; 5.5.1 carries the place underneath
+            if (version == Version.V70) {
+                g.line(1, "RESI", location);
+            } else {
+                g.line(1, "RESI");
+                g.line(2, "PLAC", location);
+            }
+        }
+        g.line(1, "NOTE", p.get(P_BIO));
+    }
+
+    private static void writeLink(GedcomWriter g, Version version, String kind, long lo, long hi) throws IOException {
+        if (SPOUSE.equals(kind)) {
+            g.pointer(1, "FAMS", familyXref(lo, hi));
+            return;
+        }
+        g.pointer(1, "FAMC", familyXref(lo, hi));
+        switch (kind) {
+            case BIRTH -> { }
+            case ADOPTED, FOSTER -> g.line(2, "PEDI", version == Version.V70 ? kind : kind.toLowerCase());
+            default -> {
+                // Step, guardian and other links have no PEDI value in 5.5.1
+                String label = switch (kind) {
+                    case STEP -> "Step";
+                    case GUARDIAN -> "Guardian";
+                    default -> "Other";
+                };
+                if (version == Version.V70) {
+                    g.line(2, "PEDI", OTHER);
+                    g.line(3, "PHRASE", label);
+                } else {
+                    g.line(2, "NOTE", label + " relationship");
+                }
+            }
+        }
+    }
+
+    /**
+     * FAM records: each family joined to its children and its partners' inferred sex (which
+     * decides HUSB vs WIFE; the lower id is HUSB when that says nothing). Rows of one family
+     * are adjacent, so only the current family is held.
+     */
+    private int writeFamilies(GedcomWriter g, LocalDate today) throws IOException {
+        CommonTableExpression<?> link = linkCte(today);
+        CommonTableExpression<?> sex = sexCte();
+        CommonTableExpression<?> childFam = childFamilyCte();
+        CommonTableExpression<?> familyRow = familyRowCte();
+        CommonTableExpression<?> family = familyCte();
+        Table<?> sexLo = sex.as("gx_sex_lo"), sexHi = sex.as("gx_sex_hi");
+        Field<String> loSex = sexLo.field(S_SEX.getUnqualifiedName(), String.class);
+        Field<String> hiSex = sexHi.field(S_SEX.getUnqualifiedName(), String.class);
+
+        int count = 0;
+        try (Cursor<? extends Record> rows = dsl.with(link, sex, childFam, familyRow, family)
+                .select(F_LO, F_HI, F_MARRIED, loSex, hiSex, CF_CHILD)
+                .from(family)
+                .leftJoin(sexLo).on(sexLo.field(S_PERSON.getUnqualifiedName(), Long.class).eq(F_LO))
+                .leftJoin(sexHi).on(sexHi.field(S_PERSON.getUnqualifiedName(), Long.class).eq(F_HI))
+                .leftJoin(childFam).on(CF_LO.eq(F_LO)).and(CF_HI.eq(F_HI))
+                .orderBy(F_LO, F_HI, CF_CHILD)
+                .fetchSize(FETCH_SIZE)
+                .fetchLazy()) {
+
+            long curLo = -1, curHi = -1, lastChild = -1;
+            for (Record r : rows) {
+                long lo = r.get(F_LO), hi = r.get(F_HI);
+                if (lo != curLo || hi != curHi) {
+                    curLo = lo;
+                    curHi = hi;
+                    lastChild = -1;
+                    writeFamily(g, lo, hi, r.get(loSex), r.get(hiSex), r.get(F_MARRIED) == 1);
+                    count++;
+                }
+                Long child = r.get(CF_CHILD);
+                // A child can be linked to the same couple under two kinds; list it once
+                if (child != null && child != lastChild) {
+                    g.pointer(1, "CHIL", personXref(child));
+                    lastChild = child;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void writeFamily(GedcomWriter g, long lo, long hi, String loSex, String hiSex,
+                                    boolean married) throws IOException {
+        g.record(familyXref(lo, hi), "FAM");
+        boolean loIsWife = "F".equals(loSex) ? !"F".equals(hiSex) : "M".equals(hiSex);
+        g.pointer(1, loIsWife ? "WIFE" : "HUSB", personXref(lo));
+        if (hi != 0) g.pointer(1, loIsWife ? "HUSB" : "WIFE", personXref(hi));
+        if (married) g.line(1, "MARR", "Y");
+    }
+
+    static String personXref(long id) {
+        return "@I" + id + "@";
+    }
+
+    static String familyXref(long lo, long hi) {
+        return hi == 0 ? "@F" + lo + "@" : "@F" + lo + "_" + hi + "@";
+    }
+
+    /* ============================================================
+     * Common table expressions
+     * ============================================================ */
+
+    /**
+     * Current parent edges: PERSON_PARENT rows still valid today, plus MOTHER_ID/FATHER_ID
+     * columns that no current row labels (taken as birth parents), as the family graph does.
+     */
+    private static CommonTableExpression<?> linkCte(LocalDate today) {
+        Condition current = PERSON_PARENT.VALID_TO.isNull().or(PERSON_PARENT.VALID_TO.ge(today));
+        Field<String> rel = PERSON_PARENT.RELATION;
+        Field<String> kind = when(rel.startsWith("BIOLOGICAL_"), inline(BIRTH))
+                .when(rel.startsWith("ADOPTIVE_"), inline(ADOPTED))
+                .when(rel.startsWith("FOSTER_"), inline(FOSTER))
+                .when(rel.startsWith("STEP_"), inline(STEP))
+                .when(rel.eq("GUARDIAN"), inline(GUARDIAN))
+                .otherwise(inline(OTHER));
+        Field<String> sex = when(rel.endsWith("MOTHER"), inline("F"))
+                .when(rel.endsWith("FATHER"), inline("M"));
+
+        return name("gx_link").fields("child_id", "parent_id", "kind", "sex").as(
+                select(PERSON_PARENT.CHILD_PERSON_ID, PERSON_PARENT.PARENT_PERSON_ID, kind, sex)
+                        .from(PERSON_PARENT)
+                        .where(current)
+                        .union(columnLinks(PEOPLE.MOTHER_ID, "F", current))
+                        .union(columnLinks(PEOPLE.FATHER_ID, "M", current)));
+    }
+
+    private static Select<Record4<Long, Long, String, String>> columnLinks(
+            Field<Long> parentColumn, String sex, Condition current) {
+        return select(PEOPLE.ID, parentColumn, inline(BIRTH), inline(sex))
+                .from(PEOPLE)
+                .where(parentColumn.isNotNull())
+                .andNotExists(selectOne().from(PERSON_PARENT)
+                        .where(PERSON_PARENT.CHILD_PERSON_ID.eq(PEOPLE.ID))
+                        .and(PERSON_PARENT.PARENT_PERSON_ID.eq(parentColumn))
+                        .and(current));
+    }
+
+    private static CommonTableExpression<?> sexCte() {
+        return name("gx_sex").fields("person_id", "sex").as(
+                select(L_PARENT, when(min(L_SEX).eq(max(L_SEX)), min(L_SEX)))
+                        .from(table(name("gx_link")))
+                        .where(L_SEX.isNotNull())
+                        .groupBy(L_PARENT));
+    }
+
+    /** More than two parents of one kind keep only the lowest and highest id. */
+    private static CommonTableExpression<?> childFamilyCte() {
+        return name("gx_child_fam").fields("child_id", "kind", "lo", "hi").as(
+                select(L_CHILD, L_KIND, min(L_PARENT),
+                        when(max(L_PARENT).gt(min(L_PARENT)), max(L_PARENT)).otherwise(inline(0L)))
+                        .from(table(name("gx_link")))
+                        .groupBy(L_CHILD, L_KIND));
+    }
+
+    private static CommonTableExpression<?> familyRowCte() {
+        return name("gx_family_row").fields("lo", "hi", "married").as(
+                select(CF_LO, CF_HI, inline(0))
+                        .from(table(name("gx_child_fam")))
+                        .unionAll(select(
+                                least(PERSON_SPOUSE.PERSON_ID, PERSON_SPOUSE.SPOUSE_PERSON_ID),
+                                greatest(PERSON_SPOUSE.PERSON_ID, PERSON_SPOUSE.SPOUSE_PERSON_ID),
+                                inline(1))
+                                .from(PERSON_SPOUSE)
+                                .where(PERSON_SPOUSE.PERSON_ID.ne(PERSON_SPOUSE.SPOUSE_PERSON_ID))));
+    }
+
+    private static CommonTableExpression<?> familyCte() {
+        return name("gx_family").fields("lo", "hi", "married").as(
+                select(FR_LO, FR_HI, max(FR_MARRIED))
+                        .from(table(name("gx_family_row")))
+                        .groupBy(FR_LO, FR_HI));
+    }
+}
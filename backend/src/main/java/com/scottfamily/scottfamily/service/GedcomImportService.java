@@ -0,0 +1,777 @@
+package com.scottfamily.scottfamily.service;
+
+import static com.yourproject.generated.scott_family_web.tables.People.PEOPLE;
+import static com.yourproject.generated.scott_family_web.tables.PersonParent.PERSON_PARENT;
+import static com.yourproject.generated.scott_family_web.tables.PersonSpouse.PERSON_SPOUSE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bulk GEDCOM (5.5.1 / 7.0) import into PEOPLE, PERSON_PARENT and PERSON_SPOUSE.
+ *
+ * The file is parsed as a stream into compact INDI/FAM records and every cross-reference
+ * is resolved in memory; nothing is read back per row. Each imported person is then matched
+ * against existing PEOPLE (from the resident {@link FamilyGraph}, so no queries): same
+ * first and last name and the same date of birth is a match and, unless disabled, is linked
+ * to instead of inserted. Same names with a date missing on either side are only reported.
+ *
+ * A dry run stops there and returns the diff. Otherwise:
+ * <ul>
+ *   <li>New people go in with explicit ids in one transaction (chunked JDBC batches), under
+ *       an exclusive PEOPLE table lock on SQL Server so no concurrent insert takes an id in
+ *       the range. Parents are ordered before their children, so MOTHER_ID/FATHER_ID
+ *       always point at rows that already exist.</li>
+ *   <li>PERSON_PARENT and PERSON_SPOUSE rows follow in transactions of {@link #CHUNK} rows.
+ *       Links that already exist between two matched people are skipped.</li>
+ * </ul>
+ * Not atomic as a whole: if a relationship chunk fails, the people and earlier chunks stay.
+ * On SQL Server, {@code useBulkCopyForBatchInsert=true} on the JDBC URL speeds up the batches further.
+ */
+@Service
+@RequiredArgsConstructor
+public class GedcomImportService {
+    private static final Logger log = LoggerFactory.getLogger(GedcomImportService.class);
+
+    /** Rows per JDBC batch, and per transaction for relationship rows. */
+    static final int CHUNK = 1000;
+
+    /** Larger imports reload the family graph instead of refreshing the touched people. */
+    private static final int REFRESH_LIMIT = 2000;
+
+    /** Cap on each list in the returned diff; the counts are always complete. */
+    private static final int DIFF_LIMIT = 200;
+
+    private static final Pattern EXACT_DATE = Pattern.compile(
+            "(?:@#DGREGORIAN@ )?(\\d{1,2}) (JAN|FEB|MAR|APR|MAY|JUN|JUL|AUG|SEP|OCT|NOV|DEC) (\\d{3,4})");
+    private static final String MONTHS = "JANFEBMARAPRMAYJUNJULAUGSEPOCTNOVDEC";
+
+    // Column sizes of PEOPLE; longer values are cut (and counted in the warnings)
+    private static final int NAME_MAX = 100, AFFIX_MAX = 20, LOCATION_MAX = 255, BIO_MAX = 4000;
+
+    // Inline field references for PEOPLE columns not yet in generated jOOQ classes
+    private static final Field<String> P_MIDDLE_NAME = DSL.field(DSL.name("middle_name"), String.class);
+    private static final Field<String> P_PREFIX = DSL.field(DSL.name("prefix"), String.class);
+    private static final Field<String> P_SUFFIX = DSL.field(DSL.name("suffix"), String.class);
+    private static final Field<String> P_BIO = DSL.field(DSL.name("bio"), String.class);
+    private static final Field<String> P_LOCATION = DSL.field(DSL.name("location"), String.class);
+    private static final Field<Boolean> IS_DECEASED = DSL.field(DSL.name("is_deceased"), Boolean.class);
+
+    private final DSLContext dsl;
+    private final FamilyGraph familyGraph;
+
+    /** One import at a time: id ranges are reserved from the current max. */
+    private final ReentrantLock importLock = new ReentrantLock();
+
+    /**
+     * @param dryRun      parse, match and plan only; nothing is written
+     * @param linkMatches reuse the existing person for exact matches instead of inserting a copy
+     */
+    public record Options(boolean dryRun, boolean linkMatches) {}
+
+    /** An imported person next to the existing one it matched (or may match). */
+    public record Match(String xref, String name, long existingPersonId, String existingName) {}
+
+    /**
+     * What the import did (or, for a dry run, would do). Lists are capped at
+     * {@value #DIFF_LIMIT} entries; the counts are complete.
+     */
+    public record Result(boolean dryRun, String version, int individuals, int families,
+                         int peopleCreated, int peopleLinked, int parentLinks, int spouseLinks,
+                         int linksAlreadyPresent, List<String> newPeople, List<Match> matches,
+                         List<Match> possibleMatches, List<String> warnings, long millis) {}
+
+    public Result importGedcom(InputStream in, Options options) throws IOException {
+        if (!importLock.tryLock()) throw new IllegalStateException("Another GEDCOM import is already running");
+        try {
+            long t0 = System.nanoTime();
+            Parsed parsed = parse(in);
+            Plan plan = plan(parsed, options);
+            if (!options.dryRun()) write(plan);
+            Result result = plan.result(options.dryRun(), (System.nanoTime() - t0) / 1_000_000);
+            log.info("GEDCOM import{}: {} individuals, {} families -> {} created, {} linked, {} parent links, {} spouse links in {} ms",
+                    options.dryRun() ? " (dry run)" : "", result.individuals(), result.families(),
+                    result.peopleCreated(), result.peopleLinked(), result.parentLinks(), result.spouseLinks(), result.millis());
+            return result;
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    /* ============================================================
+     * Parsing
+     * ============================================================ */
+
+    /** An INDI record, plus what the import decides for it. */
+    private static final class Indi {
+        final String xref;
+        String prefix, first, middle, last, suffix, sex, location, bio;
+        LocalDate dob, dod;
+        boolean deceased, named;
+        /** Birth parents among the imported people (index, -1 for none): the MOTHER_ID/FATHER_ID columns. */
+        int mother = -1, father = -1;
+        /** Existing person linked to, or the id reserved for the insert; 0 until decided. */
+        long id;
+        boolean existing;
+
+        Indi(String xref) { this.xref = xref; }
+    }
+
+    private static final class Fam {
+        final String xref;
+        String husb, wife;
+        boolean married;
+        final List<String> children = new ArrayList<>(4);
+
+        Fam(String xref) { this.xref = xref; }
+    }
+
+    private static final class Parsed {
+        String version = "5.5.1";
+        final List<Indi> people = new ArrayList<>();
+        final Map<String, Integer> byXref = new HashMap<>();
+        final List<Fam> families = new ArrayList<>();
+        /** "childXref famXref" → link kind from the child's FAMC (absent = birth). */
+        final Map<String, String> pedigrees = new HashMap<>();
+        final Warnings warnings = new Warnings();
+    }
+
+    private Parsed parse(InputStream in) throws IOException {
+        Parsed p = new Parsed();
+        try (GedcomReader r = new GedcomReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            Indi indi = null;
+            Fam fam = null;
+            String l0 = null, l1 = null, l2 = null, famc = null;
+            boolean firstName = false, firstBirth = false, firstDeath = false;
+            GedcomReader.Line line;
+            while ((line = r.next()) != null) {
+                String tag = line.tag(), value = line.value();
+                switch (line.level()) {
+                    case 0 -> {
+                        indi = null;
+                        fam = null;
+                        if (tag.equals("INDI") && line.xref() != null) {
+                            if (p.byXref.putIfAbsent(line.xref(), p.people.size()) != null) {
+                                p.warnings.add("Duplicate INDI " + line.xref() + " ignored");
+                            } else {
+                                indi = new Indi(line.xref());
+                                p.people.add(indi);
+                            }
+                        } else if (tag.equals("FAM") && line.xref() != null) {
+                            fam = new Fam(line.xref());
+                            p.families.add(fam);
+                        }
+                        l0 = tag;
+                        l1 = null;
+                        continue;
+                    }
+                    case 1 -> {
+                        l1 = tag;
+                        l2 = null;
+                        if (indi != null) {
+                            firstName = tag.equals("NAME") && !indi.named;
+                            firstBirth = tag.equals("BIRT") && indi.dob == null;
+                            firstDeath = tag.equals("DEAT");
+                            readIndi(p, indi, tag, value, line);
+                            famc = tag.equals("FAMC") && line.isPointer() ? value : null;
+                        } else if (fam != null) {
+                            readFam(fam, tag, value, line);
+                        } else if (tag.equals("CHAR") && value != null && !value.toUpperCase().startsWith("UTF-8")
+                                && !value.equalsIgnoreCase("ASCII")) {
+                            p.warnings.add("File declares " + value + "; it was read as UTF-8");
+                        }
+                    }
+                    case 2 -> {
+                        l2 = tag;
+                        if ("HEAD".equals(l0) && "GEDC".equals(l1) && tag.equals("VERS") && value != null) {
+                            p.version = value;
+                        }
+                        if (indi == null) continue;
+                        if (firstName) readName(indi, tag, value);
+                        else if (firstBirth && tag.equals("DATE")) indi.dob = date(p, value);
+                        else if (firstDeath && tag.equals("DATE") && indi.dod == null) indi.dod = date(p, value);
+                        else if ("RESI".equals(l1) && tag.equals("PLAC") && indi.location == null) {
+                            indi.location = clip(p, value, LOCATION_MAX);
+                        } else if (famc != null) {
+                            String kind = switch (tag) {
+                                case "PEDI" -> pedigree(value);
+                                case "NOTE" -> noteKind(value);
+                                default -> null;
+                            };
+                            if (kind != null) p.pedigrees.putIfAbsent(indi.xref + " " + famc, kind);
+                        }
+                    }
+                    case 3 -> {
+                        // 7.0: PEDI OTHER carries the actual relationship in a PHRASE
+                        if (indi != null && famc != null && "PEDI".equals(l2) && tag.equals("PHRASE")) {
+                            String key = indi.xref + " " + famc;
+                            if ("OTHER".equals(p.pedigrees.get(key))) {
+                                String kind = noteKind(value);
+                                if (kind != null) p.pedigrees.put(key, kind);
+                            }
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        }
+        if (p.people.isEmpty()) throw new IllegalArgumentException("The file contains no INDI records");
+        return p;
+    }
+
+    private static void readIndi(Parsed p, Indi indi, String tag, String value, GedcomReader.Line line) {
+        switch (tag) {
+            case "NAME" -> {
+                if (indi.named) return;
+                indi.named = true;
+                parseNameValue(p, indi, value);
+            }
+            case "SEX" -> indi.sex = value != null ? value.trim().toUpperCase() : null;
+            case "DEAT" -> indi.deceased = true;
+            case "RESI" -> {
+                if (value != null && !value.isBlank() && indi.location == null) indi.location = clip(p, value, LOCATION_MAX);
+            }
+            case "NOTE" -> {
+                if (indi.bio == null && value != null && !line.isPointer()) indi.bio = clip(p, value.strip(), BIO_MAX);
+            }
+            default -> { }
+        }
+    }
+
+    private static void readFam(Fam fam, String tag, String value, GedcomReader.Line line) {
+        switch (tag) {
+            case "HUSB" -> { if (line.isPointer() && fam.husb == null) fam.husb = value; }
+            case "WIFE" -> { if (line.isPointer() && fam.wife == null) fam.wife = value; }
+            case "CHIL" -> { if (line.isPointer()) fam.children.add(value); }
+            case "MARR" -> fam.married = true;
+            default -> { }
+        }
+    }
+
+    /* "Given Names /Surname/ Suffix"; GIVN/SURN/NPFX/NSFX underneath override the parts. */
+    private static void parseNameValue(Parsed p, Indi indi, String value) {
+        if (value == null) return;
+        int a = value.indexOf('/'), b = a < 0 ? -1 : value.indexOf('/', a + 1);
+        String given = a < 0 ? value : value.substring(0, a);
+        if (b > a) {
+            indi.last = clip(p, value.substring(a + 1, b), NAME_MAX);
+            indi.suffix = clip(p, value.substring(b + 1), AFFIX_MAX);
+        }
+        setGiven(p, indi, given);
+    }
+
+    private static void readName(Indi indi, String tag, String value) {
+        switch (tag) {
+            case "GIVN" -> setGiven(null, indi, value);
+            case "SURN" -> indi.last = clip(null, value, NAME_MAX);
+            case "NPFX" -> indi.prefix = clip(null, value, AFFIX_MAX);
+            case "NSFX" -> indi.suffix = clip(null, value, AFFIX_MAX);
+            default -> { }
+        }
+    }
+
+    private static void setGiven(Parsed p, Indi indi, String given) {
+        if (given == null || given.isBlank()) return;
+        String[] parts = given.strip().split("\\s+", 2);
+        indi.first = clip(p, parts[0], NAME_MAX);
+        indi.middle = parts.length > 1 ? clip(p, parts[1], NAME_MAX) : null;
+    }
+
+    /** Exact dates only: PEOPLE holds full dates, so "ABT 1900" or "MAR 1900" is left out. */
+    private static LocalDate date(Parsed p, String value) {
+        if (value == null) return null;
+        Matcher m = EXACT_DATE.matcher(value.trim().toUpperCase());
+        if (m.matches()) {
+            try {
+                return LocalDate.of(Integer.parseInt(m.group(3)), MONTHS.indexOf(m.group(2)) / 3 + 1,
+                        Integer.parseInt(m.group(1)));
+            } catch (DateTimeException ignored) {
+                // e.g. 30 FEB: fall through and count it
+            }
+        }
+        p.warnings.count("Dates left out (approximate, partial or invalid)");
+        return null;
+    }
+
+    private static String pedigree(String value) {
+        if (value == null) return null;
+        return switch (value.trim().toUpperCase()) {
+            case "BIRTH" -> "BIRTH";
+            case "ADOPTED" -> "ADOPTED";
+            case "FOSTER" -> "FOSTER";
+            default -> "OTHER";
+        };
+    }
+
+    /* The free text GedcomExportService writes for step/guardian links. */
+    private static String noteKind(String value) {
+        if (value == null) return null;
+        String v = value.trim().toLowerCase();
+        if (v.startsWith("step")) return "STEP";
+        if (v.startsWith("guardian")) return "GUARDIAN";
+        if (v.startsWith("other")) return "OTHER";
+        return null;
+    }
+
+    private static String clip(Parsed p, String value, int max) {
+        if (value == null) return null;
+        String v = value.strip();
+        if (v.isEmpty()) return null;
+        if (v.length() <= max) return v;
+        if (p != null) p.warnings.count("Values cut to the column size");
+        return v.substring(0, max);
+    }
+
+    /* ============================================================
+     * Planning: matching, relationships, id order
+     * ============================================================ */
+
+    private record ParentLink(int child, int parent, String relation) {}
+
+    private static final class Plan {
+        final Parsed parsed;
+        final List<ParentLink> parentLinks = new ArrayList<>();
+        /** Spouse pairs as (a, b) index pairs, a != b. */
+        final List<int[]> spouses = new ArrayList<>();
+        final List<Match> matches = new ArrayList<>();
+        final List<Match> possible = new ArrayList<>();
+        int matchCount, possibleCount, alreadyPresent;
+        /** New people in insert order (parents first). */
+        int[] order;
+
+        Plan(Parsed parsed) { this.parsed = parsed; }
+
+        Result result(boolean dryRun, long millis) {
+            List<String> newPeople = new ArrayList<>();
+            for (int i = 0; i < order.length && newPeople.size() < DIFF_LIMIT; i++) {
+                Indi x = parsed.people.get(order[i]);
+                newPeople.add(x.xref + " " + displayName(x));
+            }
+            return new Result(dryRun, parsed.version, parsed.people.size(), parsed.families.size(),
+                    order.length, matchCount, parentLinks.size(), spouses.size(), alreadyPresent,
+                    newPeople, matches, possible, parsed.warnings.list(), millis);
+        }
+    }
+
+    private Plan plan(Parsed parsed, Options options) {
+        Plan plan = new Plan(parsed);
+        match(plan, options.linkMatches());
+        resolveFamilies(plan);
+        skipExistingLinks(plan);
+        plan.order = insertOrder(parsed);
+        return plan;
+    }
+
+    /**
+     * One pass over the resident graph against the imported names. A single existing person
+     * with the same names and date of birth is a match; several such people, or the same
+     * names with a date missing, only make a possible match.
+     */
+    private void match(Plan plan, boolean link) {
+        List<Indi> people = plan.parsed.people;
+        Map<String, int[]> byName = new HashMap<>();
+        for (int i = 0; i < people.size(); i++) {
+            Indi x = people.get(i);
+            if (x.first == null) continue;
+            byName.merge(nameKey(x.first, x.last), new int[] { i }, (a, b) -> {
+                int[] c = Arrays.copyOf(a, a.length + 1);
+                c[a.length] = b[0];
+                return c;
+            });
+        }
+        if (byName.isEmpty()) return;
+
+        long[] exact = new long[people.size()];
+        int[] exactCount = new int[people.size()];
+        long[] maybe = new long[people.size()];
+        String[] existingNames = new String[people.size()];
+        familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            for (int s = 0; s < st.slotLimit(); s++) {
+                if (!st.isLive(s)) continue;
+                int[] candidates = byName.get(nameKey(st.firstName(s), st.lastName(s)));
+                if (candidates == null) continue;
+                LocalDate dob = st.dateOfBirth(s);
+                for (int i : candidates) {
+                    LocalDate mine = people.get(i).dob;
+                    if (mine != null && mine.equals(dob)) {
+                        if (exactCount[i]++ == 0) {
+                            exact[i] = st.id(s);
+                            existingNames[i] = existingName(st, s);
+                        }
+                    } else if ((mine == null || dob == null) && maybe[i] == 0) {
+                        maybe[i] = st.id(s);
+                        if (exactCount[i] == 0) existingNames[i] = existingName(st, s);
+                    }
+                }
+            }
+            return null;
+        });
+
+        for (int i = 0; i < people.size(); i++) {
+            Indi x = people.get(i);
+            if (exactCount[i] == 1) {
+                plan.matchCount += link ? 1 : 0;
+                if (link) {
+                    x.existing = true;
+                    x.id = exact[i];
+                }
+                if (plan.matches.size() < DIFF_LIMIT) {
+                    plan.matches.add(new Match(x.xref, displayName(x), exact[i], existingNames[i]));
+                }
+            } else if (exactCount[i] > 1 || maybe[i] != 0) {
+                plan.possibleCount++;
+                if (plan.possible.size() < DIFF_LIMIT) {
+                    plan.possible.add(new Match(x.xref, displayName(x), exactCount[i] > 1 ? exact[i] : maybe[i],
+                            existingNames[i]));
+                }
+            }
+        }
+        if (plan.possibleCount > 0) {
+            plan.parsed.warnings.add(plan.possibleCount + " people have a possible existing match and will be inserted");
+        }
+    }
+
+    /**
+     * FAM records into PERSON_PARENT links (relation from the child's pedigree and the
+     * parent's SEX, or HUSB/WIFE when SEX is missing) and PERSON_SPOUSE pairs. A couple is
+     * imported as spouses when the family records a marriage or has no children.
+     */
+    private void resolveFamilies(Plan plan) {
+        Parsed p = plan.parsed;
+        Set<Long> seenLinks = new HashSet<>();
+        Set<Long> seenSpouses = new HashSet<>();
+        for (Fam f : p.families) {
+            int h = resolve(p, f.husb, f.xref), w = resolve(p, f.wife, f.xref);
+            if (h >= 0 && w >= 0 && h != w && (f.married || f.children.isEmpty())
+                    && seenSpouses.add(pack(Math.min(h, w), Math.max(h, w)))) {
+                plan.spouses.add(new int[] { h, w });
+            }
+            for (String childXref : f.children) {
+                int c = resolve(p, childXref, f.xref);
+                if (c < 0) continue;
+                String kind = p.pedigrees.getOrDefault(childXref + " " + f.xref, "BIRTH");
+                for (int parent : new int[] { h, w }) {
+                    if (parent < 0 || parent == c || !seenLinks.add(pack(c, parent))) continue;
+                    String sex = p.people.get(parent).sex;
+                    boolean mother = "F".equals(sex) || (!"M".equals(sex) && parent == w);
+                    plan.parentLinks.add(new ParentLink(c, parent, relation(kind, mother)));
+                    Indi child = p.people.get(c);
+                    if (kind.equals("BIRTH") && !child.existing) {
+                        if (mother && child.mother < 0) child.mother = parent;
+                        if (!mother && child.father < 0) child.father = parent;
+                    }
+                }
+            }
+        }
+    }
+
+    private static String relation(String kind, boolean mother) {
+        String role = mother ? "MOTHER" : "FATHER";
+        return switch (kind) {
+            case "BIRTH" -> "BIOLOGICAL_" + role;
+            case "ADOPTED" -> "ADOPTIVE_" + role;
+            case "FOSTER" -> "FOSTER_" + role;
+            case "STEP" -> "STEP_" + role;
+            case "GUARDIAN" -> "GUARDIAN";
+            default -> "OTHER";
+        };
+    }
+
+    private static int resolve(Parsed p, String xref, String famXref) {
+        if (xref == null) return -1;
+        Integer i = p.byXref.get(xref);
+        if (i == null) {
+            p.warnings.add("FAM " + famXref + " points at missing INDI " + xref);
+            return -1;
+        }
+        return i;
+    }
+
+    /** Drop links between two matched people that the graph already has. */
+    private void skipExistingLinks(Plan plan) {
+        List<Indi> people = plan.parsed.people;
+        boolean anyExisting = people.stream().anyMatch(x -> x.existing);
+        if (!anyExisting) return;
+
+        familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            plan.parentLinks.removeIf(l -> {
+                Indi c = people.get(l.child()), parent = people.get(l.parent());
+                if (!c.existing || !parent.existing) return false;
+                int cs = st.slotOf(c.id), ps = st.slotOf(parent.id);
+                boolean present = cs >= 0 && ps >= 0 && (st.relationCode(cs, ps) != 0
+                        || st.motherId(cs) == parent.id || st.fatherId(cs) == parent.id);
+                if (present) plan.alreadyPresent++;
+                return present;
+            });
+            Set<IdPair> pairs = new HashSet<>();
+            for (int i = 0; i < st.spousePairCount(); i++) {
+                pairs.add(IdPair.of(st.spousePersonId(i), st.spouseSpouseId(i)));
+            }
+            plan.spouses.removeIf(s -> {
+                Indi a = people.get(s[0]), b = people.get(s[1]);
+                boolean present = a.existing && b.existing
+                        && pairs.contains(IdPair.of(a.id, b.id));
+                if (present) plan.alreadyPresent++;
+                return present;
+            });
+            return null;
+        });
+    }
+
+    /**
+     * New people with their birth parents first (Kahn's algorithm over the MOTHER_ID/FATHER_ID
+     * edges between new people). People caught in a parent cycle go last, and their column
+     * links to parents placed after them are dropped; the PERSON_PARENT rows still carry them.
+     */
+    private static int[] insertOrder(Parsed p) {
+        List<Indi> people = p.people;
+        int n = people.size();
+        int[] pending = new int[n];
+        int[] childOff = new int[n + 1];
+        for (Indi x : people) {
+            if (x.existing) continue;
+            for (int parent : new int[] { x.mother, x.father }) {
+                if (parent >= 0 && !people.get(parent).existing) childOff[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < n; i++) childOff[i + 1] += childOff[i];
+        int[] children = new int[childOff[n]];
+        int[] fill = Arrays.copyOf(childOff, n);
+        for (int i = 0; i < n; i++) {
+            Indi x = people.get(i);
+            if (x.existing) continue;
+            for (int parent : new int[] { x.mother, x.father }) {
+                if (parent >= 0 && !people.get(parent).existing) {
+                    children[fill[parent]++] = i;
+                    pending[i]++;
+                }
+            }
+        }
+
+        int[] order = new int[n];
+        int head = 0, tail = 0;
+        for (int i = 0; i < n; i++) if (!people.get(i).existing && pending[i] == 0) order[tail++] = i;
+        while (head < tail) {
+            int v = order[head++];
+            for (int k = childOff[v]; k < childOff[v + 1]; k++) {
+                if (--pending[children[k]] == 0) order[tail++] = children[k];
+            }
+        }
+        boolean[] placed = new boolean[n];
+        for (int i = 0; i < tail; i++) placed[order[i]] = true;
+        for (int i = 0; i < n; i++) {
+            Indi x = people.get(i);
+            if (x.existing || placed[i]) continue;
+            order[tail++] = i;
+            placed[i] = true;
+            if (x.mother >= 0 && !placed[x.mother] && !people.get(x.mother).existing) x.mother = -1;
+            if (x.father >= 0 && !placed[x.father] && !people.get(x.father).existing) x.father = -1;
+            p.warnings.count("People in a parent cycle (birth parents kept as relationships only)");
+        }
+        return Arrays.copyOf(order, tail);
+    }
+
+    /* ============================================================
+     * Writing
+     * ============================================================ */
+
+    private void write(Plan plan) {
+        List<Indi> people = plan.parsed.people;
+        boolean sqlServer = dsl.dialect().family() == SQLDialect.SQLSERVER;
+
+        if (plan.order.length > 0) {
+            dsl.transaction(cfg -> {
+                DSLContext tx = DSL.using(cfg);
+                // The lock keeps concurrent inserts out of the id range until commit
+                Long max = tx.select(DSL.max(PEOPLE.ID))
+                        .from(sqlServer ? PEOPLE.withTablockx().withHoldlock() : PEOPLE)
+                        .fetchOne(0, Long.class);
+                long base = max == null ? 1 : max + 1;
+                for (int i = 0; i < plan.order.length; i++) people.get(plan.order[i]).id = base + i;
+
+                if (sqlServer) tx.execute("SET IDENTITY_INSERT {0} ON", PEOPLE);
+                try {
+                    Field<?>[] columns = { PEOPLE.ID, PEOPLE.FIRST_NAME, P_MIDDLE_NAME, PEOPLE.LAST_NAME, P_PREFIX,
+                            P_SUFFIX, PEOPLE.DATE_OF_BIRTH, PEOPLE.DATE_OF_DEATH, PEOPLE.MOTHER_ID, PEOPLE.FATHER_ID,
+                            P_BIO, P_LOCATION, IS_DECEASED };
+                    Chunked batch = new Chunked(tx, tx.insertInto(PEOPLE, columns).values(new Object[columns.length]));
+                    for (int i : plan.order) {
+                        Indi x = people.get(i);
+                        batch.add(x.id, x.first != null ? x.first : "Unknown", x.middle, x.last, x.prefix, x.suffix,
+                                x.dob, x.dod, idOf(people, x.mother), idOf(people, x.father),
+                                x.bio, x.location, x.deceased || x.dod != null ? Boolean.TRUE : null);
+                    }
+                    batch.finish();
+                } finally {
+                    if (sqlServer) tx.execute("SET IDENTITY_INSERT {0} OFF", PEOPLE);
+                }
+            });
+            if (!sqlServer) {
+                // H2: explicit ids don't advance the identity; DDL, so outside the transaction
+                long next = people.get(plan.order[plan.order.length - 1]).id + 1;
+                dsl.execute("ALTER TABLE {0} ALTER COLUMN {1} RESTART WITH " + next, PEOPLE, DSL.name("id"));
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        List<ParentLink> links = plan.parentLinks;
+        for (int from = 0; from < links.size(); from += CHUNK) {
+            List<ParentLink> chunk = links.subList(from, Math.min(links.size(), from + CHUNK));
+            dsl.transaction(cfg -> {
+                DSLContext tx = DSL.using(cfg);
+                Chunked batch = new Chunked(tx, tx.insertInto(PERSON_PARENT,
+                                PERSON_PARENT.CHILD_PERSON_ID, PERSON_PARENT.PARENT_PERSON_ID,
+                                PERSON_PARENT.RELATION, PERSON_PARENT.VALID_FROM)
+                        .values((Long) null, null, null, null));
+                for (ParentLink l : chunk) {
+                    batch.add(people.get(l.child()).id, people.get(l.parent()).id, l.relation(), today);
+                }
+                batch.finish();
+            });
+        }
+        List<int[]> spouses = plan.spouses;
+        for (int from = 0; from < spouses.size(); from += CHUNK) {
+            List<int[]> chunk = spouses.subList(from, Math.min(spouses.size(), from + CHUNK));
+            dsl.transaction(cfg -> {
+                DSLContext tx = DSL.using(cfg);
+                Chunked batch = new Chunked(tx, tx.insertInto(PERSON_SPOUSE,
+                                PERSON_SPOUSE.PERSON_ID, PERSON_SPOUSE.SPOUSE_PERSON_ID)
+                        .values((Long) null, null));
+                // Canonical order: smaller id first
+                for (int[] s : chunk) {
+                    long a = people.get(s[0]).id, b = people.get(s[1]).id;
+                    batch.add(Math.min(a, b), Math.max(a, b));
+                }
+                batch.finish();
+            });
+        }
+
+        Set<Long> touched = new HashSet<>();
+        for (int i : plan.order) touched.add(people.get(i).id);
+        for (ParentLink l : links) {
+            touched.add(people.get(l.child()).id);
+            touched.add(people.get(l.parent()).id);
+        }
+        for (int[] s : spouses) {
+            touched.add(people.get(s[0]).id);
+            touched.add(people.get(s[1]).id);
+        }
+        if (touched.size() > REFRESH_LIMIT) familyGraph.reload();
+        else familyGraph.refresh(touched);
+    }
+
+    private static Long idOf(List<Indi> people, int index) {
+        return index < 0 ? null : people.get(index).id;
+    }
+
+    /* Binds rows to one INSERT and sends them in batches of CHUNK. */
+    private static final class Chunked {
+        private final DSLContext dsl;
+        private final Query insert;
+        private BatchBindStep step;
+        private int pending;
+
+        Chunked(DSLContext dsl, Query insert) {
+            this.dsl = dsl;
+            this.insert = insert;
+            this.step = dsl.batch(insert);
+        }
+
+        void add(Object... values) {
+            step.bind(values);
+            if (++pending == CHUNK) finish();
+        }
+
+        void finish() {
+            if (pending == 0) return;
+            step.execute();
+            step = dsl.batch(insert);
+            pending = 0;
+        }
+    }
+
+    /* ============================================================
+     * Helpers
+     * ============================================================ */
+
+    /** Warnings for the diff: distinct messages up to the cap, repeated ones as counts. */
+    private static final class Warnings {
+        private final List<String> messages = new ArrayList<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+        private int dropped;
+
+        void add(String message) {
+            if (messages.size() < DIFF_LIMIT) messages.add(message);
+            else dropped++;
+        }
+
+        void count(String what) {
+            counts.merge(what, 1, Integer::sum);
+        }
+
+        List<String> list() {
+            List<String> out = new ArrayList<>(messages);
+            counts.forEach((what, n) -> out.add(what + ": " + n));
+            if (dropped > 0) out.add(dropped + " more warnings");
+            return out;
+        }
+    }
+
+    private static String existingName(FamilyGraphStore st, int slot) {
+        return PeopleService.fullDisplayName(null, st.firstName(slot), st.middleName(slot), st.lastName(slot), null,
+                st.dateOfBirth(slot), st.dateOfDeath(slot));
+    }
+
+    private static String displayName(Indi x) {
+        return PeopleService.fullDisplayName(x.prefix, x.first, x.middle, x.last, x.suffix, x.dob, x.dod);
+    }
+
+    private static String nameKey(String first, String last) {
+        return norm(first) + "|" + norm(last);
+    }
+
+    private static String norm(String s) {
+        return s == null ? "" : s.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static long pack(int a, int b) {
+        return ((long) a << 32) | (b & 0xffffffffL);
+    }
+
+    /** Unordered pair of person ids. */
+    private record IdPair(long lo, long hi) {
+        static IdPair of(long a, long b) {
+            return new IdPair(Math.min(a, b), Math.max(a, b));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.scottfamily.scottfamily.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Line-level GEDCOM input: logical lines with CONT/CONC already folded into the value they
+ * continue and '@' escapes undone. Counterpart of {@link GedcomWriter}; knows nothing
+ * about people or families.
+ *
+ * Reads 5.5.1 and 7.0. The version is taken from HEAD.GEDC.VERS as it streams past, which
+ * comes before any value the two versions escape differently.
+ */
+final class GedcomReader implements Closeable {
+
+    /** One logical line; {@code value} is null when the line has none. */
+    record Line(int level, String xref, String tag, String value, int lineNumber) {
+        /** {@code @I1@}-style value (escaped '@' values have already been unescaped). */
+        boolean isPointer() {
+            return value != null && value.length() > 2 && value.charAt(0) == '@'
+                    && value.charAt(value.length() - 1) == '@' && value.indexOf(' ') < 0;
+        }
+    }
+
+    private static final int MAX_LEVEL = 99;
+
+    private final BufferedReader in;
+    private final String[] path = new String[4];
+    private boolean v7;
+    private int lineNumber;
+    private Line pending;
+
+    GedcomReader(Reader in) {
+        this.in = in instanceof BufferedReader b ? b : new BufferedReader(in, 64 * 1024);
+    }
+
+    boolean isV7() { return v7; }
+
+    /** Next logical line, or null at end of input. */
+    Line next() throws IOException {
+        Line cur = pending != null ? pending : readRaw();
+        pending = null;
+        if (cur == null) return null;
+
+        StringBuilder value = null;
+        Line n;
+        while ((n = readRaw()) != null && n.level == cur.level + 1
+                && (n.tag.equals("CONT") || n.tag.equals("CONC"))) {
+            if (value == null) value = new StringBuilder(cur.value != null ? cur.value : "");
+            if (n.tag.equals("CONT")) value.append('\n');
+            if (n.value != null) value.append(n.value);
+        }
+        pending = n;
+        return value == null ? cur : new Line(cur.level, cur.xref, cur.tag, value.toString(), cur.lineNumber);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /* "level [@xref@] tag [value]"; blank lines are skipped, malformed ones rejected. */
+    private Line readRaw() throws IOException {
+        String s;
+        do {
+            s = in.readLine();
+            if (s == null) return null;
+            lineNumber++;
+            if (lineNumber == 1 && s.startsWith("\uFEFF")) s = s.substring(1);
+            s = s.stripLeading();
+        } while (s.isEmpty());
+
+        int sp = s.indexOf(' ');
+        int level;
+        try {
+            level = Integer.parseInt(sp < 0 ? s : s.substring(0, sp));
+        } catch (NumberFormatException e) {
+            throw malformed(s);
+        }
+        if (sp < 0 || level < 0 || level > MAX_LEVEL) throw malformed(s);
+
+        String rest = s.substring(sp + 1);
+        String xref = null;
+        if (rest.startsWith("@")) {
+            int end = rest.indexOf('@', 1);
+            if (end < 0 || end + 1 >= rest.length() || rest.charAt(end + 1) != ' ') throw malformed(s);
+            xref = rest.substring(0, end + 1);
+            rest = rest.substring(end + 2);
+        }
+        int tagEnd = rest.indexOf(' ');
+        String tag = tagEnd < 0 ? rest : rest.substring(0, tagEnd);
+        if (tag.isEmpty()) throw malformed(s);
+        String value = tagEnd < 0 || tagEnd + 1 == rest.length() ? null : unescape(rest.substring(tagEnd + 1));
+
+        if (level < path.length) path[level] = tag;
+        if (level == 2 && tag.equals("VERS") && "HEAD".equals(path[0]) && "GEDC".equals(path[1]) && value != null) {
+            v7 = value.startsWith("7");
+        }
+        return new Line(level, xref, tag, value, lineNumber);
+    }
+
+    /* 5.5.1 doubles every '@' in a value; 7.0 only a leading one. Pointers pass through. */
+    private String unescape(String value) {
+        if (value.indexOf("@@") < 0) return value;
+        if (v7) return value.startsWith("@@") ? value.substring(1) : value;
+        return value.replace("@@", "@");
+    }
+
+    private IllegalArgumentException malformed(String s) {
+        String shown = s.length() > 80 ? s.substring(0, 80) + "…" : s;
+        return new IllegalArgumentException("GEDCOM line " + lineNumber + " is malformed: " + shown);
+    }
+}
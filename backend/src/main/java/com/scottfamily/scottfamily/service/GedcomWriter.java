@@ -0,0 +1,98 @@
+package com.scottfamily.scottfamily.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Line-level GEDCOM output: "level [xref] tag [value]" lines, with the escaping and
+ * continuation rules of the target version. Knows nothing about people or families.
+ *
+ * Multi-line values continue on CONT lines. 5.5.1 caps a line at 255 characters, so long
+ * lines are split onto CONC lines there; 7.0 has no limit and no CONC.
+ */
+final class GedcomWriter {
+
+    private static final String[] MONTHS =
+            { "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC" };
+
+    /** Room for the value on a 5.5.1 line once level, tag and spaces are accounted for. */
+    private static final int MAX_VALUE_551 = 200;
+
+    private final Writer out;
+    private final boolean v7;
+
+    GedcomWriter(Writer out, boolean v7) {
+        this.out = out;
+        this.v7 = v7;
+    }
+
+    void line(int level, String tag) throws IOException {
+        out.write(Integer.toString(level));
+        out.write(' ');
+        out.write(tag);
+        out.write('\n');
+    }
+
+    /** A line with a value; nothing is written if the value is null or blank. */
+    void line(int level, String tag, String value) throws IOException {
+        if (value == null || value.isBlank()) return;
+        String[] parts = value.strip().split("\\r?\\n|\\r", -1);
+        for (int i = 0; i < parts.length; i++) {
+            String text = parts[i];
+            int lvl = i == 0 ? level : level + 1;
+            String t = i == 0 ? tag : "CONT";
+            if (!v7) {
+                while (text.length() > MAX_VALUE_551) {
+                    int cut = MAX_VALUE_551;
+                    // Readers may trim either side of a CONC break: never split next to a
+                    // space (or inside a surrogate pair)
+                    while (cut > 1 && (text.charAt(cut - 1) == ' ' || text.charAt(cut) == ' '
+                            || Character.isHighSurrogate(text.charAt(cut - 1)))) cut--;
+                    write(lvl, t, text.substring(0, cut));
+                    text = text.substring(cut);
+                    lvl = level + 1;
+                    t = "CONC";
+                }
+            }
+            write(lvl, t, text);
+        }
+    }
+
+    /** A record or pointer line: {@code 0 @I1@ INDI} or {@code 1 FAMS @F1_2@}. */
+    void record(String xref, String tag) throws IOException {
+        out.write("0 ");
+        out.write(xref);
+        out.write(' ');
+        out.write(tag);
+        out.write('\n');
+    }
+
+    void pointer(int level, String tag, String xref) throws IOException {
+        write(level, tag, xref, false);
+    }
+
+    static String date(LocalDate d) {
+        return d.getDayOfMonth() + " " + MONTHS[d.getMonthValue() - 1] + " " + d.getYear();
+    }
+
+    private void write(int level, String tag, String value) throws IOException {
+        write(level, tag, value, true);
+    }
+
+    private void write(int level, String tag, String value, boolean escape) throws IOException {
+        out.write(Integer.toString(level));
+        out.write(' ');
+        out.write(tag);
+        out.write(' ');
+        out.write(escape ? escape(value) : value);
+        out.write('\n');
+    }
+
+    /* 5.5.1 doubles every '@' in a value; 7.0 only a leading one. */
+    private String escape(String value) {
+        if (value.indexOf('@') < 0) return value;
+        if (v7) return value.startsWith("@") ? "@" + value : value;
+        return value.replace("@", "@@");
+    }
+}
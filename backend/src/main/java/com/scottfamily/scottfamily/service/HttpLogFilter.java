@@ -35,6 +35,12 @@ public class HttpLogFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(HttpLogFilter.class);
     private static final int MAX_LOG_BYTES = 10_000;
 
+    /** Streamed downloads: the caching wrapper would buffer the whole body. */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/api/admin/gedcom/export");
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
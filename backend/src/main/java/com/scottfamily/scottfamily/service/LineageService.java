@@ -0,0 +1,147 @@
+package com.scottfamily.scottfamily.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.stereotype.Service;
+import lombok.RequiredArgsConstructor;
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import com.scottfamily.scottfamily.graph.LineageIndex;
+
+/**
+ * Ancestor/descendant queries over the resident {@link FamilyGraph}.
+ *
+ * Descendant membership, counts and pages come from a {@link LineageIndex} built once per
+ * graph version (on the first query after a change). Ancestor lists and per-generation
+ * counts walk the graph directly: O(k) in the size of the answer.
+ */
+@Service
+@RequiredArgsConstructor
+public class LineageService {
+    private final FamilyGraph graph;
+
+    public static final int MAX_PAGE = 500;
+
+    private volatile Indexed indexed;
+
+    private record Indexed(long version, LineageIndex index) {}
+
+    public boolean isAncestor(long ancestorId, long personId) {
+        return graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            return indexFor(g).isAncestor(slotOf(st, ancestorId), slotOf(st, personId));
+        });
+    }
+
+    /** Descendants in family-branch order (each branch contiguous). */
+    public DTOs.LineagePageDto descendants(long personId, int offset, int limit) {
+        checkPage(offset, limit);
+        return graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            LineageIndex index = indexFor(g);
+            int slot = slotOf(st, personId);
+            List<DTOs.LineageMemberDto> items = new ArrayList<>();
+            for (int s : index.descendants(slot, offset, limit)) items.add(member(st, s));
+            return new DTOs.LineagePageDto(personId, index.descendantCount(slot), offset, limit, items);
+        });
+    }
+
+    /** Ancestors nearest-first (parents, then grandparents, …). */
+    public DTOs.LineagePageDto ancestors(long personId, int offset, int limit) {
+        checkPage(offset, limit);
+        return graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            int slot = slotOf(st, personId);
+            int[] up = walk(st, slot, true, null);
+            List<DTOs.LineageMemberDto> items = new ArrayList<>();
+            for (int i = offset; i < up.length && items.size() < limit; i++) items.add(member(st, up[i]));
+            return new DTOs.LineagePageDto(personId, up.length, offset, limit, items);
+        });
+    }
+
+    /** Branch size per generation; {@code ancestors = false} counts descendants. */
+    public DTOs.BranchGenerationsDto generations(long personId, boolean ancestors) {
+        return graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            int slot = slotOf(st, personId);
+            List<Integer> perGeneration = new ArrayList<>();
+            int[] members = walk(st, slot, ancestors, perGeneration);
+            List<DTOs.GenerationCountDto> gens = new ArrayList<>(perGeneration.size());
+            for (int i = 0; i < perGeneration.size(); i++) gens.add(new DTOs.GenerationCountDto(i + 1, perGeneration.get(i)));
+            return new DTOs.BranchGenerationsDto(personId, ancestors ? "ANCESTORS" : "DESCENDANTS", members.length, gens);
+        });
+    }
+
+    /* ============================================================
+     * Internals
+     * ============================================================ */
+
+    /* Must be called under the graph read lock; rebuilds when the graph version moved on. */
+    private LineageIndex indexFor(FamilyGraph g) {
+        Indexed i = indexed;
+        if (i != null && i.version() == g.version()) return i.index();
+        i = new Indexed(g.version(), LineageIndex.build(g.store()));
+        indexed = i;
+        return i.index();
+    }
+
+    /*
+     * Level-by-level BFS along lineage edges. Each person is counted once, at the nearest
+     * generation they are reached (pedigree collapse doesn't double count).
+     */
+    private static int[] walk(FamilyGraphStore st, int start, boolean up, List<Integer> perGeneration) {
+        FamilyGraphStore.Adjacency adj = st.adjacency();
+        int[] off = up ? adj.parentOffsets : adj.childOffsets;
+        int[] targets = up ? adj.parentSlots : adj.childSlots;
+        byte[] codes = up ? adj.parentCodes : adj.childCodes;
+
+        BitSet seen = new BitSet(st.slotLimit());
+        seen.set(start);
+        int[] out = new int[16];
+        int size = 0, levelStart = 0;
+        int[] level = { start };
+        int levelSize = 1;
+        while (levelSize > 0) {
+            for (int f = 0; f < levelSize; f++) {
+                int u = level[f];
+                for (int i = off[u]; i < off[u + 1]; i++) {
+                    int v = targets[i];
+                    if (!st.isLineage(codes[i]) || seen.get(v)) continue;
+                    seen.set(v);
+                    if (size == out.length) out = Arrays.copyOf(out, size * 2);
+                    out[size++] = v;
+                }
+            }
+            levelSize = size - levelStart;
+            if (levelSize > 0 && perGeneration != null) perGeneration.add(levelSize);
+            level = Arrays.copyOfRange(out, levelStart, size);
+            levelStart = size;
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private static int slotOf(FamilyGraphStore st, long personId) {
+        int slot = st.slotOf(personId);
+        if (slot < 0) throw new NoSuchElementException("Person not found: " + personId);
+        return slot;
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0) throw new IllegalArgumentException("offset must be >= 0");
+        if (limit < 1 || limit > MAX_PAGE) throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE);
+    }
+
+    private static DTOs.LineageMemberDto member(FamilyGraphStore st, int slot) {
+        LocalDate dob = st.dateOfBirth(slot), dod = st.dateOfDeath(slot);
+        return new DTOs.LineageMemberDto(st.id(slot),
+                DTOs.buildDisplayName(null, st.firstName(slot), st.middleName(slot), st.lastName(slot), null),
+                dob != null ? dob.toString() : null,
+                dod != null ? dod.toString() : null);
+    }
+}
@@ -2,11 +2,13 @@ package com.scottfamily.scottfamily.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
+import org.jooq.Record2;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
 import org.springframework.stereotype.Service;
@@ -21,7 +23,6 @@ public class ObituaryService {
 
     private static final Table<?> OBITUARY        = DSL.table(DSL.name("OBITUARY"));
     private static final Table<?> OBITUARY_PERSON = DSL.table(DSL.name("OBITUARY_PERSON"));
-    private static final Table<?> PEOPLE          = DSL.table(DSL.name("PEOPLE"));
 
     private static final Field<Long>          O_ID          = DSL.field(DSL.name("OBITUARY", "id"),          Long.class);
     private static final Field<String>        O_TITLE       = DSL.field(DSL.name("OBITUARY", "title"),       String.class);
@@ -45,16 +46,14 @@ public class ObituaryService {
     private static final Field<Long> OP_OBITUARY_ID = DSL.field(DSL.name("OBITUARY_PERSON", "obituary_id"), Long.class);
     private static final Field<Long> OP_PERSON_ID   = DSL.field(DSL.name("OBITUARY_PERSON", "person_id"),   Long.class);
 
-    private static final Field<Long>   P_ID         = DSL.field(DSL.name("PEOPLE", "id"),         Long.class);
-    private static final Field<String> P_FIRST_NAME = DSL.field(DSL.name("PEOPLE", "first_name"), String.class);
-    private static final Field<String> P_LAST_NAME  = DSL.field(DSL.name("PEOPLE", "last_name"),  String.class);
-
     private final DSLContext dsl;
     private final BlobContainerClient blobContainer;
+    private final DisplayNameService displayNames;
 
-    public ObituaryService(DSLContext dsl, BlobContainerClient blobContainer) {
+    public ObituaryService(DSLContext dsl, BlobContainerClient blobContainer, DisplayNameService displayNames) {
         this.dsl = dsl;
         this.blobContainer = blobContainer;
+        this.displayNames = displayNames;
     }
 
     // â”€â”€ DTOs â”€â”€
@@ -85,20 +84,11 @@ public class ObituaryService {
                 .limit(limit)
                 .fetch();
 
-        // Fetch all tags in one query
-        var tags = dsl.select(OP_OBITUARY_ID, OP_PERSON_ID, P_FIRST_NAME, P_LAST_NAME)
+        // Fetch this page's tags in one query
+        var tagMap = tagsByObituary(dsl.select(OP_OBITUARY_ID, OP_PERSON_ID)
                 .from(OBITUARY_PERSON)
-                .join(PEOPLE).on(OP_PERSON_ID.eq(P_ID))
-                .fetch();
-
-        // Group tags by obituary id
-        var tagMap = tags.stream().collect(Collectors.groupingBy(
-                r -> r.get(OP_OBITUARY_ID),
-                Collectors.mapping(r -> new TaggedPerson(
-                        r.get(OP_PERSON_ID),
-                        (r.get(P_FIRST_NAME) + " " + r.get(P_LAST_NAME)).trim()
-                ), Collectors.toList())
-        ));
+                .where(OP_OBITUARY_ID.in(rows.getValues(O_ID)))
+                .fetch());
 
         return rows.stream().map(r -> new ObituaryDto(
                 r.get(O_ID),
@@ -131,19 +121,10 @@ public class ObituaryService {
                 .orderBy(O_TITLE.asc())
                 .fetch();
 
-        var tags = dsl.select(OP_OBITUARY_ID, OP_PERSON_ID, P_FIRST_NAME, P_LAST_NAME)
+        var tagMap = tagsByObituary(dsl.select(OP_OBITUARY_ID, OP_PERSON_ID)
                 .from(OBITUARY_PERSON)
-                .join(PEOPLE).on(OP_PERSON_ID.eq(P_ID))
                 .where(OP_OBITUARY_ID.in(obituaryIds))
-                .fetch();
-
-        var tagMap = tags.stream().collect(Collectors.groupingBy(
-                r -> r.get(OP_OBITUARY_ID),
-                Collectors.mapping(r -> new TaggedPerson(
-                        r.get(OP_PERSON_ID),
-                        (r.get(P_FIRST_NAME) + " " + r.get(P_LAST_NAME)).trim()
-                ), Collectors.toList())
-        ));
+                .fetch());
 
         return rows.stream().map(r -> new ObituaryDto(
                 r.get(O_ID),
@@ -197,14 +178,11 @@ public class ObituaryService {
                 .fetchOne();
         if (row == null) return null;
 
-        var tags = dsl.select(OP_PERSON_ID, P_FIRST_NAME, P_LAST_NAME)
+        var tags = tagsByObituary(dsl.select(OP_OBITUARY_ID, OP_PERSON_ID)
                 .from(OBITUARY_PERSON)
-                .join(PEOPLE).on(OP_PERSON_ID.eq(P_ID))
                 .where(OP_OBITUARY_ID.eq(obituaryId))
-                .fetch(r -> new TaggedPerson(
-                        r.get(OP_PERSON_ID),
-                        (r.get(P_FIRST_NAME) + " " + r.get(P_LAST_NAME)).trim()
-                ));
+                .fetch())
+                .getOrDefault(obituaryId, List.of());
 
         return new ObituaryDto(
                 row.get(O_ID),
@@ -287,4 +265,15 @@ public class ObituaryService {
             try { blobContainer.getBlobClient(blobKey).deleteIfExists(); } catch (Exception ignored) {}
         }
     }
+
+    /** Group (obituary, person) tag rows by obituary, named from the family graph; tags of deleted or unnamed people are left out. */
+    private Map<Long, List<TaggedPerson>> tagsByObituary(List<? extends Record2<Long, Long>> tags) {
+        Map<Long, String> names = displayNames.personNames(tags.stream().map(Record2::value2).collect(Collectors.toSet()));
+        return tags.stream()
+                .filter(r -> names.containsKey(r.value2()))
+                .collect(Collectors.groupingBy(
+                        Record2::value1,
+                        Collectors.mapping(r -> new TaggedPerson(r.value2(), names.get(r.value2())), Collectors.toList())
+                ));
+    }
 }
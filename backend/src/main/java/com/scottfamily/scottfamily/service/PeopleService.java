@@ -5,21 +5,57 @@ import static com.yourproject.generated.scott_family_web.tables.PersonParent.PER
 import static com.yourproject.generated.scott_family_web.tables.Users.USERS;
 import static org.jooq.impl.DSL.selectOne;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.scottfamily.scottfamily.dto.*;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.jooq.*;
 import org.jooq.impl.DSL;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PeopleService {
     private final DSLContext dsl;
+    private final FamilyGraph familyGraph;
+    private final PersonMatcher personMatcher;
+
+    /** How far an archived profile's recorded date of birth may be from the one a claimant gives. */
+    static final int ARCHIVED_DOB_TOLERANCE_DAYS = 31;
+
+    /** A built profile and every person id it shows (itself and its relatives). */
+    private record CachedProfile(DTOs.ProfileDto profile, Set<Long> shows) {}
+
+    /**
+     * Reverse of {@link CachedProfile#shows}: person id → ids of the cached profiles showing
+     * them. May hold ids whose profile has since gone (that only over-invalidates), never
+     * misses one that is cached. Each set is only touched inside a compute on its key.
+     */
+    private final Map<Long, Set<Long>> profilesShowing = new ConcurrentHashMap<>();
+
+    /**
+     * Profiles by person id, dropped precisely on graph refreshes, including those passed on
+     * from other instances by {@link ChangeFeed}. The TTL only bounds how long a row edited
+     * outside the app (e.g. by hand in SQL) can be served stale. Removals
+     * unlink {@link #profilesShowing} on the removing thread.
+     */
+    private final Cache<Long, CachedProfile> profileCache = Caffeine.newBuilder()
+            .maximumSize(5_000)
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .executor(Runnable::run)
+            .removalListener((Long personId, CachedProfile old, RemovalCause cause) -> unlinkShown(personId, old))
+            .build();
 
     // Inline field references for PEOPLE columns not yet in generated jOOQ classes
     private static final org.jooq.Field<LocalDate> DATE_OF_DEATH =
@@ -40,8 +76,17 @@ public class PeopleService {
             DSL.field(DSL.name("location"), String.class);
     private static final org.jooq.Field<Boolean> IS_DECEASED =
             DSL.field(DSL.name("is_deceased"), Boolean.class);
-    private static final org.jooq.Field<Boolean> IS_ARCHIVED =
-            DSL.field(DSL.name("is_archived"), Boolean.class);
+
+    // PERSON_SPOUSE under an alias, joined into the profile query (RELATION isn't generated)
+    private static final Table<?> SPOUSE = DSL.table(DSL.name("PERSON_SPOUSE")).as("sp");
+    private static final org.jooq.Field<Long> SP_PERSON_ID = DSL.field(DSL.name("sp", "PERSON_ID"), Long.class);
+    private static final org.jooq.Field<Long> SP_SPOUSE_ID = DSL.field(DSL.name("sp", "SPOUSE_PERSON_ID"), Long.class);
+    private static final org.jooq.Field<String> SP_RELATION = DSL.field(DSL.name("sp", "RELATION"), String.class);
+
+    @PostConstruct
+    void registerProfileInvalidation() {
+        familyGraph.addChangeListener(this::invalidateProfiles);
+    }
 
     /**
      * Build a full display name from all name parts, with optional birth–death year suffix.
@@ -67,41 +112,33 @@ public class PeopleService {
         return searchPeople(q, limit, true);
     }
 
+    /**
+     * Type-ahead search over every name part, answered from the resident graph's trigram
+     * index ({@link FamilyGraphStore#searchNames}) rather than a LIKE scan
+     * of PEOPLE. Whole-name prefix matches rank first, then word-start, then substring.
+     */
     public List<DTOs.PersonSummaryDto> searchPeople(String q, int limit, boolean excludeArchived) {
-        String like = "%" + q.trim() + "%";
-
-        Condition cond = PEOPLE.FIRST_NAME.likeIgnoreCase(like)
-                .or(PEOPLE.LAST_NAME.likeIgnoreCase(like))
-                .or(DSL.concat(PEOPLE.FIRST_NAME, DSL.inline(" "), PEOPLE.LAST_NAME).likeIgnoreCase(like));
-        if (excludeArchived) {
-            cond = cond.and(IS_ARCHIVED.isNull().or(IS_ARCHIVED.eq(false)));
-        }
-
-        return dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                        P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
-                        PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH, IS_DECEASED,
-                        P_PROFILE_PICTURE_URL,
-                        USERS.USERNAME)
-                .from(PEOPLE)
-                .leftJoin(USERS).on(USERS.PERSON_ID.eq(PEOPLE.ID))
-                .where(cond)
-                .orderBy(PEOPLE.LAST_NAME.asc(), PEOPLE.FIRST_NAME.asc(), PEOPLE.DATE_OF_BIRTH.asc().nullsLast())
-                .limit(limit)
-                .fetch(r -> {
-                    LocalDate dob = r.get(PEOPLE.DATE_OF_BIRTH);
-                    LocalDate dod = r.get(DATE_OF_DEATH);
-                    return DTOs.PersonSummaryDto.builder()
-                            .personId(r.get(PEOPLE.ID))
-                            .displayName(fullDisplayName(
-                                    r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                    r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX), dob, dod))
-                            .dateOfBirth(Optional.ofNullable(dob).map(LocalDate::toString).orElse(null))
-                            .dateOfDeath(dod != null ? dod.toString() : null)
-                            .deceased(dod != null)
-                            .profilePictureUrl(r.get(P_PROFILE_PICTURE_URL))
-                            .username(r.get(USERS.USERNAME))
-                            .build();
-                });
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            int[] slots = st.searchNames(q, limit, excludeArchived);
+            List<DTOs.PersonSummaryDto> out = new ArrayList<>(slots.length);
+            for (int s : slots) {
+                LocalDate dob = st.dateOfBirth(s);
+                LocalDate dod = st.dateOfDeath(s);
+                out.add(DTOs.PersonSummaryDto.builder()
+                        .personId(st.id(s))
+                        .displayName(fullDisplayName(
+                                st.prefix(s), st.firstName(s), st.middleName(s),
+                                st.lastName(s), st.suffix(s), dob, dod))
+                        .dateOfBirth(dob != null ? dob.toString() : null)
+                        .dateOfDeath(dod != null ? dod.toString() : null)
+                        .deceased(dod != null)
+                        .profilePictureUrl(st.avatarUrl(s))
+                        .username(st.username(s))
+                        .build());
+            }
+            return out;
+        });
     }
 
     @Transactional
@@ -140,253 +177,254 @@ public class PeopleService {
             upsertPersonParent(id, req.getFatherId(), fatherRel);
         }
 
+        familyGraph.refresh(id);
         return id;
     }
 
+    /**
+     * Full profile of a person, with parents, children, siblings and spouses.
+     *
+     * One round trip: the PEOPLE row (bio, location, banner — columns the graph doesn't
+     * hold) left-joined to its PERSON_SPOUSE rows for their relation. Everything else —
+     * relatives, their names, relation labels, account — comes from the resident
+     * {@link FamilyGraph}. Results are cached per person and dropped when a refresh touches
+     * the person or anyone the profile shows (see {@link #invalidateProfiles}).
+     */
     public DTOs.ProfileDto getProfile(Long personId) {
-        var p = dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
+        CachedProfile cached = profileCache.getIfPresent(personId);
+        if (cached != null) return cached.profile();
+
+        long version = familyGraph.version();
+        CachedProfile built = buildProfile(personId);
+
+        // If the id isn't a person, try treating it as a USERS.ID
+        // (family tree links may pass userId when personId isn't directly known)
+        if (built == null) {
+            Long linked = dsl.select(USERS.PERSON_ID).from(USERS).where(USERS.ID.eq(personId)).fetchOne(USERS.PERSON_ID);
+            if (linked == null) return null;
+            cached = profileCache.getIfPresent(linked);
+            if (cached != null) return cached.profile();
+            personId = linked;
+            built = buildProfile(personId);
+            if (built == null) return null;
+        }
+
+        // A refresh that ran meanwhile may have invalidated before this put; don't keep a stale copy
+        if (familyGraph.version() == version) cacheProfile(personId, built);
+        return built.profile();
+    }
+
+    private CachedProfile buildProfile(long personId) {
+        var rows = dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
                         P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
                         PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH, PEOPLE.MOTHER_ID, PEOPLE.FATHER_ID,
-                        P_BIO, P_PROFILE_PICTURE_URL, P_BANNER_IMAGE_URL, P_LOCATION, IS_DECEASED)
+                        P_BIO, P_PROFILE_PICTURE_URL, P_BANNER_IMAGE_URL, P_LOCATION, IS_DECEASED,
+                        SP_PERSON_ID, SP_SPOUSE_ID, SP_RELATION)
                 .from(PEOPLE)
+                .leftJoin(SPOUSE).on(SP_PERSON_ID.eq(PEOPLE.ID).or(SP_SPOUSE_ID.eq(PEOPLE.ID)))
                 .where(PEOPLE.ID.eq(personId))
-                .fetchOne();
+                .fetch();
+        if (rows.isEmpty()) return null;
+        var p = rows.get(0);
+
+        return familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            FamilyGraphStore.Adjacency adj = st.adjacency();
+            int self = st.slotOf(personId);
+            Set<Long> shown = new HashSet<>();
+            shown.add(personId);
+
+            // Parents — PERSON_PARENT rows carry the relation (step/adoptive/foster/bio);
+            // MOTHER_ID/FATHER_ID without one count as biological
+            Map<Long, DTOs.PersonRelDto> parentMap = new LinkedHashMap<>();
+            if (self >= 0) {
+                for (int k = adj.parentOffsets[self]; k < adj.parentOffsets[self + 1]; k++) {
+                    int ps = adj.parentSlots[k];
+                    parentMap.put(st.id(ps), relDto(st, st.id(ps), st.relationName(adj.parentCodes[k])));
+                }
+            }
+            Long myMotherId = p.get(PEOPLE.MOTHER_ID);
+            Long myFatherId = p.get(PEOPLE.FATHER_ID);
+            if (myMotherId != null) parentMap.putIfAbsent(myMotherId, relDto(st, myMotherId, "BIOLOGICAL_MOTHER"));
+            if (myFatherId != null) parentMap.putIfAbsent(myFatherId, relDto(st, myFatherId, "BIOLOGICAL_FATHER"));
+            shown.addAll(parentMap.keySet());
+
+            // Siblings — same mother or same father (excluding self): both = full, one = half
+            Map<Long, String> siblingRelMap = new LinkedHashMap<>();
+            Set<Long> maternalSibIds = columnChildren(st, adj, myMotherId, true, personId);
+            Set<Long> paternalSibIds = columnChildren(st, adj, myFatherId, false, personId);
+            for (Long sid : maternalSibIds) {
+                siblingRelMap.put(sid, paternalSibIds.contains(sid) ? "SIBLING" : "HALF_SIBLING_MATERNAL");
+            }
+            for (Long sid : paternalSibIds) siblingRelMap.putIfAbsent(sid, "HALF_SIBLING_PATERNAL");
+
+            // PERSON_SIBLING rows override column-derived relations since they're the source of truth
+            // (e.g. STEP_SIBLING or FOSTER_SIBLING instead of derived SIBLING/HALF_SIBLING)
+            if (self >= 0) {
+                for (int k = adj.siblingOffsets[self]; k < adj.siblingOffsets[self + 1]; k++) {
+                    siblingRelMap.put(st.id(adj.siblingSlots[k]), st.relationName(adj.siblingCodes[k]));
+                }
+            }
+            List<DTOs.PersonRelDto> siblings = new ArrayList<>(siblingRelMap.size());
+            for (var entry : siblingRelMap.entrySet()) {
+                siblings.add(relDto(st, entry.getKey(), entry.getValue() != null ? entry.getValue() : "SIBLING"));
+            }
+            shown.addAll(siblingRelMap.keySet());
+
+            // Spouses from the joined PERSON_SPOUSE rows, either direction
+            List<DTOs.PersonRelDto> spouses = new ArrayList<>();
+            for (var r : rows) {
+                Long a = r.get(SP_PERSON_ID), b = r.get(SP_SPOUSE_ID);
+                if (a == null || b == null) continue;
+                long other = a == personId ? b : a;
+                spouses.add(relDto(st, other, r.get(SP_RELATION)));
+                shown.add(other);
+            }
 
-        // If not found by PEOPLE.ID, try treating the id as a USERS.ID
-        // (family tree links may pass userId when personId isn't directly known)
-        if (p == null) {
-            var userRec = dsl.select(USERS.PERSON_ID)
-                    .from(USERS)
-                    .where(USERS.ID.eq(personId))
-                    .fetchOne();
-            if (userRec != null && userRec.get(USERS.PERSON_ID) != null) {
-                personId = userRec.get(USERS.PERSON_ID);
-                p = dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                                P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
-                                PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH, PEOPLE.MOTHER_ID, PEOPLE.FATHER_ID,
-                                P_BIO, P_PROFILE_PICTURE_URL, P_BANNER_IMAGE_URL, P_LOCATION, IS_DECEASED)
-                        .from(PEOPLE)
-                        .where(PEOPLE.ID.eq(personId))
-                        .fetchOne();
+            // Children = PERSON_PARENT rows (relation turned child-side) plus MOTHER_ID/FATHER_ID
+            List<DTOs.PersonRelDto> children = new ArrayList<>();
+            if (self >= 0) {
+                for (int k = adj.childOffsets[self]; k < adj.childOffsets[self + 1]; k++) {
+                    long cid = st.id(adj.childSlots[k]);
+                    children.add(relDto(st, cid, childRelation(st.relationName(adj.childCodes[k]))));
+                    shown.add(cid);
+                }
             }
-        }
 
-        if (p == null) return null;
-
-        // USERS only needed for hasAccount / username check
-        var user = dsl.select(USERS.ID, USERS.USERNAME)
-                .from(USERS)
-                .where(USERS.PERSON_ID.eq(personId))
-                .fetchOne();
-
-        // Parents — collect from PERSON_PARENT first (source of truth for relation type),
-        // then fall back to PEOPLE columns if no person_parent entry exists.
-        Map<Long, DTOs.PersonRelDto> parentMap = new LinkedHashMap<>();
-
-        // PERSON_PARENT entries have the correct relation (step/adoptive/foster/bio)
-        dsl.select(PERSON_PARENT.PARENT_PERSON_ID, PERSON_PARENT.RELATION, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                        P_PREFIX, P_MIDDLE_NAME, P_SUFFIX, PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH)
-                .from(PERSON_PARENT.join(PEOPLE).on(PEOPLE.ID.eq(PERSON_PARENT.PARENT_PERSON_ID)))
-                .where(PERSON_PARENT.CHILD_PERSON_ID.eq(personId))
-                .and(PERSON_PARENT.VALID_TO.isNull().or(PERSON_PARENT.VALID_TO.ge(DSL.currentLocalDate())))
-                .fetch(r -> DTOs.PersonRelDto.builder()
-                        .personId(r.get(PERSON_PARENT.PARENT_PERSON_ID))
-                        .relation(r.get(PERSON_PARENT.RELATION))
-                        .displayName(fullDisplayName(
-                                r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX),
-                                r.get(PEOPLE.DATE_OF_BIRTH), r.get(DATE_OF_DEATH)))
-                        .build())
-                .forEach(rel -> parentMap.put(rel.getPersonId(), rel));
-
-        // Fallback: PEOPLE.MOTHER_ID/FATHER_ID (default to BIOLOGICAL if no person_parent entry)
-        if (p.get(PEOPLE.MOTHER_ID) != null) {
-            parentMap.putIfAbsent(p.get(PEOPLE.MOTHER_ID), relDto(p.get(PEOPLE.MOTHER_ID), "BIOLOGICAL_MOTHER"));
-        }
-        if (p.get(PEOPLE.FATHER_ID) != null) {
-            parentMap.putIfAbsent(p.get(PEOPLE.FATHER_ID), relDto(p.get(PEOPLE.FATHER_ID), "BIOLOGICAL_FATHER"));
-        }
+            long userId = self >= 0 ? st.userId(self) : FamilyGraphStore.NONE;
+            String display = fullDisplayName(
+                    p.get(P_PREFIX), p.get(PEOPLE.FIRST_NAME), p.get(P_MIDDLE_NAME),
+                    p.get(PEOPLE.LAST_NAME), p.get(P_SUFFIX),
+                    p.get(PEOPLE.DATE_OF_BIRTH), p.get(DATE_OF_DEATH));
+
+            DTOs.ProfileDto profile = DTOs.ProfileDto.builder()
+                    .personId(p.get(PEOPLE.ID))
+                    .displayName(display)
+                    .prefix(p.get(P_PREFIX))
+                    .firstName(p.get(PEOPLE.FIRST_NAME))
+                    .middleName(p.get(P_MIDDLE_NAME))
+                    .lastName(p.get(PEOPLE.LAST_NAME))
+                    .suffix(p.get(P_SUFFIX))
+                    .dateOfBirth(p.get(PEOPLE.DATE_OF_BIRTH))
+                    .dateOfDeath(p.get(DATE_OF_DEATH))
+                    .deceased(Boolean.TRUE.equals(p.get(IS_DECEASED)) || p.get(DATE_OF_DEATH) != null)
+                    .motherId(myMotherId)
+                    .fatherId(myFatherId)
+                    .bio(p.get(P_BIO))
+                    .location(p.get(P_LOCATION))
+                    .profilePictureUrl(p.get(P_PROFILE_PICTURE_URL))
+                    .bannerImageUrl(p.get(P_BANNER_IMAGE_URL))
+                    .hasAccount(userId != FamilyGraphStore.NONE)
+                    .username(self >= 0 ? st.username(self) : null)
+                    .parents(List.copyOf(parentMap.values()))
+                    .children(List.copyOf(children))
+                    .siblings(List.copyOf(siblings))
+                    .spouses(List.copyOf(spouses))
+                    .build();
+            return new CachedProfile(profile, Set.copyOf(shown));
+        });
+    }
 
-        List<DTOs.PersonRelDto> parents = new ArrayList<>(parentMap.values());
-
-        // Siblings — same mother or same father (excluding self)
-        // Use a map so we can track the relation type per sibling
-        Map<Long, String> siblingRelMap = new LinkedHashMap<>();
-        Long myMotherId = p.get(PEOPLE.MOTHER_ID);
-        Long myFatherId = p.get(PEOPLE.FATHER_ID);
-
-        // Siblings sharing the same mother
-        Set<Long> maternalSibIds = new LinkedHashSet<>();
-        if (myMotherId != null) {
-            dsl.select(PEOPLE.ID).from(PEOPLE)
-                    .where(PEOPLE.MOTHER_ID.eq(myMotherId).and(PEOPLE.ID.ne(personId)))
-                    .fetch(PEOPLE.ID)
-                    .forEach(maternalSibIds::add);
+    /* Children of parentId through its MOTHER_ID (or FATHER_ID) column, in id order, without self */
+    private static Set<Long> columnChildren(FamilyGraphStore st, FamilyGraphStore.Adjacency adj,
+                                            Long parentId, boolean mother, long self) {
+        if (parentId == null) return Set.of();
+        int ps = st.slotOf(parentId);
+        if (ps < 0) return Set.of();
+        long[] ids = new long[adj.childOffsets[ps + 1] - adj.childOffsets[ps]];
+        int n = 0;
+        for (int k = adj.childOffsets[ps]; k < adj.childOffsets[ps + 1]; k++) {
+            int c = adj.childSlots[k];
+            long col = mother ? st.motherId(c) : st.fatherId(c);
+            if (col == parentId && st.id(c) != self) ids[n++] = st.id(c);
         }
+        Arrays.sort(ids, 0, n);
+        Set<Long> out = new LinkedHashSet<>();
+        for (int i = 0; i < n; i++) out.add(ids[i]);
+        return out;
+    }
 
-        // Siblings sharing the same father
-        Set<Long> paternalSibIds = new LinkedHashSet<>();
-        if (myFatherId != null) {
-            dsl.select(PEOPLE.ID).from(PEOPLE)
-                    .where(PEOPLE.FATHER_ID.eq(myFatherId).and(PEOPLE.ID.ne(personId)))
-                    .fetch(PEOPLE.ID)
-                    .forEach(paternalSibIds::add);
-        }
+    /* Parent-side relation (BIOLOGICAL_MOTHER, STEP_FATHER, …) to the child-side label */
+    private static String childRelation(String parentRel) {
+        if (parentRel == null) return "CHILD";
+        return switch (parentRel) {
+            case "BIOLOGICAL_MOTHER", "BIOLOGICAL_FATHER" -> "BIOLOGICAL_CHILD";
+            case "ADOPTIVE_MOTHER", "ADOPTIVE_FATHER", "ADOPTIVE_PARENT" -> "ADOPTED_CHILD";
+            case "STEP_MOTHER", "STEP_FATHER", "STEP_PARENT" -> "STEP_CHILD";
+            case "FOSTER_MOTHER", "FOSTER_FATHER", "FOSTER_PARENT" -> "FOSTER_CHILD";
+            case "GUARDIAN" -> "WARD";
+            default -> "CHILD";
+        };
+    }
 
-        // Classify: shared both parents = full sibling, one parent = half sibling
-        Set<Long> allColumnSibs = new LinkedHashSet<>();
-        allColumnSibs.addAll(maternalSibIds);
-        allColumnSibs.addAll(paternalSibIds);
-        for (Long sid : allColumnSibs) {
-            boolean shareMother = maternalSibIds.contains(sid);
-            boolean shareFather = paternalSibIds.contains(sid);
-            if (shareMother && shareFather) {
-                siblingRelMap.put(sid, "SIBLING");
-            } else if (shareMother) {
-                siblingRelMap.put(sid, "HALF_SIBLING_MATERNAL");
-            } else {
-                siblingRelMap.put(sid, "HALF_SIBLING_PATERNAL");
+    /*
+     * Drop cached profiles a change may have altered: the refreshed people's own, and any
+     * that shows one of them or one of their current relatives (a new child changes its
+     * siblings' profiles through the shared parent), found through {@link #profilesShowing}.
+     * Null means a full reload: drop all.
+     */
+    private void invalidateProfiles(Set<Long> ids) {
+        if (ids == null) {
+            profileCache.invalidateAll();
+            return;
+        }
+        Set<Long> touched = familyGraph.read(g -> {
+            FamilyGraphStore st = g.store();
+            FamilyGraphStore.Adjacency adj = st.adjacency();
+            Set<Long> out = new HashSet<>(ids);
+            for (Long id : ids) {
+                int s = st.slotOf(id);
+                if (s < 0) continue;
+                addIds(out, st, adj.parentSlots, adj.parentOffsets, s);
+                addIds(out, st, adj.childSlots, adj.childOffsets, s);
+                addIds(out, st, adj.spouseSlots, adj.spouseOffsets, s);
+                addIds(out, st, adj.siblingSlots, adj.siblingOffsets, s);
             }
+            return out;
+        });
+        List<Long> stale = new ArrayList<>();
+        for (Long id : touched) {
+            Set<Long> showing = profilesShowing.remove(id);
+            if (showing != null) stale.addAll(showing);
         }
+        profileCache.invalidateAll(stale);
+    }
 
-        // Also check PERSON_SIBLING table (explicit entries with RELATION)
-        // These override column-derived relations since they're the source of truth
-        // (e.g. STEP_SIBLING or FOSTER_SIBLING instead of derived SIBLING/HALF_SIBLING)
-        dsl.select(DSL.field(DSL.name("PERSON_B_ID"), Long.class),
-                   DSL.field(DSL.name("RELATION"), String.class))
-                .from(DSL.table(DSL.name("PERSON_SIBLING")))
-                .where(DSL.field(DSL.name("PERSON_A_ID"), Long.class).eq(personId))
-                .fetch()
-                .forEach(r -> siblingRelMap.put(
-                        r.get(DSL.field(DSL.name("PERSON_B_ID"), Long.class)),
-                        r.get(DSL.field(DSL.name("RELATION"), String.class))));
-        dsl.select(DSL.field(DSL.name("PERSON_A_ID"), Long.class),
-                   DSL.field(DSL.name("RELATION"), String.class))
-                .from(DSL.table(DSL.name("PERSON_SIBLING")))
-                .where(DSL.field(DSL.name("PERSON_B_ID"), Long.class).eq(personId))
-                .fetch()
-                .forEach(r -> siblingRelMap.put(
-                        r.get(DSL.field(DSL.name("PERSON_A_ID"), Long.class)),
-                        r.get(DSL.field(DSL.name("RELATION"), String.class))));
-
-        List<DTOs.PersonRelDto> siblings = new ArrayList<>();
-        // Batch-fetch display names for all siblings in one query
-        Map<Long, String> siblingNames = batchResolveNames(siblingRelMap.keySet());
-        for (var entry : siblingRelMap.entrySet()) {
-            String name = siblingNames.getOrDefault(entry.getKey(), "#" + entry.getKey());
-            siblings.add(DTOs.PersonRelDto.builder()
-                    .personId(entry.getKey())
-                    .displayName(name)
-                    .relation(entry.getValue() != null ? entry.getValue() : "SIBLING")
-                    .build());
+    /*
+     * Link before and after the put: a removal of an older profile for the same id that
+     * runs in between may unlink it, but then the second pass (or the removal's own check
+     * of the cache) keeps the link.
+     */
+    private void cacheProfile(long personId, CachedProfile built) {
+        linkShown(personId, built);
+        profileCache.put(personId, built);
+        linkShown(personId, built);
+    }
+
+    private void linkShown(Long personId, CachedProfile profile) {
+        for (Long id : profile.shows()) {
+            profilesShowing.compute(id, (k, showing) -> {
+                if (showing == null) showing = new HashSet<>();
+                showing.add(personId);
+                return showing;
+            });
         }
+    }
 
-        // Spouses from PERSON_SPOUSE table
-        List<DTOs.PersonRelDto> spouses = new ArrayList<>();
-        dsl.select(DSL.field(DSL.name("SPOUSE_PERSON_ID"), Long.class),
-                   DSL.field(DSL.name("RELATION"), String.class))
-                .from(DSL.table(DSL.name("PERSON_SPOUSE")))
-                .where(DSL.field(DSL.name("PERSON_ID"), Long.class).eq(personId))
-                .fetch()
-                .forEach(r -> spouses.add(relDto(
-                        r.get(DSL.field(DSL.name("SPOUSE_PERSON_ID"), Long.class)),
-                        r.get(DSL.field(DSL.name("RELATION"), String.class)))));
-        dsl.select(DSL.field(DSL.name("PERSON_ID"), Long.class),
-                   DSL.field(DSL.name("RELATION"), String.class))
-                .from(DSL.table(DSL.name("PERSON_SPOUSE")))
-                .where(DSL.field(DSL.name("SPOUSE_PERSON_ID"), Long.class).eq(personId))
-                .fetch()
-                .forEach(r -> spouses.add(relDto(
-                        r.get(DSL.field(DSL.name("PERSON_ID"), Long.class)),
-                        r.get(DSL.field(DSL.name("RELATION"), String.class)))));
-
-        // Children = (inverse of columns) UNION (PERSON_PARENT), deduplicated
-        var childrenViaColumns = dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                        P_PREFIX, P_MIDDLE_NAME, P_SUFFIX, PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH,
-                        PEOPLE.MOTHER_ID, PEOPLE.FATHER_ID)
-                .from(PEOPLE)
-                .where(PEOPLE.MOTHER_ID.eq(personId).or(PEOPLE.FATHER_ID.eq(personId)))
-                .fetch(r -> DTOs.PersonRelDto.builder()
-                        .personId(r.get(PEOPLE.ID))
-                        .displayName(fullDisplayName(
-                                r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX),
-                                r.get(PEOPLE.DATE_OF_BIRTH), r.get(DATE_OF_DEATH)))
-                        .relation("BIOLOGICAL_CHILD")
-                        .build());
+    /* Unlink a removed or replaced profile from the people it showed, unless what is cached now still shows them */
+    private void unlinkShown(Long personId, CachedProfile old) {
+        if (old == null) return;
+        for (Long id : old.shows()) {
+            profilesShowing.computeIfPresent(id, (k, showing) -> {
+                CachedProfile current = profileCache.asMap().get(personId);
+                if (current == null || !current.shows().contains(id)) showing.remove(personId);
+                return showing.isEmpty() ? null : showing;
+            });
+        }
+    }
 
-        var childrenViaPP = dsl.select(PERSON_PARENT.CHILD_PERSON_ID, PERSON_PARENT.RELATION,
-                        PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME, P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
-                        PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH)
-                .from(PERSON_PARENT.join(PEOPLE).on(PEOPLE.ID.eq(PERSON_PARENT.CHILD_PERSON_ID)))
-                .where(PERSON_PARENT.PARENT_PERSON_ID.eq(personId))
-                .and(PERSON_PARENT.VALID_TO.isNull().or(PERSON_PARENT.VALID_TO.ge(DSL.currentLocalDate())))
-                .fetch(r -> {
-                    // Convert the parent-type relation to a child-type relation
-                    String parentRel = r.get(PERSON_PARENT.RELATION);
-                    String childRel;
-                    if (parentRel != null) {
-                        switch (parentRel) {
-                            case "BIOLOGICAL_MOTHER": case "BIOLOGICAL_FATHER":
-                                childRel = "BIOLOGICAL_CHILD"; break;
-                            case "ADOPTIVE_MOTHER": case "ADOPTIVE_FATHER": case "ADOPTIVE_PARENT":
-                                childRel = "ADOPTED_CHILD"; break;
-                            case "STEP_MOTHER": case "STEP_FATHER": case "STEP_PARENT":
-                                childRel = "STEP_CHILD"; break;
-                            case "FOSTER_MOTHER": case "FOSTER_FATHER": case "FOSTER_PARENT":
-                                childRel = "FOSTER_CHILD"; break;
-                            case "GUARDIAN":
-                                childRel = "WARD"; break;
-                            default:
-                                childRel = "CHILD"; break;
-                        }
-                    } else {
-                        childRel = "CHILD";
-                    }
-                    return DTOs.PersonRelDto.builder()
-                        .personId(r.get(PERSON_PARENT.CHILD_PERSON_ID))
-                        .relation(childRel)
-                        .displayName(fullDisplayName(
-                                r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX),
-                                r.get(PEOPLE.DATE_OF_BIRTH), r.get(DATE_OF_DEATH)))
-                        .build();
-                });
-
-        // Merge children lists, dedupe by personId
-        Map<Long, DTOs.PersonRelDto> children = new LinkedHashMap<>();
-        for (var c : childrenViaPP) children.put(c.getPersonId(), c);
-        for (var c : childrenViaColumns) children.putIfAbsent(c.getPersonId(), c);
-
-        String display = fullDisplayName(
-                p.get(P_PREFIX), p.get(PEOPLE.FIRST_NAME), p.get(P_MIDDLE_NAME),
-                p.get(PEOPLE.LAST_NAME), p.get(P_SUFFIX),
-                p.get(PEOPLE.DATE_OF_BIRTH), p.get(DATE_OF_DEATH));
-
-        return DTOs.ProfileDto.builder()
-                .personId(p.get(PEOPLE.ID))
-                .displayName(display)
-                .prefix(p.get(P_PREFIX))
-                .firstName(p.get(PEOPLE.FIRST_NAME))
-                .middleName(p.get(P_MIDDLE_NAME))
-                .lastName(p.get(PEOPLE.LAST_NAME))
-                .suffix(p.get(P_SUFFIX))
-                .dateOfBirth(p.get(PEOPLE.DATE_OF_BIRTH))
-                .dateOfDeath(p.get(DATE_OF_DEATH))
-                .deceased(Boolean.TRUE.equals(p.get(IS_DECEASED)) || p.get(DATE_OF_DEATH) != null)
-                .motherId(p.get(PEOPLE.MOTHER_ID))
-                .fatherId(p.get(PEOPLE.FATHER_ID))
-                .bio(p.get(P_BIO))
-                .location(p.get(P_LOCATION))
-                .profilePictureUrl(p.get(P_PROFILE_PICTURE_URL))
-                .bannerImageUrl(p.get(P_BANNER_IMAGE_URL))
-                .hasAccount(user != null)
-                .username(user != null ? user.get(USERS.USERNAME) : null)
-                .parents(parents)
-                .children(new ArrayList<>(children.values()))
-                .siblings(siblings)
-                .spouses(spouses)
-                .build();
+    private static void addIds(Set<Long> out, FamilyGraphStore st, int[] slots, int[] offsets, int s) {
+        for (int k = offsets[s]; k < offsets[s + 1]; k++) out.add(st.id(slots[k]));
     }
 
     @Transactional
@@ -440,6 +478,7 @@ public class PeopleService {
                     .execute();
         }
 
+        familyGraph.refresh(childId, parentId);
         return childId;
     }
 
@@ -491,6 +530,7 @@ public class PeopleService {
             update = update.set(P_LOCATION, req.getLocation().trim().isEmpty() ? null : req.getLocation().trim());
 
         update.where(PEOPLE.ID.eq(personId)).execute();
+        familyGraph.refresh(personId);
     }
 
     /**
@@ -503,6 +543,7 @@ public class PeopleService {
                 .set(IS_DECEASED, deceased)
                 .where(PEOPLE.ID.eq(personId))
                 .execute();
+        familyGraph.refresh(personId);
     }
 
     /**
@@ -515,111 +556,39 @@ public class PeopleService {
     }
 
     /**
-     * Search for PEOPLE records matching first+last name that do NOT have a linked user account.
-     * Used during signup to support profile claiming.
+     * Unclaimed PEOPLE records (no linked user account, living, not archived) whose names
+     * match first+last, allowing misspellings ("Scot"/"Scott", "Katherine"/"Catherine").
+     * Used during signup to support profile claiming; see {@link PersonMatcher}.
      */
     public List<DTOs.PersonSummaryDto> searchUnclaimed(String firstName, String lastName) {
         if (firstName == null || firstName.isBlank()) return List.of();
-
-        Condition cond = PEOPLE.FIRST_NAME.likeIgnoreCase("%" + firstName.trim() + "%");
-        if (lastName != null && !lastName.isBlank()) {
-            cond = cond.and(PEOPLE.LAST_NAME.likeIgnoreCase("%" + lastName.trim() + "%"));
-        }
-        // Exclude people who already have a linked user
-        cond = cond.andNotExists(
-                DSL.selectOne().from(USERS).where(USERS.PERSON_ID.eq(PEOPLE.ID))
-        );
-        // Exclude deceased people — they shouldn't be claimable
-        cond = cond.and(
-                IS_DECEASED.isNull().or(IS_DECEASED.eq(false))
-        ).and(
-                DATE_OF_DEATH.isNull()
-        );
-        // Exclude archived profiles
-        cond = cond.and(IS_ARCHIVED.isNull().or(IS_ARCHIVED.eq(false)));
-
-        return dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                        P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
-                        PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH, IS_DECEASED)
-                .from(PEOPLE)
-                .where(cond)
-                .orderBy(PEOPLE.LAST_NAME.asc(), PEOPLE.FIRST_NAME.asc())
-                .limit(10)
-                .fetch(r -> {
-                    LocalDate dob = r.get(PEOPLE.DATE_OF_BIRTH);
-                    LocalDate dod = r.get(DATE_OF_DEATH);
-                    boolean isDeceased = Boolean.TRUE.equals(r.get(IS_DECEASED)) || dod != null;
-                    return DTOs.PersonSummaryDto.builder()
-                            .personId(r.get(PEOPLE.ID))
-                            .displayName(fullDisplayName(
-                                    r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                    r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX), dob, dod))
-                            .dateOfBirth(Optional.ofNullable(dob).map(LocalDate::toString).orElse(null))
-                            .dateOfDeath(dod != null ? dod.toString() : null)
-                            .deceased(isDeceased)
-                            .build();
-                });
+        return personMatcher.find(new PersonMatcher.Query(firstName, lastName, null, 0),
+                PersonMatcher.Filter.UNCLAIMED, 10);
     }
 
     /**
      * Search for ARCHIVED, living PEOPLE records matching first+last name + DOB.
      * These are profiles from genealogy imports that may belong to living elders.
-     * Requires name + DOB match to surface, and claims always require admin approval.
+     * Requires a name match and a DOB within {@link #ARCHIVED_DOB_TOLERANCE_DAYS} (or with
+     * day and month swapped) to surface, and claims always require admin approval.
      */
     public List<DTOs.PersonSummaryDto> searchUnclaimedArchived(String firstName, String lastName, LocalDate dateOfBirth) {
         if (firstName == null || firstName.isBlank()) return List.of();
         if (dateOfBirth == null) return List.of(); // DOB required to match archived profiles
 
-        Condition cond = PEOPLE.FIRST_NAME.likeIgnoreCase("%" + firstName.trim() + "%");
-        if (lastName != null && !lastName.isBlank()) {
-            cond = cond.and(PEOPLE.LAST_NAME.likeIgnoreCase("%" + lastName.trim() + "%"));
-        }
-        // Must match DOB exactly
-        cond = cond.and(PEOPLE.DATE_OF_BIRTH.eq(dateOfBirth));
-        // Must be archived
-        cond = cond.and(IS_ARCHIVED.eq(true));
-        // Must be living (not deceased)
-        cond = cond.and(IS_DECEASED.isNull().or(IS_DECEASED.eq(false)))
-                   .and(DATE_OF_DEATH.isNull());
-        // Must not already be linked to a user
-        cond = cond.andNotExists(
-                DSL.selectOne().from(USERS).where(USERS.PERSON_ID.eq(PEOPLE.ID))
-        );
-
-        return dsl.select(PEOPLE.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                        P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
-                        PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH, IS_DECEASED)
-                .from(PEOPLE)
-                .where(cond)
-                .orderBy(PEOPLE.LAST_NAME.asc(), PEOPLE.FIRST_NAME.asc())
-                .limit(5)
-                .fetch(r -> {
-                    LocalDate dob = r.get(PEOPLE.DATE_OF_BIRTH);
-                    LocalDate dod = r.get(DATE_OF_DEATH);
-                    boolean isDeceased = Boolean.TRUE.equals(r.get(IS_DECEASED)) || dod != null;
-                    return DTOs.PersonSummaryDto.builder()
-                            .personId(r.get(PEOPLE.ID))
-                            .displayName(fullDisplayName(
-                                    r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                    r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX), dob, dod))
-                            .dateOfBirth(Optional.ofNullable(dob).map(LocalDate::toString).orElse(null))
-                            .dateOfDeath(dod != null ? dod.toString() : null)
-                            .deceased(isDeceased)
-                            .archived(true)
-                            .build();
-                });
+        // An archived profile without a DOB can't be confirmed by one, so it isn't offered
+        return personMatcher.find(new PersonMatcher.Query(firstName, lastName, dateOfBirth, ARCHIVED_DOB_TOLERANCE_DAYS),
+                        PersonMatcher.Filter.UNCLAIMED_ARCHIVED, 5).stream()
+                .filter(p -> p.getDateOfBirth() != null)
+                .toList();
     }
 
 
-    private DTOs.PersonRelDto relDto(Long personId, String relation) {
-        var r = dsl.select(PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME,
-                        P_PREFIX, P_MIDDLE_NAME, P_SUFFIX,
-                        PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH)
-                .from(PEOPLE).where(PEOPLE.ID.eq(personId)).fetchOne();
-        String name = r != null
-                ? fullDisplayName(r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                        r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX),
-                        r.get(PEOPLE.DATE_OF_BIRTH), r.get(DATE_OF_DEATH))
+    private static DTOs.PersonRelDto relDto(FamilyGraphStore st, long personId, String relation) {
+        int s = st.slotOf(personId);
+        String name = s >= 0
+                ? fullDisplayName(st.prefix(s), st.firstName(s), st.middleName(s), st.lastName(s), st.suffix(s),
+                        st.dateOfBirth(s), st.dateOfDeath(s))
                 : ("#" + personId);
         return DTOs.PersonRelDto.builder()
                 .personId(personId)
@@ -628,25 +597,6 @@ public class PeopleService {
                 .build();
     }
 
-    /**
-     * Batch-fetch display names for multiple person IDs in a single query.
-     * Returns a map of personId → display name. Missing IDs get "#<id>" placeholder.
-     */
-    private Map<Long, String> batchResolveNames(Collection<Long> personIds) {
-        if (personIds == null || personIds.isEmpty()) return Map.of();
-        Map<Long, String> names = new HashMap<>();
-        dsl.select(PEOPLE.ID, P_PREFIX, PEOPLE.FIRST_NAME, P_MIDDLE_NAME,
-                        PEOPLE.LAST_NAME, P_SUFFIX, PEOPLE.DATE_OF_BIRTH, DATE_OF_DEATH)
-                .from(PEOPLE)
-                .where(PEOPLE.ID.in(personIds))
-                .fetch()
-                .forEach(r -> names.put(r.get(PEOPLE.ID),
-                        fullDisplayName(r.get(P_PREFIX), r.get(PEOPLE.FIRST_NAME), r.get(P_MIDDLE_NAME),
-                                r.get(PEOPLE.LAST_NAME), r.get(P_SUFFIX),
-                                r.get(PEOPLE.DATE_OF_BIRTH), r.get(DATE_OF_DEATH))));
-        return names;
-    }
-
     /** Upsert a row in PERSON_PARENT (childId → parentId with given relation). */
     private void upsertPersonParent(Long childId, Long parentId, String relation) {
         boolean exists = dsl.fetchExists(
@@ -0,0 +1,190 @@
+package com.scottfamily.scottfamily.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.springframework.stereotype.Service;
+
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Fuzzy person matching, for profile claims at signup and duplicate detection.
+ *
+ * Candidates come from the graph's phonetic blocks ({@link FamilyGraphStore#phoneticCandidates}),
+ * so nothing scans PEOPLE. Each is scored 0–1: first and last names by edit distance
+ * (optimal string alignment, so a transposition costs one edit), lifted to 0.9 when the
+ * Double Metaphone codes agree; then, when both dates of birth are known, blended with a
+ * date score. Dates further apart than the query's tolerance rule the candidate out; a
+ * swapped day and month counts as nearly exact.
+ */
+@Service
+@RequiredArgsConstructor
+public class PersonMatcher {
+
+    /** Scores below this aren't returned. */
+    public static final double MIN_SCORE = 0.8;
+
+    private static final double PHONETIC_FLOOR = 0.9;
+    private static final double FIRST_WEIGHT = 0.4, LAST_WEIGHT = 0.6, DOB_WEIGHT = 0.15;
+    private static final DoubleMetaphone METAPHONE = new DoubleMetaphone();
+
+    private final FamilyGraph graph;
+
+    /**
+     * What to match. {@code dateOfBirth} may be null; {@code dobToleranceDays} bounds how
+     * far a known date may be from a candidate's known date.
+     */
+    public record Query(String firstName, String lastName, LocalDate dateOfBirth, int dobToleranceDays) {}
+
+    /** Which people may be returned; tested against the store under the graph read lock. */
+    @FunctionalInterface
+    public interface Filter {
+        boolean test(FamilyGraphStore st, int slot);
+
+        /** Anyone in PEOPLE. */
+        Filter ANY = (st, s) -> true;
+        /** Claimable at signup: no linked account (pending or approved), living, not archived. */
+        Filter UNCLAIMED = (st, s) -> st.userId(s) == FamilyGraphStore.NONE && !st.isDeceased(s) && !st.isArchived(s);
+        /** Archived but living and unlinked: claimable by elders, with admin approval. */
+        Filter UNCLAIMED_ARCHIVED = (st, s) -> st.userId(s) == FamilyGraphStore.NONE && !st.isDeceased(s) && st.isArchived(s);
+    }
+
+    /** The best {@code limit} matches, highest score first, as summaries carrying {@code matchScore}. */
+    public List<DTOs.PersonSummaryDto> find(Query q, Filter filter, int limit) {
+        return find(q, filter, limit, FamilyGraphStore.NONE);
+    }
+
+    /** As {@link #find(Query, Filter, int)}, leaving out {@code excludePersonId} (e.g. the person being checked). */
+    public List<DTOs.PersonSummaryDto> find(Query q, Filter filter, int limit, long excludePersonId) {
+        String first = FamilyGraphStore.normalizeName(q.firstName());
+        String last = FamilyGraphStore.normalizeName(q.lastName());
+        if (first.isEmpty() || limit <= 0) return List.of();
+
+        return graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            record Scored(int slot, double score) {}
+            List<Scored> hits = new ArrayList<>();
+            for (int s : st.phoneticCandidates(q.firstName(), q.lastName())) {
+                if (st.id(s) == excludePersonId || !filter.test(st, s)) continue;
+                double score = score(first, last, q.dateOfBirth(), q.dobToleranceDays(),
+                        FamilyGraphStore.normalizeName(st.firstName(s)), FamilyGraphStore.normalizeName(st.lastName(s)),
+                        st.dateOfBirth(s));
+                if (score >= MIN_SCORE) hits.add(new Scored(s, score));
+            }
+            hits.sort(Comparator.comparingDouble(Scored::score).reversed().thenComparingLong(h -> st.id(h.slot())));
+
+            List<DTOs.PersonSummaryDto> out = new ArrayList<>(Math.min(limit, hits.size()));
+            for (Scored h : hits.subList(0, Math.min(limit, hits.size()))) out.add(summary(st, h.slot(), h.score()));
+            return out;
+        });
+    }
+
+    /** People who may be the same as {@code personId}: same-sounding names, dates of birth within tolerance. */
+    public List<DTOs.PersonSummaryDto> similarTo(long personId, int dobToleranceDays, int limit) {
+        Query q = graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            int s = st.slotOf(personId);
+            if (s < 0) throw new NoSuchElementException("Person not found: " + personId);
+            return new Query(st.firstName(s), st.lastName(s), st.dateOfBirth(s), dobToleranceDays);
+        });
+        return find(q, Filter.ANY, limit, personId);
+    }
+
+    /** Summary of the person in {@code slot}, with {@code score} (rounded to 0.001) as its match score. */
+    static DTOs.PersonSummaryDto summary(FamilyGraphStore st, int s, double score) {
+        LocalDate dob = st.dateOfBirth(s);
+        LocalDate dod = st.dateOfDeath(s);
+        return DTOs.PersonSummaryDto.builder()
+                .personId(st.id(s))
+                .displayName(PeopleService.fullDisplayName(
+                        st.prefix(s), st.firstName(s), st.middleName(s), st.lastName(s), st.suffix(s), dob, dod))
+                .dateOfBirth(dob != null ? dob.toString() : null)
+                .dateOfDeath(dod != null ? dod.toString() : null)
+                .deceased(st.isDeceased(s))
+                .archived(st.isArchived(s))
+                .profilePictureUrl(st.avatarUrl(s))
+                .username(st.username(s))
+                .matchScore(Math.round(score * 1000) / 1000.0)
+                .build();
+    }
+
+    /** The two names are equal (ignoring case and accents) or sound alike (Double Metaphone). */
+    public static boolean sameName(String a, String b) {
+        String x = FamilyGraphStore.normalizeName(a), y = FamilyGraphStore.normalizeName(b);
+        return !x.isEmpty() && (x.equals(y) || soundAlike(x, y));
+    }
+
+    /* ============================================================
+     * Scoring (names already normalized)
+     * ============================================================ */
+
+    static double score(String qFirst, String qLast, LocalDate qDob, int toleranceDays,
+                        String first, String last, LocalDate dob) {
+        double name = qLast.isEmpty()
+                ? part(qFirst, first)
+                : FIRST_WEIGHT * part(qFirst, first) + LAST_WEIGHT * part(qLast, last);
+        if (qDob == null || dob == null) return name;
+
+        double date;
+        long days = Math.abs(ChronoUnit.DAYS.between(qDob, dob));
+        if (days == 0) {
+            date = 1.0;
+        } else if (qDob.getYear() == dob.getYear() && qDob.getMonthValue() == dob.getDayOfMonth()
+                && qDob.getDayOfMonth() == dob.getMonthValue()) {
+            date = 0.9;                                     // day and month swapped
+        } else if (days <= toleranceDays) {
+            date = 0.8 - 0.3 * days / Math.max(1, toleranceDays);
+        } else {
+            return 0;
+        }
+        return (1 - DOB_WEIGHT) * name + DOB_WEIGHT * date;
+    }
+
+    private static double part(String a, String b) {
+        if (a.equals(b)) return 1.0;
+        if (b.isEmpty()) return 0.0;
+        double sim = 1.0 - (double) osaDistance(a, b) / Math.max(a.length(), b.length());
+        if (sim < PHONETIC_FLOOR && soundAlike(a, b)) sim = PHONETIC_FLOOR;
+        return sim;
+    }
+
+    /* Any of a's two Double Metaphone codes equals any of b's */
+    private static boolean soundAlike(String a, String b) {
+        String x = a.replace(" ", ""), y = b.replace(" ", "");
+        String x1 = METAPHONE.doubleMetaphone(x), x2 = METAPHONE.doubleMetaphone(x, true);
+        String y1 = METAPHONE.doubleMetaphone(y), y2 = METAPHONE.doubleMetaphone(y, true);
+        return nonEmptyEquals(x1, y1) || nonEmptyEquals(x1, y2) || nonEmptyEquals(x2, y1) || nonEmptyEquals(x2, y2);
+    }
+
+    private static boolean nonEmptyEquals(String a, String b) {
+        return a != null && !a.isEmpty() && a.equals(b);
+    }
+
+    /* Levenshtein distance plus adjacent transpositions (optimal string alignment), three rows of memory */
+    private static int osaDistance(String a, String b) {
+        int n = a.length(), m = b.length();
+        int[] prev2 = new int[m + 1], prev = new int[m + 1], cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+            }
+            int[] t = prev2; prev2 = prev; prev = cur; cur = t;
+        }
+        return prev[m];
+    }
+}
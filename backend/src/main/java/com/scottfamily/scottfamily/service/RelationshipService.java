@@ -0,0 +1,402 @@
+package com.scottfamily.scottfamily.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.stereotype.Service;
+import lombok.RequiredArgsConstructor;
+import com.scottfamily.scottfamily.dto.DTOs;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+import com.scottfamily.scottfamily.graph.FamilyGraphStore;
+
+/**
+ * "How is X related to Y", answered from the resident {@link FamilyGraph} — no SQL.
+ *
+ * <ul>
+ *   <li>The path is a bidirectional BFS over parent, child, spouse and explicit sibling
+ *       edges (MOTHER_ID/FATHER_ID, PERSON_PARENT, PERSON_SPOUSE, PERSON_SIBLING).</li>
+ *   <li>The label comes from the lowest common ancestors along lineage edges only:
+ *       biological and adoptive parents count, step/foster/guardian links do not, so a
+ *       step-parent's relatives are not reported as cousins.</li>
+ *   <li>When there is no common ancestor, one marriage hop on either side is tried
+ *       (sister-in-law, spouse's grandfather, …).</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+public class RelationshipService {
+    private final FamilyGraph graph;
+
+    /** Longest path searched for; people further apart are reported as unrelated. */
+    private static final int MAX_PATH = 40;
+
+    private static final int E_PARENT = 1, E_CHILD = 2, E_SPOUSE = 3, E_SIBLING = 4;
+    private static final String[] EDGE_NAMES = { null, "PARENT", "CHILD", "SPOUSE", "SIBLING" };
+    private static final int EDGE_SHIFT = 28, SLOT_MASK = (1 << EDGE_SHIFT) - 1;
+
+    private static final char FEMALE = 'F', MALE = 'M', UNKNOWN = '?';
+
+    /** What {@code otherPersonId} is to {@code personId}, with the connecting path. */
+    public DTOs.RelationshipDto relationship(long personId, long otherPersonId) {
+        return graph.read(g -> {
+            FamilyGraphStore st = g.store();
+            int a = st.slotOf(personId);
+            int b = st.slotOf(otherPersonId);
+            if (a < 0) throw new NoSuchElementException("Person not found: " + personId);
+            if (b < 0) throw new NoSuchElementException("Person not found: " + otherPersonId);
+            FamilyGraphStore.Adjacency adj = st.adjacency();
+
+            List<DTOs.KinshipStepDto> path = shortestPath(st, adj, a, b);
+            if (a == b) {
+                return new DTOs.RelationshipDto(personId, otherPersonId, "self", "SELF", path, List.of());
+            }
+
+            // Spouses first: it's the answer people expect even if they are also distant cousins
+            for (int i = adj.spouseOffsets[a]; i < adj.spouseOffsets[a + 1]; i++) {
+                if (adj.spouseSlots[i] == b) {
+                    String label = gendered(sex(st, adj, b), "wife", "husband", "spouse");
+                    return new DTOs.RelationshipDto(personId, otherPersonId, label, "SPOUSE", path, List.of());
+                }
+            }
+
+            Map<Integer, Integer> upA = ancestors(st, adj, a);
+            Kin blood = kin(st, adj, upA, b);
+            if (blood != null) {
+                List<DTOs.CommonAncestorDto> lcas = new ArrayList<>(blood.lowest().size());
+                for (int[] l : blood.lowest()) {
+                    lcas.add(new DTOs.CommonAncestorDto(st.id(l[0]), displayName(st, l[0]), l[1], l[2]));
+                }
+                String label = label(blood.up(), blood.down(), blood.half(), sex(st, adj, b));
+                return new DTOs.RelationshipDto(personId, otherPersonId, label, "BLOOD", path, lcas);
+            }
+
+            String inLaw = inLawLabel(st, adj, a, b, upA);
+            if (inLaw != null) {
+                return new DTOs.RelationshipDto(personId, otherPersonId, inLaw, "IN_LAW", path, List.of());
+            }
+            if (!path.isEmpty()) {
+                return new DTOs.RelationshipDto(personId, otherPersonId, "related by marriage", "CONNECTED", path, List.of());
+            }
+            return new DTOs.RelationshipDto(personId, otherPersonId, "not related", "NONE", List.of(), List.of());
+        });
+    }
+
+    /* ============================================================
+     * Shortest path (bidirectional BFS)
+     * ============================================================ */
+
+    /*
+     * Each side records, per slot, the predecessor (slot + 1, 0 = unvisited) with the edge
+     * type packed into the top bits. The smaller frontier is expanded one full level at a
+     * time; among all meeting points found in that level the one with the shortest total
+     * path wins, which keeps the result a true shortest path.
+     */
+    private static List<DTOs.KinshipStepDto> shortestPath(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, int a, int b) {
+        if (a == b) return List.of(new DTOs.KinshipStepDto(st.id(a), displayName(st, a), null));
+
+        int n = st.slotLimit();
+        int[] prevA = new int[n];
+        int[] prevB = new int[n];
+        prevA[a] = a + 1;
+        prevB[b] = b + 1;
+        int[] frontA = { a }, frontB = { b };
+        int sizeA = 1, sizeB = 1;
+        int meet = -1;
+
+        for (int hops = 0; hops < MAX_PATH && sizeA > 0 && sizeB > 0 && meet < 0; hops++) {
+            boolean forward = sizeA <= sizeB;
+            int[] front = forward ? frontA : frontB;
+            int size = forward ? sizeA : sizeB;
+            int[] mine = forward ? prevA : prevB;
+            int[] theirs = forward ? prevB : prevA;
+
+            int[] next = new int[Math.max(16, size * 4)];
+            int nextSize = 0;
+            int best = Integer.MAX_VALUE;
+            for (int f = 0; f < size; f++) {
+                int u = front[f];
+                for (int e = E_PARENT; e <= E_SIBLING; e++) {
+                    int[] off = offsets(adj, e), targets = targets(adj, e);
+                    for (int i = off[u]; i < off[u + 1]; i++) {
+                        int v = targets[i];
+                        if (mine[v] != 0) continue;
+                        mine[v] = (e << EDGE_SHIFT) | (u + 1);
+                        if (nextSize == next.length) next = Arrays.copyOf(next, nextSize * 2);
+                        next[nextSize++] = v;
+                        if (theirs[v] != 0) {
+                            int len = chainLength(prevA, v) + chainLength(prevB, v);
+                            if (len < best) { best = len; meet = v; }
+                        }
+                    }
+                }
+            }
+            if (forward) { frontA = next; sizeA = nextSize; } else { frontB = next; sizeB = nextSize; }
+        }
+        if (meet < 0) return List.of();
+
+        // a … meet: walk prevA back, then reverse
+        List<DTOs.KinshipStepDto> path = new ArrayList<>();
+        ArrayDeque<int[]> head = new ArrayDeque<>();
+        for (int v = meet; v != a; ) {
+            int p = prevA[v];
+            head.push(new int[] { v, p >>> EDGE_SHIFT });
+            v = (p & SLOT_MASK) - 1;
+        }
+        path.add(new DTOs.KinshipStepDto(st.id(a), displayName(st, a), null));
+        for (int[] h : head) path.add(new DTOs.KinshipStepDto(st.id(h[0]), displayName(st, h[0]), EDGE_NAMES[h[1]]));
+
+        // meet … b: prevB points towards b; the recorded edge is inverted for this direction
+        for (int v = meet; v != b; ) {
+            int p = prevB[v];
+            int w = (p & SLOT_MASK) - 1;
+            path.add(new DTOs.KinshipStepDto(st.id(w), displayName(st, w), EDGE_NAMES[inverse(p >>> EDGE_SHIFT)]));
+            v = w;
+        }
+        return path;
+    }
+
+    private static int chainLength(int[] prev, int v) {
+        int len = 0;
+        while (true) {
+            int p = (prev[v] & SLOT_MASK) - 1;
+            if (p == v) return len;
+            v = p;
+            len++;
+        }
+    }
+
+    private static int inverse(int edge) {
+        return switch (edge) {
+            case E_PARENT -> E_CHILD;
+            case E_CHILD -> E_PARENT;
+            default -> edge;
+        };
+    }
+
+    private static int[] offsets(FamilyGraphStore.Adjacency adj, int edge) {
+        return switch (edge) {
+            case E_PARENT -> adj.parentOffsets;
+            case E_CHILD -> adj.childOffsets;
+            case E_SPOUSE -> adj.spouseOffsets;
+            default -> adj.siblingOffsets;
+        };
+    }
+
+    private static int[] targets(FamilyGraphStore.Adjacency adj, int edge) {
+        return switch (edge) {
+            case E_PARENT -> adj.parentSlots;
+            case E_CHILD -> adj.childSlots;
+            case E_SPOUSE -> adj.spouseSlots;
+            default -> adj.siblingSlots;
+        };
+    }
+
+    /* ============================================================
+     * Common ancestors
+     * ============================================================ */
+
+    /**
+     * Blood relation of {@code b} to the person whose ancestors are {@code upA}.
+     * {@code up}/{@code down} are the generations from each side to the closest LCA;
+     * {@code lowest} holds every LCA as {slot, generationsFromA, generationsFromB}.
+     */
+    private record Kin(int up, int down, boolean half, List<int[]> lowest) {}
+
+    private static Kin kin(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, Map<Integer, Integer> upA, int b) {
+        Map<Integer, Integer> upB = ancestors(st, adj, b);
+        Map<Integer, Integer> common = new HashMap<>();
+        for (var e : upB.entrySet()) {
+            if (upA.containsKey(e.getKey())) common.put(e.getKey(), e.getValue());
+        }
+        if (common.isEmpty()) return null;
+
+        // Lowest = common ancestors none of whose lineage children is also a common ancestor
+        List<int[]> lowest = new ArrayList<>();
+        for (int c : common.keySet()) {
+            boolean hasCommonChild = false;
+            for (int i = adj.childOffsets[c]; i < adj.childOffsets[c + 1] && !hasCommonChild; i++) {
+                if (st.isLineage(adj.childCodes[i]) && common.containsKey(adj.childSlots[i])) hasCommonChild = true;
+            }
+            if (!hasCommonChild) lowest.add(new int[] { c, upA.get(c), common.get(c) });
+        }
+        lowest.sort(Comparator.<int[]>comparingInt(l -> l[1] + l[2])
+                .thenComparingInt(l -> Math.min(l[1], l[2]))
+                .thenComparingLong(l -> st.id(l[0])));
+
+        int[] best = lowest.get(0);
+        int up = best[1], down = best[2];
+
+        // Half relation: the two branches descend from different children of a single LCA,
+        // and both of those children have a second recorded parent that differs.
+        boolean half = false;
+        if (up >= 1 && down >= 1) {
+            int sameLevel = 0;
+            for (int[] l : lowest) if (l[1] == up && l[2] == down) sameLevel++;
+            if (sameLevel == 1) {
+                int x = branchChild(st, adj, best[0], upA, up - 1);
+                int y = branchChild(st, adj, best[0], upB, down - 1);
+                half = x >= 0 && y >= 0 && lineageParentCount(st, adj, x) >= 2 && lineageParentCount(st, adj, y) >= 2;
+            }
+        }
+        return new Kin(up, down, half, lowest);
+    }
+
+    /** Lineage ancestors of {@code slot} (including itself at 0) → fewest generations up. */
+    private static Map<Integer, Integer> ancestors(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, int slot) {
+        Map<Integer, Integer> depth = new HashMap<>();
+        depth.put(slot, 0);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(slot);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            int d = depth.get(u);
+            if (d >= MAX_PATH) continue;
+            for (int i = adj.parentOffsets[u]; i < adj.parentOffsets[u + 1]; i++) {
+                int p = adj.parentSlots[i];
+                if (!st.isLineage(adj.parentCodes[i]) || depth.containsKey(p)) continue;
+                depth.put(p, d + 1);
+                queue.add(p);
+            }
+        }
+        return depth;
+    }
+
+    /** The lineage child of {@code lca} that lies on the branch at {@code depth} generations from the person. */
+    private static int branchChild(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, int lca,
+                                   Map<Integer, Integer> up, int depth) {
+        for (int i = adj.childOffsets[lca]; i < adj.childOffsets[lca + 1]; i++) {
+            int c = adj.childSlots[i];
+            Integer d = up.get(c);
+            if (d != null && d == depth && st.isLineage(adj.childCodes[i])) return c;
+        }
+        return -1;
+    }
+
+    private static int lineageParentCount(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, int slot) {
+        int count = 0;
+        for (int i = adj.parentOffsets[slot]; i < adj.parentOffsets[slot + 1]; i++) {
+            if (st.isLineage(adj.parentCodes[i])) count++;
+        }
+        return count;
+    }
+
+    /* ============================================================
+     * In-laws
+     * ============================================================ */
+
+    private static String inLawLabel(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, int a, int b,
+                                     Map<Integer, Integer> upA) {
+        char sexB = sex(st, adj, b);
+
+        // b is the spouse of one of a's blood relatives
+        for (int i = adj.spouseOffsets[b]; i < adj.spouseOffsets[b + 1]; i++) {
+            int s = adj.spouseSlots[i];
+            if (s == a) continue;
+            Kin k = kin(st, adj, upA, s);
+            if (k == null) continue;
+            if (k.up() == 1 && k.down() == 1) return gendered(sexB, "sister-in-law", "brother-in-law", "sibling-in-law");
+            if (k.up() == 0 && k.down() == 1) return gendered(sexB, "daughter-in-law", "son-in-law", "child-in-law");
+            if (k.up() == 1 && k.down() == 0) return gendered(sexB, "stepmother", "stepfather", "stepparent");
+            return "spouse of " + label(k.up(), k.down(), k.half(), sex(st, adj, s));
+        }
+
+        // b is a blood relative of a's spouse
+        for (int i = adj.spouseOffsets[a]; i < adj.spouseOffsets[a + 1]; i++) {
+            int s = adj.spouseSlots[i];
+            Kin k = kin(st, adj, ancestors(st, adj, s), b);
+            if (k == null) continue;
+            if (k.up() == 1 && k.down() == 0) return gendered(sexB, "mother-in-law", "father-in-law", "parent-in-law");
+            if (k.up() == 1 && k.down() == 1) return gendered(sexB, "sister-in-law", "brother-in-law", "sibling-in-law");
+            if (k.up() == 0 && k.down() == 1) return gendered(sexB, "stepdaughter", "stepson", "stepchild");
+            return "spouse's " + label(k.up(), k.down(), k.half(), sexB);
+        }
+        return null;
+    }
+
+    /* ============================================================
+     * Labels
+     * ============================================================ */
+
+    /**
+     * Kinship term for someone {@code down} generations below the LCA, seen from someone
+     * {@code up} generations below it (standard cousin/removal arithmetic).
+     */
+    static String label(int up, int down, boolean half, char sex) {
+        String h = half ? "half-" : "";
+        if (up == 0 && down == 0) return "self";
+        if (down == 0) {        // direct ancestor
+            if (up == 1) return gendered(sex, "mother", "father", "parent");
+            return greats(up - 2) + "grand" + gendered(sex, "mother", "father", "parent");
+        }
+        if (up == 0) {          // direct descendant
+            if (down == 1) return gendered(sex, "daughter", "son", "child");
+            return greats(down - 2) + "grand" + gendered(sex, "daughter", "son", "child");
+        }
+        if (up == 1 && down == 1) return h + gendered(sex, "sister", "brother", "sibling");
+        if (up == 1) {          // descendant of a sibling
+            String base = gendered(sex, "niece", "nephew", "niece/nephew");
+            return h + (down == 2 ? base : greats(down - 3) + "grand" + base);
+        }
+        if (down == 1) {        // sibling of an ancestor
+            return h + greats(up - 2) + gendered(sex, "aunt", "uncle", "aunt/uncle");
+        }
+        int degree = Math.min(up, down) - 1;
+        int removed = Math.abs(up - down);
+        String cousin = h + ordinalWord(degree) + " cousin";
+        return switch (removed) {
+            case 0 -> cousin;
+            case 1 -> cousin + " once removed";
+            case 2 -> cousin + " twice removed";
+            default -> cousin + " " + removed + " times removed";
+        };
+    }
+
+    /** "", "great-", "2nd great-", "3rd great-", … */
+    private static String greats(int n) {
+        if (n <= 0) return "";
+        if (n == 1) return "great-";
+        return ordinal(n) + " great-";
+    }
+
+    private static String ordinalWord(int n) {
+        String[] words = { "zeroth", "first", "second", "third", "fourth", "fifth",
+                "sixth", "seventh", "eighth", "ninth", "tenth" };
+        return n < words.length ? words[n] : ordinal(n);
+    }
+
+    private static String ordinal(int n) {
+        int mod100 = n % 100;
+        String suffix = (mod100 >= 11 && mod100 <= 13) ? "th" : switch (n % 10) {
+            case 1 -> "st";
+            case 2 -> "nd";
+            case 3 -> "rd";
+            default -> "th";
+        };
+        return n + suffix;
+    }
+
+    private static String gendered(char sex, String female, String male, String neutral) {
+        return sex == FEMALE ? female : sex == MALE ? male : neutral;
+    }
+
+    /* PEOPLE has no sex column; infer it from being recorded as someone's mother or father. */
+    private static char sex(FamilyGraphStore st, FamilyGraphStore.Adjacency adj, int slot) {
+        for (int i = adj.childOffsets[slot]; i < adj.childOffsets[slot + 1]; i++) {
+            String rel = st.relationName(adj.childCodes[i]);
+            if (rel == null) continue;
+            if (rel.endsWith("MOTHER")) return FEMALE;
+            if (rel.endsWith("FATHER")) return MALE;
+        }
+        return UNKNOWN;
+    }
+
+    private static String displayName(FamilyGraphStore st, int slot) {
+        return DTOs.buildDisplayName(null, st.firstName(slot), st.middleName(slot), st.lastName(slot), null);
+    }
+}
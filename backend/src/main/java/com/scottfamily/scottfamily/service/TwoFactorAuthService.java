@@ -1,24 +1,71 @@
 package com.scottfamily.scottfamily.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertValuesStep3;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import static com.yourproject.generated.scott_family_web.Tables.USERS;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.scottfamily.scottfamily.security.BoundedPasswordEncoder;
+import com.scottfamily.scottfamily.security.SecretCipher;
+import com.scottfamily.scottfamily.security.Totp;
+import com.scottfamily.scottfamily.security.UserSecurityCache;
+import com.scottfamily.scottfamily.security.UserSecurityCache.UserSecurity;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * SMS-based two-factor authentication with backup code support.
+ * Two-factor authentication: an authenticator app (RFC 6238 TOTP) or SMS codes, with backup
+ * code support.
+ *
+ * A TOTP login costs one local HMAC, with no network call; SMS stays available as a
+ * fallback for TOTP users who have a phone on file. TOTP codes are accepted one step
+ * either side of now. A step once used can't be used again (TOTP_LAST_STEP, advanced by a
+ * conditional UPDATE), and repeated wrong TOTP codes lock the factor for a few minutes.
+ * Both live on the user's row, so they hold whichever instance serves the request.
+ * TOTP needs these columns on TWO_FACTOR_AUTH:
+ * <pre>
+ * ALTER TABLE TWO_FACTOR_AUTH ADD METHOD VARCHAR(10) NULL;      -- 'SMS' (or null) | 'TOTP'
+ * ALTER TABLE TWO_FACTOR_AUTH ADD TOTP_SECRET VARCHAR(128) NULL;
+ * ALTER TABLE TWO_FACTOR_AUTH ADD TOTP_LAST_STEP BIGINT NULL;
+ * ALTER TABLE TWO_FACTOR_AUTH ADD TOTP_FAILURES INT NULL, TOTP_FAILED_AT DATETIMEOFFSET NULL;
+ * ALTER TABLE TWO_FACTOR_AUTH ADD BACKUP_FAILURES INT NULL, BACKUP_FAILED_AT DATETIMEOFFSET NULL;
+ * </pre>
+ * The secret is stored AES-GCM encrypted under {@code auth.totp.secret-key}, which lives in
+ * the environment, not the database, and bound to its user id (see {@link SecretCipher}).
+ * Enrolment is offered only with {@code auth.totp.enabled}.
+ *
+ * Each backup code is stored as a BCrypt hash plus a lookup tag, an HMAC-SHA256 of the code
+ * under {@code auth.backup-codes.lookup-key}. Verification finds the one candidate row by
+ * (USER_ID, LOOKUP_TAG) and runs a single BCrypt check on it. Schema (managed outside the app):
+ * <pre>
+ * ALTER TABLE TWO_FACTOR_BACKUP_CODES ADD LOOKUP_TAG VARCHAR(64) NULL;
+ * CREATE INDEX IX_TWO_FACTOR_BACKUP_CODES_USER_TAG ON TWO_FACTOR_BACKUP_CODES (USER_ID, LOOKUP_TAG);
+ * </pre>
+ * Codes issued before the column existed have no tag and are still checked one by one
+ * until the user regenerates them. With TOTP enabled both keys are required at startup;
+ * without it a missing lookup key only leaves new codes untagged, to be checked the same
+ * way. Since a wrong code usually costs no BCrypt, repeated
+ * wrong backup codes lock them for a few minutes, counted on TWO_FACTOR_AUTH as with TOTP.
  */
 @Service
 @RequiredArgsConstructor
@@ -27,7 +74,20 @@ public class TwoFactorAuthService {
 
     private final DSLContext dsl;
     private final SmsService smsService;
-    private final PasswordEncoder passwordEncoder;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserSecurityCache userSecurity;
+
+    @Value("${auth.backup-codes.lookup-key:}")
+    private String backupCodeLookupKey;
+
+    @Value("${auth.totp.enabled:false}")
+    private boolean totpEnabled;
+
+    @Value("${auth.totp.secret-key:}")
+    private String totpSecretKey;
+
+    // Null without a key, which only happens with TOTP disabled
+    private SecretCipher totpSecrets;
 
     private static final SecureRandom RANDOM = new SecureRandom();
     private static final int CODE_LENGTH = 6;
@@ -36,6 +96,19 @@ public class TwoFactorAuthService {
     private static final int BACKUP_CODE_COUNT = 10;
     private static final int BACKUP_CODE_LENGTH = 8;
 
+    private static final String METHOD_SMS = "SMS";
+    private static final String METHOD_TOTP = "TOTP";
+    private static final String TOTP_ISSUER = "Scott Family";
+    private static final int TOTP_WINDOW = 1;       // steps either side of now, for clock drift
+    // At MAX_CODE_ATTEMPTS wrong codes a factor is locked until this long after the last one
+    private static final Duration LOCKOUT = Duration.ofMinutes(CODE_EXPIRY_MINUTES);
+
+    // Secrets shown to the user but not yet confirmed with a code
+    private final Cache<Long, String> pendingTotpSecrets = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
     // ── Table references (inline, not in jOOQ codegen) ─────────────────
     private static final org.jooq.Table<?> TFA =
             DSL.table(DSL.name("TWO_FACTOR_AUTH"));
@@ -50,23 +123,58 @@ public class TwoFactorAuthService {
     private static final Field<OffsetDateTime> TFA_CODE_EXPIRES = DSL.field(DSL.name("CODE_EXPIRES_AT"), OffsetDateTime.class);
     private static final Field<Integer> TFA_CODE_ATTEMPTS   = DSL.field(DSL.name("CODE_ATTEMPTS"), Integer.class);
     private static final Field<OffsetDateTime> TFA_UPDATED  = DSL.field(DSL.name("UPDATED_AT"), OffsetDateTime.class);
+    private static final Field<String>  TFA_METHOD          = DSL.field(DSL.name("METHOD"), String.class);
+    private static final Field<String>  TFA_TOTP_SECRET     = DSL.field(DSL.name("TOTP_SECRET"), String.class);
+    private static final Field<Long>    TFA_TOTP_LAST_STEP  = DSL.field(DSL.name("TOTP_LAST_STEP"), Long.class);
+    private static final Field<Integer> TFA_TOTP_FAILURES   = DSL.field(DSL.name("TOTP_FAILURES"), Integer.class);
+    private static final Field<OffsetDateTime> TFA_TOTP_FAILED_AT = DSL.field(DSL.name("TOTP_FAILED_AT"), OffsetDateTime.class);
+    private static final Field<Integer> TFA_BACKUP_FAILURES = DSL.field(DSL.name("BACKUP_FAILURES"), Integer.class);
+    private static final Field<OffsetDateTime> TFA_BACKUP_FAILED_AT = DSL.field(DSL.name("BACKUP_FAILED_AT"), OffsetDateTime.class);
 
     private static final Field<Long>    BC_ID        = DSL.field(DSL.name("ID"), Long.class);
     private static final Field<Long>    BC_USER_ID   = DSL.field(DSL.name("USER_ID"), Long.class);
     private static final Field<String>  BC_CODE_HASH = DSL.field(DSL.name("CODE_HASH"), String.class);
     private static final Field<OffsetDateTime> BC_USED_AT = DSL.field(DSL.name("USED_AT"), OffsetDateTime.class);
+    private static final Field<String>  BC_LOOKUP_TAG = DSL.field(DSL.name("LOOKUP_TAG"), String.class);
 
     // users.phone_number
     private static final Field<String> U_PHONE_NUMBER = DSL.field(DSL.name("phone_number"), String.class);
 
+    /**
+     * TOTP stores secrets only sealed, and its backup codes are meant to be found by tag, so
+     * enabling it requires both keys. Without TOTP a missing lookup key means every new backup
+     * code is stored untagged and checked one by one.
+     */
+    @PostConstruct
+    void checkKeys() {
+        boolean lookupKey = backupCodeLookupKey != null && !backupCodeLookupKey.isBlank();
+        boolean secretKey = totpSecretKey != null && !totpSecretKey.isBlank();
+        if (totpEnabled && !secretKey) {
+            throw new IllegalStateException("auth.totp.enabled is set but auth.totp.secret-key (TOTP_SECRET_KEY) is not");
+        }
+        if (totpEnabled && !lookupKey) {
+            throw new IllegalStateException("auth.totp.enabled is set but auth.backup-codes.lookup-key (BACKUP_CODE_LOOKUP_KEY) is not");
+        }
+        if (!lookupKey) {
+            log.warn("auth.backup-codes.lookup-key is not set; backup codes will be checked one by one");
+        }
+        if (secretKey) totpSecrets = new SecretCipher(totpSecretKey);
+    }
+
     // ── DTOs ───────────────────────────────────────────────────────────
 
     public record TwoFactorStatusDto(
             boolean enabled,
+            String method,
             String maskedPhone,
             int backupCodesRemaining
     ) {}
 
+    public record TotpEnrollment(
+            String secret,
+            String provisioningUri
+    ) {}
+
     public record TwoFactorSetupResult(
             boolean enabled,
             String maskedPhone,
@@ -81,27 +189,31 @@ public class TwoFactorAuthService {
     // ── Query ──────────────────────────────────────────────────────────
 
     /**
-     * Check if 2FA is enabled for a given user.
+     * Check if 2FA is enabled for a given user. Served from {@link UserSecurityCache}, which
+     * login has usually just filled.
      */
     public boolean isEnabled(Long userId) {
-        Boolean enabled = dsl.select(TFA_ENABLED)
-                .from(TFA)
-                .where(TFA_USER_ID.eq(userId))
-                .fetchOne(TFA_ENABLED);
-        return Boolean.TRUE.equals(enabled);
+        UserSecurity u = userSecurity.byId(userId);
+        return u != null && u.twoFactorEnabled();
+    }
+
+    /** True when the user's second factor is an authenticator app, so login needn't send an SMS. */
+    public boolean usesAuthenticator(Long userId) {
+        UserSecurity u = userSecurity.byId(userId);
+        return u != null && u.usesAuthenticator();
     }
 
     /**
      * Get the 2FA status for profile display.
      */
     public TwoFactorStatusDto getStatus(Long userId) {
-        Record row = dsl.select(TFA_ENABLED, TFA_PHONE_NUMBER)
+        Record row = dsl.select(TFA_ENABLED, TFA_METHOD, TFA_PHONE_NUMBER)
                 .from(TFA)
                 .where(TFA_USER_ID.eq(userId))
                 .fetchOne();
 
         if (row == null) {
-            return new TwoFactorStatusDto(false, null, 0);
+            return new TwoFactorStatusDto(false, null, null, 0);
         }
 
         boolean enabled = Boolean.TRUE.equals(row.get(TFA_ENABLED));
@@ -113,7 +225,8 @@ public class TwoFactorAuthService {
                 .and(BC_USED_AT.isNull())
                 .fetchOne(0, int.class);
 
-        return new TwoFactorStatusDto(enabled, maskPhone(phone), remaining);
+        String method = METHOD_TOTP.equals(row.get(TFA_METHOD)) ? METHOD_TOTP : METHOD_SMS;
+        return new TwoFactorStatusDto(enabled, method, phone != null ? maskPhone(phone) : null, remaining);
     }
 
     // ── Enable / Disable ───────────────────────────────────────────────
@@ -128,11 +241,7 @@ public class TwoFactorAuthService {
         if (password == null || password.isBlank()) {
             throw new IllegalArgumentException("Password is required to enable 2FA.");
         }
-        String hash = dsl.select(USERS.PASSWORD_HASH)
-                .from(USERS)
-                .where(USERS.ID.eq(userId))
-                .fetchOne(USERS.PASSWORD_HASH);
-        if (hash == null || !passwordEncoder.matches(password, hash)) {
+        if (!passwordMatches(userId, password)) {
             throw new IllegalArgumentException("Invalid password.");
         }
 
@@ -146,6 +255,10 @@ public class TwoFactorAuthService {
 
         String cleanPhone = phoneNumber.trim();
 
+        // Hash the backup codes up front, as one task on the hashing pool, before anything is written
+        List<String> plainCodes = generateBackupCodes();
+        List<String> codeHashes = passwordEncoder.encodeAll(plainCodes);
+
         // Save/update the phone number on users table
         dsl.update(USERS)
                 .set(U_PHONE_NUMBER, cleanPhone)
@@ -155,16 +268,8 @@ public class TwoFactorAuthService {
         // Delete any old backup codes
         dsl.deleteFrom(TFA_BACKUP).where(BC_USER_ID.eq(userId)).execute();
 
-        // Generate backup codes
-        List<String> plainCodes = new ArrayList<>();
-        for (int i = 0; i < BACKUP_CODE_COUNT; i++) {
-            String code = generateAlphanumeric(BACKUP_CODE_LENGTH);
-            plainCodes.add(code);
-            dsl.insertInto(TFA_BACKUP)
-                    .set(BC_USER_ID, userId)
-                    .set(BC_CODE_HASH, passwordEncoder.encode(code))
-                    .execute();
-        }
+        // Store backup codes
+        insertBackupCodes(userId, plainCodes, codeHashes);
 
         // Upsert TWO_FACTOR_AUTH row atomically to avoid TOCTOU race condition
         dsl.mergeInto(TFA)
@@ -172,34 +277,100 @@ public class TwoFactorAuthService {
                 .on(TFA_USER_ID.eq(userId))
                 .whenMatchedThenUpdate()
                         .set(TFA_ENABLED, true)
+                        .set(TFA_METHOD, METHOD_SMS)
+                        .set(TFA_TOTP_SECRET, (String) null)
                         .set(TFA_PHONE_NUMBER, cleanPhone)
                         .set(TFA_CURRENT_CODE, (String) null)
                         .set(TFA_CODE_ATTEMPTS, 0)
                         .set(TFA_UPDATED, OffsetDateTime.now())
-                .whenNotMatchedThenInsert(TFA_USER_ID, TFA_ENABLED, TFA_PHONE_NUMBER, TFA_UPDATED)
-                        .values(userId, true, cleanPhone, OffsetDateTime.now())
+                .whenNotMatchedThenInsert(TFA_USER_ID, TFA_ENABLED, TFA_METHOD, TFA_PHONE_NUMBER, TFA_UPDATED)
+                        .values(userId, true, METHOD_SMS, cleanPhone, OffsetDateTime.now())
                 .execute();
+        userSecurity.invalidate(userId);
 
         log.info("2FA enabled for user {}", userId);
         return new TwoFactorSetupResult(true, maskPhone(cleanPhone), plainCodes);
     }
 
+    /**
+     * Start enrolling an authenticator app: a new secret and its {@code otpauth://} URI (for
+     * a QR code). Nothing changes until {@link #confirmTotp} sees a code from the app.
+     */
+    public TotpEnrollment beginTotp(Long userId, String password) {
+        if (!totpEnabled) {
+            throw new IllegalStateException("Authenticator apps are not available.");
+        }
+        if (password == null || password.isBlank()) {
+            throw new IllegalArgumentException("Password is required to set up an authenticator app.");
+        }
+        if (!passwordMatches(userId, password)) {
+            throw new IllegalArgumentException("Invalid password.");
+        }
+        String secret = Totp.newSecret();
+        pendingTotpSecrets.put(userId, secret);
+        String account = userSecurity.byId(userId).username();
+        return new TotpEnrollment(secret, Totp.provisioningUri(TOTP_ISSUER, account, secret));
+    }
+
+    /**
+     * Finish enrolling: the code proves the app holds the secret. Switches the user's second
+     * factor to TOTP (keeping any phone on file for SMS fallback) and issues new backup codes.
+     *
+     * @return setup result with backup codes (shown once)
+     */
+    public TwoFactorSetupResult confirmTotp(Long userId, String code) {
+        String secret = pendingTotpSecrets.getIfPresent(userId);
+        if (secret == null) {
+            throw new IllegalStateException("No authenticator setup in progress. Please start again.");
+        }
+        long step = Totp.matchingStep(secret, code, System.currentTimeMillis(), TOTP_WINDOW);
+        if (step < 0) {
+            throw new IllegalArgumentException("Invalid code. Check that the app's clock is correct and try again.");
+        }
+        pendingTotpSecrets.invalidate(userId);
+
+        List<String> plainCodes = generateBackupCodes();
+        List<String> codeHashes = passwordEncoder.encodeAll(plainCodes);
+
+        dsl.deleteFrom(TFA_BACKUP).where(BC_USER_ID.eq(userId)).execute();
+        insertBackupCodes(userId, plainCodes, codeHashes);
+
+        String stored = sealTotpSecret(userId, secret);
+        dsl.mergeInto(TFA)
+                .using(DSL.selectOne())
+                .on(TFA_USER_ID.eq(userId))
+                .whenMatchedThenUpdate()
+                        .set(TFA_ENABLED, true)
+                        .set(TFA_METHOD, METHOD_TOTP)
+                        .set(TFA_TOTP_SECRET, stored)
+                        .set(TFA_TOTP_LAST_STEP, step)    // the confirming code can't then sign in
+                        .set(TFA_TOTP_FAILURES, (Integer) null)
+                        .set(TFA_CURRENT_CODE, (String) null)
+                        .set(TFA_CODE_ATTEMPTS, 0)
+                        .set(TFA_UPDATED, OffsetDateTime.now())
+                .whenNotMatchedThenInsert(TFA_USER_ID, TFA_ENABLED, TFA_METHOD, TFA_TOTP_SECRET, TFA_TOTP_LAST_STEP, TFA_UPDATED)
+                        .values(userId, true, METHOD_TOTP, stored, step, OffsetDateTime.now())
+                .execute();
+        userSecurity.invalidate(userId);
+
+        String phone = dsl.select(TFA_PHONE_NUMBER).from(TFA).where(TFA_USER_ID.eq(userId)).fetchOne(TFA_PHONE_NUMBER);
+        log.info("2FA (authenticator app) enabled for user {}", userId);
+        return new TwoFactorSetupResult(true, phone != null ? maskPhone(phone) : null, plainCodes);
+    }
+
     /**
      * Disable 2FA for a user (requires password confirmation).
      */
     public void disable(Long userId, String password) {
         // Verify password
-        String hash = dsl.select(USERS.PASSWORD_HASH)
-                .from(USERS)
-                .where(USERS.ID.eq(userId))
-                .fetchOne(USERS.PASSWORD_HASH);
-
-        if (hash == null || !passwordEncoder.matches(password, hash)) {
+        if (!passwordMatches(userId, password)) {
             throw new IllegalArgumentException("Invalid password.");
         }
 
         dsl.deleteFrom(TFA_BACKUP).where(BC_USER_ID.eq(userId)).execute();
         dsl.deleteFrom(TFA).where(TFA_USER_ID.eq(userId)).execute();
+        userSecurity.invalidate(userId);
+        pendingTotpSecrets.invalidate(userId);
 
         log.info("2FA disabled for user {}", userId);
     }
@@ -222,6 +393,9 @@ public class TwoFactorAuthService {
         }
 
         String phone = row.get(TFA_PHONE_NUMBER);
+        if (phone == null || phone.isBlank()) {
+            throw new IllegalStateException("No phone number on file for SMS codes.");
+        }
         String code = generateNumeric(CODE_LENGTH);
         String codeHash = passwordEncoder.encode(code);
 
@@ -241,13 +415,15 @@ public class TwoFactorAuthService {
     }
 
     /**
-     * Verify an OTP code.
+     * Verify an OTP code: from the authenticator app for TOTP users, else (or when a TOTP
+     * user has asked for an SMS fallback) the code last sent by SMS.
      *
      * @return true if the code is valid
      * @throws IllegalStateException if too many attempts or code expired
      */
     public boolean verifyCode(Long userId, String code) {
-        Record row = dsl.select(TFA_CURRENT_CODE, TFA_CODE_EXPIRES, TFA_CODE_ATTEMPTS)
+        Record row = dsl.select(TFA_METHOD, TFA_TOTP_SECRET, TFA_TOTP_FAILURES, TFA_TOTP_FAILED_AT,
+                        TFA_CURRENT_CODE, TFA_CODE_EXPIRES, TFA_CODE_ATTEMPTS)
                 .from(TFA)
                 .where(TFA_USER_ID.eq(userId))
                 .fetchOne();
@@ -256,6 +432,23 @@ public class TwoFactorAuthService {
             throw new IllegalStateException("2FA is not configured.");
         }
 
+        String stored = row.get(TFA_TOTP_SECRET);
+        if (METHOD_TOTP.equals(row.get(TFA_METHOD)) && stored != null) {
+            int failures = recentFailures(row, TFA_TOTP_FAILURES, TFA_TOTP_FAILED_AT);
+            if (failures < MAX_CODE_ATTEMPTS && totpMatches(userId, openTotpSecret(userId, stored), code)) {
+                if (failures > 0) clearFailures(userId, TFA_TOTP_FAILURES);
+                return true;
+            }
+            recordFailure(userId, TFA_TOTP_FAILURES, TFA_TOTP_FAILED_AT);
+            if (row.get(TFA_CURRENT_CODE) == null) {
+                // No SMS fallback outstanding: the app's code was the only candidate
+                if (failures + 1 >= MAX_CODE_ATTEMPTS) {
+                    throw new IllegalStateException("Too many attempts. Please wait a few minutes and try again.");
+                }
+                return false;
+            }
+        }
+
         int attempts = row.get(TFA_CODE_ATTEMPTS) != null ? row.get(TFA_CODE_ATTEMPTS) : 0;
         if (attempts >= MAX_CODE_ATTEMPTS) {
             throw new IllegalStateException("Too many attempts. Please request a new code.");
@@ -296,28 +489,44 @@ public class TwoFactorAuthService {
      * Verify a backup code (single use).
      *
      * @return true if a valid unused backup code was found and consumed
+     * @throws IllegalStateException if too many wrong codes were tried recently
      */
     public boolean verifyBackupCode(Long userId, String code) {
-        // Fetch all unused backup codes for this user
-        var records = dsl.select(BC_ID, BC_CODE_HASH)
+        Record lockout = dsl.select(TFA_BACKUP_FAILURES, TFA_BACKUP_FAILED_AT)
+                .from(TFA)
+                .where(TFA_USER_ID.eq(userId))
+                .fetchOne();
+        int failures = lockout != null ? recentFailures(lockout, TFA_BACKUP_FAILURES, TFA_BACKUP_FAILED_AT) : 0;
+        if (failures >= MAX_CODE_ATTEMPTS) {
+            throw new IllegalStateException("Too many attempts. Please wait a few minutes and try again.");
+        }
+
+        // The tagged candidate, if any, plus untagged legacy codes (none once regenerated)
+        String tag = lookupTag(code);
+        var candidates = dsl.select(BC_ID, BC_CODE_HASH)
                 .from(TFA_BACKUP)
                 .where(BC_USER_ID.eq(userId))
                 .and(BC_USED_AT.isNull())
+                .and(tag != null ? BC_LOOKUP_TAG.eq(tag).or(BC_LOOKUP_TAG.isNull()) : DSL.noCondition())
                 .fetch();
 
-        for (var rec : records) {
+        for (var rec : candidates) {
             if (passwordEncoder.matches(code, rec.get(BC_CODE_HASH))) {
-                // Mark as used
-                dsl.update(TFA_BACKUP)
+                // Mark as used; the USED_AT guard makes a concurrent second use of the same code fail
+                int consumed = dsl.update(TFA_BACKUP)
                         .set(BC_USED_AT, OffsetDateTime.now())
                         .where(BC_ID.eq(rec.get(BC_ID)))
+                        .and(BC_USED_AT.isNull())
                         .execute();
+                if (consumed == 0) return false;
 
+                if (failures > 0) clearFailures(userId, TFA_BACKUP_FAILURES);
                 log.info("Backup code used for user {}", userId);
                 return true;
             }
         }
 
+        recordFailure(userId, TFA_BACKUP_FAILURES, TFA_BACKUP_FAILED_AT);
         return false;
     }
 
@@ -329,6 +538,8 @@ public class TwoFactorAuthService {
     public void adminReset(Long targetUserId) {
         dsl.deleteFrom(TFA_BACKUP).where(BC_USER_ID.eq(targetUserId)).execute();
         dsl.deleteFrom(TFA).where(TFA_USER_ID.eq(targetUserId)).execute();
+        userSecurity.invalidate(targetUserId);
+        pendingTotpSecrets.invalidate(targetUserId);
         log.info("Admin reset 2FA for user {}", targetUserId);
     }
 
@@ -340,33 +551,118 @@ public class TwoFactorAuthService {
      */
     public List<String> regenerateBackupCodes(Long userId, String password) {
         // Verify password
-        String hash = dsl.select(USERS.PASSWORD_HASH)
-                .from(USERS)
-                .where(USERS.ID.eq(userId))
-                .fetchOne(USERS.PASSWORD_HASH);
-
-        if (hash == null || !passwordEncoder.matches(password, hash)) {
+        if (!passwordMatches(userId, password)) {
             throw new IllegalArgumentException("Invalid password.");
         }
 
-        // Delete old codes
+        // Generate and hash the new ones before touching the old
+        List<String> plainCodes = generateBackupCodes();
+        List<String> codeHashes = passwordEncoder.encodeAll(plainCodes);
+
         dsl.deleteFrom(TFA_BACKUP).where(BC_USER_ID.eq(userId)).execute();
+        insertBackupCodes(userId, plainCodes, codeHashes);
+
+        return plainCodes;
+    }
+
+    // ── Helpers ────────────────────────────────────────────────────────
+
+    /** Password confirmation against the cached hash; no USERS read when the user signed in recently. */
+    private boolean passwordMatches(Long userId, String password) {
+        UserSecurity u = userSecurity.byId(userId);
+        return u != null && u.passwordHash() != null && password != null
+                && passwordEncoder.matches(password, u.passwordHash());
+    }
+
+    /** The code is from the current window and its step hasn't been used. */
+    private boolean totpMatches(Long userId, String secret, String code) {
+        long step = Totp.matchingStep(secret, code, System.currentTimeMillis(), TOTP_WINDOW);
+        return step >= 0 && claimTotpStep(userId, step);
+    }
+
+    /**
+     * Record {@code step} as used, unless it (or a later step) already was. The check and
+     * the write are one UPDATE, so two instances can't both accept the same code.
+     */
+    private boolean claimTotpStep(Long userId, long step) {
+        return dsl.update(TFA)
+                .set(TFA_TOTP_LAST_STEP, step)
+                .where(TFA_USER_ID.eq(userId))
+                .and(TFA_TOTP_LAST_STEP.isNull().or(TFA_TOTP_LAST_STEP.lt(step)))
+                .execute() == 1;
+    }
+
+    /** Wrong codes that still count: none once the last is {@link #LOCKOUT} old. */
+    private static int recentFailures(Record row, Field<Integer> failures, Field<OffsetDateTime> failedAt) {
+        Integer count = row.get(failures);
+        OffsetDateTime last = row.get(failedAt);
+        if (count == null || last == null || last.isBefore(OffsetDateTime.now().minus(LOCKOUT))) return 0;
+        return count;
+    }
+
+    /** Count a wrong code in the database, restarting from 1 if the last one is {@link #LOCKOUT} old. */
+    private void recordFailure(Long userId, Field<Integer> failures, Field<OffsetDateTime> failedAt) {
+        OffsetDateTime now = OffsetDateTime.now();
+        dsl.update(TFA)
+                .set(failures, DSL.when(failedAt.gt(now.minus(LOCKOUT)), DSL.coalesce(failures, 0).plus(1))
+                        .otherwise(DSL.inline(1)))
+                .set(failedAt, now)
+                .where(TFA_USER_ID.eq(userId))
+                .execute();
+    }
+
+    private void clearFailures(Long userId, Field<Integer> failures) {
+        dsl.update(TFA)
+                .set(failures, (Integer) null)
+                .where(TFA_USER_ID.eq(userId))
+                .execute();
+    }
 
-        // Generate new ones
-        List<String> plainCodes = new ArrayList<>();
+    /** The TOTP_SECRET value for {@code secret}: sealed under the TOTP key and bound to the user. */
+    private String sealTotpSecret(Long userId, String secret) {
+        return totpSecrets.seal(secret, totpContext(userId));
+    }
+
+    private String openTotpSecret(Long userId, String stored) {
+        if (totpSecrets == null) {
+            throw new IllegalStateException("2FA is unavailable. Please contact an administrator.");
+        }
+        return totpSecrets.open(stored, totpContext(userId));
+    }
+
+    private static String totpContext(Long userId) {
+        return "TOTP_SECRET:" + userId;
+    }
+
+    private List<String> generateBackupCodes() {
+        List<String> codes = new ArrayList<>(BACKUP_CODE_COUNT);
         for (int i = 0; i < BACKUP_CODE_COUNT; i++) {
-            String code = generateAlphanumeric(BACKUP_CODE_LENGTH);
-            plainCodes.add(code);
-            dsl.insertInto(TFA_BACKUP)
-                    .set(BC_USER_ID, userId)
-                    .set(BC_CODE_HASH, passwordEncoder.encode(code))
-                    .execute();
+            codes.add(generateAlphanumeric(BACKUP_CODE_LENGTH));
         }
+        return codes;
+    }
 
-        return plainCodes;
+    /** All of a user's new backup codes in one multi-row INSERT. */
+    private void insertBackupCodes(Long userId, List<String> plainCodes, List<String> codeHashes) {
+        InsertValuesStep3<?, Long, String, String> insert =
+                dsl.insertInto(TFA_BACKUP, BC_USER_ID, BC_CODE_HASH, BC_LOOKUP_TAG);
+        for (int i = 0; i < plainCodes.size(); i++) {
+            insert = insert.values(userId, codeHashes.get(i), lookupTag(plainCodes.get(i)));
+        }
+        insert.execute();
     }
 
-    // ── Helpers ────────────────────────────────────────────────────────
+    /** HMAC-SHA256 of a backup code, Base64; null when no lookup key is configured. */
+    private String lookupTag(String code) {
+        if (backupCodeLookupKey == null || backupCodeLookupKey.isBlank() || code == null) return null;
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(backupCodeLookupKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getEncoder().encodeToString(mac.doFinal(code.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 unavailable", e);
+        }
+    }
 
     private String generateNumeric(int length) {
         StringBuilder sb = new StringBuilder();
@@ -1,14 +1,14 @@
 package com.scottfamily.scottfamily.service;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 
 import org.jooq.DSLContext;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
-import static com.yourproject.generated.scott_family_web.Tables.PEOPLE;
+import com.scottfamily.scottfamily.security.SessionUser;
+
 import static com.yourproject.generated.scott_family_web.Tables.USERS;
 
 /**
@@ -20,9 +20,11 @@ import static com.yourproject.generated.scott_family_web.Tables.USERS;
 public class UserHelper {
 
     private final DSLContext dsl;
+    private final DisplayNameService displayNames;
 
-    public UserHelper(DSLContext dsl) {
+    public UserHelper(DSLContext dsl, DisplayNameService displayNames) {
         this.dsl = dsl;
+        this.displayNames = displayNames;
     }
 
     /**
@@ -38,59 +40,28 @@ public class UserHelper {
     }
 
     /**
-     * Convenience overload that extracts the username from an Authentication.
+     * The signed-in user's ID: read from the {@link SessionUser} principal, or looked up by
+     * username for any other kind of Authentication.
      */
     public Long resolveUserId(Authentication auth) {
-        return auth != null ? resolveUserId(auth.getName()) : null;
+        if (auth == null) return null;
+        if (auth.getPrincipal() instanceof SessionUser u) return u.userId();
+        return resolveUserId(auth.getName());
     }
 
     /**
-     * Resolve a userId to a human-readable display name.
-     * Single query: joins users → people, falls back to username via COALESCE.
+     * Resolve a userId to a human-readable display name: the linked person's first and
+     * last name, else the username. Served from {@link DisplayNameService}'s cache.
      */
     public String resolveDisplayName(Long userId) {
-        if (userId == null) return "Unknown";
-
-        var rec = dsl.select(PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME, USERS.USERNAME)
-                .from(USERS)
-                .leftJoin(PEOPLE).on(USERS.PERSON_ID.eq(PEOPLE.ID))
-                .where(USERS.ID.eq(userId))
-                .fetchOne();
-
-        if (rec == null) return "Unknown";
-
-        if (rec.get(PEOPLE.FIRST_NAME) != null) {
-            String first = rec.get(PEOPLE.FIRST_NAME);
-            String last = rec.get(PEOPLE.LAST_NAME);
-            return (first + " " + (last != null ? last : "")).trim();
-        }
-
-        String username = rec.get(USERS.USERNAME);
-        return username != null ? username : "Unknown";
+        return displayNames.userDisplayName(userId);
     }
 
     /**
-     * Batch-resolve multiple user IDs to display names in a single query.
+     * Batch-resolve multiple user IDs to display names; only users not already cached
+     * are read, in a single query.
      */
     public Map<Long, String> batchResolveDisplayNames(Collection<Long> userIds) {
-        if (userIds == null || userIds.isEmpty()) return Map.of();
-
-        Map<Long, String> result = new HashMap<>();
-        dsl.select(USERS.ID, PEOPLE.FIRST_NAME, PEOPLE.LAST_NAME, USERS.USERNAME)
-                .from(USERS)
-                .leftJoin(PEOPLE).on(USERS.PERSON_ID.eq(PEOPLE.ID))
-                .where(USERS.ID.in(userIds))
-                .forEach(rec -> {
-                    Long uid = rec.get(USERS.ID);
-                    if (rec.get(PEOPLE.FIRST_NAME) != null) {
-                        String first = rec.get(PEOPLE.FIRST_NAME);
-                        String last = rec.get(PEOPLE.LAST_NAME);
-                        result.put(uid, (first + " " + (last != null ? last : "")).trim());
-                    } else {
-                        String username = rec.get(USERS.USERNAME);
-                        result.put(uid, username != null ? username : "Unknown");
-                    }
-                });
-        return result;
+        return displayNames.userDisplayNames(userIds);
     }
 }
@@ -0,0 +1,830 @@
+package com.scottfamily.scottfamily.synthetic;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.SQLDialect;
+import org.jooq.Table;
+import org.jooq.conf.RenderQuotedNames;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.JDBCUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import com.scottfamily.scottfamily.service.DuesService;
+
+/**
+ * Fills a database with synthetic data shaped like ours, for load tests and benchmarks:
+ * multi-generation families (remarriages, half-siblings, step and adoptive parents),
+ * deceased and archived people, users (some pending approval), blog posts with skewed
+ * reactions, tagged gallery images, and dues payments and store orders across several
+ * reunion years.
+ *
+ * Deterministic: the same {@link Options} produce the same rows, ids included when the
+ * tables start empty. Every section draws from its own seeded {@link Random}, so changing
+ * e.g. the blog post count leaves the families untouched. Dates are anchored on
+ * {@link #REFERENCE_YEAR}, never on the clock.
+ *
+ * Rows go in through chunked jOOQ batch inserts. Rows that other rows point at get
+ * explicit ids (continuing after the table's current max), so nothing is read back;
+ * on SQL Server that runs under IDENTITY_INSERT, on H2 the identity is moved past them
+ * afterwards. Everything runs on one connection, which IDENTITY_INSERT requires.
+ *
+ * Run from the command line ({@link #main}, or {@code ./gradlew syntheticData}) or by
+ * starting the app with the {@code synthetic-data} profile ({@link SyntheticDataRunner}).
+ */
+public final class SyntheticDataGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataGenerator.class);
+
+    /** "Now" for the generated data: deaths, ages, signups and reunion years are relative to it. */
+    public static final int REFERENCE_YEAR = 2025;
+
+    /** H2 DDL for the tables the generator writes (the app's SQL Server schema is managed elsewhere). */
+    public static final String H2_SCHEMA = "/db/synthetic/schema-h2.sql";
+
+    private static final int FIRST_BIRTH_YEAR = 1840;
+
+    private static final String[] MALE_NAMES = {
+            "James", "John", "Robert", "Michael", "William", "David", "Richard", "Joseph", "Thomas", "Charles",
+            "Christopher", "Daniel", "Matthew", "Anthony", "Mark", "Washington", "Lavar", "Ellington", "Clarence", "Otis" };
+
+    private static final String[] FEMALE_NAMES = {
+            "Mary", "Patricia", "Jennifer", "Linda", "Elizabeth", "Barbara", "Susan", "Jessica", "Sarah", "Karen",
+            "Nancy", "Lisa", "Betty", "Dorothy", "Sandra", "Ella", "Dora", "Hattie", "Mattie", "Minnie" };
+
+    private static final String[] LAST_NAMES = {
+            "Scott", "Johnson", "Williams", "Brown", "Jones", "Miller", "Davis", "Wilson", "Anderson", "Taylor",
+            "Thomas", "Moore", "Jackson", "Martin", "Lee", "Thompson", "White", "Harris", "Clark", "Lewis",
+            "Robinson", "Walker", "Young", "Allen", "King", "Wright", "Hill", "Green", "Adams", "Baker",
+            "Nelson", "Carter", "Mitchell", "Roberts", "Turner", "Phillips", "Campbell", "Parker", "Evans", "Bullard" };
+
+    private static final String[] MIDDLE_NAMES = { "Lee", "Ann", "Mae", "Earl", "Louise", "Ray", "Marie", "James" };
+
+    private static final String[] LOCATIONS = {
+            "Atlanta, GA", "Birmingham, AL", "Charlotte, NC", "Chicago, IL", "Detroit, MI", "Houston, TX",
+            "Memphis, TN", "Montgomery, AL", "Savannah, GA", "Washington, DC" };
+
+    private static final String[] SENTENCES = {
+            "It was so good to see everyone at the reunion this year.",
+            "Grandma's recipe for sweet potato pie is finally written down.",
+            "We found a box of old photos in the attic and scanned them all.",
+            "Please send me any stories you remember about the old homeplace.",
+            "The kids had a great time at the cookout.",
+            "Congratulations to all of this year's graduates!",
+            "Does anyone know who is in the second row of this picture?",
+            "Planning for next summer has already started." };
+
+    /** Store catalog: name, base price (cents), sizes (empty = one size), colors. */
+    private static final Object[][] PRODUCTS = {
+            { "Reunion T-Shirt", 2000, new String[] { "S", "M", "L", "XL", "2XL" }, new String[] { "Black", "White", "Green" } },
+            { "Reunion Hoodie", 4500, new String[] { "S", "M", "L", "XL", "2XL" }, new String[] { "Black", "Gray" } },
+            { "Family Tree Poster", 2500, new String[0], new String[] { "Color" } },
+            { "Embroidered Cap", 1800, new String[0], new String[] { "Black", "Navy" } },
+            { "Coffee Mug", 1200, new String[0], new String[] { "White" } } };
+
+    private static final String[] DUES_STATUSES = { "COMPLETED", "PENDING", "FAILED" };
+    private static final String[] ORDER_STATUSES = { "PAID", "FULFILLED", "PENDING", "CANCELLED", "REQUIRES_REFUND", "REFUNDED" };
+
+    /**
+     * Scale and seed of one run.
+     *
+     * @param people        people to create (in-laws and founders included)
+     * @param seed          random seed; same seed and sizes, same data
+     * @param blogPosts     blog posts to create
+     * @param galleryImages gallery images to create
+     * @param reunionYears  reunion years (ending at {@link #REFERENCE_YEAR}) with dues and orders
+     * @param password      plain-text password every synthetic user gets
+     */
+    public record Options(int people, long seed, int blogPosts, int galleryImages, int reunionYears, String password) {
+        public Options {
+            if (people < 2) throw new IllegalArgumentException("people must be at least 2");
+            if (blogPosts < 0 || galleryImages < 0) throw new IllegalArgumentException("counts must be >= 0");
+            if (reunionYears < 0 || reunionYears > 50) throw new IllegalArgumentException("reunionYears must be between 0 and 50");
+            if (password == null || password.isEmpty()) throw new IllegalArgumentException("password is required");
+        }
+
+        /** Sizes everything else in proportion to the people count, the way our data is. */
+        public static Options forPeople(int people, long seed) {
+            return new Options(people, seed, Math.max(20, people / 20), Math.max(20, people / 10), 5, "synthetic");
+        }
+    }
+
+    /** Rows written per table, in the order the tables were filled. */
+    public record Summary(Map<String, Integer> rows, long millis) {}
+
+    private final DSLContext dsl;
+    private final Options options;
+
+    public SyntheticDataGenerator(DSLContext dsl, Options options) {
+        SQLDialect family = dsl.dialect().family();
+        if (family != SQLDialect.H2 && family != SQLDialect.SQLSERVER) {
+            throw new IllegalArgumentException("Synthetic data supports H2 and SQL Server, not " + dsl.dialect());
+        }
+        this.dsl = dsl;
+        this.options = options;
+    }
+
+    /** Generate everything on one connection. Not transactional: chunks commit as they go. */
+    public Summary generate() {
+        long start = System.nanoTime();
+        Map<String, Integer> rows = new LinkedHashMap<>();
+        dsl.connection(c -> new Run(DSL.using(c, dsl.dialect(), dsl.settings()), options, rows).all());
+        return new Summary(rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /** Run the H2 DDL for the generator's tables (see {@link #H2_SCHEMA}). */
+    public static void createH2Schema(DSLContext dsl) {
+        if (dsl.dialect().family() != SQLDialect.H2) {
+            throw new IllegalArgumentException("Schema script is H2 only; SQL Server tables come from the app's migrations");
+        }
+        try (InputStream in = SyntheticDataGenerator.class.getResourceAsStream(H2_SCHEMA)) {
+            if (in == null) throw new IllegalStateException("Missing " + H2_SCHEMA);
+            dsl.execute(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* ============================================================
+     * One generation run
+     * ============================================================ */
+
+    private static final class Run {
+        private final DSLContext dsl;
+        private final Options o;
+        private final Map<String, Integer> rows;
+
+        // People, indexed by position (id = personBase + i)
+        private long personBase;
+        private int count;
+        private int[] birthYear, firstName, lastName;
+        private boolean[] male, deceased;
+
+        // Users, indexed by position (id = userBase + u)
+        private long userBase;
+        private int users;
+        private int[] userPerson;
+
+        private long postBase;
+
+        Run(DSLContext dsl, Options o, Map<String, Integer> rows) {
+            this.dsl = dsl;
+            this.o = o;
+            this.rows = rows;
+        }
+
+        void all() {
+            families(new Random(o.seed()));
+            users(new Random(o.seed() + 1));
+            blog(new Random(o.seed() + 2));
+            gallery(new Random(o.seed() + 3));
+            duesAndOrders(new Random(o.seed() + 4));
+        }
+
+        /* ---------- families ---------- */
+
+        private Batch person, parent, spouse, sibling;
+
+        /*
+         * Generation by generation: 80% of people marry, half of them someone from the same
+         * generation and half an in-law who marries in (no parents of their own). 12% of
+         * couples have a second marriage, whose children are half-siblings of the first
+         * family's; the new spouse becomes a step-parent to most of those first children.
+         * 3% of children are adopted. When a generation has no children (it reached the
+         * present), a new set of founding families starts.
+         */
+        private void families(Random rnd) {
+            int n = o.people();
+            personBase = nextId("people");
+            birthYear = new int[n];
+            firstName = new int[n];
+            lastName = new int[n];
+            male = new boolean[n];
+            deceased = new boolean[n];
+
+            person = batch("people", f("id", Long.class), f("first_name", String.class), f("middle_name", String.class),
+                    f("last_name", String.class), f("prefix", String.class), f("suffix", String.class),
+                    f("date_of_birth", LocalDate.class), f("date_of_death", LocalDate.class), f("mother_id", Long.class),
+                    f("father_id", Long.class), f("bio", String.class), f("profile_picture_url", String.class),
+                    f("location", String.class), f("is_deceased", Boolean.class), f("is_archived", Boolean.class));
+            parent = batch("person_parent", f("child_person_id", Long.class), f("parent_person_id", Long.class),
+                    f("relation", String.class));
+            spouse = batch("person_spouse", f("person_id", Long.class), f("spouse_person_id", Long.class));
+            sibling = batch("person_sibling", f("person_a_id", Long.class), f("person_b_id", Long.class),
+                    f("relation", String.class));
+
+            withExplicitIds("people", () -> {
+                int founders = Math.max(2, n / 50);
+                int[] generation = new int[0];
+                while (count < n) {
+                    if (generation.length == 0) generation = founders(rnd, founders);
+                    generation = nextGeneration(rnd, generation);
+                }
+                person.finish();
+            });
+            parent.finish();
+            spouse.finish();
+            sibling.finish();
+            rows.put("people", count);
+            rows.put("person_parent", parent.total);
+            rows.put("person_spouse", spouse.total);
+            rows.put("person_sibling", sibling.total);
+        }
+
+        /* Founders of new family lines; about a third of them come with a sibling on record. */
+        private int[] founders(Random rnd, int howMany) {
+            IntList out = new IntList();
+            for (int i = 0; i < howMany && count < o.people(); i++) {
+                int year = FIRST_BIRTH_YEAR + rnd.nextInt(30);
+                int surname = rnd.nextInt(LAST_NAMES.length);
+                int a = newPerson(rnd, year, rnd.nextBoolean(), surname, -1, -1, null);
+                out.add(a);
+                if (rnd.nextInt(3) == 0 && count < o.people()) {
+                    int b = newPerson(rnd, year + 1 + rnd.nextInt(6), rnd.nextBoolean(), surname, -1, -1, null);
+                    out.add(b);
+                    sibling.add(id(a), id(b), "SIBLING");
+                }
+            }
+            return out.toArray();
+        }
+
+        private int[] nextGeneration(Random rnd, int[] generation) {
+            IntList next = new IntList();
+            boolean[] married = new boolean[generation.length];
+            // Unmarried people of this generation, by sex, for in-generation matches
+            IntList men = new IntList(), women = new IntList();
+            for (int k = 0; k < generation.length; k++) (male[generation[k]] ? men : women).add(k);
+            int nextMan = 0, nextWoman = 0;
+
+            for (int k = 0; k < generation.length && count < o.people(); k++) {
+                if (married[k]) continue;
+                married[k] = true;
+                int p = generation[k];
+                if (rnd.nextInt(100) >= 80 || birthYear[p] > REFERENCE_YEAR - 18) continue;
+
+                int partner = -1;
+                if (rnd.nextBoolean()) {
+                    IntList pool = male[p] ? women : men;
+                    int at = male[p] ? nextWoman : nextMan;
+                    while (at < pool.size && (married[pool.get(at)] || birthYear[generation[pool.get(at)]] > REFERENCE_YEAR - 18)) at++;
+                    if (at < pool.size) {
+                        married[pool.get(at)] = true;
+                        partner = generation[pool.get(at)];
+                    }
+                    if (male[p]) nextWoman = at; else nextMan = at;
+                }
+                if (partner < 0) partner = inLaw(rnd, p);
+                if (partner < 0) break;
+                IntList first = couple(rnd, p, partner, rnd.nextInt(10) == 0 ? 0 : 1 + rnd.nextInt(4), next);
+
+                if (rnd.nextInt(100) < 12) {
+                    int second = inLaw(rnd, p);
+                    if (second < 0) break;
+                    couple(rnd, p, second, rnd.nextInt(3), next);
+                    String step = male[second] ? "STEP_FATHER" : "STEP_MOTHER";
+                    for (int i = 0; i < first.size; i++) {
+                        if (rnd.nextInt(100) < 60) parent.add(id(first.get(i)), id(second), step);
+                    }
+                }
+            }
+            return next.toArray();
+        }
+
+        /* Someone of the opposite sex and similar age who marries into the family. */
+        private int inLaw(Random rnd, int p) {
+            if (count == o.people()) return -1;
+            int year = Math.min(REFERENCE_YEAR - 18, birthYear[p] - 4 + rnd.nextInt(9));
+            return newPerson(rnd, year, !male[p], rnd.nextInt(LAST_NAMES.length), -1, -1, null);
+        }
+
+        /* Records the marriage and its children (none if the mother would be too young to have had them by now). */
+        private IntList couple(Random rnd, int a, int b, int children, IntList next) {
+            spouse.add(id(a), id(b));
+            int mom = male[a] ? b : a, dad = male[a] ? a : b;
+            IntList kids = new IntList();
+            int span = REFERENCE_YEAR - (birthYear[mom] + 20);
+            for (int i = 0; span >= 0 && i < children && count < o.people(); i++) {
+                int year = birthYear[mom] + 20 + rnd.nextInt(Math.min(19, span + 1));
+                boolean son = rnd.nextBoolean();
+                String suffix = son && i == 0 && rnd.nextInt(8) == 0 ? "Jr." : null;
+                int kid = newPerson(rnd, year, son, lastName[dad], mom, dad, suffix);
+                boolean adopted = rnd.nextInt(100) < 3;
+                parent.add(id(kid), id(mom), adopted ? "ADOPTIVE_MOTHER" : "BIOLOGICAL_MOTHER");
+                parent.add(id(kid), id(dad), adopted ? "ADOPTIVE_FATHER" : "BIOLOGICAL_FATHER");
+                kids.add(kid);
+                next.add(kid);
+            }
+            return kids;
+        }
+
+        /* Juniors take their father's first name. Returns the new person's index. */
+        private int newPerson(Random rnd, int year, boolean isMale, int surname, int mom, int dad, String suffix) {
+            int i = count++;
+            birthYear[i] = year;
+            male[i] = isMale;
+            lastName[i] = surname;
+            firstName[i] = suffix != null ? firstName[dad] : rnd.nextInt(isMale ? MALE_NAMES.length : FEMALE_NAMES.length);
+
+            int lifespan = 50 + rnd.nextInt(50);
+            deceased[i] = year + lifespan < REFERENCE_YEAR;
+            // The further back, the likelier a date is unknown
+            boolean dobKnown = rnd.nextInt(100) < (year < 1900 ? 55 : 90);
+            LocalDate dob = dobKnown ? date(rnd, year) : null;
+            LocalDate dod = deceased[i] && rnd.nextInt(100) < 80 ? date(rnd, year + lifespan) : null;
+
+            person.add(id(i), (isMale ? MALE_NAMES : FEMALE_NAMES)[firstName[i]],
+                    rnd.nextInt(10) < 3 ? MIDDLE_NAMES[rnd.nextInt(MIDDLE_NAMES.length)] : null,
+                    LAST_NAMES[surname],
+                    rnd.nextInt(200) == 0 ? (rnd.nextBoolean() ? "Dr." : "Rev.") : null,
+                    suffix, dob, dod,
+                    mom >= 0 ? id(mom) : null, dad >= 0 ? id(dad) : null,
+                    rnd.nextInt(20) == 0 ? SENTENCES[rnd.nextInt(SENTENCES.length)] : null,
+                    rnd.nextInt(10) == 0 ? "https://example.invalid/avatar/" + id(i) + ".jpg" : null,
+                    deceased[i] ? null : LOCATIONS[rnd.nextInt(LOCATIONS.length)],
+                    deceased[i], rnd.nextInt(1000) < 15);
+            return i;
+        }
+
+        /* ---------- users ---------- */
+
+        /*
+         * About 12% of living people 16 and over have an account; the first is the admin.
+         * 4% are still waiting for approval. All share one password, hashed once with a
+         * salt from the seed so the hash is reproducible too.
+         */
+        private void users(Random rnd) {
+            userBase = nextId("users");
+            userPerson = new int[count];
+            Batch user = batch("users", f("id", Long.class), f("username", String.class), f("email", String.class),
+                    f("password_hash", String.class), f("user_role", String.class), f("person_id", Long.class),
+                    f("created_at", LocalDateTime.class), f("requested_at", LocalDateTime.class),
+                    f("approved_at", LocalDateTime.class));
+            String hash = new BCryptPasswordEncoder(-1, seededSecureRandom(o.seed())).encode(o.password());
+            LocalDateTime launch = LocalDateTime.of(REFERENCE_YEAR - 6, 1, 1, 9, 0);
+
+            withExplicitIds("users", () -> {
+                for (int i = 0; i < count; i++) {
+                    if (deceased[i] || birthYear[i] > REFERENCE_YEAR - 16) continue;
+                    if (users > 0 && rnd.nextInt(100) >= 12) continue;
+                    int u = users++;
+                    userPerson[u] = i;
+                    String first = (male[i] ? MALE_NAMES : FEMALE_NAMES)[firstName[i]];
+                    String username = (first + "." + LAST_NAMES[lastName[i]]).toLowerCase(Locale.ROOT) + "." + id(i);
+                    LocalDateTime requested = launch.plusMinutes(rnd.nextInt(6 * 365 * 24 * 60));
+                    boolean pending = u > 0 && rnd.nextInt(100) < 4;
+                    user.add(userId(u), username, username + "@example.invalid", hash,
+                            u == 0 ? "ROLE_ADMIN" : "ROLE_USER", id(i), requested, requested,
+                            pending ? null : requested.plusHours(1 + rnd.nextInt(72)));
+                }
+                user.finish();
+            });
+            if (users == 0) throw new IllegalStateException("No living adults to create users for; raise the people count");
+            rows.put("users", users);
+        }
+
+        /* ---------- blog ---------- */
+
+        /*
+         * A few prolific authors write most posts. Reactions follow a power law: a handful of
+         * posts are liked by a large share of users, most get a few likes and comments.
+         */
+        private void blog(Random rnd) {
+            postBase = nextId("blog_posts");
+            Batch post = batch("blog_posts", f("id", Long.class), f("author_id", Long.class), f("title", String.class),
+                    f("content", String.class), f("created_at", LocalDateTime.class));
+            Batch like = batch("likes", f("post_id", Long.class), f("user_id", Long.class));
+            Batch dislike = batch("dislikes", f("post_id", Long.class), f("user_id", Long.class));
+            Batch comment = batch("comments", f("post_id", Long.class), f("author_id", Long.class),
+                    f("content", String.class), f("created_at", LocalDateTime.class));
+
+            LocalDateTime start = LocalDateTime.of(REFERENCE_YEAR - 5, 1, 1, 8, 0);
+            long minutes = 5L * 365 * 24 * 60;
+            withExplicitIds("blog_posts", () -> {
+                for (int i = 0; i < o.blogPosts(); i++) {
+                    long postId = postBase + i;
+                    LocalDateTime created = start.plusMinutes(minutes * i / Math.max(1, o.blogPosts()));
+                    post.add(postId, userId(skewed(rnd, users, 3)), "Family update #" + (i + 1),
+                            paragraph(rnd, 3 + rnd.nextInt(10)), created);
+
+                    double popularity = Math.pow(rnd.nextDouble(), 4);
+                    int likes = Math.min(users, (int) (popularity * users * 0.4) + rnd.nextInt(4));
+                    int dislikes = Math.min(users - likes, likes / 20 + (rnd.nextInt(5) == 0 ? 1 : 0));
+                    int from = rnd.nextInt(users);
+                    for (int k = 0; k < likes; k++) like.add(postId, userId((from + k) % users));
+                    for (int k = 0; k < dislikes; k++) dislike.add(postId, userId((from + likes + k) % users));
+                    int comments = (int) (popularity * 40) + rnd.nextInt(3);
+                    for (int k = 0; k < comments; k++) {
+                        comment.add(postId, userId(rnd.nextInt(users)), SENTENCES[rnd.nextInt(SENTENCES.length)],
+                                created.plusMinutes(5 + rnd.nextInt(7 * 24 * 60)));
+                    }
+                }
+                post.finish();
+            });
+            like.finish();
+            dislike.finish();
+            comment.finish();
+            rows.put("blog_posts", o.blogPosts());
+            rows.put("likes", like.total);
+            rows.put("dislikes", dislike.total);
+            rows.put("comments", comment.total);
+        }
+
+        /* ---------- gallery ---------- */
+
+        /*
+         * Photos (and ~5% YouTube links) with up to five tags each. Tags are drawn from a
+         * window of nearby ids: siblings, spouses and cousins are created close together,
+         * so a photo's tags are mostly one family.
+         */
+        private void gallery(Random rnd) {
+            long base = nextId("gallery_images");
+            Batch image = batch("gallery_images", f("id", Long.class), f("blob_key", String.class), f("cdn_url", String.class),
+                    f("file_name", String.class), f("content_type", String.class), f("size_bytes", Long.class),
+                    f("caption", String.class), f("image_date", LocalDate.class), f("uploaded_by", Long.class),
+                    f("uploaded_at", OffsetDateTime.class), f("youtube_url", String.class));
+            Batch tag = batch("gallery_image_tags", f("image_id", Long.class), f("person_id", Long.class));
+
+            OffsetDateTime start = OffsetDateTime.of(REFERENCE_YEAR - 5, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+            withExplicitIds("gallery_images", () -> {
+                for (int i = 0; i < o.galleryImages(); i++) {
+                    long imageId = base + i;
+                    OffsetDateTime uploaded = start.plusMinutes(rnd.nextInt(5 * 365 * 24 * 60));
+                    String caption = rnd.nextInt(3) == 0 ? null : SENTENCES[rnd.nextInt(SENTENCES.length)];
+                    LocalDate taken = rnd.nextBoolean() ? date(rnd, 1950 + rnd.nextInt(REFERENCE_YEAR - 1950)) : null;
+                    long uploader = userId(skewed(rnd, users, 2));
+                    if (rnd.nextInt(100) < 5) {
+                        String video = token(rnd, 11);
+                        image.add(imageId, "youtube/" + video, "https://img.youtube.com/vi/" + video + "/hqdefault.jpg",
+                                null, "video/youtube", null, caption, taken, uploader, uploaded,
+                                "https://www.youtube.com/watch?v=" + video);
+                    } else {
+                        String key = "synthetic/gallery/" + imageId + ".jpg";
+                        image.add(imageId, key, "https://example.invalid/" + key, "IMG_" + (1000 + i) + ".jpg",
+                                "image/jpeg", 200_000L + rnd.nextInt(4_000_000), caption, taken, uploader, uploaded, null);
+                    }
+                    int tags = rnd.nextInt(6);
+                    int anchor = rnd.nextInt(count);
+                    IntList tagged = new IntList();
+                    for (int k = 0; k < tags; k++) {
+                        int p = Math.min(count - 1, anchor + rnd.nextInt(30));
+                        if (tagged.contains(p)) continue;
+                        tagged.add(p);
+                        tag.add(imageId, id(p));
+                    }
+                }
+                image.finish();
+            });
+            tag.finish();
+            rows.put("gallery_images", o.galleryImages());
+            rows.put("gallery_image_tags", tag.total);
+        }
+
+        /* ---------- dues and store ---------- */
+
+        /*
+         * Per reunion year: a dues period, about a third of users paying (mostly COMPLETED),
+         * some of them in one batch with guests or relatives without an account, and about
+         * one in ten users ordering merchandise in a mix of order states.
+         */
+        private void duesAndOrders(Random rnd) {
+            Batch period = batch("reunion_due_periods", f("reunion_year", Integer.class), f("start_date", LocalDate.class),
+                    f("end_date", LocalDate.class), f("created_at", OffsetDateTime.class), f("updated_at", OffsetDateTime.class));
+            Batch dues = batch("dues_payments", f("user_id", Long.class), f("reunion_year", Integer.class),
+                    f("amount_cents", Integer.class), f("square_payment_id", String.class), f("status", String.class),
+                    f("paid_at", OffsetDateTime.class), f("created_at", OffsetDateTime.class),
+                    f("updated_at", OffsetDateTime.class), f("paid_by_user_id", Long.class), f("guest_name", String.class), f("guest_age", Integer.class),
+                    f("batch_id", String.class), f("person_id", Long.class));
+
+            int firstYear = REFERENCE_YEAR - o.reunionYears() + 1;
+            Set<Integer> hasPeriod = dsl.select(f("reunion_year", Integer.class)).from(table("reunion_due_periods"))
+                    .fetchSet(f("reunion_year", Integer.class));
+            for (int year = firstYear; year <= REFERENCE_YEAR; year++) {
+                if (!hasPeriod.contains(year)) {
+                    OffsetDateTime opened = OffsetDateTime.of(year - 1, 11, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+                    period.add(year, LocalDate.of(year, 1, 1), LocalDate.of(year, 7, 31), opened, opened);
+                }
+                for (int u = 0; u < users; u++) {
+                    if (rnd.nextInt(100) >= 35) continue;
+                    String batchId = uuid(rnd);
+                    String status = DUES_STATUSES[pick(rnd, 85, 10)];
+                    OffsetDateTime created = OffsetDateTime.of(year, 1 + rnd.nextInt(7), 1 + rnd.nextInt(28), 10, 0, 0, 0,
+                            ZoneOffset.UTC);
+                    OffsetDateTime paidAt = "COMPLETED".equals(status) ? created.plusMinutes(3) : null;
+                    OffsetDateTime updated = paidAt != null ? paidAt : created;
+                    String squareId = paidAt != null ? "sq_" + token(rnd, 20) : null;
+                    long payer = userId(u);
+                    int me = userPerson[u];
+                    dues.add(payer, year, DuesService.DUES_AMOUNT_CENTS, squareId, status, paidAt, created, updated, payer, null, null, batchId, null);
+                    if (rnd.nextInt(100) < 20) {
+                        for (int g = 1 + rnd.nextInt(2); g > 0; g--) {
+                            int age = rnd.nextInt(70);
+                            dues.add(null, year, age < 12 ? 1000 : DuesService.DUES_AMOUNT_CENTS, squareId, status, paidAt, created,
+                                    updated, payer, "Guest of " + LAST_NAMES[lastName[me]], age, batchId, null);
+                        }
+                    }
+                    if (rnd.nextInt(100) < 15 && me + 1 < count) {
+                        // A relative without an account (people created next to each other are family)
+                        int rel = me + 1;
+                        String name = (male[rel] ? MALE_NAMES : FEMALE_NAMES)[firstName[rel]] + " " + LAST_NAMES[lastName[rel]];
+                        dues.add(null, year, DuesService.DUES_AMOUNT_CENTS, squareId, status, paidAt, created, updated, payer,
+                                name, null, batchId, id(rel));
+                    }
+                }
+            }
+            period.finish();
+            dues.finish();
+            rows.put("reunion_due_periods", period.total);
+            rows.put("dues_payments", dues.total);
+
+            orders(rnd, firstYear);
+        }
+
+        private void orders(Random rnd, int firstYear) {
+            long productBase = nextId("products");
+            Batch product = batch("products", f("id", Long.class), f("name", String.class), f("description", String.class),
+                    f("base_price_cents", Integer.class), f("active", Boolean.class), f("created_at", OffsetDateTime.class),
+                    f("updated_at", OffsetDateTime.class));
+            OffsetDateTime listed = OffsetDateTime.of(firstYear - 1, 10, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+            withExplicitIds("products", () -> {
+                for (int i = 0; i < PRODUCTS.length; i++) {
+                    product.add(productBase + i, PRODUCTS[i][0], "Official " + PRODUCTS[i][0], PRODUCTS[i][1], true,
+                            listed, listed);
+                }
+                product.finish();
+            });
+
+            // Variants: one per size x color (or per color for one-size items)
+            long variantBase = nextId("product_variants");
+            Batch variant = batch("product_variants", f("id", Long.class), f("product_id", Long.class), f("size", String.class),
+                    f("color", String.class), f("price_cents", Integer.class), f("stock", Integer.class),
+                    f("active", Boolean.class));
+            IntList variantProduct = new IntList();
+            List<String[]> variantLabel = new ArrayList<>();
+            withExplicitIds("product_variants", () -> {
+                for (int i = 0; i < PRODUCTS.length; i++) {
+                    String[] sizes = (String[]) PRODUCTS[i][2], colors = (String[]) PRODUCTS[i][3];
+                    String[] sizeOrNone = sizes.length == 0 ? new String[] { null } : sizes;
+                    for (String size : sizeOrNone) {
+                        for (String color : colors) {
+                            int v = variantProduct.size;
+                            int price = (int) PRODUCTS[i][1] + ("2XL".equals(size) ? 300 : 0);
+                            variant.add(variantBase + v, productBase + i, size, color, price, rnd.nextInt(200), true);
+                            variantProduct.add(i);
+                            variantLabel.add(new String[] { size, color, String.valueOf(price) });
+                        }
+                    }
+                }
+                variant.finish();
+            });
+
+            long orderBase = nextId("orders");
+            Batch order = batch("orders", f("id", Long.class), f("user_id", Long.class), f("idempotency_key", String.class),
+                    f("status", String.class), f("total_cents", Integer.class), f("square_payment_id", String.class),
+                    f("created_at", OffsetDateTime.class), f("updated_at", OffsetDateTime.class),
+                    f("expires_at", OffsetDateTime.class));
+            Batch item = batch("order_items", f("order_id", Long.class), f("variant_id", Long.class),
+                    f("quantity", Integer.class), f("unit_price_cents", Integer.class), f("product_name", String.class),
+                    f("size", String.class), f("color", String.class));
+            int[] orders = new int[1];
+            withExplicitIds("orders", () -> {
+                for (int year = firstYear; year <= REFERENCE_YEAR; year++) {
+                    for (int u = 0; u < users; u++) {
+                        if (rnd.nextInt(100) >= 10) continue;
+                        long orderId = orderBase + orders[0]++;
+                        int total = 0;
+                        for (int k = 1 + rnd.nextInt(3); k > 0; k--) {
+                            int v = rnd.nextInt(variantProduct.size);
+                            int qty = 1 + (rnd.nextInt(4) == 0 ? rnd.nextInt(3) : 0);
+                            String[] label = variantLabel.get(v);
+                            int price = Integer.parseInt(label[2]);
+                            total += qty * price;
+                            item.add(orderId, variantBase + v, qty, price, PRODUCTS[variantProduct.get(v)][0],
+                                    label[0], label[1]);
+                        }
+                        String status = ORDER_STATUSES[pick(rnd, 45, 35, 8, 8, 2)];
+                        OffsetDateTime created = OffsetDateTime.of(year, 1 + rnd.nextInt(8), 1 + rnd.nextInt(28),
+                                rnd.nextInt(24), rnd.nextInt(60), 0, 0, ZoneOffset.UTC);
+                        boolean charged = !"PENDING".equals(status) && !"CANCELLED".equals(status);
+                        order.add(orderId, userId(u), uuid(rnd), status, total, charged ? "sq_" + token(rnd, 20) : null,
+                                created, created.plusDays(charged ? rnd.nextInt(20) : 0),
+                                "PENDING".equals(status) ? created.plusMinutes(30) : null);
+                    }
+                }
+                order.finish();
+            });
+            item.finish();
+            rows.put("products", PRODUCTS.length);
+            rows.put("product_variants", variantProduct.size);
+            rows.put("orders", orders[0]);
+            rows.put("order_items", item.total);
+        }
+
+        /* ---------- helpers ---------- */
+
+        private long id(int person) { return personBase + person; }
+
+        private long userId(int u) { return userBase + u; }
+
+        private long nextId(String table) {
+            Long max = dsl.select(DSL.max(f("id", Long.class))).from(table(table)).fetchOne(0, Long.class);
+            return max == null ? 1 : max + 1;
+        }
+
+        /*
+         * Inserts rows with explicit ids into an identity column. SQL Server needs
+         * IDENTITY_INSERT (one table at a time, per session) and then continues after the
+         * largest id on its own; H2 accepts the ids but its identity has to be moved past them.
+         */
+        private void withExplicitIds(String table, Runnable inserts) {
+            boolean sqlServer = dsl.dialect().family() == SQLDialect.SQLSERVER;
+            if (sqlServer) dsl.execute("SET IDENTITY_INSERT {0} ON", table(table));
+            try {
+                inserts.run();
+            } finally {
+                if (sqlServer) dsl.execute("SET IDENTITY_INSERT {0} OFF", table(table));
+            }
+            if (!sqlServer) {
+                dsl.execute("ALTER TABLE {0} ALTER COLUMN {1} RESTART WITH " + nextId(table), table(table), DSL.name("id"));
+            }
+        }
+
+        private Batch batch(String table, Field<?>... fields) {
+            Object[] nulls = new Object[fields.length];
+            return new Batch(dsl, dsl.insertInto(table(table), fields).values(nulls));
+        }
+
+        private static Table<?> table(String name) {
+            return DSL.table(DSL.name(name));
+        }
+
+        private static <T> Field<T> f(String name, Class<T> type) {
+            return DSL.field(DSL.name(name), type);
+        }
+    }
+
+    /* Binds rows to one INSERT and sends them in chunks of CHUNK. */
+    private static final class Batch {
+        private static final int CHUNK = 1000;
+        private final DSLContext dsl;
+        private final Query insert;
+        private BatchBindStep step;
+        private int pending;
+        int total;
+
+        Batch(DSLContext dsl, Query insert) {
+            this.dsl = dsl;
+            this.insert = insert;
+            this.step = dsl.batch(insert);
+        }
+
+        void add(Object... values) {
+            step.bind(values);
+            total++;
+            if (++pending == CHUNK) finish();
+        }
+
+        void finish() {
+            if (pending == 0) return;
+            step.execute();
+            step = dsl.batch(insert);
+            pending = 0;
+        }
+    }
+
+    /* Growable int array; the generator tracks people by index, never by boxed id. */
+    private static final class IntList {
+        int[] a = new int[16];
+        int size;
+
+        void add(int v) {
+            if (size == a.length) a = Arrays.copyOf(a, size * 2);
+            a[size++] = v;
+        }
+
+        int get(int i) { return a[i]; }
+
+        boolean contains(int v) {
+            for (int i = 0; i < size; i++) if (a[i] == v) return true;
+            return false;
+        }
+
+        int[] toArray() { return Arrays.copyOf(a, size); }
+    }
+
+    /* Index skewed towards 0: (u^power) * n, so low indexes come up far more often. */
+    private static int skewed(Random rnd, int n, int power) {
+        return Math.min(n - 1, (int) (Math.pow(rnd.nextDouble(), power) * n));
+    }
+
+    /* Index of the bucket hit, given percentages for all but the last bucket (which takes the rest). */
+    private static int pick(Random rnd, int... percents) {
+        int roll = rnd.nextInt(100), acc = 0;
+        for (int i = 0; i < percents.length; i++) {
+            acc += percents[i];
+            if (roll < acc) return i;
+        }
+        return percents.length;
+    }
+
+    private static LocalDate date(Random rnd, int year) {
+        return LocalDate.of(year, 1 + rnd.nextInt(12), 1 + rnd.nextInt(28));
+    }
+
+    private static String paragraph(Random rnd, int sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(SENTENCES[rnd.nextInt(SENTENCES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String token(Random rnd, int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+
+    /* SecureRandom API over a seeded, repeatable stream (SHA1PRNG seeded before first use) */
+    private static SecureRandom seededSecureRandom(long seed) {
+        try {
+            SecureRandom r = SecureRandom.getInstance("SHA1PRNG");
+            r.setSeed(seed);
+            return r;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* UUID from the seeded generator (UUID.randomUUID() would break reproducibility). */
+    private static String uuid(Random rnd) {
+        return new UUID(rnd.nextLong(), rnd.nextLong()).toString();
+    }
+
+    /* ============================================================
+     * Command line
+     * ============================================================ */
+
+    /**
+     * {@code --url=<jdbc url> [--user=..] [--password=..] [--people=10000] [--seed=42]
+     * [--blog-posts=..] [--gallery-images=..] [--reunion-years=5] [--user-password=synthetic]
+     * [--create-schema]}
+     *
+     * For an embedded or file H2 database add {@code --create-schema} to create the tables
+     * first, e.g. {@code --url=jdbc:h2:./build/synthetic --create-schema}.
+     */
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> a = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + arg);
+            int eq = arg.indexOf('=');
+            a.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        String url = a.get("url");
+        if (url == null) throw new IllegalArgumentException("--url is required");
+
+        Options defaults = Options.forPeople(Integer.parseInt(a.getOrDefault("people", "10000")),
+                Long.parseLong(a.getOrDefault("seed", "42")));
+        Options options = new Options(defaults.people(), defaults.seed(),
+                Integer.parseInt(a.getOrDefault("blog-posts", String.valueOf(defaults.blogPosts()))),
+                Integer.parseInt(a.getOrDefault("gallery-images", String.valueOf(defaults.galleryImages()))),
+                Integer.parseInt(a.getOrDefault("reunion-years", String.valueOf(defaults.reunionYears()))),
+                a.getOrDefault("user-password", defaults.password()));
+
+        try (Connection c = DriverManager.getConnection(url, a.getOrDefault("user", ""), a.getOrDefault("password", ""))) {
+            DSLContext dsl = DSL.using(c, JDBCUtils.dialect(url), new Settings()
+                    .withRenderQuotedNames(RenderQuotedNames.NEVER));
+            if (Boolean.parseBoolean(a.getOrDefault("create-schema", "false"))) createH2Schema(dsl);
+            Summary s = new SyntheticDataGenerator(dsl, options).generate();
+            log.info("Synthetic data ({} people, seed {}) written in {} ms: {}", options.people(), options.seed(),
+                    s.millis(), s.rows());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.scottfamily.scottfamily.synthetic;
+
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import com.scottfamily.scottfamily.graph.FamilyGraph;
+
+/**
+ * Fills the configured database with synthetic data at startup when the app runs with the
+ * {@code synthetic-data} profile, then reloads the family graph and keeps serving, ready for
+ * a load test:
+ *
+ * <pre>
+ * SPRING_PROFILES_ACTIVE=synthetic-data SYNTHETIC_DATA_PEOPLE=100000 ./gradlew bootRun
+ * </pre>
+ *
+ * Never enable this profile against a database with real data in it: the rows are appended,
+ * not cleaned up.
+ */
+@Component
+@Profile("synthetic-data")
+public class SyntheticDataRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataRunner.class);
+
+    private final DSLContext dsl;
+    private final FamilyGraph graph;
+
+    @Value("${synthetic-data.people:10000}")
+    private int people;
+
+    @Value("${synthetic-data.seed:42}")
+    private long seed;
+
+    /** Run the H2 DDL first (embedded H2 only). */
+    @Value("${synthetic-data.create-schema:false}")
+    private boolean createSchema;
+
+    public SyntheticDataRunner(DSLContext dsl, FamilyGraph graph) {
+        this.dsl = dsl;
+        this.graph = graph;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (createSchema) SyntheticDataGenerator.createH2Schema(dsl);
+        SyntheticDataGenerator.Options options = SyntheticDataGenerator.Options.forPeople(people, seed);
+        log.info("SyntheticDataRunner: generating {} people (seed {})", people, seed);
+        SyntheticDataGenerator.Summary s = new SyntheticDataGenerator(dsl, options).generate();
+        log.info("SyntheticDataRunner: done in {} ms: {}", s.millis(), s.rows());
+        graph.reload();
+    }
+}
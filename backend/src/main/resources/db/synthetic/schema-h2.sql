@@ -0,0 +1,205 @@
+-- H2 copy of the tables SyntheticDataGenerator fills (and the benchmarks read), for
+-- running against an embedded database. Mirrors the SQL Server columns the code uses
+-- (NVARCHAR -> VARCHAR, BIT -> BOOLEAN, DATETIMEOFFSET -> TIMESTAMP WITH TIME ZONE);
+-- keep in step when the generator or a benchmarked query starts using a new column.
+
+CREATE TABLE people (
+    id                  BIGINT AUTO_INCREMENT PRIMARY KEY,
+    first_name          VARCHAR(100) NOT NULL,
+    middle_name         VARCHAR(100),
+    last_name           VARCHAR(100),
+    prefix              VARCHAR(20),
+    suffix              VARCHAR(20),
+    date_of_birth       DATE,
+    date_of_death       DATE,
+    mother_id           BIGINT,
+    father_id           BIGINT,
+    bio                 VARCHAR(4000),
+    profile_picture_url VARCHAR(1000),
+    banner_image_url    VARCHAR(1000),
+    location            VARCHAR(255),
+    is_deceased         BOOLEAN,
+    is_archived         BOOLEAN
+);
+
+CREATE TABLE users (
+    id            BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username      VARCHAR(50) NOT NULL UNIQUE,
+    email         VARCHAR(255),
+    password_hash VARCHAR(255),
+    user_role     VARCHAR(50),
+    person_id     BIGINT,
+    created_at    TIMESTAMP,
+    requested_at  TIMESTAMP,
+    approved_at   TIMESTAMP
+);
+CREATE INDEX ix_users_person ON users (person_id);
+
+CREATE TABLE person_parent (
+    child_person_id  BIGINT NOT NULL,
+    parent_person_id BIGINT NOT NULL,
+    relation         VARCHAR(50) NOT NULL,
+    valid_from       DATE,
+    valid_to         DATE,
+    PRIMARY KEY (child_person_id, parent_person_id)
+);
+CREATE INDEX ix_person_parent_parent ON person_parent (parent_person_id);
+
+CREATE TABLE person_spouse (
+    person_id        BIGINT NOT NULL,
+    spouse_person_id BIGINT NOT NULL,
+    PRIMARY KEY (person_id, spouse_person_id)
+);
+
+CREATE TABLE person_sibling (
+    person_a_id BIGINT NOT NULL,
+    person_b_id BIGINT NOT NULL,
+    relation    VARCHAR(50),
+    PRIMARY KEY (person_a_id, person_b_id)
+);
+
+CREATE TABLE blog_posts (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    author_id  BIGINT NOT NULL,
+    title      VARCHAR(255) NOT NULL,
+    content    VARCHAR(100000),
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX ix_blog_posts_created ON blog_posts (created_at);
+
+CREATE TABLE likes (
+    post_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (post_id, user_id)
+);
+
+CREATE TABLE dislikes (
+    post_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    PRIMARY KEY (post_id, user_id)
+);
+
+CREATE TABLE comments (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    post_id    BIGINT NOT NULL,
+    author_id  BIGINT NOT NULL,
+    content    VARCHAR(4000),
+    created_at TIMESTAMP NOT NULL
+);
+CREATE INDEX ix_comments_post ON comments (post_id);
+
+CREATE TABLE gallery_images (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    blob_key     VARCHAR(500) NOT NULL,
+    cdn_url      VARCHAR(1000) NOT NULL,
+    file_name    VARCHAR(500),
+    content_type VARCHAR(100),
+    size_bytes   BIGINT,
+    caption      VARCHAR(1000),
+    image_date   DATE,
+    uploaded_by  BIGINT,
+    uploaded_at  TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    youtube_url  VARCHAR(1000)
+);
+
+CREATE TABLE gallery_image_tags (
+    image_id  BIGINT NOT NULL,
+    person_id BIGINT NOT NULL,
+    PRIMARY KEY (image_id, person_id)
+);
+CREATE INDEX ix_gallery_image_tags_person ON gallery_image_tags (person_id);
+
+CREATE TABLE reunion_due_periods (
+    id           BIGINT AUTO_INCREMENT PRIMARY KEY,
+    reunion_year INT NOT NULL UNIQUE,
+    start_date   DATE NOT NULL,
+    end_date     DATE NOT NULL,
+    created_at   TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at   TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE dues_payments (
+    id                 BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id            BIGINT,
+    reunion_year       INT NOT NULL,
+    amount_cents       INT NOT NULL,
+    square_payment_id  VARCHAR(255),
+    square_receipt_url VARCHAR(1000),
+    status             VARCHAR(20) NOT NULL,
+    notes              VARCHAR(1000),
+    paid_at            TIMESTAMP WITH TIME ZONE,
+    created_at         TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at         TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    paid_by_user_id    BIGINT,
+    guest_name         VARCHAR(255),
+    guest_age          INT,
+    batch_id           VARCHAR(64),
+    person_id          BIGINT
+);
+CREATE INDEX ix_dues_payments_year ON dues_payments (reunion_year, status);
+
+CREATE TABLE products (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name             VARCHAR(255) NOT NULL,
+    description      VARCHAR(4000),
+    image_url        VARCHAR(1000),
+    base_price_cents INT NOT NULL,
+    active           BOOLEAN DEFAULT TRUE NOT NULL,
+    created_at       TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at       TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE product_variants (
+    id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id  BIGINT NOT NULL,
+    size        VARCHAR(20),
+    color       VARCHAR(50),
+    price_cents INT,
+    stock       INT NOT NULL,
+    active      BOOLEAN DEFAULT TRUE NOT NULL
+);
+
+CREATE TABLE orders (
+    id                 BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id            BIGINT NOT NULL,
+    idempotency_key    VARCHAR(100),
+    status             VARCHAR(20) NOT NULL,
+    total_cents        INT NOT NULL,
+    square_payment_id  VARCHAR(255),
+    square_receipt_url VARCHAR(1000),
+    notes              VARCHAR(1000),
+    created_at         TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at         TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    expires_at         TIMESTAMP WITH TIME ZONE
+);
+CREATE INDEX ix_orders_user ON orders (user_id);
+
+CREATE TABLE order_items (
+    id               BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id         BIGINT NOT NULL,
+    variant_id       BIGINT NOT NULL,
+    quantity         INT NOT NULL,
+    unit_price_cents INT NOT NULL,
+    product_name     VARCHAR(255),
+    size             VARCHAR(20),
+    color            VARCHAR(50)
+);
+CREATE INDEX ix_order_items_order ON order_items (order_id);
+
+CREATE TABLE login_attempts (
+    ip_key          VARCHAR(64) NOT NULL,
+    window_start    BIGINT NOT NULL,
+    failures        INT NOT NULL,
+    last_failure_at BIGINT NOT NULL,
+    PRIMARY KEY (ip_key, window_start)
+);
+CREATE INDEX ix_login_attempts_window ON login_attempts (window_start);
+
+CREATE TABLE change_feed (
+    id         BIGINT AUTO_INCREMENT PRIMARY KEY,
+    kind       VARCHAR(10) NOT NULL,
+    entity_id  BIGINT,
+    origin     VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+CREATE INDEX ix_change_feed_created ON change_feed (created_at);
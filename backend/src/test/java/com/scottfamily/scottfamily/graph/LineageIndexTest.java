@@ -0,0 +1,97 @@
+package com.scottfamily.scottfamily.graph;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LineageIndexTest {
+
+    /*
+     *   1 ═╦═ 2             8 ⇄ 9   (each recorded as the other's mother)
+     *   ┌──┴──┐                 │
+     *   3     4                 10
+     *   │╎    │
+     *   5 7   6             7 is 3's stepchild only
+     */
+    private FamilyGraphStore st;
+    private LineageIndex index;
+
+    @BeforeEach
+    void setUp() {
+        st = new FamilyGraphStore(16);
+        person(1, null, null);
+        person(2, null, null);
+        person(3, 1L, 2L);
+        person(4, 1L, 2L);
+        person(5, null, 3L);
+        person(6, 4L, null);
+        person(7, null, null);
+        st.putParentRelation(7, 3, "STEP_FATHER");
+        person(8, 9L, null);
+        person(9, 8L, null);
+        person(10, 9L, null);
+        index = LineageIndex.build(st);
+    }
+
+    @Test
+    void isAncestor() {
+        Object[][] cases = {
+                // ancestor, person, expected
+                { 1, 5, true },
+                { 2, 6, true },
+                { 1, 3, true },
+                { 3, 5, true },
+                { 3, 6, false },    // uncle
+                { 5, 1, false },    // wrong direction
+                { 1, 1, false },    // strict
+                { 3, 7, false },    // step link carries no lineage
+                { 1, 8, false },
+                // The cycle is broken at the lowest id: 8 is kept as 9's parent, not the reverse
+                { 8, 9, true },
+                { 8, 10, true },
+                { 9, 10, true },
+                { 9, 8, false },
+        };
+        for (Object[] c : cases) {
+            long a = (Integer) c[0], p = (Integer) c[1];
+            assertEquals(c[2], index.isAncestor(st.slotOf(a), st.slotOf(p)), a + " ancestor of " + p);
+        }
+    }
+
+    @Test
+    void descendantCounts() {
+        long[][] cases = {
+                // person, descendants
+                { 1, 4 }, { 2, 4 }, { 3, 1 }, { 4, 1 }, { 5, 0 }, { 7, 0 },
+                { 8, 2 }, { 9, 1 }, { 10, 0 },
+        };
+        for (long[] c : cases) {
+            assertEquals((int) c[1], index.descendantCount(st.slotOf(c[0])), "descendants of " + c[0]);
+        }
+    }
+
+    @Test
+    void descendantsInBranchOrder() {
+        assertArrayEquals(new long[] { 3, 5, 4, 6 }, ids(index.descendants(st.slotOf(1), 0, 10)));
+        assertArrayEquals(new long[] { 5, 4 }, ids(index.descendants(st.slotOf(1), 1, 2)));
+        assertArrayEquals(new long[] { 3, 4, 5, 6 }, sorted(ids(index.descendants(st.slotOf(2), 0, 10))));
+        assertArrayEquals(new long[0], ids(index.descendants(st.slotOf(1), 4, 10)));
+    }
+
+    private void person(long id, Long motherId, Long fatherId) {
+        st.upsertPerson(id, "P" + id, null, "Scott", null, null, motherId, fatherId, null, false);
+    }
+
+    private long[] ids(int[] slots) {
+        return Arrays.stream(slots).mapToLong(st::id).toArray();
+    }
+
+    private static long[] sorted(long[] ids) {
+        Arrays.sort(ids);
+        return ids;
+    }
+}
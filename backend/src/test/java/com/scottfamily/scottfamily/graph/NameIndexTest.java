@@ -0,0 +1,74 @@
+package com.scottfamily.scottfamily.graph;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class NameIndexTest {
+
+    private FamilyGraphStore st;
+
+    @BeforeEach
+    void setUp() {
+        st = new FamilyGraphStore(16);
+        person(1, "John", "Smith", false);
+        person(2, "Mary", "Johnson", false);
+        person(3, "Elton", "Littlejohn", false);
+        person(4, "Johnny", "Archer", true);
+        person(5, "José", "Alvarez", false);
+        person(6, "Mary", "O'Brien", false);
+    }
+
+    /* Ranked prefix of the whole name, then every word at a word start, then substring; ties by last name */
+    @ParameterizedTest(name = "\"{0}\" limit={1} excludeArchived={2} -> {3}")
+    @CsvSource({
+            "john,      10, false, '4 1 2 3'",
+            "john,      10, true,  '1 2 3'",
+            "john,      2,  false, '4 1'",
+            "ohn,       10, false, '4 2 3 1'",
+            "ohn,       10, true,  '2 3 1'",
+            // Short words match at word starts; the mid-word scan tops up only a short result
+            "jo,        10, false, '5 4 1 2 3'",
+            "jo,        3,  false, '5 4 1'",
+            "jo,        10, true,  '5 1 2 3'",
+            "mary john, 10, false, '2'",
+            "john mary, 10, false, '2'",
+            "JOSE alv,  10, false, '5'",
+            "josé,      10, false, '5'",
+            "obrien,    10, false, '6'",
+            "xyz,       10, false, ''",
+            "john,      0,  false, ''",
+    })
+    void ranking(String query, int limit, boolean excludeArchived, String expected) {
+        assertArrayEquals(ids(expected), ids(st.searchNames(query, limit, excludeArchived)), query);
+    }
+
+    @Test
+    void renamesAndRemovalsReindex() {
+        person(1, "Jack", "Smith", false);
+        assertArrayEquals(ids("2 3"), ids(st.searchNames("john", 10, true)));
+        assertArrayEquals(ids("1"), ids(st.searchNames("jack", 10, true)));
+
+        st.removePerson(2);
+        assertArrayEquals(ids("3"), ids(st.searchNames("john", 10, true)));
+        assertArrayEquals(ids("6"), ids(st.searchNames("mary", 10, true)));
+    }
+
+    private void person(long id, String first, String last, boolean archived) {
+        st.upsertPerson(id, null, first, null, last, null, null, null, null, null, null, false, archived);
+    }
+
+    private long[] ids(int[] slots) {
+        return Arrays.stream(slots).mapToLong(st::id).toArray();
+    }
+
+    private static long[] ids(String expected) {
+        if (expected == null || expected.isBlank()) return new long[0];
+        return Arrays.stream(expected.trim().split(" ")).mapToLong(Long::parseLong).toArray();
+    }
+}
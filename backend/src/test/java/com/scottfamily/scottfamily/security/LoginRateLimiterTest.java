@@ -0,0 +1,152 @@
+package com.scottfamily.scottfamily.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.jooq.SQLDialect;
+import org.jooq.conf.RenderQuotedNames;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.scottfamily.scottfamily.security.LoginRateLimiter.RateLimitResult;
+import com.scottfamily.scottfamily.synthetic.SyntheticDataGenerator;
+
+/** The limiter on a hand-moved clock, over the in-memory store and the MERGE store on H2. */
+class LoginRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(15);
+    private static final long W = WINDOW.toSeconds();
+    private static final long T0 = 1_000 * W;     // a window start
+    private static final long T1 = T0 + W;        // the next one
+    private static final String IP = "203.0.113.7";
+
+    private final TestClock clock = new TestClock();
+    private Connection h2;
+
+    @AfterEach
+    void closeDatabase() throws SQLException {
+        if (h2 != null) h2.close();
+    }
+
+    private LoginRateLimiter limiter(String store) throws SQLException {
+        LoginAttemptStore s;
+        if (store.equals("local")) {
+            s = new LocalLoginAttemptStore(WINDOW, 1_000);
+        } else {
+            h2 = DriverManager.getConnection("jdbc:h2:mem:", "sa", "");
+            var dsl = DSL.using(h2, SQLDialect.H2, new Settings().withRenderQuotedNames(RenderQuotedNames.NEVER));
+            SyntheticDataGenerator.createH2Schema(dsl);
+            s = new JdbcLoginAttemptStore(dsl);
+        }
+        return new LoginRateLimiter(s, WINDOW, clock);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"local", "h2"})
+    void backOffTiers(String store) throws SQLException {
+        LoginRateLimiter limiter = limiter(store);
+        clock.at(T0 + 10);
+        fail(limiter, 5);
+        assertResult(true, 0, limiter.check(IP));
+
+        fail(limiter, 1);                               // 6
+        assertResult(false, 30, limiter.check(IP));
+        clock.at(T0 + 25);
+        assertResult(false, 15, limiter.check(IP));
+        clock.at(T0 + 40);
+        assertResult(true, 0, limiter.check(IP));
+
+        fail(limiter, 4);                               // 10
+        assertResult(false, 30, limiter.check(IP));
+        fail(limiter, 1);                               // 11
+        assertResult(false, 120, limiter.check(IP));
+        fail(limiter, 9);                               // 20
+        assertResult(false, 120, limiter.check(IP));
+        fail(limiter, 1);                               // 21
+        assertResult(false, 300, limiter.check(IP));
+        clock.at(T0 + 340);
+        assertResult(true, 0, limiter.check(IP));
+
+        limiter.recordSuccess(IP);
+        fail(limiter, 1);
+        assertResult(true, 0, limiter.check(IP));
+        assertResult(true, 0, limiter.check("198.51.100.1"));
+    }
+
+    /* 12 failures just before T1, then one more at each step: the estimate is the current
+       window's count plus the previous one's weighted by its overlap with the last 15 minutes */
+    @ParameterizedTest
+    @ValueSource(strings = {"local", "h2"})
+    void previousWindowFadesAcrossTheBoundary(String store) throws SQLException {
+        LoginRateLimiter limiter = limiter(store);
+        clock.at(T1 - 1);
+        fail(limiter, 12);
+        assertResult(false, 120, limiter.check(IP));    // 12
+
+        clock.at(T1);
+        assertResult(false, 119, limiter.check(IP));    // 12 × 1
+
+        clock.at(T1 + W / 2);
+        fail(limiter, 1);
+        assertResult(false, 30, limiter.check(IP));     // 1 + 12 × 1/2 = 7
+
+        clock.at(T1 + 500);
+        fail(limiter, 1);
+        assertResult(false, 30, limiter.check(IP));     // 2 + 12 × 4/9 ≈ 7.3
+
+        clock.at(T1 + 800);
+        fail(limiter, 1);
+        assertResult(true, 0, limiter.check(IP));       // 3 + 12 × 1/9 ≈ 4.3
+
+        // Two windows on, T0's failures are gone and T1's are the previous window
+        clock.at(T1 + W);
+        fail(limiter, 3);
+        assertResult(false, 30, limiter.check(IP));     // 3 + 3 × 1 = 6
+        clock.at(T1 + W + 700);
+        fail(limiter, 1);
+        assertResult(true, 0, limiter.check(IP));       // 4 + 3 × 2/9 ≈ 4.7
+    }
+
+    private static void fail(LoginRateLimiter limiter, int times) {
+        for (int i = 0; i < times; i++) limiter.recordFailure(IP);
+    }
+
+    private static void assertResult(boolean allowed, long retryAfter, RateLimitResult r) {
+        assertEquals(allowed, r.allowed(), "allowed");
+        assertEquals(retryAfter, r.retryAfterSeconds(), "retry after");
+    }
+
+    private static final class TestClock extends Clock {
+        private Instant now = Instant.EPOCH;
+
+        void at(long epochSecond) {
+            now = Instant.ofEpochSecond(epochSecond);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
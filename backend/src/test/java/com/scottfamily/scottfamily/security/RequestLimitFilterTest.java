@@ -0,0 +1,148 @@
+package com.scottfamily.scottfamily.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.catalina.filters.RemoteIpFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.scottfamily.scottfamily.properties.RequestLimitProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The GCRA bucket on a hand-moved clock (5 tokens, one back per second), and whose bucket a
+ * request behind Front Door lands in.
+ */
+class RequestLimitFilterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long INTERVAL = SECOND;
+    private static final long BURST = 5 * INTERVAL;
+    private static final long T = 123_456 * SECOND;    // nanoTime has an arbitrary origin
+
+    private final AtomicLong bucket = new AtomicLong(Long.MIN_VALUE);
+
+    private long acquire(long now) {
+        return RequestLimitFilter.tryAcquire(bucket, now, INTERVAL, BURST);
+    }
+
+    @Test
+    void burstThenRejected() {
+        for (int i = 0; i < 5; i++) assertEquals(0, acquire(T), "token " + (i + 1));
+        assertEquals(SECOND, acquire(T));
+        assertEquals(SECOND, acquire(T), "a rejection doesn't use a token");
+    }
+
+    @Test
+    void refillsOneTokenPerInterval() {
+        for (int i = 0; i < 5; i++) acquire(T);
+
+        assertEquals(SECOND / 4, acquire(T + 3 * SECOND / 4));
+        assertEquals(0, acquire(T + SECOND));
+        assertEquals(SECOND, acquire(T + SECOND));
+
+        assertEquals(0, acquire(T + 3 * SECOND));
+        assertEquals(0, acquire(T + 3 * SECOND));
+        assertEquals(SECOND, acquire(T + 3 * SECOND));
+    }
+
+    @Test
+    void idleBucketHoldsNoMoreThanTheBurst() {
+        for (int i = 0; i < 5; i++) acquire(T);
+        long later = T + 60 * SECOND;
+        for (int i = 0; i < 5; i++) assertEquals(0, acquire(later), "token " + (i + 1));
+        assertEquals(SECOND, acquire(later));
+    }
+
+    @Test
+    void slowBucketAsksForTheWholeInterval() {
+        long interval = 10 * SECOND;     // 0.1 per second, capacity 1
+        assertEquals(0, RequestLimitFilter.tryAcquire(bucket, T, interval, interval));
+        long wait = RequestLimitFilter.tryAcquire(bucket, T + SECOND, interval, interval);
+        assertEquals(9 * SECOND, wait);
+        assertEquals(9, RequestLimitFilter.retryAfterSeconds(wait));
+        assertEquals(0, RequestLimitFilter.tryAcquire(bucket, T + SECOND + wait, interval, interval));
+    }
+
+    @ParameterizedTest(name = "{0} ns -> {1} s")
+    @CsvSource({
+            "1,          1",
+            "250000000,  1",
+            "1000000000, 1",
+            "1000000001, 2",
+            "9000000000, 9",
+    })
+    void retryAfterRoundsUp(long waitNanos, long seconds) {
+        assertEquals(seconds, RequestLimitFilter.retryAfterSeconds(waitNanos));
+    }
+
+    @ParameterizedTest(name = "configured={0}, virtual={1} -> {2}")
+    @CsvSource({
+            ",    false, 40",
+            ",    true,  2147483647",
+            "400, true,  400",
+            "25,  false, 25",
+    })
+    void inFlightCapFollowsTheThreadModel(Integer configured, boolean virtualThreads, int expected) {
+        assertEquals(expected, RequestLimitFilter.maxInFlight(configured, virtualThreads));
+    }
+
+    /* Front Door edge addresses, for the test; production sets TRUSTED_PROXIES */
+    private static final String EDGES = "147\\.243\\.\\d{1,3}\\.\\d{1,3}";
+
+    @Test
+    void eachClientBehindATrustedProxyHasItsOwnBucket() throws Exception {
+        RequestLimitFilter limiter = loginLimiter(EDGES);
+        RemoteIpFilter remoteIp = remoteIp(EDGES);
+
+        assertEquals(200, login(remoteIp, limiter, "198.51.100.7"));
+        assertEquals(200, login(remoteIp, limiter, "203.0.113.9"));
+        assertEquals(429, login(remoteIp, limiter, "198.51.100.7"));
+    }
+
+    @Test
+    void clientsBehindAnUntrustedProxyShareItsBucket() throws Exception {
+        RequestLimitFilter limiter = loginLimiter("");
+        RemoteIpFilter remoteIp = remoteIp(null);
+
+        assertEquals(200, login(remoteIp, limiter, "198.51.100.7"));
+        assertEquals(429, login(remoteIp, limiter, "203.0.113.9"));
+    }
+
+    /* One request per caller, then nothing for minutes */
+    private static RequestLimitFilter loginLimiter(String trustedProxies) {
+        RequestLimitProperties.Group login = new RequestLimitProperties.Group();
+        login.setName("login");
+        login.setPatterns(List.of("/api/auth/login"));
+        login.setCapacity(1);
+        login.setRefillPerSecond(0.01);
+        RequestLimitProperties props = new RequestLimitProperties();
+        props.setGroups(List.of(login));
+        return new RequestLimitFilter(props, new SimpleMeterRegistry(), false, trustedProxies);
+    }
+
+    /* What server.tomcat.remoteip sets up on the valve, as a filter */
+    private static RemoteIpFilter remoteIp(String trustedProxies) {
+        RemoteIpFilter remoteIp = new RemoteIpFilter();
+        if (trustedProxies != null) remoteIp.setTrustedProxies(trustedProxies);
+        return remoteIp;
+    }
+
+    /* Client -> Front Door edge -> App Service front end -> this instance */
+    private static int login(RemoteIpFilter remoteIp, RequestLimitFilter limiter, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/auth/login");
+        request.setRemoteAddr("10.0.0.4");
+        request.addHeader("X-Forwarded-For", client + ", 147.243.1.20");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        remoteIp.doFilter(request, response, (req, res) -> limiter.doFilter(req, res, (rq, rs) -> { }));
+        return response.getStatus();
+    }
+}
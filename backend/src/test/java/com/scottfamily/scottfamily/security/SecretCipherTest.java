@@ -0,0 +1,57 @@
+package com.scottfamily.scottfamily.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class SecretCipherTest {
+
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final String OTHER_KEY = Base64.getEncoder().encodeToString(new byte[16]);
+    private static final String SECRET = "JBSWY3DPEHPK3PXPJBSWY3DPEHPK3PXP";
+
+    private final SecretCipher cipher = new SecretCipher(KEY);
+
+    @Test
+    void roundTripsAndFitsTheColumn() {
+        String sealed = cipher.seal(SECRET, "TOTP_SECRET:7");
+        assertTrue(sealed.startsWith("v1:"), sealed);
+        assertFalse(sealed.contains(SECRET));
+        assertTrue(sealed.length() <= 128, sealed);
+        assertEquals(SECRET, cipher.open(sealed, "TOTP_SECRET:7"));
+        // fresh IV per seal
+        assertNotEquals(sealed, cipher.seal(SECRET, "TOTP_SECRET:7"));
+    }
+
+    @Test
+    void rejectsUnsealedValues() {
+        assertThrows(IllegalStateException.class, () -> cipher.open(SECRET, "TOTP_SECRET:7"));
+        assertThrows(IllegalStateException.class, () -> cipher.open(null, "TOTP_SECRET:7"));
+        assertThrows(IllegalStateException.class, () -> cipher.open("v1:not base64!", "TOTP_SECRET:7"));
+    }
+
+    @Test
+    void rejectsAnotherContextKeyOrAlteredValue() {
+        String sealed = cipher.seal(SECRET, "TOTP_SECRET:7");
+        assertThrows(IllegalStateException.class, () -> cipher.open(sealed, "TOTP_SECRET:8"));
+        assertThrows(IllegalStateException.class, () -> new SecretCipher(OTHER_KEY).open(sealed, "TOTP_SECRET:7"));
+
+        char[] chars = sealed.toCharArray();
+        int i = chars.length / 2;
+        chars[i] = chars[i] == 'A' ? 'B' : 'A';
+        assertThrows(IllegalStateException.class, () -> cipher.open(new String(chars), "TOTP_SECRET:7"));
+    }
+
+    @Test
+    void rejectsKeysOfTheWrongSize() {
+        String shortKey = Base64.getEncoder().encodeToString(new byte[10]);
+        assertThrows(IllegalArgumentException.class, () -> new SecretCipher(shortKey));
+        assertThrows(IllegalArgumentException.class, () -> new SecretCipher("not base64!"));
+    }
+}
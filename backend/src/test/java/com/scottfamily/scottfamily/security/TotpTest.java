@@ -0,0 +1,83 @@
+package com.scottfamily.scottfamily.security;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.codec.binary.Base32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class TotpTest {
+
+    /* RFC 6238 Appendix B, SHA1 seed; Base32 of the ASCII bytes */
+    private static final byte[] RFC_KEY = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+    private static final String RFC_SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    /* The RFC lists 8-digit codes; ours are their last 6 digits */
+    @ParameterizedTest(name = "T={0}s -> {1}")
+    @CsvSource({
+            "59,          94287082",
+            "1111111109,  07081804",
+            "1111111111,  14050471",
+            "1234567890,  89005924",
+            "2000000000,  69279037",
+            "20000000000, 65353130",
+    })
+    void rfc6238Vectors(long seconds, String rfcCode) {
+        String expected = rfcCode.substring(rfcCode.length() - Totp.DIGITS);
+        long step = seconds / Totp.STEP_SECONDS;
+        assertEquals(Integer.parseInt(expected), Totp.code(RFC_KEY, step));
+        assertEquals(step, Totp.matchingStep(RFC_SECRET, expected, seconds * 1000, 0));
+    }
+
+    /* "287082" is the code for step 1 (30–59 s) */
+    @ParameterizedTest(name = "now={0}ms window={1} -> step {2}")
+    @CsvSource({
+            "59000,  0, 1",
+            "30000,  0, 1",
+            "29999,  0, -1",
+            "29999,  1, 1",     // a step early: the phone's clock is ahead
+            "60000,  0, -1",
+            "89999,  1, 1",     // a step late
+            "90000,  1, -1",    // two steps late
+    })
+    void windowAroundNow(long nowMillis, int window, long expectedStep) {
+        assertEquals(expectedStep, Totp.matchingStep(RFC_SECRET, "287082", nowMillis, window));
+    }
+
+    @ParameterizedTest(name = "\"{0}\" is refused")
+    @CsvSource({ "28708", "2870820", "28708a", "' 287082'", "''" })
+    void malformedCodes(String code) {
+        assertEquals(-1, Totp.matchingStep(RFC_SECRET, code, 59_000, 1));
+    }
+
+    @Test
+    void base32RoundTrip() {
+        assertEquals(RFC_SECRET, new Base32().encodeToString(RFC_KEY));
+        assertArrayEquals(RFC_KEY, new Base32().decode(RFC_SECRET));
+
+        for (int i = 0; i < 20; i++) {
+            String secret = Totp.newSecret();
+            assertTrue(secret.matches("[A-Z2-7]{32}"), secret);
+            byte[] key = new Base32().decode(secret);
+            assertEquals(20, key.length);
+            assertEquals(secret, new Base32().encodeToString(key));
+
+            // What the app computes from the scanned secret is accepted
+            long now = 1_700_000_000_000L;
+            String code = String.format("%06d", Totp.code(key, now / 1000 / Totp.STEP_SECONDS));
+            assertEquals(now / 1000 / Totp.STEP_SECONDS, Totp.matchingStep(secret, code, now, 1));
+        }
+    }
+
+    @Test
+    void provisioningUri() {
+        assertEquals("otpauth://totp/Scott%20Family:jane%40example.com?secret=" + RFC_SECRET
+                        + "&issuer=Scott%20Family&algorithm=SHA1&digits=6&period=30",
+                Totp.provisioningUri("Scott Family", "jane@example.com", RFC_SECRET));
+    }
+}
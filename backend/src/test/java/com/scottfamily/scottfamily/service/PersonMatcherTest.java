@@ -0,0 +1,51 @@
+package com.scottfamily.scottfamily.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class PersonMatcherTest {
+
+    /* Names as PersonMatcher sees them (normalized); an empty date is unknown */
+    @ParameterizedTest(name = "{0} {1} {2} ±{3} vs {4} {5} {6} -> {7}")
+    @CsvSource({
+            // Names only: first 0.4, last 0.6
+            "john, smith, ,           30, john, smith, ,           1.0",
+            "john, smith, 1950-03-07, 30, john, smith, ,           1.0",
+            "john, smith, ,           30, '',   smith, ,           0.6",
+            "ann,  '',    ,           30, ann,  jones, ,           1.0",
+            "mary, jones, ,           30, mark, jones, ,           0.9",
+            "john, smith, ,           30, john, smyth, ,           0.94",      // edit distance 0.8, same sound
+            "christopher, '', ,       30, christohper, '', ,       0.9090909", // transposition is one edit
+            // Dates: name 0.85, date 0.15
+            "john, smith, 1950-03-07, 30, john, smith, 1950-03-07, 1.0",
+            "john, smith, 1950-03-07, 30, john, smith, 1950-07-03, 0.985",     // day and month swapped
+            "john, smith, 1950-03-07, 30, john, smith, 1951-07-03, 0.0",       // swapped, but not the same year
+            "john, smith, 1950-03-07, 30, john, smith, 1950-03-17, 0.955",
+            "john, smith, 1950-03-07, 30, john, smith, 1950-02-05, 0.925",     // exactly at the tolerance
+            "john, smith, 1950-03-07, 30, john, smith, 1950-04-07, 0.0",       // 31 days
+            "john, smith, 1950-03-07, 0,  john, smith, 1950-03-08, 0.0",
+            "john, smith, 1950-03-07, 366, john, smith, 1951-03-07, 0.9251230",
+            "mary, jones, 1950-03-07, 30, mark, jones, 1950-03-07, 0.915",
+    })
+    void score(String qFirst, String qLast, LocalDate qDob, int toleranceDays,
+               String first, String last, LocalDate dob, double expected) {
+        assertEquals(expected, PersonMatcher.score(qFirst, qLast, qDob, toleranceDays, first, last, dob), 1e-6);
+    }
+
+    @ParameterizedTest(name = "{0} / {1} -> {2}")
+    @CsvSource({
+            "John,      john,      true",
+            "Jon,       John,      true",
+            "Katherine, Catherine, true",
+            "Mary,      Mark,      false",   // same DOB: twins, not a typo
+            "Emma,      Emily,     false",
+            "'',        '',        false",
+    })
+    void sameName(String a, String b, boolean expected) {
+        assertEquals(expected, PersonMatcher.sameName(a, b));
+    }
+}
@@ -0,0 +1,44 @@
+package com.scottfamily.scottfamily.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class RelationshipServiceTest {
+
+    /* up = generations from A to the common ancestor, down = from there to B */
+    @ParameterizedTest(name = "up={0} down={1} half={2} sex={3} -> {4}")
+    @CsvSource({
+            "0, 0, false, ?, self",
+            // Direct line
+            "1, 0, false, F, mother",
+            "1, 0, false, ?, parent",
+            "2, 0, false, M, grandfather",
+            "3, 0, false, ?, great-grandparent",
+            "4, 0, false, F, 2nd great-grandmother",
+            "0, 1, false, M, son",
+            "0, 3, false, F, great-granddaughter",
+            // Siblings, nieces and nephews, aunts and uncles
+            "1, 1, false, F, sister",
+            "1, 1, true,  M, half-brother",
+            "1, 2, false, ?, niece/nephew",
+            "1, 3, false, F, grandniece",
+            "1, 4, false, M, great-grandnephew",
+            "2, 1, false, F, aunt",
+            "2, 1, true,  ?, half-aunt/uncle",
+            "3, 1, false, M, great-uncle",
+            // Cousins
+            "2, 2, false, F, first cousin",
+            "2, 3, false, M, first cousin once removed",
+            "3, 2, false, ?, first cousin once removed",
+            "2, 4, false, F, first cousin twice removed",
+            "2, 5, false, F, first cousin 3 times removed",
+            "3, 3, false, M, second cousin",
+            "3, 3, true,  M, half-second cousin",
+            "12, 12, false, ?, 11th cousin",
+    })
+    void labels(int up, int down, boolean half, char sex, String expected) {
+        assertEquals(expected, RelationshipService.label(up, down, half, sex));
+    }
+}
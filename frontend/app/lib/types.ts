@@ -59,6 +59,8 @@ export interface FamilyNodeDto {
   spouse?: FamilyNodeDto | null;
   deceased?: boolean;
   parentRelation?: string | null;
+  /** Set only when children were left out of a partial tree (lazy expand). */
+  childCount?: number | null;
 }
 
 // ─── Blog ───────────────────────────────────────────────────
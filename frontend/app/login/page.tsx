@@ -37,6 +37,7 @@ export default function LoginPage() {
   // ── 2FA state ────────────────────────────────────────────────────
   const [twoFactorRequired, setTwoFactorRequired] = useState(false);
   const [maskedPhone, setMaskedPhone] = useState('');
+  const [usesAuthenticator, setUsesAuthenticator] = useState(false);
   const [otpCode, setOtpCode] = useState('');
   const [useBackupCode, setUseBackupCode] = useState(false);
   const [resending, setResending] = useState(false);
@@ -102,7 +103,10 @@ export default function LoginPage() {
       if (profile.twoFactorRequired) {
         setTwoFactorRequired(true);
         setMaskedPhone(profile.maskedPhone || '');
-        setMsg({ type: 'info', text: `A verification code has been sent to ${profile.maskedPhone || 'your phone'}.` });
+        setUsesAuthenticator(profile.method === 'TOTP');
+        if (profile.method !== 'TOTP') {
+          setMsg({ type: 'info', text: `A verification code has been sent to ${profile.maskedPhone || 'your phone'}.` });
+        }
         return;
       }
 
@@ -171,7 +175,9 @@ export default function LoginPage() {
   async function onResendCode() {
     setResending(true);
     try {
-      await apiFetch('/api/auth/resend-2fa', { method: 'POST' });
+      const data = await apiFetch<{ maskedPhone?: string }>('/api/auth/resend-2fa', { method: 'POST' });
+      if (data?.maskedPhone) setMaskedPhone(data.maskedPhone);
+      setUsesAuthenticator(false);
       setMsg({ type: 'info', text: 'A new code has been sent to your phone.' });
     } catch (err: unknown) {
       if (err instanceof ApiError) {
@@ -191,6 +197,7 @@ export default function LoginPage() {
 
   function onBack() {
     setTwoFactorRequired(false);
+    setUsesAuthenticator(false);
     setOtpCode('');
     setUseBackupCode(false);
     setMsg(null);
@@ -211,7 +218,9 @@ export default function LoginPage() {
           <Typography variant="body2" sx={{ color: 'var(--text-secondary)' }}>
             {useBackupCode
               ? 'Enter one of your backup codes'
-              : `Enter the 6-digit code sent to ${maskedPhone}`}
+              : usesAuthenticator
+                ? 'Enter the 6-digit code from your authenticator app'
+                : `Enter the 6-digit code sent to ${maskedPhone}`}
           </Typography>
         </Box>
 
@@ -256,7 +265,7 @@ export default function LoginPage() {
                     disabled={resending}
                     sx={{ fontSize: '0.82rem', color: 'var(--color-primary-500)' }}
                   >
-                    {resending ? 'Sending…' : 'Resend code'}
+                    {resending ? 'Sending…' : usesAuthenticator ? 'Text me a code instead' : 'Resend code'}
                   </Link>
                 </Stack>
               )}
@@ -274,7 +283,9 @@ export default function LoginPage() {
                   }}
                   sx={{ fontSize: '0.82rem', color: 'var(--color-primary-500)' }}
                 >
-                  {useBackupCode ? 'Use SMS code instead' : 'Use a backup code'}
+                  {useBackupCode
+                    ? (usesAuthenticator ? 'Use authenticator code instead' : 'Use SMS code instead')
+                    : 'Use a backup code'}
                 </Link>
                 <Link
                   component="button"